@@ -20,6 +20,7 @@ import io.supertokens.cli.OperatingSystem;
 import io.supertokens.cli.Utils;
 import io.supertokens.cli.cliOptionsParsers.CLIOptionsParser;
 import io.supertokens.cli.commandHandler.CommandHandler;
+import io.supertokens.cli.commandHandler.start.AppCDS;
 import io.supertokens.cli.commandHandler.version.VersionFile;
 import io.supertokens.cli.commandHandler.version.VersionHandler;
 import io.supertokens.cli.exception.QuitProgramException;
@@ -35,6 +36,7 @@ public class InstallHandler extends CommandHandler {
     public void doCommand(String ignored, boolean viaInstaller, String[] args) {
         String installationDir = getToInstallDir(args);
         String exeLoc = CLIOptionsParser.parseOption("--exeLoc", args);
+        boolean withCDS = CLIOptionsParser.hasKey("--with-cds", args);
         if (!viaInstaller) {
             Logging.info(
                     "SuperTokens is already installed! Run \"supertokens --help\" to see the list of all available "
@@ -59,6 +61,9 @@ public class InstallHandler extends CommandHandler {
             } else {
                 moveContentToInstallationDir(installationDir);
                 createSupertokensScript(installationDir, exeLoc);
+                if (withCDS) {
+                    createCDSArchive(installationDir);
+                }
                 Logging.info("Successfully installed SuperTokens! You can now delete this directory safely");
                 Logging.info("Run \"supertokens --help\" to see list of available commands");
             }
@@ -131,6 +136,16 @@ public class InstallHandler extends CommandHandler {
         webserverTemp.setWritable(true, false);
     }
 
+    private void createCDSArchive(String installationDir) {
+        // the archive is only used if the core is started with the same classpath, so the installation dir is
+        // normalised like it is in the supertokens script, which passes it to the start command
+        installationDir = Utils.normaliseDirectoryPath(new File(installationDir).getAbsolutePath());
+        if (!AppCDS.createArchiveIfNotExists(installationDir)) {
+            Logging.info("Could not create the class data sharing archive. It will be created on the first start with"
+                    + " \"supertokens start --with-cds\"");
+        }
+    }
+
     private void createSupertokensScript(String installationDir, String exeLoc) throws IOException {
         String content = "";
         String location = getSupertokensScriptLocation(exeLoc);
@@ -244,7 +259,7 @@ public class InstallHandler extends CommandHandler {
     @Override
     public String getUsage() {
         // --exeName is there, but user does not need to know about it.
-        return "supertokens install [--path=<path location>] [--with-source]";
+        return "supertokens install [--path=<path location>] [--with-source] [--with-cds]";
     }
 
     @Override
@@ -267,6 +282,9 @@ public class InstallHandler extends CommandHandler {
         options.add(new Option("--with-source",
                 "If this is set, then all 3rd party dependencies will be installed along with their source. This "
                         + "option has no affect on the execution of SuperTokens."));
+        options.add(new Option("--with-cds",
+                "Creates the class data sharing archive that \"supertokens start --with-cds\" uses, so that the first "
+                        + "start with that option does not need to create it"));
         return options;
     }
 }
@@ -0,0 +1,161 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cli.commandHandler.start;
+
+import io.supertokens.cli.Utils;
+import io.supertokens.cli.logging.Logging;
+
+import io.supertokens.cli.OperatingSystem;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Creates and uses an application class data sharing (AppCDS) archive of the classes that the core loads on startup,
+// so that the JVM can map them from the archive instead of loading and verifying them from the jars on every start.
+//
+// The archive is created by a training run of the core, which starts it with the same classpath, and stops it as soon
+// as it has started. The training run does not use the config of the installation, so that it does not touch its
+// database, port or logs: it uses the in memory db, a port picked by the OS, logs to the console only, and does not
+// start the cronjobs. The db plugin only loads its config, so its classes that are used once it is connected to a db
+// are not archived. Its name contains a fingerprint of the installed jars (including the db plugin), so an
+// archive is never used with jars other than the ones it was created from, and it is created again after an update.
+public class AppCDS {
+
+    private static final String ARCHIVE_DIR = ".cds";
+    private static final String ARCHIVE_PREFIX = "core-";
+    private static final String ARCHIVE_SUFFIX = ".jsa";
+    private static final String TRAINING_CONFIG = "training-config.yaml";
+
+    // folders whose contents are part of the classpath of the core, or are loaded by it at runtime
+    private static final String[] FOLDERS_IN_ARCHIVE = {"core", "plugin-interface", "ee", "plugin", "jre"};
+
+    /**
+     * Returns the JVM options that make the core use an AppCDS archive, creating it first with a training run if
+     * there is none for the installed jars. If the archive cannot be created (for example, if the JRE does not support
+     * dynamic archives), this returns no options so that the core starts as usual.
+     *
+     * @param jvmCommands the java executable and the JVM options that the core is started with
+     */
+    static List<String> getJvmOptions(String installationDir, List<String> jvmCommands) {
+        File archive = getArchiveFile(installationDir);
+        if (!archive.exists() && !createArchive(installationDir, archive, jvmCommands)) {
+            Logging.info("Could not create the class data sharing archive. Starting without it.");
+            return new ArrayList<>();
+        }
+        // -Xshare:auto makes the JVM ignore the archive, instead of failing to start, if it cannot be used
+        return Arrays.asList("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xshare:auto");
+    }
+
+    /**
+     * Creates the AppCDS archive for the installed jars with a training run, if there is none yet. This is used when
+     * SuperTokens is installed, so that the first start does not need to do it.
+     *
+     * @return false if the archive could not be created
+     */
+    public static boolean createArchiveIfNotExists(String installationDir) {
+        File archive = getArchiveFile(installationDir);
+        return archive.exists()
+                || createArchive(installationDir, archive, StartHandler.getJvmCommands(installationDir, null));
+    }
+
+    private static boolean createArchive(String installationDir, File archive, List<String> jvmCommands) {
+        Logging.info("Creating class data sharing archive. This is only done once per installed version...");
+        File archiveDir = archive.getParentFile();
+        if (!archiveDir.exists() && !archiveDir.mkdirs()) {
+            return false;
+        }
+        deleteOldArchives(archiveDir);
+
+        File trainingConfig = new File(archiveDir, TRAINING_CONFIG);
+        try {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(trainingConfig))) {
+                writer.write("port: 0\n");
+                writer.write("info_log_path: \"null\"\n");
+                writer.write("error_log_path: \"null\"\n");
+                writer.write("disable_telemetry: true\n");
+            }
+            String trainingConfigPath = trainingConfig.getAbsolutePath();
+            if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
+                trainingConfigPath = trainingConfigPath.replace("\\", "\\\\");
+            }
+
+            List<String> commands = new ArrayList<>(jvmCommands);
+            commands.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+            commands.addAll(StartHandler.getMainClassCommands(installationDir));
+            commands.add("configFile=" + trainingConfigPath);
+            commands.add("cdsTrainingRun=true");
+
+            ProcessBuilder pb = new ProcessBuilder(commands);
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+            // the output is read so that the process does not block on a full pipe
+            try (InputStreamReader in = new InputStreamReader(process.getInputStream());
+                 BufferedReader reader = new BufferedReader(in)) {
+                while (reader.readLine() != null) {
+                }
+            }
+            if (process.waitFor() != 0 || !archive.exists()) {
+                Utils.deleteDirOrFile(archive);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            Utils.deleteDirOrFile(archive);
+            return false;
+        } finally {
+            Utils.deleteDirOrFile(trainingConfig);
+        }
+    }
+
+    private static File getArchiveFile(String installationDir) {
+        CRC32 fingerprint = new CRC32();
+        for (String folder : FOLDERS_IN_ARCHIVE) {
+            addToFingerprint(fingerprint, new File(installationDir, folder), folder);
+        }
+        return new File(new File(installationDir, ARCHIVE_DIR),
+                ARCHIVE_PREFIX + Long.toHexString(fingerprint.getValue()) + ARCHIVE_SUFFIX);
+    }
+
+    private static void addToFingerprint(CRC32 fingerprint, File file, String relativePath) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (File child : children) {
+                addToFingerprint(fingerprint, child, relativePath + "/" + child.getName());
+            }
+        } else if (file.isFile()) {
+            fingerprint.update((relativePath + "|" + file.length() + "|" + file.lastModified() + "\n").getBytes());
+        }
+    }
+
+    private static void deleteOldArchives(File archiveDir) {
+        File[] archives = archiveDir.listFiles(
+                file -> file.getName().startsWith(ARCHIVE_PREFIX) && file.getName().endsWith(ARCHIVE_SUFFIX));
+        if (archives != null) {
+            for (File archive : archives) {
+                Utils.deleteDirOrFile(archive);
+            }
+        }
+    }
+}
@@ -43,56 +43,37 @@ public class StartHandler extends CommandHandler {
         boolean foreground = CLIOptionsParser.hasKey("--foreground", args);
         boolean forceNoInMemDB = CLIOptionsParser.hasKey("--no-in-mem-db", args);
 
-        List<String> commands = new ArrayList<>();
-        if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
-            commands.add(installationDir + "jre\\bin\\java.exe");
-            commands.add("-classpath");
-            commands.add("\"" + installationDir + "core\\*\";\"" + installationDir + "plugin-interface\\*\"");
-            if (space != null) {
-                commands.add("-Xmx" + space + "M");
-            }
-            commands.add("io.supertokens.Main");
-            commands.add("\"" + installationDir + "\\\""); // so many quotes at the end cause installationDir also ends
-            // in \
-            if (configPath != null) {
+        boolean withCDS = CLIOptionsParser.hasKey("--with-cds", args);
+
+        // the JVM options and the arguments of the core are kept apart so that the class data sharing options can be
+        // added in between
+        List<String> jvmCommands = getJvmCommands(installationDir, space);
+        List<String> coreCommands = getMainClassCommands(installationDir);
+        if (configPath != null) {
+            if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
                 configPath = configPath.replace("\\", "\\\\");
-                commands.add("configFile=" + configPath);
-            }
-            if (host != null) {
-                commands.add("host=" + host);
-            }
-            if (port != null) {
-                commands.add("port=" + port);
-            }
-            if (forceNoInMemDB) {
-                commands.add("forceNoInMemDB=true");
-            }
-        } else {
-            commands.add(installationDir + "jre/bin/java");
-            commands.add("-Djava.security.egd=file:/dev/urandom");
-            commands.add("-classpath");
-            commands.add(
-                    installationDir + "core/*:" + installationDir + "plugin-interface/*:" + installationDir + "ee/*");
-            if (space != null) {
-                commands.add("-Xmx" + space + "M");
-            }
-            commands.add("io.supertokens.Main");
-            commands.add(installationDir);
-            if (configPath != null) {
-                commands.add("configFile=" + configPath);
-            }
-            if (host != null) {
-                commands.add("host=" + host);
-            }
-            if (port != null) {
-                commands.add("port=" + port);
-            }
-            if (forceNoInMemDB) {
-                commands.add("forceNoInMemDB=true");
             }
+            coreCommands.add("configFile=" + configPath);
+        }
+        if (host != null) {
+            coreCommands.add("host=" + host);
+        }
+        if (port != null) {
+            coreCommands.add("port=" + port);
+        }
+        if (forceNoInMemDB) {
+            coreCommands.add("forceNoInMemDB=true");
         }
+
+        List<String> commands = new ArrayList<>(jvmCommands);
+        if (withCDS) {
+            commands.addAll(AppCDS.getJvmOptions(installationDir, jvmCommands));
+        }
+        commands.addAll(coreCommands);
+
         if (!foreground) {
             try {
+                long startTime = System.currentTimeMillis();
                 ProcessBuilder pb = new ProcessBuilder(commands);
                 pb.redirectErrorStream(true);
                 Process process = pb.start();
@@ -104,6 +85,7 @@ public class StartHandler extends CommandHandler {
                         Logging.info(line); // TODO: make error go to Logging.error and other go to Logging.info - later
                         if (line.startsWith("Started SuperTokens on")) {
                             success = true;
+                            Logging.info("Took " + (System.currentTimeMillis() - startTime) + " ms to start");
                             break;
                         }
                     }
@@ -136,6 +118,39 @@ public class StartHandler extends CommandHandler {
         }
     }
 
+    // the java executable and the JVM options that the core is started with, including its classpath
+    static List<String> getJvmCommands(String installationDir, String space) {
+        List<String> commands = new ArrayList<>();
+        if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
+            commands.add(installationDir + "jre\\bin\\java.exe");
+            commands.add("-classpath");
+            commands.add("\"" + installationDir + "core\\*\";\"" + installationDir + "plugin-interface\\*\"");
+        } else {
+            commands.add(installationDir + "jre/bin/java");
+            commands.add("-Djava.security.egd=file:/dev/urandom");
+            commands.add("-classpath");
+            commands.add(
+                    installationDir + "core/*:" + installationDir + "plugin-interface/*:" + installationDir + "ee/*");
+        }
+        if (space != null) {
+            commands.add("-Xmx" + space + "M");
+        }
+        return commands;
+    }
+
+    // the main class of the core and its first argument, the installation dir
+    static List<String> getMainClassCommands(String installationDir) {
+        List<String> commands = new ArrayList<>();
+        commands.add("io.supertokens.Main");
+        if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
+            commands.add("\"" + installationDir + "\\\""); // so many quotes at the end cause installationDir also ends
+            // in \
+        } else {
+            commands.add(installationDir);
+        }
+        return commands;
+    }
+
     @Override
     public String getShortDescription() {
         return "Start an instance of SuperTokens";
@@ -144,7 +159,7 @@ public class StartHandler extends CommandHandler {
     @Override
     public String getUsage() {
         return "supertokens start [--with-space=<amount in mb>] [--with-config=<config file path>]" + " "
-                + "[--port=<value>] " + "[--host=<value>] [--foreground]";
+                + "[--port=<value>] " + "[--host=<value>] [--foreground] [--with-cds]";
     }
 
     @Override
@@ -172,6 +187,10 @@ public class StartHandler extends CommandHandler {
                 "Sets the host on which this instance of SuperTokens should run. Example: \"--host=192.168.0.1\""));
         options.add(
                 new Option("--foreground", "Runs this instance of SuperTokens in the foreground (not as a daemon)"));
+        options.add(new Option("--with-cds",
+                "Starts SuperTokens with a class data sharing archive of the classes that it loads on startup, to "
+                        + "start faster. The archive is created on the first start with this option, and again after "
+                        + "SuperTokens or its database plugin is updated"));
         return options;
     }
 
@@ -7,6 +7,7 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
 import com.google.gson.*;
+import io.supertokens.ActiveUsers;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.cronjobs.Cronjobs;
@@ -14,13 +15,13 @@ import io.supertokens.cronjobs.telemetry.Telemetry;
 import io.supertokens.ee.cronjobs.EELicenseCheck;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlag;
+import io.supertokens.featureflag.FeatureFlagTestContent;
 import io.supertokens.featureflag.exceptions.InvalidLicenseKeyException;
 import io.supertokens.featureflag.exceptions.NoLicenseKeyFoundException;
 import io.supertokens.httpRequest.HttpRequest;
 import io.supertokens.httpRequest.HttpResponseException;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.output.Logging;
-import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
@@ -50,6 +51,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagInterface {
     public static final int INTERVAL_BETWEEN_SERVER_SYNC = 3600 * 24; // 1 day (in seconds).
@@ -79,6 +82,14 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
     // works well enough anyway.
     private static final String LICENSE_KEY_IN_DB_NOT_PRESENT_VALUE = "NOT_PRESENT";
 
+    private static final int NUMBER_OF_DAYS_FOR_MAUS = 31;
+
+    // the active user counts of each day are read on every call to the feature flag API, so they are cached for a
+    // short while.
+    private static final long DAILY_ACTIVE_USERS_CACHE_TTL = 60 * 1000; // 1 minute (in millis).
+
+    private final Map<String, DailyActiveUsers> dailyActiveUsersCache = new ConcurrentHashMap<>();
+
     private Boolean isLicenseKeyPresent = null;
 
     private long enabledFeaturesValueReadFromDbTime = -1;
@@ -201,23 +212,16 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
         Storage[] storages = StorageLayer.getStoragesForApp(main, this.appIdentifier);
 
         int totalUserCountWithMoreThanOneLoginMethod = 0;
-        int[] maus = new int[31];
-
-        long now = System.currentTimeMillis();
-
-        for (Storage storage : storages) {
-            totalUserCountWithMoreThanOneLoginMethod += ((AuthRecipeStorage) storage)
-                    .getUsersCountWithMoreThanOneLoginMethodOrTOTPEnabled(this.appIdentifier);
-
-            for (int i = 1; i <= 31; i++) {
-                long timestamp = now - (i * 24 * 60 * 60 * 1000L);
-
-                // `maus[i-1]` since i starts from 1
-                maus[i - 1] += ((ActiveUsersStorage) storage)
-                        .countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSince(appIdentifier, timestamp);
-            }
+        for (int count : StorageLayer.queryEachStorage(main, storages, storage -> ((AuthRecipeStorage) storage)
+                .getUsersCountWithMoreThanOneLoginMethodOrTOTPEnabled(this.appIdentifier))) {
+            totalUserCountWithMoreThanOneLoginMethod += count;
         }
 
+        int[] maus = getDailyActiveUsers("mfa", now -> addDailyActiveUsers(
+                StorageLayer.queryEachStorage(main, storages, storage -> ActiveUsers
+                        .countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+                                storage, this.appIdentifier, now, NUMBER_OF_DAYS_FOR_MAUS))));
+
         result.addProperty("totalUserCountWithMoreThanOneLoginMethodOrTOTPEnabled",
                 totalUserCountWithMoreThanOneLoginMethod);
         result.add("mauWithMoreThanOneLoginMethodOrTOTPEnabled", new Gson().toJsonTree(maus));
@@ -289,20 +293,14 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
     private JsonObject getAccountLinkingStats() throws StorageQueryException, TenantOrAppNotFoundException {
         JsonObject result = new JsonObject();
         Storage[] storages = StorageLayer.getStoragesForApp(main, this.appIdentifier);
-        boolean usesAccountLinking = false;
-
-        for (Storage storage : storages) {
-            if (((AuthRecipeStorage)storage).checkIfUsesAccountLinking(this.appIdentifier)) {
-                usesAccountLinking = true;
-                break;
-            }
-        }
+        boolean usesAccountLinking = StorageLayer.queryEachStorage(main, storages,
+                storage -> ((AuthRecipeStorage) storage).checkIfUsesAccountLinking(this.appIdentifier)).contains(true);
 
         result.addProperty("usesAccountLinking", usesAccountLinking);
         if (!usesAccountLinking) {
             result.addProperty("totalUserCountWithMoreThanOneLoginMethod", 0);
             JsonArray mauArray = new JsonArray();
-            for (int i = 0; i < 31; i++) {
+            for (int i = 0; i < NUMBER_OF_DAYS_FOR_MAUS; i++) {
                 mauArray.add(new JsonPrimitive(0));
             }
             result.add("mauWithMoreThanOneLoginMethod", mauArray);
@@ -310,21 +308,16 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
         }
 
         int totalUserCountWithMoreThanOneLoginMethod = 0;
-        int[] maus = new int[31];
-
-        long now = System.currentTimeMillis();
-
-        for (Storage storage : storages) {
-            totalUserCountWithMoreThanOneLoginMethod += ((AuthRecipeStorage)storage).getUsersCountWithMoreThanOneLoginMethod(this.appIdentifier);
-
-            for (int i = 1; i <= 31; i++) {
-                long timestamp = now - (i * 24 * 60 * 60 * 1000L);
-
-                // `maus[i-1]` because i starts from 1
-                maus[i-1] += ((ActiveUsersStorage)storage).countUsersThatHaveMoreThanOneLoginMethodAndActiveSince(appIdentifier, timestamp);
-            }
+        for (int count : StorageLayer.queryEachStorage(main, storages,
+                storage -> ((AuthRecipeStorage) storage).getUsersCountWithMoreThanOneLoginMethod(this.appIdentifier))) {
+            totalUserCountWithMoreThanOneLoginMethod += count;
         }
 
+        int[] maus = getDailyActiveUsers("accountLinking", now -> addDailyActiveUsers(
+                StorageLayer.queryEachStorage(main, storages, storage -> ActiveUsers
+                        .countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceForEachDay(
+                                storage, this.appIdentifier, now, NUMBER_OF_DAYS_FOR_MAUS))));
+
         result.addProperty("totalUserCountWithMoreThanOneLoginMethod", totalUserCountWithMoreThanOneLoginMethod);
         result.add("mauWithMoreThanOneLoginMethod", new Gson().toJsonTree(maus));
         return result;
@@ -332,18 +325,60 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
 
     private JsonArray getMAUs() throws StorageQueryException, TenantOrAppNotFoundException {
         JsonArray mauArr = new JsonArray();
-        long now = System.currentTimeMillis();
-
-        for (int i = 1; i <= 31; i++) {
-            long timestamp = now - (i * 24 * 60 * 60 * 1000L);
-            ActiveUsersStorage activeUsersStorage = (ActiveUsersStorage) StorageLayer.getStorage(
-                    this.appIdentifier.getAsPublicTenantIdentifier(), main);
-            int mau = activeUsersStorage.countUsersActiveSince(this.appIdentifier, timestamp);
+        Storage storage = StorageLayer.getStorage(this.appIdentifier.getAsPublicTenantIdentifier(), main);
+        int[] maus = getDailyActiveUsers("maus", now -> ActiveUsers.countUsersActiveSinceForEachDay(storage,
+                this.appIdentifier, now, NUMBER_OF_DAYS_FOR_MAUS));
+        for (int mau : maus) {
             mauArr.add(new JsonPrimitive(mau));
         }
         return mauArr;
     }
 
+    private interface DailyActiveUsersQuery {
+        int[] run(long now) throws StorageQueryException, TenantOrAppNotFoundException;
+    }
+
+    private static class DailyActiveUsers {
+        final int[] counts;
+        final long time;
+
+        DailyActiveUsers(int[] counts, long time) {
+            this.counts = counts;
+            this.time = time;
+        }
+    }
+
+    private int[] getDailyActiveUsers(String key, DailyActiveUsersQuery query)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        long now = System.currentTimeMillis();
+        DailyActiveUsers cached = this.dailyActiveUsersCache.get(key);
+        if (cached != null && now - cached.time < getDailyActiveUsersCacheTTL()) {
+            return cached.counts.clone();
+        }
+        int[] counts = query.run(now);
+        this.dailyActiveUsersCache.put(key, new DailyActiveUsers(counts.clone(), now));
+        return counts;
+    }
+
+    private long getDailyActiveUsersCacheTTL() {
+        Number ttl = FeatureFlagTestContent.getInstance(main)
+                .getValue(FeatureFlagTestContent.DAILY_ACTIVE_USERS_CACHE_TTL);
+        if (ttl != null) {
+            return ttl.longValue();
+        }
+        return DAILY_ACTIVE_USERS_CACHE_TTL;
+    }
+
+    private static int[] addDailyActiveUsers(List<int[]> countsOfEachStorage) {
+        int[] total = new int[NUMBER_OF_DAYS_FOR_MAUS];
+        for (int[] counts : countsOfEachStorage) {
+            for (int i = 0; i < total.length; i++) {
+                total[i] += counts[i];
+            }
+        }
+        return total;
+    }
+
     @Override
     public JsonObject getPaidFeatureStats() throws StorageQueryException, TenantOrAppNotFoundException {
         JsonObject usageStats = new JsonObject();
@@ -352,6 +387,9 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
             return usageStats;
         }
 
+        // the active user stats below are read from the db
+        ActiveUsers.flushLastActiveUpdates(main, this.appIdentifier);
+
         EE_FEATURES[] features = getEnabledEEFeaturesFromDbOrCache();
 
         if (!this.appIdentifier.equals(new AppIdentifier(null, null)) && !Arrays.asList(features).contains(EE_FEATURES.MULTI_TENANCY)) { // Check for multitenancy on the base app
@@ -1,26 +1,57 @@
 package io.supertokens;
 
+import io.supertokens.config.Config;
 import io.supertokens.pluginInterface.ActiveUsersSQLStorage;
+import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.StorageUtils;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ActiveUsersStatsStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
 public class ActiveUsers {
 
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
     public static void updateLastActive(AppIdentifier appIdentifier, Main main, String userId)
             throws TenantOrAppNotFoundException {
         Storage storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+        if (Config.getBaseConfig(main).getActiveUsersFlushIntervalSec() > 0 &&
+                LastActiveUpdateBuffer.getInstance(main).add(appIdentifier, userId, System.currentTimeMillis())) {
+            return;
+        }
         try {
             StorageUtils.getActiveUsersStorage(storage).updateLastActive(appIdentifier, userId);
         } catch (StorageQueryException ignored) {
         }
     }
 
+    /**
+     * Writes the buffered last active times of the users of the app to the db.
+     */
+    public static void flushLastActiveUpdates(Main main, AppIdentifier appIdentifier) {
+        LastActiveUpdateBuffer.getInstance(main).flush(appIdentifier);
+    }
+
+    /**
+     * Writes the buffered last active times of the users of all apps to the db.
+     */
+    public static void flushLastActiveUpdates(Main main) {
+        LastActiveUpdateBuffer.getInstance(main).flushAll();
+    }
+
+    /**
+     * Removes the buffered last active time of the user, so that it is not written after the user is deleted. It must
+     * be called before the last active time is deleted from the db.
+     */
+    public static void removeBufferedLastActive(Main main, AppIdentifier appIdentifier, String userId) {
+        LastActiveUpdateBuffer.getInstance(main).remove(appIdentifier, userId);
+    }
+
     @TestOnly
     public static void updateLastActive(Main main, String userId) {
         try {
@@ -34,15 +65,67 @@ public class ActiveUsers {
     public static int countUsersActiveSince(Main main, AppIdentifier appIdentifier, long time)
             throws StorageQueryException, TenantOrAppNotFoundException {
         Storage storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+        flushLastActiveUpdates(main, appIdentifier);
         return StorageUtils.getActiveUsersStorage(storage).countUsersActiveSince(appIdentifier, time);
     }
 
+    /**
+     * Returns the number of users of the app in the storage that were active since now - (i + 1) days at index i, for
+     * each of the last numberOfDays days.
+     */
+    public static int[] countUsersActiveSinceForEachDay(Storage storage, AppIdentifier appIdentifier, long now,
+                                                        int numberOfDays) throws StorageQueryException {
+        if (storage instanceof ActiveUsersStatsStorage) {
+            return ((ActiveUsersStatsStorage) storage).countUsersActiveSinceForEachDay(appIdentifier, now,
+                    numberOfDays);
+        }
+        ActiveUsersStorage activeUsersStorage = StorageUtils.getActiveUsersStorage(storage);
+        int[] counts = new int[numberOfDays];
+        for (int i = 1; i <= numberOfDays; i++) {
+            counts[i - 1] = activeUsersStorage.countUsersActiveSince(appIdentifier, now - i * DAY_IN_MILLIS);
+        }
+        return counts;
+    }
+
+    public static int[] countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceForEachDay(
+            Storage storage, AppIdentifier appIdentifier, long now, int numberOfDays) throws StorageQueryException {
+        if (storage instanceof ActiveUsersStatsStorage) {
+            return ((ActiveUsersStatsStorage) storage).countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceForEachDay(
+                    appIdentifier, now, numberOfDays);
+        }
+        ActiveUsersStorage activeUsersStorage = StorageUtils.getActiveUsersStorage(storage);
+        int[] counts = new int[numberOfDays];
+        for (int i = 1; i <= numberOfDays; i++) {
+            counts[i - 1] = activeUsersStorage.countUsersThatHaveMoreThanOneLoginMethodAndActiveSince(appIdentifier,
+                    now - i * DAY_IN_MILLIS);
+        }
+        return counts;
+    }
+
+    public static int[] countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+            Storage storage, AppIdentifier appIdentifier, long now, int numberOfDays) throws StorageQueryException {
+        if (storage instanceof ActiveUsersStatsStorage) {
+            return ((ActiveUsersStatsStorage) storage)
+                    .countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(appIdentifier, now,
+                            numberOfDays);
+        }
+        ActiveUsersStorage activeUsersStorage = StorageUtils.getActiveUsersStorage(storage);
+        int[] counts = new int[numberOfDays];
+        for (int i = 1; i <= numberOfDays; i++) {
+            counts[i - 1] = activeUsersStorage.countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSince(
+                    appIdentifier, now - i * DAY_IN_MILLIS);
+        }
+        return counts;
+    }
+
     public static void updateLastActiveAfterLinking(Main main, AppIdentifier appIdentifier, String primaryUserId,
                                                     String recipeUserId)
             throws StorageQueryException, TenantOrAppNotFoundException, StorageTransactionLogicException {
         ActiveUsersSQLStorage activeUsersStorage =
                 (ActiveUsersSQLStorage) StorageUtils.getActiveUsersStorage(StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main));
 
+        // so that a buffered last active time of the recipe user is not written after it is deleted below
+        removeBufferedLastActive(main, appIdentifier, recipeUserId);
         activeUsersStorage.startTransaction(con -> {
             activeUsersStorage.deleteUserActive_Transaction(con, appIdentifier, recipeUserId);
             return null;
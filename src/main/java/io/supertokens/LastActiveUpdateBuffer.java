@@ -0,0 +1,168 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens;
+
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.StorageUtils;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ActiveUsersBatchUpdateStorage;
+import io.supertokens.storageLayer.StorageLayer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the last active time of users in memory, so that creating or refreshing a session does not write to the db.
+ * Each user is kept once per app, with the latest time that they were active. The buffered times are written in
+ * batches by the FlushLastActiveUpdates cronjob, before the active users of an app are counted, and when the core
+ * stops.
+ * <p>
+ * At most MAX_BUFFERED_USERS users are kept. If the buffer is full, the caller is expected to write the last active
+ * time right away.
+ */
+class LastActiveUpdateBuffer extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.LastActiveUpdateBuffer";
+
+    static final int MAX_BUFFERED_USERS = 100000;
+
+    private final Main main;
+
+    private final Map<AppIdentifier, AppBuffer> appBuffers = new ConcurrentHashMap<>();
+
+    // number of users buffered across all apps
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private static class AppBuffer {
+        final ConcurrentHashMap<String, Long> lastActiveTimes = new ConcurrentHashMap<>();
+
+        // held while the buffered times are written, so that a count of the active users that flushes the buffer
+        // first also waits for a flush that is already running
+        final Object flushLock = new Object();
+    }
+
+    private LastActiveUpdateBuffer(Main main) {
+        this.main = main;
+    }
+
+    static LastActiveUpdateBuffer getInstance(Main main) {
+        TenantIdentifier baseTenant = new TenantIdentifier(null, null, null);
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor()
+                .getResourceIfPresent(baseTenant, RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor()
+                    .setResource(baseTenant, RESOURCE_KEY, new LastActiveUpdateBuffer(main));
+        }
+        return (LastActiveUpdateBuffer) instance;
+    }
+
+    /**
+     * Returns false if the user is not buffered because the buffer is full.
+     */
+    boolean add(AppIdentifier appIdentifier, String userId, long lastActiveTime) {
+        AppBuffer buffer = this.appBuffers.computeIfAbsent(appIdentifier, k -> new AppBuffer());
+        AtomicBoolean added = new AtomicBoolean(true);
+        buffer.lastActiveTimes.compute(userId, (key, time) -> {
+            if (time != null) {
+                return Math.max(time, lastActiveTime);
+            }
+            if (this.size.incrementAndGet() > MAX_BUFFERED_USERS) {
+                this.size.decrementAndGet();
+                added.set(false);
+                return null;
+            }
+            return lastActiveTime;
+        });
+        return added.get();
+    }
+
+    /**
+     * Removes the buffered last active time of the user. This is called before the last active time of the user is
+     * deleted from the db, and waits for a flush of the app that is already running, so that no flush can write the
+     * time back after the delete.
+     */
+    void remove(AppIdentifier appIdentifier, String userId) {
+        AppBuffer buffer = this.appBuffers.get(appIdentifier);
+        if (buffer == null) {
+            return;
+        }
+        synchronized (buffer.flushLock) {
+            if (buffer.lastActiveTimes.remove(userId) != null) {
+                this.size.decrementAndGet();
+            }
+        }
+    }
+
+    void flush(AppIdentifier appIdentifier) {
+        AppBuffer buffer = this.appBuffers.get(appIdentifier);
+        if (buffer == null) {
+            return;
+        }
+        synchronized (buffer.flushLock) {
+            Map<String, Long> lastActiveTimes = new HashMap<>();
+            for (String userId : buffer.lastActiveTimes.keySet()) {
+                Long time = buffer.lastActiveTimes.remove(userId);
+                if (time != null) {
+                    this.size.decrementAndGet();
+                    lastActiveTimes.put(userId, time);
+                }
+            }
+            if (lastActiveTimes.isEmpty()) {
+                return;
+            }
+
+            try {
+                Storage storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+                if (storage instanceof ActiveUsersBatchUpdateStorage) {
+                    ((ActiveUsersBatchUpdateStorage) storage).updateLastActiveForUsers(appIdentifier,
+                            lastActiveTimes);
+                } else {
+                    for (String userId : lastActiveTimes.keySet()) {
+                        StorageUtils.getActiveUsersStorage(storage).updateLastActive(appIdentifier, userId);
+                    }
+                }
+            } catch (TenantOrAppNotFoundException e) {
+                // the app has been deleted, and so have the last active times of its users
+                this.appBuffers.remove(appIdentifier);
+            } catch (StorageQueryException e) {
+                Logging.error(main, appIdentifier.getAsPublicTenantIdentifier(),
+                        "Could not update the last active time of " + lastActiveTimes.size() + " users", false, e);
+                // the times are put back so that the next flush writes them. This is done while the flush lock is
+                // held, so a user that is removed in the meantime is removed after its time is put back
+                for (Map.Entry<String, Long> lastActiveTime : lastActiveTimes.entrySet()) {
+                    add(appIdentifier, lastActiveTime.getKey(), lastActiveTime.getValue());
+                }
+            }
+        }
+    }
+
+    void flushAll() {
+        List<AppIdentifier> apps = new ArrayList<>(this.appBuffers.keySet());
+        for (AppIdentifier app : apps) {
+            flush(app);
+        }
+    }
+}
@@ -27,12 +27,15 @@ import io.supertokens.cronjobs.deleteExpiredPasswordResetTokens.DeleteExpiredPas
 import io.supertokens.cronjobs.deleteExpiredPasswordlessDevices.DeleteExpiredPasswordlessDevices;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
 import io.supertokens.cronjobs.deleteExpiredTotpTokens.DeleteExpiredTotpTokens;
+import io.supertokens.cronjobs.flushLastActiveUpdates.FlushLastActiveUpdates;
+import io.supertokens.cronjobs.processBulkImportUsers.ProcessBulkImportUsers;
 import io.supertokens.cronjobs.syncCoreConfigWithDb.SyncCoreConfigWithDb;
 import io.supertokens.cronjobs.telemetry.Telemetry;
 import io.supertokens.emailpassword.PasswordHashing;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.FeatureFlag;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.exceptions.DbInitException;
@@ -44,7 +47,9 @@ import io.supertokens.signingkeys.AccessTokenSigningKey;
 import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
 import io.supertokens.version.Version;
+import io.supertokens.warmup.WarmUp;
 import io.supertokens.webserver.Webserver;
 import org.jetbrains.annotations.TestOnly;
 import sun.misc.Unsafe;
@@ -57,7 +62,9 @@ import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class Main {
@@ -93,6 +100,11 @@ public class Main {
 
     private boolean forceInMemoryDB = false;
 
+    // the time taken by each phase of init is recorded in the metrics as startup.<phase>.time, and logged once the
+    // core has started
+    private final Map<String, Long> startupPhaseTimings = new LinkedHashMap<>();
+    private long startupPhaseStartTime = System.currentTimeMillis();
+
     public static void main(String[] args) {
         new Main().start(args);
     }
@@ -120,6 +132,10 @@ public class Main {
                     throw e;
                 }
                 ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.STARTED, null);
+                if (CLIOptions.get(this).isCDSTrainingRun()) {
+                    // used by the CLI to create a class data sharing archive of the classes loaded on startup
+                    wakeUpMainThreadToShutdown();
+                }
                 putMainThreadToSleep();
 
                 ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.SHUTTING_DOWN, null);
@@ -161,6 +177,7 @@ public class Main {
         Version.loadVersion(this, CLIOptions.get(this).getInstallationPath() + "version.yaml");
 
         Logging.info(this, TenantIdentifier.BASE_TENANT, "Completed config.yaml loading.", true);
+        endStartupPhase("config");
 
         // loading storage layer
         try {
@@ -191,6 +208,7 @@ public class Main {
         } catch (DbInitException e) {
             throw new QuitProgramException(e);
         }
+        endStartupPhase("base_storage");
 
         // enable ee features if license key is provided.
         synchronized (waitToEnableFeatureFlagLock) {
@@ -203,27 +221,83 @@ public class Main {
         }
         MultitenancyHelper.init(this);
         FeatureFlag.initForBaseTenant(this, CLIOptions.get(this).getInstallationPath() + "ee/");
+        endStartupPhase("multitenancy");
 
         try {
             // load all configs for each of the tenants.
             MultitenancyHelper.getInstance(this).loadConfig(new ArrayList<>());
+            endStartupPhase("tenant_configs");
 
             // init storage layers for each unique db connection based on unique (user pool ID, connection pool ID).
+            // The storages are initialised in parallel.
             MultitenancyHelper.getInstance(this).loadStorageLayer();
+            endStartupPhase("tenant_storages");
         } catch (InvalidConfigException e) {
             throw new QuitProgramException(e);
         }
 
-        // load feature flag for all loaded apps
-        MultitenancyHelper.getInstance(this).loadFeatureFlag(new ArrayList<>());
-
-        // init signing keys
-        try {
+        // load feature flag and init signing keys for all loaded apps. These do not depend on each other, so they are
+        // loaded at the same time, and each of them loads the apps in parallel as well.
+        Map<String, ParallelTasks.Task<Void, UnsupportedJWTSigningAlgorithmException>> appResourceLoaders =
+                new LinkedHashMap<>();
+        appResourceLoaders.put("feature_flags", () -> {
+            MultitenancyHelper.getInstance(this).loadFeatureFlag(new ArrayList<>());
+            return null;
+        });
+        appResourceLoaders.put("signing_keys", () -> {
             MultitenancyHelper.getInstance(this).loadSigningKeys(new ArrayList<>());
+            return null;
+        });
+        try {
+            ParallelTasks.run(appResourceLoaders, appResourceLoaders.size(), "Main-init");
         } catch (UnsupportedJWTSigningAlgorithmException e) {
             throw new QuitProgramException(e);
         }
+        endStartupPhase("app_resources");
+
+        // the training run for the class data sharing archive exits right after it starts, and must not change the
+        // state of anything outside it
+        if (!CLIOptions.get(this).isCDSTrainingRun()) {
+            addCronjobs();
+        }
+
+        // this is to ensure tenantInfos are in sync for the new cron job as well
+        MultitenancyHelper.getInstance(this).refreshCronjobs();
+
+        // creates password hashing pool
+        PasswordHashing.init(this);
+        endStartupPhase("cronjobs");
+
+        // warms up in the background if enabled. The /ready API reports if this is done
+        WarmUp.init(this);
+
+        // start web server to accept incoming traffic
+        Webserver.getInstance(this).start();
+        endStartupPhase("webserver");
+
+        // this is a sign to the controlling script that this process has started.
+        createDotStartedFileForThisProcess();
+
+        // NOTE: If the message below is changed, make sure to also change the corresponding check in the CLI program
+        // for start command
+        Logging.info(this, TenantIdentifier.BASE_TENANT, "Started SuperTokens on " + Config.getBaseConfig(this).
+
+                getHost(this) + ":"
+                + Config.getBaseConfig(this).
+
+                getPort(this) + " with PID: " + ProcessHandle.current().
+
+                pid(), true);
+
+        List<String> timings = new ArrayList<>();
+        for (Map.Entry<String, Long> timing : this.startupPhaseTimings.entrySet()) {
+            timings.add(timing.getKey() + "=" + timing.getValue());
+        }
+        Logging.info(this, TenantIdentifier.BASE_TENANT,
+                "Startup phase timings in MS: " + String.join(", ", timings), false);
+    }
 
+    private void addCronjobs() {
         // starts removing old session cronjob
         List<List<TenantIdentifier>> uniqueUserPoolIdsTenants = StorageLayer.getTenantsWithUniqueUserPoolId(this);
 
@@ -254,28 +328,21 @@ public class Main {
         // starts DeleteExpiredAccessTokenSigningKeys cronjob if the access token signing keys can change
         Cronjobs.addCronjob(this, DeleteExpiredAccessTokenSigningKeys.init(this, uniqueUserPoolIdsTenants));
 
-        // this is to ensure tenantInfos are in sync for the new cron job as well
-        MultitenancyHelper.getInstance(this).refreshCronjobs();
-
-        // creates password hashing pool
-        PasswordHashing.init(this);
-
-        // start web server to accept incoming traffic
-        Webserver.getInstance(this).start();
+        // imports the users that were added for bulk import
+        Cronjobs.addCronjob(this, ProcessBulkImportUsers.init(this, uniqueUserPoolIdsTenants));
 
-        // this is a sign to the controlling script that this process has started.
-        createDotStartedFileForThisProcess();
-
-        // NOTE: If the message below is changed, make sure to also change the corresponding check in the CLI program
-        // for start command
-        Logging.info(this, TenantIdentifier.BASE_TENANT, "Started SuperTokens on " + Config.getBaseConfig(this).
-
-                getHost(this) + ":"
-                + Config.getBaseConfig(this).
-
-                getPort(this) + " with PID: " + ProcessHandle.current().
+        // writes the buffered last active times of users, unless they are written right away
+        if (Config.getBaseConfig(this).getActiveUsersFlushIntervalSec() > 0) {
+            Cronjobs.addCronjob(this, FlushLastActiveUpdates.init(this));
+        }
+    }
 
-                pid(), true);
+    private void endStartupPhase(String phase) {
+        long now = System.currentTimeMillis();
+        long timeTaken = now - this.startupPhaseStartTime;
+        this.startupPhaseTimings.put(phase, timeTaken);
+        Metrics.getInstance(this).recordTiming("startup." + phase + ".time", timeTaken);
+        this.startupPhaseStartTime = now;
     }
 
     @TestOnly
@@ -290,7 +357,8 @@ public class Main {
     }
 
     public boolean isForceInMemoryDB() {
-        return this.forceInMemoryDB;
+        // the training run for the class data sharing archive must not touch the db of the installation
+        return this.forceInMemoryDB || CLIOptions.get(this).isCDSTrainingRun();
     }
 
     @TestOnly
@@ -416,7 +484,10 @@ public class Main {
             // try / catch.
             Logging.info(this, TenantIdentifier.BASE_TENANT, "Stopping SuperTokens...", true);
             Webserver.getInstance(this).stop();
+            WarmUp.stop(this);
             Cronjobs.shutdownAndAwaitTermination(this);
+            // no more sessions are created or refreshed once the webserver has stopped
+            ActiveUsers.flushLastActiveUpdates(this);
             StorageLayer.close(this);
             removeDotStartedFileForThisProcess();
             Logging.stopLogging(this);
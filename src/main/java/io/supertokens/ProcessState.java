@@ -74,7 +74,8 @@ public class ProcessState extends ResourceDistributor.SingletonResource {
      * SERVER_PING: When program is pinging the server with information
      * WAITING_TO_INIT_STORAGE_MODULE: When the program is going to possibly wait to init the storage module
      * GET_SESSION_NEW_TOKENS: When new tokens are being issued in get session
-     * DEADLOCK_FOUND: For SQLite transactions
+     * DEADLOCK_FOUND: For SQLite transactions, added every time a transaction is retried
+     * TRANSACTION_ABORTED_AFTER_RETRIES: For SQLite transactions, when a retryable error persisted after all retries
      * CREATING_NEW_TABLE: For SQLite
      * SENDING_TELEMETRY, SENT_TELEMETRY: For Telemetry
      * PASSWORD_HASH_BCRYPT, PASSWORD_HASH_ARGON, PASSWORD_VERIFY_BCRYPT, PASSWORD_VERIFY_ARGON: For testing password
@@ -97,7 +98,8 @@ public class ProcessState extends ResourceDistributor.SingletonResource {
         PASSWORD_HASH_BCRYPT, PASSWORD_HASH_ARGON, PASSWORD_VERIFY_BCRYPT, PASSWORD_VERIFY_ARGON,
         PASSWORD_VERIFY_FIREBASE_SCRYPT, ADDING_REMOTE_ADDRESS_FILTER, LICENSE_KEY_CHECK_NETWORK_CALL,
         INVALID_LICENSE_KEY, SERVER_ERROR_DURING_LICENSE_KEY_CHECK_FAIL, LOADING_ALL_TENANT_CONFIG,
-        LOADING_ALL_TENANT_STORAGE, TENANTS_CHANGED_DURING_REFRESH_FROM_DB
+        LOADING_ALL_TENANT_STORAGE, TENANTS_CHANGED_DURING_REFRESH_FROM_DB, TRANSACTION_ABORTED_AFTER_RETRIES,
+        WARM_UP_COMPLETE
     }
 
     public static class EventAndException {
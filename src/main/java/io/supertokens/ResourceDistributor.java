@@ -39,15 +39,15 @@ public class ResourceDistributor {
         this.main = main;
     }
 
-    public synchronized SingletonResource getResource(AppIdentifier appIdentifier, @Nonnull String key)
+    public SingletonResource getResource(AppIdentifier appIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
         return getResource(appIdentifier.getAsPublicTenantIdentifier(), key);
     }
 
-    public synchronized SingletonResource getResource(TenantIdentifier tenantIdentifier, @Nonnull String key)
+    public SingletonResource getResource(TenantIdentifier tenantIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
         // first we do exact match
-        SingletonResource resource = resources.get(new KeyClass(tenantIdentifier, key));
+        SingletonResource resource = getResourceIfPresent(tenantIdentifier, key);
         if (resource != null) {
             return resource;
         }
@@ -58,12 +58,37 @@ public class ResourceDistributor {
             throw new TenantOrAppNotFoundException(tenantIdentifier);
         }
 
+        // this is not done while holding the lock, so that other threads can get their resources while the tenants
+        // are being refreshed
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
 
+        return getResourceAfterRefresh(tenantIdentifier, key);
+    }
+
+    // Returns the resource with exactly this tenant identifier and key, or null if it is not loaded. Unlike
+    // getResource, this does not refresh the tenants on a miss.
+    public synchronized SingletonResource getResourceIfPresent(TenantIdentifier tenantIdentifier,
+                                                               @Nonnull String key) {
+        return resources.get(new KeyClass(tenantIdentifier, key));
+    }
+
+    private synchronized SingletonResource getResourceAfterRefresh(TenantIdentifier tenantIdentifier,
+                                                                   @Nonnull String key)
+            throws TenantOrAppNotFoundException {
+        TenantIdentifier resolved = getTenantIdentifierOfResource(tenantIdentifier, key);
+        if (resolved == null) {
+            throw new TenantOrAppNotFoundException(tenantIdentifier);
+        }
+        return resources.get(new KeyClass(resolved, key));
+    }
+
+    // Returns the tenant identifier under which getResource finds the resource for tenantIdentifier, or null if it is
+    // not loaded. This does not refresh the tenants.
+    public synchronized TenantIdentifier getTenantIdentifierOfResource(TenantIdentifier tenantIdentifier,
+                                                                       @Nonnull String key) {
         // we try again..
-        resource = resources.get(new KeyClass(tenantIdentifier, key));
-        if (resource != null) {
-            return resource;
+        if (resources.containsKey(new KeyClass(tenantIdentifier, key))) {
+            return tenantIdentifier;
         }
 
         // then we see if the user has configured anything to do with connectionUriDomain, and if they have,
@@ -71,7 +96,7 @@ public class ResourceDistributor {
         for (KeyClass currKey : resources.keySet()) {
             if (currKey.getTenantIdentifier().getConnectionUriDomain()
                     .equals(tenantIdentifier.getConnectionUriDomain())) {
-                throw new TenantOrAppNotFoundException(tenantIdentifier);
+                return null;
             }
         }
 
@@ -79,13 +104,13 @@ public class ResourceDistributor {
         // connectionUriDomain, and therefore we fallback on the case where connectionUriDomain is the base one.
         // This is useful when the base connectionuri can be localhost or 127.0.0.1 or anything else that's
         // not specifically configured by the dev.
-        resource = resources.get(new KeyClass(
-                new TenantIdentifier(null, tenantIdentifier.getAppId(), tenantIdentifier.getTenantId()), key));
-        if (resource != null) {
-            return resource;
+        TenantIdentifier fallback = new TenantIdentifier(null, tenantIdentifier.getAppId(),
+                tenantIdentifier.getTenantId());
+        if (resources.containsKey(new KeyClass(fallback, key))) {
+            return fallback;
         }
 
-        throw new TenantOrAppNotFoundException(tenantIdentifier);
+        return null;
     }
 
     @TestOnly
@@ -137,6 +162,14 @@ public class ResourceDistributor {
         }
     }
 
+    // Replaces all the resources with the given key with newResources at once, so that the new resources can be
+    // created without holding the lock, and no thread sees a mix of old and new resources for this key.
+    public synchronized void replaceAllResourcesWithResourceKey(String inputKey,
+                                                                Map<KeyClass, SingletonResource> newResources) {
+        clearAllResourcesWithResourceKey(inputKey);
+        resources.putAll(newResources);
+    }
+
     public synchronized Map<KeyClass, SingletonResource> getAllResourcesWithResourceKey(String inputKey) {
         Map<KeyClass, SingletonResource> result = new HashMap<>();
         resources.forEach((key, value) -> {
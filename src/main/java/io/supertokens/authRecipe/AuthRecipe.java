@@ -16,6 +16,7 @@
 
 package io.supertokens.authRecipe;
 
+import io.supertokens.ActiveUsers;
 import io.supertokens.Main;
 import io.supertokens.authRecipe.exception.AccountInfoAlreadyAssociatedWithAnotherPrimaryUserIdException;
 import io.supertokens.authRecipe.exception.InputUserIdIsNotAPrimaryUserException;
@@ -40,8 +41,10 @@ import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
 import io.supertokens.pluginInterface.sqlStorage.TransactionConnection;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.session.Session;
+import io.supertokens.storageLayer.BatchUserDataStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
+import io.supertokens.userroles.UserRoles;
 import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nullable;
@@ -53,6 +56,8 @@ public class AuthRecipe {
 
     public static final int USER_PAGINATION_LIMIT = 500;
 
+    public static final int MAX_USERS_TO_GET_BY_IDS = 250;
+
     @TestOnly
     public static boolean unlinkAccounts(Main main, String recipeUserId)
             throws StorageQueryException, UnknownUserIdException, InputUserIdIsNotAPrimaryUserException {
@@ -125,6 +130,86 @@ public class AuthRecipe {
         return StorageUtils.getAuthRecipeStorage(storage).getPrimaryUserById(appIdentifier, userId);
     }
 
+    /**
+     * Returns the users that the given SuperTokens or external user ids belong to, keyed by the given id, with their
+     * external user ids populated. Ids that are not of any user are not in the returned map. The storages of the app
+     * are queried one after the other, each for the ids that were not found in the ones before it, with one query for
+     * the user id mappings and one for the users, if the storage implements BatchUserDataStorage.
+     */
+    public static Map<String, AuthRecipeUserInfo> getUsersByIds(AppIdentifier appIdentifier, Storage[] storages,
+                                                                List<String> userIds)
+            throws StorageQueryException {
+        Map<String, AuthRecipeUserInfo> users = new HashMap<>();
+        for (Storage storage : storages) {
+            List<String> remainingUserIds = new ArrayList<>();
+            for (String userId : new LinkedHashSet<>(userIds)) {
+                if (!users.containsKey(userId)) {
+                    remainingUserIds.add(userId);
+                }
+            }
+            if (remainingUserIds.isEmpty()) {
+                break;
+            }
+
+            Map<String, AuthRecipeUserInfo> usersInStorage = getUsersByIds(appIdentifier, storage, remainingUserIds);
+            io.supertokens.useridmapping.UserIdMapping.populateExternalUserIdForUsers(appIdentifier, storage,
+                    new HashSet<>(usersInStorage.values()).toArray(new AuthRecipeUserInfo[0]));
+            users.putAll(usersInStorage);
+        }
+        return users;
+    }
+
+    private static Map<String, AuthRecipeUserInfo> getUsersByIds(AppIdentifier appIdentifier, Storage storage,
+                                                                 List<String> userIds)
+            throws StorageQueryException {
+        Map<String, AuthRecipeUserInfo> users = new HashMap<>();
+        if (!(storage instanceof BatchUserDataStorage)) {
+            for (String userId : userIds) {
+                UserIdMapping userIdMapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
+                        appIdentifier, storage, userId, UserIdType.ANY);
+                AuthRecipeUserInfo user = getUserById(appIdentifier, storage,
+                        userIdMapping == null ? userId : userIdMapping.superTokensUserId);
+                if (user != null) {
+                    users.put(userId, user);
+                }
+            }
+            return users;
+        }
+
+        BatchUserDataStorage batchStorage = (BatchUserDataStorage) storage;
+        Map<String, String> superTokensUserIds = new HashMap<>(
+                batchStorage.getUserIdMappingForExternalUserIds(appIdentifier, userIds));
+        if (!superTokensUserIds.isEmpty()) {
+            // as with UserIdType.ANY, an id that is the SuperTokens user id of one mapping and the external user id of
+            // another is taken to be the SuperTokens user id
+            superTokensUserIds.keySet().removeAll(
+                    io.supertokens.useridmapping.UserIdMapping.getUserIdMappingForSuperTokensUserIds(appIdentifier,
+                            storage, new ArrayList<>(superTokensUserIds.keySet())).keySet());
+        }
+        Set<String> userIdsToFetch = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            userIdsToFetch.add(superTokensUserIds.getOrDefault(userId, userId));
+        }
+
+        // a user can be asked for with its primary user id or the id of any of its login methods
+        Map<String, AuthRecipeUserInfo> usersBySuperTokensUserId = new HashMap<>();
+        for (AuthRecipeUserInfo user : batchStorage.getPrimaryUsersByIds(appIdentifier,
+                new ArrayList<>(userIdsToFetch))) {
+            usersBySuperTokensUserId.put(user.getSupertokensUserId(), user);
+            for (LoginMethod loginMethod : user.loginMethods) {
+                usersBySuperTokensUserId.put(loginMethod.getSupertokensUserId(), user);
+            }
+        }
+
+        for (String userId : userIds) {
+            AuthRecipeUserInfo user = usersBySuperTokensUserId.get(superTokensUserIds.getOrDefault(userId, userId));
+            if (user != null) {
+                users.put(userId, user);
+            }
+        }
+        return users;
+    }
+
     public static class CreatePrimaryUserResult {
         public AuthRecipeUserInfo user;
         public boolean wasAlreadyAPrimaryUser;
@@ -652,16 +737,19 @@ public class AuthRecipe {
                 tenantIdentifier, includeRecipeIds);
     }
 
-    public static long getUsersCountAcrossAllTenants(AppIdentifier appIdentifier,
+    public static long getUsersCountAcrossAllTenants(Main main,
+                                                     AppIdentifier appIdentifier,
                                                      Storage[] storages,
                                                      RECIPE_ID[] includeRecipeIds)
             throws StorageQueryException,
             TenantOrAppNotFoundException, BadPermissionException {
         long count = 0;
 
-        for (Storage storage : storages) {
-            count += StorageUtils.getAuthRecipeStorage(storage).getUsersCount(
-                    appIdentifier, includeRecipeIds);
+        // the storages are counted in parallel
+        for (long storageCount : StorageLayer.queryEachStorage(main, storages,
+                storage -> StorageUtils.getAuthRecipeStorage(storage).getUsersCount(
+                        appIdentifier, includeRecipeIds))) {
+            count += storageCount;
         }
 
         return count;
@@ -740,12 +828,86 @@ public class AuthRecipe {
                                   boolean removeAllLinkedAccounts,
                                   UserIdMapping userIdMapping)
             throws StorageQueryException, StorageTransactionLogicException {
+        deleteUserAndGetDeletedNonAuthRecipeUserIds(appIdentifier, storage, userId, removeAllLinkedAccounts,
+                userIdMapping);
+    }
+
+    // same as above, but also removes the cached data of the deleted users
+    public static void deleteUser(Main main, AppIdentifier appIdentifier, Storage storage, String userId,
+                                  boolean removeAllLinkedAccounts,
+                                  UserIdMapping userIdMapping)
+            throws StorageQueryException, StorageTransactionLogicException {
+        // the buffered last active times are removed before the user is deleted, since a flush that has already taken
+        // them from the buffer would otherwise write them back after the delete
+        for (String userIdToDelete : getNonAuthRecipeUserIdsToDelete(appIdentifier, storage, userId,
+                removeAllLinkedAccounts, userIdMapping)) {
+            ActiveUsers.removeBufferedLastActive(main, appIdentifier, userIdToDelete);
+        }
+
+        List<String> deletedUserIds = deleteUserAndGetDeletedNonAuthRecipeUserIds(appIdentifier, storage, userId,
+                removeAllLinkedAccounts, userIdMapping);
+        for (String deletedUserId : deletedUserIds) {
+            // the roles of the user were deleted in all the tenants of the app
+            UserRoles.invalidateCachedRolesOfUser(main, appIdentifier, deletedUserId);
+        }
+    }
+
+    // returns the user ids whose non auth recipe data deleteUserHelper would delete, in the same way that it finds
+    // them, without deleting anything
+    private static List<String> getNonAuthRecipeUserIdsToDelete(AppIdentifier appIdentifier, Storage storage,
+                                                                String userId, boolean removeAllLinkedAccounts,
+                                                                UserIdMapping userIdMapping)
+            throws StorageQueryException {
+        String userIdToDeleteForAuthRecipe = userId;
+        String userIdToDeleteForNonAuthRecipe = userId;
+        if (userIdMapping != null) {
+            if (StorageUtils.getAuthRecipeStorage(storage).doesUserIdExist(appIdentifier,
+                    userIdMapping.externalUserId)) {
+                userIdToDeleteForNonAuthRecipe = null;
+            } else {
+                userIdToDeleteForAuthRecipe = userIdMapping.superTokensUserId;
+                userIdToDeleteForNonAuthRecipe = userIdMapping.externalUserId;
+            }
+        }
+
+        List<String> userIds = new ArrayList<>();
+        AuthRecipeUserInfo userToDelete = getUserById(appIdentifier, storage, userIdToDeleteForAuthRecipe);
+        if (userToDelete == null) {
+            return userIds;
+        }
+        if (removeAllLinkedAccounts || userToDelete.loginMethods.length == 1) {
+            // the data of each of the login methods is deleted, with their external user ids if they have one
+            List<String> superTokensUserIds = new ArrayList<>();
+            for (LoginMethod lM : userToDelete.loginMethods) {
+                superTokensUserIds.add(lM.getSupertokensUserId());
+            }
+            Map<String, String> externalUserIds = io.supertokens.useridmapping.UserIdMapping
+                    .getUserIdMappingForSuperTokensUserIds(appIdentifier, storage, superTokensUserIds);
+            for (String superTokensUserId : superTokensUserIds) {
+                userIds.add(externalUserIds.getOrDefault(superTokensUserId, superTokensUserId));
+            }
+        } else if (!userToDelete.getSupertokensUserId().equals(userIdToDeleteForAuthRecipe)
+                && userIdToDeleteForNonAuthRecipe != null) {
+            // a linked recipe user is deleted, and the data of the primary user is kept
+            userIds.add(userIdToDeleteForNonAuthRecipe);
+        }
+        return userIds;
+    }
+
+    // returns the user ids (external ones, if they have a mapping) whose non auth recipe data was deleted
+    private static List<String> deleteUserAndGetDeletedNonAuthRecipeUserIds(AppIdentifier appIdentifier,
+                                                                            Storage storage, String userId,
+                                                                            boolean removeAllLinkedAccounts,
+                                                                            UserIdMapping userIdMapping)
+            throws StorageQueryException, StorageTransactionLogicException {
         AuthRecipeSQLStorage authRecipeStorage = StorageUtils.getAuthRecipeStorage(storage);
 
-        authRecipeStorage.startTransaction(con -> {
-            deleteUserHelper(con, appIdentifier, storage, userId, removeAllLinkedAccounts, userIdMapping);
+        return authRecipeStorage.startTransaction(con -> {
+            List<String> deletedUserIds = new ArrayList<>();
+            deleteUserHelper(con, appIdentifier, storage, userId, removeAllLinkedAccounts, userIdMapping,
+                    deletedUserIds);
             authRecipeStorage.commitTransaction(con);
-            return null;
+            return deletedUserIds;
         });
     }
 
@@ -753,7 +915,8 @@ public class AuthRecipe {
                                          Storage storage,
                                          String userId,
                                          boolean removeAllLinkedAccounts,
-                                         UserIdMapping userIdMapping)
+                                         UserIdMapping userIdMapping,
+                                         List<String> deletedNonAuthRecipeUserIds)
             throws StorageQueryException {
         AuthRecipeSQLStorage authRecipeStorage = StorageUtils.getAuthRecipeStorage(storage);
 
@@ -850,11 +1013,13 @@ public class AuthRecipe {
                     !userIdToDeleteForAuthRecipe.equals(userToDelete.getSupertokensUserId()));
 
             if (userIdToDeleteForNonAuthRecipeForRecipeUserId != null) {
-                deleteNonAuthRecipeUser(con, appIdentifier, storage, userIdToDeleteForNonAuthRecipeForRecipeUserId);
+                deleteNonAuthRecipeUser(con, appIdentifier, storage, userIdToDeleteForNonAuthRecipeForRecipeUserId,
+                        deletedNonAuthRecipeUserIds);
             }
 
             if (primaryUserIdToDeleteNonAuthRecipe != null) {
-                deleteNonAuthRecipeUser(con, appIdentifier, storage, primaryUserIdToDeleteNonAuthRecipe);
+                deleteNonAuthRecipeUser(con, appIdentifier, storage, primaryUserIdToDeleteNonAuthRecipe,
+                        deletedNonAuthRecipeUserIds);
 
                 // this is only done to also delete the user ID mapping in case it exists, since we do not delete in the
                 // previous call to deleteAuthRecipeUser above.
@@ -870,7 +1035,8 @@ public class AuthRecipe {
                                 appIdentifier,
                                 storage,
                                 lM.getSupertokensUserId(), UserIdType.SUPERTOKENS);
-                deleteUserHelper(con, appIdentifier, storage, lM.getSupertokensUserId(), false, mappingResult);
+                deleteUserHelper(con, appIdentifier, storage, lM.getSupertokensUserId(), false, mappingResult,
+                        deletedNonAuthRecipeUserIds);
             }
         }
     }
@@ -883,7 +1049,7 @@ public class AuthRecipe {
         UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(appIdentifier,
                 storage, userId, UserIdType.ANY);
 
-        deleteUser(appIdentifier, storage, userId, removeAllLinkedAccounts, mapping);
+        deleteUser(main, appIdentifier, storage, userId, removeAllLinkedAccounts, mapping);
     }
 
     @TestOnly
@@ -894,7 +1060,7 @@ public class AuthRecipe {
         UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(appIdentifier,
                 storage, userId, UserIdType.ANY);
 
-        deleteUser(appIdentifier, storage, userId, mapping);
+        deleteUser(main, appIdentifier, storage, userId, true, mapping);
     }
 
     @TestOnly
@@ -907,8 +1073,10 @@ public class AuthRecipe {
     }
 
     private static void deleteNonAuthRecipeUser(TransactionConnection con, AppIdentifier appIdentifier,
-                                                Storage storage, String userId)
+                                                Storage storage, String userId,
+                                                List<String> deletedNonAuthRecipeUserIds)
             throws StorageQueryException {
+        deletedNonAuthRecipeUserIds.add(userId);
         StorageUtils.getUserMetadataStorage(storage)
                 .deleteUserMetadata_Transaction(con, appIdentifier, userId);
         ((SessionSQLStorage) StorageUtils.getSessionStorage(storage))
@@ -0,0 +1,536 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.bulkimport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.Main;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.bulkimport.exceptions.InvalidBulkImportDataException;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.emailpassword.PasswordHashingUtils;
+import io.supertokens.emailpassword.exceptions.UnsupportedPasswordHashingFormatException;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.StorageUtils;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateUserIdException;
+import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantConfig;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.BulkImportStorage;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.useridmapping.UserIdType;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.userroles.UserRoles;
+import io.supertokens.utils.ParallelTasks;
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports users in bulk. Users are first added to a staging table (after their format is checked), and are then
+ * imported from there by the ProcessBulkImportUsers cronjob, bulk_import_batch_size users at a time. For each batch,
+ * the password hashes are validated in parallel, and the users are inserted with multi row statements, in one
+ * transaction per tenant. Their user id mappings, tenants, metadata and roles are then added one user at a time, and a
+ * user is deleted again if any of them could not be added.
+ * <p>
+ * Users that are imported are removed from the staging table, and users that could not be imported are kept in it
+ * with the reason, so that they can be listed, fixed and added again.
+ */
+public class BulkImport {
+
+    // max number of users that can be added to the staging table in one call
+    public static final int MAX_USERS_TO_ADD = 10000;
+
+    // max number of users that can be listed in one call
+    public static final int MAX_USERS_TO_LIST = 500;
+
+    // a user that is being processed for longer than this is assumed to have been left behind by a core that
+    // stopped, and is processed again
+    static final long PROCESSING_TIMEOUT_MS = 10 * 60 * 1000;
+
+    public static final String USERS_IMPORTED_METRIC = "bulk_import.users_imported";
+    public static final String USERS_FAILED_METRIC = "bulk_import.users_failed";
+
+    static class ParsedUser {
+        @Nullable
+        final String externalUserId;
+        @Nullable
+        final JsonObject userMetadata;
+        final List<String> userRoles;
+        final List<String> tenantIds;
+        final String email;
+        final String passwordHash;
+        final CoreConfig.PASSWORD_HASHING_ALG hashingAlgorithm;
+        final long timeJoined;
+
+        ParsedUser(@Nullable String externalUserId, @Nullable JsonObject userMetadata, List<String> userRoles,
+                   List<String> tenantIds, String email, String passwordHash,
+                   CoreConfig.PASSWORD_HASHING_ALG hashingAlgorithm, long timeJoined) {
+            this.externalUserId = externalUserId;
+            this.userMetadata = userMetadata;
+            this.userRoles = userRoles;
+            this.tenantIds = tenantIds;
+            this.email = email;
+            this.passwordHash = passwordHash;
+            this.hashingAlgorithm = hashingAlgorithm;
+            this.timeJoined = timeJoined;
+        }
+
+        // roles and metadata are stored against the external user ID of a user, if it has one
+        String getSupertokensOrExternalUserId(String superTokensUserId) {
+            return this.externalUserId != null ? this.externalUserId : superTokensUserId;
+        }
+    }
+
+    public static boolean isSupported(Storage storage) {
+        return storage instanceof BulkImportStorage;
+    }
+
+    /**
+     * Checks the format of all the users, and adds them to the staging table if they are all valid. If any of them
+     * is not, none of them are added, and the errors of all of them are thrown.
+     *
+     * @return the ids of the added users in the staging table, in the same order as users
+     */
+    public static List<String> addUsers(Main main, AppIdentifier appIdentifier, Storage storage, JsonArray users)
+            throws StorageQueryException, InvalidBulkImportDataException {
+        List<String> errors = new ArrayList<>();
+        List<BulkImportUser> bulkImportUsers = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < users.size(); i++) {
+            JsonElement user = users.get(i);
+            if (!user.isJsonObject()) {
+                errors.add("users[" + i + "]: must be an object");
+                continue;
+            }
+            try {
+                parseUser(main, appIdentifier, user.getAsJsonObject());
+            } catch (InvalidBulkImportDataException e) {
+                for (String error : e.errors) {
+                    errors.add("users[" + i + "]: " + error);
+                }
+                continue;
+            }
+            bulkImportUsers.add(
+                    new BulkImportUser(Utils.getUUID(), user.toString(), BulkImportUser.Status.NEW, null, now));
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidBulkImportDataException(errors);
+        }
+
+        ((BulkImportStorage) storage).addBulkImportUsers(appIdentifier, bulkImportUsers);
+
+        List<String> ids = new ArrayList<>();
+        for (BulkImportUser user : bulkImportUsers) {
+            ids.add(user.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Imports the next batch of users from the staging table of the app.
+     *
+     * @return the number of users that were processed, which is 0 if there were none left to import
+     */
+    public static int processUsers(Main main, AppIdentifier appIdentifier, Storage storage, int batchSize)
+            throws StorageQueryException {
+        BulkImportStorage bulkImportStorage = (BulkImportStorage) storage;
+        List<BulkImportUser> bulkImportUsers = bulkImportStorage.getBulkImportUsersForProcessing(appIdentifier,
+                batchSize, System.currentTimeMillis() - PROCESSING_TIMEOUT_MS);
+        if (bulkImportUsers.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, String> failedUsers = new LinkedHashMap<>();
+        Map<String, ParsedUser> users = new LinkedHashMap<>();
+        for (BulkImportUser bulkImportUser : bulkImportUsers) {
+            try {
+                // checked again since the tenants of the user may have been deleted after it was added
+                users.put(bulkImportUser.id, parseUser(main, appIdentifier,
+                        new JsonParser().parse(bulkImportUser.rawData).getAsJsonObject()));
+            } catch (InvalidBulkImportDataException e) {
+                failedUsers.put(bulkImportUser.id, e.getMessage());
+            }
+        }
+
+        // the hashes are validated in parallel, since it is the slowest part of checking a user
+        Map<String, ParallelTasks.Task<String, RuntimeException>> hashValidations = new LinkedHashMap<>();
+        for (Map.Entry<String, ParsedUser> user : users.entrySet()) {
+            hashValidations.put(user.getKey(), () -> validatePasswordHash(main, appIdentifier, user.getValue()));
+        }
+        Map<String, String> hashErrors = ParallelTasks.run(hashValidations,
+                Runtime.getRuntime().availableProcessors(), "bulk-import-hash-validation");
+        for (Map.Entry<String, String> hashError : hashErrors.entrySet()) {
+            if (hashError.getValue() != null) {
+                users.remove(hashError.getKey());
+                failedUsers.put(hashError.getKey(), hashError.getValue());
+            }
+        }
+
+        // users are created in the first of their tenants, and then added to the others
+        Map<String, List<String>> idsByTenant = new LinkedHashMap<>();
+        for (Map.Entry<String, ParsedUser> user : users.entrySet()) {
+            idsByTenant.computeIfAbsent(user.getValue().tenantIds.get(0), k -> new ArrayList<>()).add(user.getKey());
+        }
+        Map<String, String> superTokensUserIds = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> tenantIds : idsByTenant.entrySet()) {
+            TenantIdentifier tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
+                    appIdentifier.getAppId(), tenantIds.getKey());
+            createUsers(main, tenantIdentifier, tenantIds.getValue(), users, superTokensUserIds, failedUsers);
+        }
+
+        for (Map.Entry<String, String> superTokensUserId : superTokensUserIds.entrySet()) {
+            ParsedUser user = users.get(superTokensUserId.getKey());
+            String error = addUserData(main, appIdentifier, storage, user, superTokensUserId.getValue());
+            if (error == null) {
+                continue;
+            }
+            // the user is deleted so that it can be imported again once the error is fixed, which would otherwise
+            // fail since its email is already used
+            if (deleteUser(main, appIdentifier, user, superTokensUserId.getValue())) {
+                failedUsers.put(superTokensUserId.getKey(), "The user was not imported, since " + error);
+            } else {
+                failedUsers.put(superTokensUserId.getKey(),
+                        "The user was imported with the id " + superTokensUserId.getValue() + ", but " + error);
+            }
+        }
+
+        List<String> importedIds = new ArrayList<>();
+        for (String id : superTokensUserIds.keySet()) {
+            if (!failedUsers.containsKey(id)) {
+                importedIds.add(id);
+            }
+        }
+        if (!importedIds.isEmpty()) {
+            bulkImportStorage.deleteBulkImportUsers(appIdentifier, importedIds);
+        }
+        if (!failedUsers.isEmpty()) {
+            bulkImportStorage.markBulkImportUsersAsFailed(appIdentifier, failedUsers);
+        }
+        Metrics.getInstance(main).addToCounter(USERS_IMPORTED_METRIC, importedIds.size());
+        Metrics.getInstance(main).addToCounter(USERS_FAILED_METRIC, failedUsers.size());
+        return bulkImportUsers.size();
+    }
+
+    public static List<BulkImportUser> getUsers(AppIdentifier appIdentifier, Storage storage,
+                                                @Nullable BulkImportUser.Status status, int limit,
+                                                @Nullable String paginationToken) throws StorageQueryException {
+        return ((BulkImportStorage) storage).getBulkImportUsers(appIdentifier, status, limit, paginationToken);
+    }
+
+    public static Map<BulkImportUser.Status, Long> getUserCountsByStatus(AppIdentifier appIdentifier,
+                                                                         Storage storage)
+            throws StorageQueryException {
+        return ((BulkImportStorage) storage).getBulkImportUserCountsByStatus(appIdentifier);
+    }
+
+    public static int removeUsers(AppIdentifier appIdentifier, Storage storage, List<String> ids)
+            throws StorageQueryException {
+        return ((BulkImportStorage) storage).deleteBulkImportUsers(appIdentifier, ids);
+    }
+
+    /*
+     * A user looks like:
+     * {
+     *     "externalUserId": "...", (optional)
+     *     "userMetadata": {...}, (optional)
+     *     "userRoles": ["..."], (optional)
+     *     "loginMethods": [{
+     *         "recipeId": "emailpassword",
+     *         "tenantIds": ["..."], (optional, defaults to ["public"])
+     *         "email": "...",
+     *         "passwordHash": "...",
+     *         "hashingAlgorithm": "argon2" | "bcrypt" | "firebase_scrypt",
+     *         "timeJoinedInMSSinceEpoch": ... (optional, defaults to the time of the import)
+     *     }]
+     * }
+     */
+    static ParsedUser parseUser(Main main, AppIdentifier appIdentifier, JsonObject user)
+            throws InvalidBulkImportDataException {
+        List<String> errors = new ArrayList<>();
+
+        String externalUserId = null;
+        if (user.has("externalUserId")) {
+            if (!isNonEmptyString(user.get("externalUserId"))) {
+                errors.add("externalUserId must be a non empty string");
+            } else {
+                externalUserId = user.get("externalUserId").getAsString().trim();
+            }
+        }
+
+        JsonObject userMetadata = null;
+        if (user.has("userMetadata")) {
+            if (!user.get("userMetadata").isJsonObject()) {
+                errors.add("userMetadata must be an object");
+            } else {
+                userMetadata = user.getAsJsonObject("userMetadata");
+            }
+        }
+
+        List<String> userRoles = getStringArray(user, "userRoles", errors);
+
+        JsonObject loginMethod = null;
+        if (!user.has("loginMethods") || !user.get("loginMethods").isJsonArray()
+                || user.getAsJsonArray("loginMethods").size() != 1
+                || !user.getAsJsonArray("loginMethods").get(0).isJsonObject()) {
+            errors.add("loginMethods must be an array with exactly one login method");
+        } else {
+            loginMethod = user.getAsJsonArray("loginMethods").get(0).getAsJsonObject();
+        }
+
+        List<String> tenantIds = new ArrayList<>();
+        String email = null;
+        String passwordHash = null;
+        CoreConfig.PASSWORD_HASHING_ALG hashingAlgorithm = null;
+        long timeJoined = System.currentTimeMillis();
+        if (loginMethod != null) {
+            if (!loginMethod.has("recipeId") || !loginMethod.get("recipeId").isJsonPrimitive()
+                    || !loginMethod.get("recipeId").getAsString().equals("emailpassword")) {
+                errors.add("loginMethods[0].recipeId must be emailpassword");
+            }
+
+            tenantIds = getStringArray(loginMethod, "tenantIds", errors);
+            if (tenantIds.isEmpty()) {
+                tenantIds.add(TenantIdentifier.DEFAULT_TENANT_ID);
+            }
+            for (String tenantId : tenantIds) {
+                TenantConfig config = Multitenancy.getTenantInfo(main, new TenantIdentifier(
+                        appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(), tenantId));
+                if (config == null) {
+                    errors.add("Tenant with the id " + tenantId + " does not exist");
+                } else if (!config.emailPasswordConfig.enabled) {
+                    // as in EmailPassword.importUserWithPasswordHash
+                    errors.add("Email password login is not enabled for the tenant with the id " + tenantId);
+                }
+            }
+
+            if (!isNonEmptyString(loginMethod.get("email"))) {
+                errors.add("loginMethods[0].email must be a non empty string");
+            } else {
+                email = Utils.normaliseEmail(loginMethod.get("email").getAsString());
+            }
+
+            if (!isNonEmptyString(loginMethod.get("passwordHash"))) {
+                errors.add("loginMethods[0].passwordHash must be a non empty string");
+            } else {
+                passwordHash = loginMethod.get("passwordHash").getAsString().trim();
+            }
+
+            try {
+                hashingAlgorithm = CoreConfig.PASSWORD_HASHING_ALG.valueOf(
+                        loginMethod.get("hashingAlgorithm").getAsString().toUpperCase());
+            } catch (NullPointerException | IllegalStateException | UnsupportedOperationException
+                     | IllegalArgumentException e) {
+                errors.add("loginMethods[0].hashingAlgorithm must be one of argon2, bcrypt or firebase_scrypt");
+            }
+
+            if (loginMethod.has("timeJoinedInMSSinceEpoch")) {
+                try {
+                    timeJoined = loginMethod.get("timeJoinedInMSSinceEpoch").getAsLong();
+                } catch (IllegalStateException | UnsupportedOperationException | NumberFormatException e) {
+                    errors.add("loginMethods[0].timeJoinedInMSSinceEpoch must be a number");
+                }
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new InvalidBulkImportDataException(errors);
+        }
+        return new ParsedUser(externalUserId, userMetadata, userRoles, tenantIds, email, passwordHash,
+                hashingAlgorithm, timeJoined);
+    }
+
+    // returns the error, or null if the hash is valid
+    private static String validatePasswordHash(Main main, AppIdentifier appIdentifier, ParsedUser user) {
+        try {
+            PasswordHashingUtils.assertSuperTokensSupportInputPasswordHashFormat(appIdentifier, main,
+                    user.passwordHash, user.hashingAlgorithm);
+            return null;
+        } catch (UnsupportedPasswordHashingFormatException e) {
+            return e.getMessage();
+        } catch (TenantOrAppNotFoundException e) {
+            return "App does not exist";
+        }
+    }
+
+    /*
+     * Creates the users in the tenant with one multi row insert per table, if its storage supports it. If that fails
+     * (for example, because one of the emails is already used), each user is created on its own instead, so that only
+     * the users that cannot be created fail.
+     */
+    private static void createUsers(Main main, TenantIdentifier tenantIdentifier, List<String> ids,
+                                    Map<String, ParsedUser> users, Map<String, String> superTokensUserIds,
+                                    Map<String, String> failedUsers) {
+        Storage tenantStorage;
+        try {
+            tenantStorage = StorageLayer.getStorage(tenantIdentifier, main);
+        } catch (TenantOrAppNotFoundException e) {
+            for (String id : ids) {
+                failedUsers.put(id, "Tenant with the id " + tenantIdentifier.getTenantId() + " does not exist");
+            }
+            return;
+        }
+
+        Map<String, String> newUserIds = new LinkedHashMap<>();
+        for (String id : ids) {
+            newUserIds.put(id, Utils.getUUID());
+        }
+
+        if (tenantStorage instanceof BulkImportStorage) {
+            List<BulkImportStorage.EmailPasswordUser> emailPasswordUsers = new ArrayList<>();
+            for (String id : ids) {
+                ParsedUser user = users.get(id);
+                emailPasswordUsers.add(new BulkImportStorage.EmailPasswordUser(newUserIds.get(id), user.email,
+                        user.passwordHash, user.timeJoined));
+            }
+            try {
+                ((BulkImportStorage) tenantStorage).importEmailPasswordUsers(tenantIdentifier, emailPasswordUsers);
+                superTokensUserIds.putAll(newUserIds);
+                return;
+            } catch (StorageQueryException ignored) {
+                // we create the users one by one below
+            }
+        }
+
+        EmailPasswordSQLStorage epStorage = StorageUtils.getEmailPasswordStorage(tenantStorage);
+        for (String id : ids) {
+            ParsedUser user = users.get(id);
+            try {
+                epStorage.signUp(tenantIdentifier, newUserIds.get(id), user.email, user.passwordHash,
+                        user.timeJoined);
+                superTokensUserIds.put(id, newUserIds.get(id));
+            } catch (DuplicateEmailException e) {
+                failedUsers.put(id, "A user with the email " + user.email + " already exists in the tenant "
+                        + tenantIdentifier.getTenantId());
+            } catch (DuplicateUserIdException e) {
+                // a random UUID is very unlikely to be used already, so this is not retried
+                failedUsers.put(id, "A user with the id " + newUserIds.get(id) + " already exists");
+            } catch (TenantOrAppNotFoundException e) {
+                failedUsers.put(id, "Tenant with the id " + tenantIdentifier.getTenantId() + " does not exist");
+            } catch (StorageQueryException e) {
+                failedUsers.put(id, "Could not create the user: " + e.getMessage());
+            }
+        }
+    }
+
+    // adds the user to the rest of its tenants, and adds its user id mapping, metadata and roles. Returns the error,
+    // or null if all of them were added
+    private static String addUserData(Main main, AppIdentifier appIdentifier, Storage storage, ParsedUser user,
+                                      String superTokensUserId) {
+        List<TenantIdentifier> tenants = new ArrayList<>();
+        for (String tenantId : user.tenantIds) {
+            tenants.add(new TenantIdentifier(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(),
+                    tenantId));
+        }
+
+        for (TenantIdentifier tenant : tenants.subList(1, tenants.size())) {
+            try {
+                Multitenancy.addUserIdToTenant(main, tenant, StorageLayer.getStorage(tenant, main),
+                        superTokensUserId);
+            } catch (Exception e) {
+                return "it could not be added to the tenant " + tenant.getTenantId() + ": " + getMessage(e);
+            }
+        }
+
+        if (user.externalUserId != null) {
+            try {
+                UserIdMapping.createUserIdMapping(main, appIdentifier, storage, superTokensUserId,
+                        user.externalUserId, null, false);
+            } catch (Exception e) {
+                return "its user id mapping could not be created: " + getMessage(e);
+            }
+        }
+
+        String userId = user.getSupertokensOrExternalUserId(superTokensUserId);
+        if (user.userMetadata != null) {
+            try {
+                UserMetadata.updateUserMetadata(main, appIdentifier, storage, userId, user.userMetadata);
+            } catch (Exception e) {
+                return "its metadata could not be added: " + getMessage(e);
+            }
+        }
+
+        for (TenantIdentifier tenant : tenants) {
+            for (String role : user.userRoles) {
+                try {
+                    UserRoles.addRoleToUser(main, tenant, StorageLayer.getStorage(tenant, main), userId, role);
+                } catch (Exception e) {
+                    return "the role " + role + " could not be added to it: " + getMessage(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    // deletes a user whose data could not all be added, and returns whether it was deleted
+    private static boolean deleteUser(Main main, AppIdentifier appIdentifier, ParsedUser user,
+                                      String superTokensUserId) {
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
+                appIdentifier.getAppId(), user.tenantIds.get(0));
+        try {
+            Storage userStorage = StorageLayer.getStorage(tenantIdentifier, main);
+            io.supertokens.pluginInterface.useridmapping.UserIdMapping userIdMapping = UserIdMapping.getUserIdMapping(
+                    appIdentifier, userStorage, superTokensUserId, UserIdType.SUPERTOKENS);
+            AuthRecipe.deleteUser(main, appIdentifier, userStorage, superTokensUserId, true, userIdMapping);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static String getMessage(Exception e) {
+        // many of the exceptions of the functions above do not have a message
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static boolean isNonEmptyString(@Nullable JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()
+                && !element.getAsString().trim().isEmpty();
+    }
+
+    private static List<String> getStringArray(JsonObject object, String key, List<String> errors) {
+        List<String> values = new ArrayList<>();
+        if (!object.has(key)) {
+            return values;
+        }
+        if (!object.get(key).isJsonArray()) {
+            errors.add(key + " must be an array of strings");
+            return values;
+        }
+        for (JsonElement value : object.getAsJsonArray(key)) {
+            if (!isNonEmptyString(value)) {
+                errors.add(key + " must be an array of strings");
+                return new ArrayList<>();
+            }
+            values.add(value.getAsString().trim());
+        }
+        return values;
+    }
+}
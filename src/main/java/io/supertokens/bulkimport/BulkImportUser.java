@@ -0,0 +1,65 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.bulkimport;
+
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nullable;
+
+// a user in the bulk import staging table
+public class BulkImportUser {
+
+    public enum Status {
+        // waiting to be imported
+        NEW,
+        // being imported by a core
+        PROCESSING,
+        // could not be imported, see errorMessage
+        FAILED
+    }
+
+    public final String id;
+
+    // the user as it was added to the staging table, in the format that BulkImport.parseUser accepts
+    public final String rawData;
+
+    public final Status status;
+
+    @Nullable
+    public final String errorMessage;
+
+    public final long createdAt;
+
+    public BulkImportUser(String id, String rawData, Status status, @Nullable String errorMessage, long createdAt) {
+        this.id = id;
+        this.rawData = rawData;
+        this.status = status;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", this.id);
+        json.addProperty("status", this.status.toString());
+        if (this.errorMessage != null) {
+            json.addProperty("errorMessage", this.errorMessage);
+        }
+        json.addProperty("createdAt", this.createdAt);
+        return json;
+    }
+}
@@ -32,6 +32,7 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
     private static final String HOST_FILE_KEY = "host=";
     private static final String TEST_MODE = "test_mode";
     private static final String FORCE_NO_IN_MEM_DB = "forceNoInMemDB=true";
+    private static final String CDS_TRAINING_RUN = "cdsTrainingRun=true";
     private final String installationPath;
     private final String configFilePath;
     private final Integer port;
@@ -40,6 +41,10 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
     // if this is true, then even in DEV mode, we will not use in memory db, even if there is an error in the plugin
     private final boolean forceNoInMemoryDB;
 
+    // if this is true, the core uses the in memory db, does not start the cronjobs, and shuts down as soon as it has
+    // started. This is used for the training run that creates the class data sharing archive of the core
+    private final boolean cdsTrainingRun;
+
     private CLIOptions(String[] args) {
         checkIfArgsIsCorrect(args);
         String installationPath = args[0];
@@ -47,6 +52,7 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
         Integer portTemp = null;
         String hostTemp = null;
         boolean forceNoInMemoryDBTemp = false;
+        boolean cdsTrainingRunTemp = false;
         for (int i = 1; i < args.length; i++) {
             String curr = args[i];
             if (curr.startsWith(CONFIG_FILE_KEY)) {
@@ -60,6 +66,8 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
                 hostTemp = curr.split(HOST_FILE_KEY)[1];
             } else if (curr.startsWith(FORCE_NO_IN_MEM_DB)) {
                 forceNoInMemoryDBTemp = true;
+            } else if (curr.equals(CDS_TRAINING_RUN)) {
+                cdsTrainingRunTemp = true;
             } else if (curr.equals(TEST_MODE)) {
                 Main.isTesting = true;
             }
@@ -69,6 +77,7 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
         this.port = portTemp;
         this.host = hostTemp;
         this.forceNoInMemoryDB = forceNoInMemoryDBTemp;
+        this.cdsTrainingRun = cdsTrainingRunTemp;
     }
 
     private static CLIOptions getInstance(Main main) {
@@ -123,4 +132,8 @@ public class CLIOptions extends ResourceDistributor.SingletonResource {
     public boolean isForceNoInMemoryDB() {
         return this.forceNoInMemoryDB;
     }
+
+    public boolean isCDSTrainingRun() {
+        return this.cdsTrainingRun;
+    }
 }
@@ -38,6 +38,7 @@ import org.jetbrains.annotations.TestOnly;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -116,42 +117,24 @@ public class Config extends ResourceDistributor.SingletonResource {
 
         assertAllTenantConfigsAreValid(main, normalisedConfigs, tenants);
 
-        // At this point, we know that all configs are valid.
-        try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                try {
-                    Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                            main.getResourceDistributor()
-                                    .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                    main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                    for (ResourceDistributor.KeyClass key : normalisedConfigs.keySet()) {
-                        ResourceDistributor.SingletonResource resource = existingResources.get(
-                                new ResourceDistributor.KeyClass(
-                                        key.getTenantIdentifier(),
-                                        RESOURCE_KEY));
-                        if (resource != null && !tenantsThatChanged.contains(key.getTenantIdentifier())) {
-                            main.getResourceDistributor()
-                                    .setResource(key.getTenantIdentifier(),
-                                            RESOURCE_KEY,
-                                            resource);
-                        } else {
-                            main.getResourceDistributor()
-                                    .setResource(key.getTenantIdentifier(), RESOURCE_KEY,
-                                            new Config(main, normalisedConfigs.get(key)));
-
-                        }
-                    }
-                } catch (InvalidConfigException | IOException e) {
-                    throw new ResourceDistributor.FuncException(e);
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            if (e.getCause() instanceof InvalidConfigException) {
-                throw (InvalidConfigException) e.getCause();
+        // At this point, we know that all configs are valid. The new Config objects are created without holding the
+        // resource distributor lock, and are then swapped in at once.
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        for (ResourceDistributor.KeyClass key : normalisedConfigs.keySet()) {
+            ResourceDistributor.KeyClass resourceKey = new ResourceDistributor.KeyClass(
+                    key.getTenantIdentifier(),
+                    RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(resourceKey);
+            if (resource != null && !tenantsThatChanged.contains(key.getTenantIdentifier())) {
+                newResources.put(resourceKey, resource);
+            } else {
+                newResources.put(resourceKey, new Config(main, normalisedConfigs.get(key)));
             }
-            throw new RuntimeException(e);
         }
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
     // this function will check for conflicting configs across all tenants, including the base config.
@@ -223,6 +206,25 @@ public class Config extends ResourceDistributor.SingletonResource {
     public static Map<ResourceDistributor.KeyClass, JsonObject> getNormalisedConfigsForAllTenants(
             TenantConfig[] tenants,
             JsonObject baseConfigJson) {
+        List<TenantIdentifier> tenantIdentifiers = new ArrayList<>();
+        for (TenantConfig tenant : tenants) {
+            tenantIdentifiers.add(tenant.tenantIdentifier);
+        }
+        Map<ResourceDistributor.KeyClass, JsonObject> result = getNormalisedConfigsForTenants(tenants,
+                tenantIdentifiers, baseConfigJson);
+
+        result.put(new ResourceDistributor.KeyClass(new TenantIdentifier(null, null, null), RESOURCE_KEY),
+                baseConfigJson);
+
+        return result;
+    }
+
+    // Same as getNormalisedConfigsForAllTenants, but only normalises the configs of tenantsToNormalise, using the
+    // configs of their app and connection uri domain from tenants. Tenants in tenantsToNormalise that are not in
+    // tenants are skipped.
+    public static Map<ResourceDistributor.KeyClass, JsonObject> getNormalisedConfigsForTenants(
+            TenantConfig[] tenants, Collection<TenantIdentifier> tenantsToNormalise,
+            JsonObject baseConfigJson) {
         Map<ResourceDistributor.KeyClass, JsonObject> result = new HashMap<>();
         Map<ResourceDistributor.KeyClass, JsonObject> jsonConfigs = new HashMap<>();
 
@@ -231,15 +233,19 @@ public class Config extends ResourceDistributor.SingletonResource {
                     new ResourceDistributor.KeyClass(tenant.tenantIdentifier, RESOURCE_KEY),
                     tenant.coreConfig);
         }
-        for (TenantConfig tenant : tenants) {
-            if (tenant.tenantIdentifier.equals(new TenantIdentifier(null, null, null))) {
+        for (TenantIdentifier tenantIdentifier : tenantsToNormalise) {
+            if (tenantIdentifier.equals(new TenantIdentifier(null, null, null))) {
                 // this refers to the base tenant's config which is in the config.yaml file.
+                result.put(new ResourceDistributor.KeyClass(tenantIdentifier, RESOURCE_KEY), baseConfigJson);
+                continue;
+            }
+            if (!jsonConfigs.containsKey(new ResourceDistributor.KeyClass(tenantIdentifier, RESOURCE_KEY))) {
                 continue;
             }
             JsonObject finalJson = new JsonObject();
 
             JsonObject fetchedConfig = jsonConfigs.get(
-                    new ResourceDistributor.KeyClass(tenant.tenantIdentifier, RESOURCE_KEY));
+                    new ResourceDistributor.KeyClass(tenantIdentifier, RESOURCE_KEY));
             if (fetchedConfig != null) {
                 fetchedConfig.entrySet().forEach(stringJsonElementEntry -> {
                     if (!finalJson.has(stringJsonElementEntry.getKey())) {
@@ -250,8 +256,8 @@ public class Config extends ResourceDistributor.SingletonResource {
 
             fetchedConfig = jsonConfigs.get(
                     new ResourceDistributor.KeyClass(
-                            new TenantIdentifier(tenant.tenantIdentifier.getConnectionUriDomain(),
-                                    tenant.tenantIdentifier.getAppId(), null),
+                            new TenantIdentifier(tenantIdentifier.getConnectionUriDomain(),
+                                    tenantIdentifier.getAppId(), null),
                             RESOURCE_KEY));
             if (fetchedConfig != null) {
                 fetchedConfig.entrySet().forEach(stringJsonElementEntry -> {
@@ -266,7 +272,7 @@ public class Config extends ResourceDistributor.SingletonResource {
             // config for all their apps via our SaaS dashboard.
             fetchedConfig = jsonConfigs.get(
                     new ResourceDistributor.KeyClass(
-                            new TenantIdentifier(tenant.tenantIdentifier.getConnectionUriDomain(),
+                            new TenantIdentifier(tenantIdentifier.getConnectionUriDomain(),
                                     null, null),
                             RESOURCE_KEY));
             if (fetchedConfig != null) {
@@ -283,13 +289,10 @@ public class Config extends ResourceDistributor.SingletonResource {
                 }
             });
 
-            result.put(new ResourceDistributor.KeyClass(tenant.tenantIdentifier, RESOURCE_KEY),
+            result.put(new ResourceDistributor.KeyClass(tenantIdentifier, RESOURCE_KEY),
                     finalJson);
         }
 
-        result.put(new ResourceDistributor.KeyClass(new TenantIdentifier(null, null, null), RESOURCE_KEY),
-                baseConfigJson);
-
         return result;
     }
 
@@ -203,6 +203,82 @@ public class CoreConfig {
     @JsonProperty
     private String supertokens_saas_load_only_cud = null;
 
+    @ConfigYamlOnly
+    @JsonProperty
+    private int expired_data_deletion_batch_size = 0;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int expired_data_deletion_rows_per_second = 1000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int expired_data_deletion_max_run_time_sec = 60;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int expired_data_deletion_interval_sec = 300;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int cron_worker_pool_size = 10;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int cron_max_parallelism_per_job = 5;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private long cron_max_start_jitter_ms = 30000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private boolean lazy_app_resource_loading = false;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int lazy_app_resource_idle_ttl_sec = 3600;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int lazy_app_resource_max_apps = 1000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int resource_loading_parallelism = 8;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private boolean warm_up_on_start = false;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int warm_up_iterations = 1000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int user_storage_location_cache_size = 10000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int user_roles_cache_size = 10000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int user_roles_cache_ttl_sec = 5;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int bulk_import_batch_size = 1000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int user_metadata_max_size_bytes = 0;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int active_users_flush_interval_sec = 60;
+
     @IgnoreForAnnotationCheck
     private Set<LOG_LEVEL> allowedLogLevels = null;
 
@@ -264,6 +340,86 @@ public class CoreConfig {
         return supertokens_saas_load_only_cud;
     }
 
+    public boolean isExpiredDataBatchDeletionEnabled() {
+        return expired_data_deletion_batch_size > 0;
+    }
+
+    public int getExpiredDataDeletionBatchSize() {
+        return expired_data_deletion_batch_size;
+    }
+
+    public int getExpiredDataDeletionRowsPerSecond() {
+        return expired_data_deletion_rows_per_second;
+    }
+
+    public int getExpiredDataDeletionMaxRunTimeSec() {
+        return expired_data_deletion_max_run_time_sec;
+    }
+
+    public int getExpiredDataDeletionIntervalSec() {
+        return expired_data_deletion_interval_sec;
+    }
+
+    public int getCronWorkerPoolSize() {
+        return cron_worker_pool_size;
+    }
+
+    public int getCronMaxParallelismPerJob() {
+        return cron_max_parallelism_per_job;
+    }
+
+    public long getCronMaxStartJitterMs() {
+        return cron_max_start_jitter_ms;
+    }
+
+    public boolean getLazyAppResourceLoading() {
+        return lazy_app_resource_loading;
+    }
+
+    public int getLazyAppResourceIdleTtlSec() {
+        return lazy_app_resource_idle_ttl_sec;
+    }
+
+    public int getLazyAppResourceMaxApps() {
+        return lazy_app_resource_max_apps;
+    }
+
+    public int getResourceLoadingParallelism() {
+        return resource_loading_parallelism;
+    }
+
+    public boolean getWarmUpOnStart() {
+        return warm_up_on_start;
+    }
+
+    public int getWarmUpIterations() {
+        return warm_up_iterations;
+    }
+
+    public int getUserStorageLocationCacheSize() {
+        return user_storage_location_cache_size;
+    }
+
+    public int getUserRolesCacheSize() {
+        return user_roles_cache_size;
+    }
+
+    public int getUserRolesCacheTtlSec() {
+        return user_roles_cache_ttl_sec;
+    }
+
+    public int getBulkImportBatchSize() {
+        return bulk_import_batch_size;
+    }
+
+    public int getUserMetadataMaxSizeBytes() {
+        return user_metadata_max_size_bytes;
+    }
+
+    public int getActiveUsersFlushIntervalSec() {
+        return active_users_flush_interval_sec;
+    }
+
     public enum PASSWORD_HASHING_ALG {
         ARGON2, BCRYPT, FIREBASE_SCRYPT
     }
@@ -515,6 +671,79 @@ public class CoreConfig {
             }
         }
 
+        if (expired_data_deletion_batch_size < 0) {
+            throw new InvalidConfigException("'expired_data_deletion_batch_size' must be >= 0");
+        }
+
+        if (expired_data_deletion_batch_size > 0) {
+            if (expired_data_deletion_rows_per_second < 0) {
+                throw new InvalidConfigException("'expired_data_deletion_rows_per_second' must be >= 0");
+            }
+
+            if (expired_data_deletion_interval_sec < 1) {
+                throw new InvalidConfigException("'expired_data_deletion_interval_sec' must be >= 1");
+            }
+
+            if (expired_data_deletion_max_run_time_sec < 1
+                    || expired_data_deletion_max_run_time_sec > expired_data_deletion_interval_sec) {
+                throw new InvalidConfigException(
+                        "'expired_data_deletion_max_run_time_sec' must be between 1 and " +
+                                "'expired_data_deletion_interval_sec' inclusive");
+            }
+        }
+
+        if (cron_worker_pool_size < 1) {
+            throw new InvalidConfigException("'cron_worker_pool_size' must be >= 1");
+        }
+
+        if (cron_max_parallelism_per_job < 1) {
+            throw new InvalidConfigException("'cron_max_parallelism_per_job' must be >= 1");
+        }
+
+        if (cron_max_start_jitter_ms < 0) {
+            throw new InvalidConfigException("'cron_max_start_jitter_ms' must be >= 0");
+        }
+
+        if (lazy_app_resource_idle_ttl_sec < 1) {
+            throw new InvalidConfigException("'lazy_app_resource_idle_ttl_sec' must be >= 1");
+        }
+
+        if (lazy_app_resource_max_apps < 1) {
+            throw new InvalidConfigException("'lazy_app_resource_max_apps' must be >= 1");
+        }
+
+        if (resource_loading_parallelism < 1) {
+            throw new InvalidConfigException("'resource_loading_parallelism' must be >= 1");
+        }
+
+        if (warm_up_iterations < 0) {
+            throw new InvalidConfigException("'warm_up_iterations' must be >= 0");
+        }
+
+        if (user_storage_location_cache_size < 0) {
+            throw new InvalidConfigException("'user_storage_location_cache_size' must be >= 0");
+        }
+
+        if (user_roles_cache_size < 0) {
+            throw new InvalidConfigException("'user_roles_cache_size' must be >= 0");
+        }
+
+        if (user_roles_cache_ttl_sec < 1) {
+            throw new InvalidConfigException("'user_roles_cache_ttl_sec' must be >= 1");
+        }
+
+        if (bulk_import_batch_size < 1 || bulk_import_batch_size > 10000) {
+            throw new InvalidConfigException("'bulk_import_batch_size' must be between 1 and 10000");
+        }
+
+        if (user_metadata_max_size_bytes < 0) {
+            throw new InvalidConfigException("'user_metadata_max_size_bytes' must be >= 0");
+        }
+
+        if (active_users_flush_interval_sec < 0 || active_users_flush_interval_sec > 86400) {
+            throw new InvalidConfigException("'active_users_flush_interval_sec' must be between 0 and 86400");
+        }
+
         if (!password_hashing_alg.equalsIgnoreCase("ARGON2") && !password_hashing_alg.equalsIgnoreCase("BCRYPT")) {
             throw new InvalidConfigException("'password_hashing_alg' must be one of 'ARGON2' or 'BCRYPT'");
         }
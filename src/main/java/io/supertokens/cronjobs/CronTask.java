@@ -19,25 +19,32 @@ package io.supertokens.cronjobs;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class CronTask extends ResourceDistributor.SingletonResource implements Runnable {
 
+    // names of the metrics recorded per cronjob. See getMetricName
+    public static final String EXPIRED_ROWS_DELETED_METRIC = "expired_rows_deleted";
+    public static final String EXPIRED_ROWS_DELETION_BATCHES_METRIC = "expired_rows_deletion_batches";
+    public static final String EXPIRED_ROWS_DELETION_TIME_CAP_REACHED_METRIC = "expired_rows_deletion_time_cap_reached";
+    public static final String EXPIRED_ROWS_DELETION_TIME_METRIC = "expired_rows_deletion_time";
+    public static final String RUN_TIME_METRIC = "run_time";
+    public static final String OVERRUNS_METRIC = "overruns";
+
     protected final Main main;
     private final String jobName;
 
@@ -76,6 +83,7 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
     @Override
     public void run() {
         Logging.info(main, this.targetTenant, "Cronjob started: " + jobName, false);
+        long startTime = System.currentTimeMillis();
 
         if (this.targetTenant != null) {
             try {
@@ -121,51 +129,121 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
                     }
                 }
             } else {
-                // we create one thread per unique storage and run the query based on that.
-                ExecutorService service = Executors.newFixedThreadPool(copied.size());
-                AtomicBoolean threwQuitProgramException = new AtomicBoolean(false);
-                for (List<TenantIdentifier> t : copied) {
-                    service.execute(() -> {
-                        try {
-                            doTaskPerStorage(StorageLayer.getStorage(t.get(0), main));
-                        } catch (Exception e) {
-                            ProcessState.getInstance(main)
-                                    .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
-                            Logging.error(main, t.get(0), "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
-                            if (e instanceof QuitProgramException) {
-                                threwQuitProgramException.set(true);
-                            }
-                        }
+                runForEachStorage(copied, startTime + this.getIntervalTimeSeconds() * 1000L);
+            }
+        }
+        Metrics.getInstance(main).recordTiming(getMetricName(RUN_TIME_METRIC), System.currentTimeMillis() - startTime);
+        Logging.info(main, this.targetTenant, "Cronjob finished: " + jobName, false);
+    }
 
-                        for (TenantIdentifier tenant : t) {
-                            try {
-                                doTaskPerTenant(tenant);
-                            } catch (Exception e) {
-                                ProcessState.getInstance(main)
-                                        .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
-                                Logging.error(main, tenant, "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
-                                if (e instanceof QuitProgramException) {
-                                    threwQuitProgramException.set(true);
-                                }
-                            }
-                        }
-                    });
-                }
-                service.shutdown();
-                boolean didShutdown = false;
-                try {
-                    didShutdown = service.awaitTermination(this.getIntervalTimeSeconds(), TimeUnit.SECONDS);
-                } catch (InterruptedException ignored) {
+    // The work for each unique storage is run in the worker pool that is shared by all cronjobs, with at most
+    // getMaxParallelism() storages being processed by this cronjob at a time. Each storage's work is started after a
+    // random jitter so that all the databases are not queried at the same moment. Work that has not finished by the
+    // deadline (the time at which the next run would start) is cancelled.
+    private void runForEachStorage(List<List<TenantIdentifier>> storages, long deadline) {
+        ExecutorService workerPool = Cronjobs.getInstance(main).getWorkerPool();
+        Semaphore permits = new Semaphore(Math.max(1, getMaxParallelism()));
+        CountDownLatch pending = new CountDownLatch(storages.size());
+        AtomicBoolean isCancelled = new AtomicBoolean(false);
+        AtomicBoolean threwQuitProgramException = new AtomicBoolean(false);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long dispatchStartTime = System.currentTimeMillis();
+        List<Map.Entry<Long, List<TenantIdentifier>>> storagesByStartTime = new ArrayList<>();
+        for (List<TenantIdentifier> t : storages) {
+            storagesByStartTime.add(new AbstractMap.SimpleEntry<>(
+                    dispatchStartTime + getRandomStartJitterMillis(), t));
+        }
+        storagesByStartTime.sort(Map.Entry.comparingByKey());
+
+        boolean didFinish = true;
+        try {
+            for (Map.Entry<Long, List<TenantIdentifier>> storage : storagesByStartTime) {
+                long timeToStart = storage.getKey() - System.currentTimeMillis();
+                if (timeToStart > 0) {
+                    Thread.sleep(Math.min(timeToStart, Math.max(0, deadline - System.currentTimeMillis())));
                 }
-                if (!didShutdown) {
-                    service.shutdownNow();
+                long timeToDeadline = deadline - System.currentTimeMillis();
+                if (timeToDeadline <= 0 || !permits.tryAcquire(timeToDeadline, TimeUnit.MILLISECONDS)) {
+                    didFinish = false;
+                    break;
                 }
-                if (threwQuitProgramException.get()) {
-                    main.wakeUpMainThreadToShutdown();
+                List<TenantIdentifier> t = storage.getValue();
+                futures.add(workerPool.submit(() -> {
+                    try {
+                        if (!isCancelled.get()) {
+                            runForStorage(t, threwQuitProgramException);
+                        }
+                    } finally {
+                        permits.release();
+                        pending.countDown();
+                    }
+                }));
+            }
+            if (didFinish) {
+                didFinish = pending.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // the cronjobs are being shut down
+            didFinish = false;
+        }
+
+        if (!didFinish) {
+            isCancelled.set(true);
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Metrics.getInstance(main).incrementCounter(getMetricName(OVERRUNS_METRIC));
+            Logging.warn(main, null, "Cronjob " + this.jobName + " did not finish within its interval of "
+                    + this.getIntervalTimeSeconds() + " seconds. Unfinished work has been cancelled.");
+        }
+        if (threwQuitProgramException.get()) {
+            main.wakeUpMainThreadToShutdown();
+        }
+    }
+
+    private void runForStorage(List<TenantIdentifier> t, AtomicBoolean threwQuitProgramException) {
+        try {
+            doTaskPerStorage(StorageLayer.getStorage(t.get(0), main));
+        } catch (Exception e) {
+            ProcessState.getInstance(main)
+                    .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+            Logging.error(main, t.get(0), "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
+            if (e instanceof QuitProgramException) {
+                threwQuitProgramException.set(true);
+            }
+        }
+
+        for (TenantIdentifier tenant : t) {
+            try {
+                doTaskPerTenant(tenant);
+            } catch (Exception e) {
+                ProcessState.getInstance(main)
+                        .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+                Logging.error(main, tenant, "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
+                if (e instanceof QuitProgramException) {
+                    threwQuitProgramException.set(true);
                 }
             }
         }
-        Logging.info(main, this.targetTenant, "Cronjob finished: " + jobName, false);
+    }
+
+    // max number of storages that this cronjob processes at the same time
+    protected int getMaxParallelism() {
+        return Config.getBaseConfig(main).getCronMaxParallelismPerJob();
+    }
+
+    // a random delay of up to cron_max_start_jitter_ms, capped to 10% of the interval of this cronjob
+    long getRandomStartJitterMillis() {
+        if (Main.isTesting) {
+            return 0;
+        }
+        long maxJitter = Math.min(Config.getBaseConfig(main).getCronMaxStartJitterMs(),
+                this.getIntervalTimeSeconds() * 100L);
+        if (maxJitter <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(maxJitter + 1);
     }
 
     public void setTenantsInfo(List<List<TenantIdentifier>> tenantsInfo) {
@@ -210,6 +288,88 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
 
     }
 
+    public String getMetricName(String metric) {
+        return "cron." + this.jobName + "." + metric;
+    }
+
+    protected boolean isExpiredDataBatchDeletionEnabled() {
+        return Config.getBaseConfig(main).isExpiredDataBatchDeletionEnabled();
+    }
+
+    protected boolean shouldDeleteExpiredDataInBatches(Storage storage) {
+        return isExpiredDataBatchDeletionEnabled() && storage instanceof ExpiredDataBatchDeletionStorage;
+    }
+
+    // cronjobs that delete expired rows run much more often when deleting in batches, since each run only does a
+    // limited amount of work.
+    protected int getExpiredDataDeletionIntervalTimeSeconds(int intervalWithoutBatching) {
+        if (isExpiredDataBatchDeletionEnabled()) {
+            return Config.getBaseConfig(main).getExpiredDataDeletionIntervalSec();
+        }
+        return intervalWithoutBatching;
+    }
+
+    /**
+     * Calls deleter until it deletes fewer rows than expired_data_deletion_batch_size. In between batches, this
+     * sleeps so that at most expired_data_deletion_rows_per_second rows are deleted per second, and it stops once
+     * expired_data_deletion_max_run_time_sec is over. Any rows left over are deleted in the next run of the cronjob.
+     *
+     * @return the number of rows that were deleted
+     */
+    protected long deleteExpiredDataInBatches(ExpiredDataBatchDeleter deleter) throws Exception {
+        CoreConfig config = Config.getBaseConfig(main);
+        int batchSize = config.getExpiredDataDeletionBatchSize();
+        int rowsPerSecond = config.getExpiredDataDeletionRowsPerSecond();
+        long maxRunTimeMillis = config.getExpiredDataDeletionMaxRunTimeSec() * 1000L;
+        Metrics metrics = Metrics.getInstance(main);
+
+        long startTime = System.currentTimeMillis();
+        long totalDeleted = 0;
+        try {
+            while (true) {
+                int deleted = deleter.deleteBatch(batchSize);
+                totalDeleted += deleted;
+                metrics.addToCounter(getMetricName(EXPIRED_ROWS_DELETED_METRIC), deleted);
+                metrics.incrementCounter(getMetricName(EXPIRED_ROWS_DELETION_BATCHES_METRIC));
+                if (deleted < batchSize) {
+                    break;
+                }
+
+                long timeElapsed = System.currentTimeMillis() - startTime;
+                if (timeElapsed >= maxRunTimeMillis) {
+                    metrics.incrementCounter(getMetricName(EXPIRED_ROWS_DELETION_TIME_CAP_REACHED_METRIC));
+                    Logging.debug(main, null, "Cronjob " + this.jobName + " reached its time limit after deleting "
+                            + totalDeleted + " rows");
+                    break;
+                }
+
+                if (rowsPerSecond > 0) {
+                    long timeNeededForRowsSoFar = (totalDeleted * 1000) / rowsPerSecond;
+                    long sleepTime = Math.min(timeNeededForRowsSoFar - timeElapsed, maxRunTimeMillis - timeElapsed);
+                    if (sleepTime > 0) {
+                        try {
+                            Thread.sleep(sleepTime);
+                        } catch (InterruptedException e) {
+                            // the cronjobs are being shut down.
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            metrics.recordTiming(getMetricName(EXPIRED_ROWS_DELETION_TIME_METRIC),
+                    System.currentTimeMillis() - startTime);
+        }
+        return totalDeleted;
+    }
+
+    @FunctionalInterface
+    protected interface ExpiredDataBatchDeleter {
+        // deletes at most batchSize rows and returns the number of rows deleted
+        int deleteBatch(int batchSize) throws Exception;
+    }
+
     public abstract int getIntervalTimeSeconds();
 
     public abstract int getInitialWaitTimeSeconds();
@@ -18,6 +18,7 @@ package io.supertokens.cronjobs;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
@@ -25,6 +26,7 @@ import org.jetbrains.annotations.TestOnly;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -34,10 +36,14 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
     private static final String RESOURCE_KEY = "io.supertokens.cronjobs.Cronjobs";
     final Object lock = new Object();
     private final ScheduledExecutorService executor;
+    // the per storage work of all the cronjobs is run in this pool, so that the number of threads doing cronjob work
+    // does not depend on the number of user pools.
+    private final ExecutorService workerPool;
     private List<CronTask> tasks = new ArrayList<>();
 
-    private Cronjobs() {
+    private Cronjobs(Main main) {
         this.executor = Executors.newScheduledThreadPool(5);
+        this.workerPool = Executors.newFixedThreadPool(Config.getBaseConfig(main).getCronWorkerPoolSize());
     }
 
     public static Cronjobs getInstance(Main main) {
@@ -50,7 +56,8 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
     }
 
     public static void init(Main main) {
-        main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Cronjobs());
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Cronjobs(main));
     }
 
     public static void shutdownAndAwaitTermination(Main main) {
@@ -65,6 +72,8 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
             try {
                 instance.executor.shutdown();
                 instance.executor.awaitTermination(10, TimeUnit.SECONDS);
+                instance.workerPool.shutdownNow();
+                instance.workerPool.awaitTermination(10, TimeUnit.SECONDS);
             } catch (Exception e) {
                 // ignore any error as app is shutting down.
             }
@@ -93,13 +102,23 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
         Cronjobs instance = getInstance(main);
         synchronized (instance.lock) {
             if (!instance.tasks.contains(task)) {
-                instance.executor.scheduleWithFixedDelay(task, task.getInitialWaitTimeSeconds(),
-                        task.getIntervalTimeSeconds(), TimeUnit.SECONDS);
+                // cronjobs that wait before their first run get a random jitter added to that wait, so that they do
+                // not all run at the same moment.
+                long initialWaitTimeMillis = task.getInitialWaitTimeSeconds() * 1000L;
+                if (initialWaitTimeMillis > 0) {
+                    initialWaitTimeMillis += task.getRandomStartJitterMillis();
+                }
+                instance.executor.scheduleWithFixedDelay(task, initialWaitTimeMillis,
+                        task.getIntervalTimeSeconds() * 1000L, TimeUnit.MILLISECONDS);
                 instance.tasks.add(task);
             }
         }
     }
 
+    ExecutorService getWorkerPool() {
+        return this.workerPool;
+    }
+
     @TestOnly
     public List<CronTask> getTasks() {
         return this.tasks;
@@ -24,6 +24,7 @@ import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.dashboard.sqlStorage.DashboardSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -59,6 +60,10 @@ public class DeleteExpiredDashboardSessions extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
+        if (shouldDeleteExpiredDataInBatches(storage)) {
+            deleteExpiredDataInBatches(((ExpiredDataBatchDeletionStorage) storage)::deleteExpiredDashboardSessions);
+            return;
+        }
         ((DashboardSQLStorage) storage).revokeExpiredSessions();
     }
 
@@ -70,7 +75,7 @@ public class DeleteExpiredDashboardSessions extends CronTask {
                 return interval;
             }
         }
-        return (12 * 3600); // twice a day.
+        return getExpiredDataDeletionIntervalTimeSeconds(12 * 3600); // twice a day, unless deleting in batches.
     }
 
     @Override
@@ -24,6 +24,7 @@ import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.emailverification.sqlStorage.EmailVerificationSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -59,6 +60,11 @@ public class DeleteExpiredEmailVerificationTokens extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
+        if (shouldDeleteExpiredDataInBatches(storage)) {
+            deleteExpiredDataInBatches(
+                    ((ExpiredDataBatchDeletionStorage) storage)::deleteExpiredEmailVerificationTokens);
+            return;
+        }
         ((EmailVerificationSQLStorage) storage).deleteExpiredEmailVerificationTokens();
     }
 
@@ -70,7 +76,7 @@ public class DeleteExpiredEmailVerificationTokens extends CronTask {
                 return interval;
             }
         }
-        return 12 * 3600; // twice a day.
+        return getExpiredDataDeletionIntervalTimeSeconds(12 * 3600); // twice a day, unless deleting in batches.
     }
 
     @Override
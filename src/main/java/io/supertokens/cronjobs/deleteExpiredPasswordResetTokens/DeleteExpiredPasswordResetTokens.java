@@ -23,6 +23,7 @@ import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -53,6 +54,10 @@ public class DeleteExpiredPasswordResetTokens extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
+        if (shouldDeleteExpiredDataInBatches(storage)) {
+            deleteExpiredDataInBatches(((ExpiredDataBatchDeletionStorage) storage)::deleteExpiredPasswordResetTokens);
+            return;
+        }
         ((EmailPasswordSQLStorage) storage).deleteExpiredPasswordResetTokens();
     }
 
@@ -64,7 +69,7 @@ public class DeleteExpiredPasswordResetTokens extends CronTask {
                 return interval;
             }
         }
-        return 3600; // every hour.
+        return getExpiredDataDeletionIntervalTimeSeconds(3600); // every hour, unless deleting in batches.
     }
 
     @Override
@@ -21,6 +21,8 @@ import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.passwordless.PasswordlessCode;
 import io.supertokens.pluginInterface.passwordless.PasswordlessDevice;
@@ -28,6 +30,7 @@ import io.supertokens.pluginInterface.passwordless.sqlStorage.PasswordlessSQLSto
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -68,23 +71,45 @@ public class DeleteExpiredPasswordlessDevices extends CronTask {
         Set<String> uniqueDevicesIdHashes = Stream.of(expiredCodes).map(code -> code.deviceIdHash)
                 .collect(Collectors.toSet());
 
-        for (String deviceIdHash : uniqueDevicesIdHashes) {
-            storage.startTransaction(con -> {
-                PasswordlessDevice device = storage.getDevice_Transaction(tenantIdentifier, con, deviceIdHash);
-                if (device == null) {
-                    return null;
+        if (isExpiredDataBatchDeletionEnabled()) {
+            // each device is deleted in its own transaction already, so here we only pace the deletes.
+            Iterator<String> deviceIdHashes = uniqueDevicesIdHashes.iterator();
+            deleteExpiredDataInBatches(batchSize -> {
+                int numberOfDevicesProcessed = 0;
+                while (numberOfDevicesProcessed < batchSize && deviceIdHashes.hasNext()) {
+                    deleteDeviceIfAllCodesExpired(storage, tenantIdentifier, deviceIdHashes.next(),
+                            codeExpirationCutoff);
+                    numberOfDevicesProcessed++;
                 }
-                PasswordlessCode[] codes = storage.getCodesOfDevice_Transaction(tenantIdentifier, con, deviceIdHash);
+                return numberOfDevicesProcessed;
+            });
+            return;
+        }
 
-                if (Stream.of(codes).allMatch(code -> code.createdAt < codeExpirationCutoff)) {
-                    storage.deleteDevice_Transaction(tenantIdentifier, con, deviceIdHash);
-                }
-                // We don't delete expired codes without the device because we want to detect if the submitted
-                // user input code belongs to an expired code or if it's just incorrect.
+        for (String deviceIdHash : uniqueDevicesIdHashes) {
+            deleteDeviceIfAllCodesExpired(storage, tenantIdentifier, deviceIdHash, codeExpirationCutoff);
+        }
+    }
 
+    private static void deleteDeviceIfAllCodesExpired(PasswordlessSQLStorage storage,
+                                                      TenantIdentifier tenantIdentifier, String deviceIdHash,
+                                                      long codeExpirationCutoff)
+            throws StorageQueryException, StorageTransactionLogicException {
+        storage.startTransaction(con -> {
+            PasswordlessDevice device = storage.getDevice_Transaction(tenantIdentifier, con, deviceIdHash);
+            if (device == null) {
                 return null;
-            });
-        }
+            }
+            PasswordlessCode[] codes = storage.getCodesOfDevice_Transaction(tenantIdentifier, con, deviceIdHash);
+
+            if (Stream.of(codes).allMatch(code -> code.createdAt < codeExpirationCutoff)) {
+                storage.deleteDevice_Transaction(tenantIdentifier, con, deviceIdHash);
+            }
+            // We don't delete expired codes without the device because we want to detect if the submitted
+            // user input code belongs to an expired code or if it's just incorrect.
+
+            return null;
+        });
     }
 
     @Override
@@ -95,7 +120,7 @@ public class DeleteExpiredPasswordlessDevices extends CronTask {
                 return interval;
             }
         }
-        return 3600; // every hour.
+        return getExpiredDataDeletionIntervalTimeSeconds(3600); // every hour, unless deleting in batches.
     }
 
     @Override
@@ -23,6 +23,7 @@ import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -53,6 +54,10 @@ public class DeleteExpiredSessions extends CronTask {
 
     @Override
     protected void doTaskPerStorage(Storage storage) throws Exception {
+        if (shouldDeleteExpiredDataInBatches(storage)) {
+            deleteExpiredDataInBatches(((ExpiredDataBatchDeletionStorage) storage)::deleteExpiredSessions);
+            return;
+        }
         ((SessionStorage) storage).deleteAllExpiredSessions();
     }
 
@@ -64,7 +69,7 @@ public class DeleteExpiredSessions extends CronTask {
                 return interval;
             }
         }
-        return (12 * 3600); // twice a day.
+        return getExpiredDataDeletionIntervalTimeSeconds(12 * 3600); // twice a day, unless deleting in batches.
     }
 
     @Override
@@ -9,6 +9,7 @@ import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.totp.sqlStorage.TOTPSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -49,7 +50,14 @@ public class DeleteExpiredTotpTokens extends CronTask {
         // than rate limiting duration. This ensures that this DB query
         // doesn't delete totp codes that keep the rate limiting active for
         // the expected cooldown duration.
-        int deletedCount = storage.removeExpiredCodes(tenantIdentifier, expiredBefore);
+        long deletedCount;
+        if (shouldDeleteExpiredDataInBatches(storage)) {
+            ExpiredDataBatchDeletionStorage batchStorage = (ExpiredDataBatchDeletionStorage) storage;
+            deletedCount = deleteExpiredDataInBatches(
+                    batchSize -> batchStorage.removeExpiredTotpCodes(tenantIdentifier, expiredBefore, batchSize));
+        } else {
+            deletedCount = storage.removeExpiredCodes(tenantIdentifier, expiredBefore);
+        }
         Logging.debug(this.main, tenantIdentifier, "Cron DeleteExpiredTotpTokens deleted " + deletedCount + " expired TOTP codes");
     }
 
@@ -62,7 +70,7 @@ public class DeleteExpiredTotpTokens extends CronTask {
             }
         }
 
-        return 3600; // every hour
+        return getExpiredDataDeletionIntervalTimeSeconds(3600); // every hour, unless deleting in batches.
     }
 
     @Override
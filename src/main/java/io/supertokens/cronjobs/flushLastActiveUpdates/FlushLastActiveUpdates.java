@@ -0,0 +1,73 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cronjobs.flushLastActiveUpdates;
+
+import io.supertokens.ActiveUsers;
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import org.jetbrains.annotations.TestOnly;
+
+// writes the last active times of users that are buffered in memory, for all apps
+public class FlushLastActiveUpdates extends CronTask {
+
+    public static final String RESOURCE_KEY =
+            "io.supertokens.cronjobs.flushLastActiveUpdates.FlushLastActiveUpdates";
+
+    private FlushLastActiveUpdates(Main main) {
+        super("FlushLastActiveUpdates", main, TenantIdentifier.BASE_TENANT);
+    }
+
+    public static FlushLastActiveUpdates init(Main main) {
+        return (FlushLastActiveUpdates) main.getResourceDistributor()
+                .setResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY, new FlushLastActiveUpdates(main));
+    }
+
+    @TestOnly
+    public static FlushLastActiveUpdates getInstance(Main main) {
+        try {
+            return (FlushLastActiveUpdates) main.getResourceDistributor()
+                    .getResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void doTaskForTargetTenant(TenantIdentifier targetTenant) throws Exception {
+        ActiveUsers.flushLastActiveUpdates(main);
+    }
+
+    @Override
+    public int getIntervalTimeSeconds() {
+        if (Main.isTesting) {
+            Integer interval = CronTaskTest.getInstance(main).getIntervalInSeconds(RESOURCE_KEY);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        return Config.getBaseConfig(main).getActiveUsersFlushIntervalSec();
+    }
+
+    @Override
+    public int getInitialWaitTimeSeconds() {
+        return getIntervalTimeSeconds();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cronjobs.processBulkImportUsers;
+
+import io.supertokens.Main;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.config.Config;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.StorageLayer;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.List;
+
+public class ProcessBulkImportUsers extends CronTask {
+
+    public static final String RESOURCE_KEY = "io.supertokens.cronjobs.processBulkImportUsers" +
+            ".ProcessBulkImportUsers";
+
+    private ProcessBulkImportUsers(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        super("ProcessBulkImportUsers", main, tenantsInfo, true);
+    }
+
+    public static ProcessBulkImportUsers init(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        return (ProcessBulkImportUsers) main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
+                        new ProcessBulkImportUsers(main, tenantsInfo));
+    }
+
+    @TestOnly
+    public static ProcessBulkImportUsers getInstance(Main main) {
+        try {
+            return (ProcessBulkImportUsers) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void doTaskPerApp(AppIdentifier app) throws Exception {
+        // the staging table of an app is in the storage of its public tenant
+        Storage storage = StorageLayer.getStorage(app.getAsPublicTenantIdentifier(), main);
+        if (!BulkImport.isSupported(storage)) {
+            return;
+        }
+
+        // batches are processed until there are no users left, or until the next run of this cronjob is due, so that
+        // runs do not overlap
+        long endTime = System.currentTimeMillis() + getIntervalTimeSeconds() * 1000L;
+        int batchSize = Config.getBaseConfig(main).getBulkImportBatchSize();
+        while (System.currentTimeMillis() < endTime) {
+            if (BulkImport.processUsers(main, app, storage, batchSize) == 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int getIntervalTimeSeconds() {
+        if (Main.isTesting) {
+            Integer interval = CronTaskTest.getInstance(main).getIntervalInSeconds(RESOURCE_KEY);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        // Every minute.
+        return 60;
+    }
+
+    @Override
+    public int getInitialWaitTimeSeconds() {
+        if (!Main.isTesting) {
+            return getIntervalTimeSeconds();
+        } else {
+            return 0;
+        }
+    }
+}
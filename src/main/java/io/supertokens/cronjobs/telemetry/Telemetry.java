@@ -19,6 +19,7 @@ package io.supertokens.cronjobs.telemetry;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.supertokens.ActiveUsers;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.authRecipe.AuthRecipe;
@@ -28,7 +29,6 @@ import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.dashboard.Dashboard;
 import io.supertokens.httpRequest.HttpRequest;
 import io.supertokens.httpRequest.HttpRequestMocking;
-import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
@@ -103,7 +103,7 @@ public class Telemetry extends CronTask {
                 Storage[] storages = StorageLayer.getStoragesForApp(main, app);
 
                 json.addProperty("usersCount",
-                        AuthRecipe.getUsersCountAcrossAllTenants(app, storages, null));
+                        AuthRecipe.getUsersCountAcrossAllTenants(main, app, storages, null));
             }
 
             { // Dashboard user emails
@@ -120,16 +120,13 @@ public class Telemetry extends CronTask {
 
             { // MAUs
                 // Active users are always tracked on the public tenant, so we use the public tenant's storage
-                ActiveUsersStorage activeUsersStorage = (ActiveUsersStorage) StorageLayer.getStorage(
-                        app.getAsPublicTenantIdentifier(), main);
+                Storage activeUsersStorage = StorageLayer.getStorage(app.getAsPublicTenantIdentifier(), main);
+                ActiveUsers.flushLastActiveUpdates(main, app);
 
                 JsonArray mauArr = new JsonArray();
 
-                long now = System.currentTimeMillis();
-
-                for (int i = 1; i <= 31; i++) {
-                    long timestamp = now - (i * 24 * 60 * 60 * 1000L);
-                    int mau = activeUsersStorage.countUsersActiveSince(app, timestamp);
+                for (int mau : ActiveUsers.countUsersActiveSinceForEachDay(activeUsersStorage, app,
+                        System.currentTimeMillis(), 31)) {
                     mauArr.add(new JsonPrimitive(mau));
                 }
 
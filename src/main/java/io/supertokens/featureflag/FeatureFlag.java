@@ -19,14 +19,17 @@ package io.supertokens.featureflag;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
 import io.supertokens.featureflag.exceptions.InvalidLicenseKeyException;
 import io.supertokens.featureflag.exceptions.NoLicenseKeyFoundException;
 import io.supertokens.httpRequest.HttpResponseException;
+import io.supertokens.multitenancy.LazyAppResources;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.File;
@@ -34,7 +37,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
@@ -114,8 +119,7 @@ public class FeatureFlag extends ResourceDistributor.SingletonResource {
     }
 
     public static FeatureFlag getInstance(Main main, AppIdentifier appIdentifier) throws TenantOrAppNotFoundException {
-        return (FeatureFlag) main.getResourceDistributor()
-                .getResource(appIdentifier, RESOURCE_KEY);
+        return LazyAppResources.getOrCreate(main, appIdentifier, RESOURCE_KEY, app -> new FeatureFlag(main, app));
     }
 
     public static void initForBaseTenant(Main main, String eeFolderPath) throws MalformedURLException {
@@ -125,35 +129,26 @@ public class FeatureFlag extends ResourceDistributor.SingletonResource {
 
     public static void loadForAllTenants(Main main, List<AppIdentifier> apps,
                                          List<TenantIdentifier> tenantsThatChanged) {
-        try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                        main.getResourceDistributor()
-                                .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                for (AppIdentifier app : apps) {
-                    ResourceDistributor.SingletonResource resource = existingResources.get(
-                            new ResourceDistributor.KeyClass(
-                                    app,
-                                    RESOURCE_KEY));
-                    if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
-                        main.getResourceDistributor()
-                                .setResource(app,
-                                        RESOURCE_KEY,
-                                        resource);
-                    } else {
-                        main.getResourceDistributor()
-                                .setResource(
-                                        app,
-                                        RESOURCE_KEY,
-                                        new FeatureFlag(main, app));
-                    }
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new RuntimeException(e);
+        // the new resources are created without holding the resource distributor lock, and are then swapped in at
+        // once.
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        Map<ResourceDistributor.KeyClass, ParallelTasks.Task<ResourceDistributor.SingletonResource,
+                RuntimeException>> resourcesToCreate = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(app, RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(key);
+            if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
+                newResources.put(key, resource);
+            } else if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                resourcesToCreate.put(key, () -> new FeatureFlag(main, app));
+            }
         }
+        newResources.putAll(ParallelTasks.run(resourcesToCreate,
+                Config.getBaseConfig(main).getResourceLoadingParallelism(), "FeatureFlag-load"));
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
     public EE_FEATURES[] getEnabledFeatures() throws StorageQueryException, TenantOrAppNotFoundException {
@@ -31,6 +31,8 @@ public class FeatureFlagTestContent extends ResourceDistributor.SingletonResourc
 
     public static final String EE_FOLDER_LOCATION = "validityTesting";
     public static final String ENABLED_FEATURES = "enabledFeatures";
+    // how long (in millis) the daily active user counts of the paid feature stats are cached for
+    public static final String DAILY_ACTIVE_USERS_CACHE_TTL = "dailyActiveUsersCacheTTL";
     private static final String RESOURCE_ID = "io.supertokens.featureflag.FeatureFlagTestContent";
     private Map<String, Object> keyValue = new HashMap<String, Object>();
 
@@ -56,7 +58,7 @@ public class FeatureFlagTestContent extends ResourceDistributor.SingletonResourc
     }
 
     @SuppressWarnings("unchecked")
-    <T> T getValue(String key) {
+    public <T> T getValue(String key) {
         return (T) this.keyValue.get(key);
     }
 }
@@ -16,25 +16,81 @@
 
 package io.supertokens.inmemorydb;
 
+import io.supertokens.inmemorydb.config.Config;
+import org.jetbrains.annotations.TestOnly;
 import org.sqlite.SQLiteConfig;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.ConnectionPool";
-    private static String URL = "jdbc:sqlite:file::memory:?cache=shared";
+    private static final String IN_MEMORY_URL = "jdbc:sqlite:file::memory:?cache=shared";
 
-    // we use this to keep all the information in memory across requests.
+    private final String url;
+    private final SQLiteConfig sqliteConfig;
+    private final long mmapSize;
+
+    // in the in memory mode, we use this to keep all the information in memory across requests.
     private Connection alwaysAlive = null;
     private Lock lock = new Lock();
+    private final long lockWaitTimeoutMillis;
+
+    // physical connections (along with their prepared statement caches) are reused across requests instead of
+    // opening a new connection for each query.
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final int maxIdleConnections;
+    private final int statementCacheSize;
+    private boolean closed = false;
+
+    private final AtomicLong statementCacheHits = new AtomicLong(0);
+    private final AtomicLong statementCacheMisses = new AtomicLong(0);
 
-    public ConnectionPool() throws SQLException {
-        SQLiteConfig config = new SQLiteConfig();
-        config.enforceForeignKeys(true);
-        this.alwaysAlive = DriverManager.getConnection(URL, config.toProperties());
+    // includes the alwaysAlive connection
+    private final AtomicInteger numberOfOpenConnections = new AtomicInteger(0);
+
+    public ConnectionPool(io.supertokens.inmemorydb.config.SQLiteConfig config) throws SQLException {
+        this.sqliteConfig = new SQLiteConfig();
+        this.sqliteConfig.enforceForeignKeys(true);
+        if (config.isFileBacked()) {
+            // WAL lets readers run concurrently with the (single) writer. With WAL, synchronous=NORMAL is still
+            // safe against corruption, and only the last transactions may be lost on a power failure.
+            this.url = "jdbc:sqlite:" + config.getFilePath();
+            this.sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            this.sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+            this.sqliteConfig.setCacheSize(-config.getCacheSizeKb()); // negative value means size in KiB
+            this.sqliteConfig.setBusyTimeout(config.getBusyTimeout());
+            this.mmapSize = config.getMmapSize();
+        } else {
+            this.url = IN_MEMORY_URL;
+            this.mmapSize = 0;
+        }
+        this.alwaysAlive = openConnection();
+        this.lockWaitTimeoutMillis = config.getLockWaitTimeoutMillis();
+        this.maxIdleConnections = config.getMaxIdleConnections();
+        this.statementCacheSize = config.getStatementCacheSize();
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection con = DriverManager.getConnection(this.url, this.sqliteConfig.toProperties());
+        if (this.mmapSize > 0) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("PRAGMA mmap_size = " + this.mmapSize);
+            } catch (SQLException e) {
+                con.close();
+                throw e;
+            }
+        }
+        this.numberOfOpenConnections.incrementAndGet();
+        return con;
     }
 
     static boolean isAlreadyInitialised(Start start) {
@@ -43,17 +99,65 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     static void initPool(Start start, boolean ignored) throws SQLException {
         start.getResourceDistributor()
-                .setResource(RESOURCE_KEY, new ConnectionPool());
+                .setResource(RESOURCE_KEY, new ConnectionPool(Config.getConfig(start)));
     }
 
     public static Connection getConnection(Start start) throws SQLException {
         if (!start.enabled) {
             throw new SQLException("Storage layer disabled");
         }
-        SQLiteConfig config = new SQLiteConfig();
-        config.enforceForeignKeys(true);
-        return new ConnectionWithLocks(DriverManager.getConnection(URL, config.toProperties()),
-                ConnectionPool.getInstance(start));
+        ConnectionPool pool = ConnectionPool.getInstance(start);
+        return new ConnectionWithLocks(pool.takeConnection(), pool);
+    }
+
+    private PooledConnection takeConnection() throws SQLException {
+        synchronized (this.idleConnections) {
+            while (!this.idleConnections.isEmpty()) {
+                PooledConnection pooledConnection = this.idleConnections.pollLast();
+                if (!pooledConnection.getConnection().isClosed()) {
+                    return pooledConnection;
+                }
+                pooledConnection.close();
+            }
+        }
+        return new PooledConnection(openConnection(), this, this.statementCacheSize);
+    }
+
+    void releaseConnection(PooledConnection pooledConnection, boolean isReusable) {
+        synchronized (this.idleConnections) {
+            if (isReusable && !this.closed && this.idleConnections.size() < this.maxIdleConnections) {
+                this.idleConnections.addLast(pooledConnection);
+                return;
+            }
+        }
+        pooledConnection.close();
+    }
+
+    void recordStatementCacheLookup(boolean isHit) {
+        if (isHit) {
+            this.statementCacheHits.incrementAndGet();
+        } else {
+            this.statementCacheMisses.incrementAndGet();
+        }
+    }
+
+    void recordConnectionClosed() {
+        this.numberOfOpenConnections.decrementAndGet();
+    }
+
+    static int getNumberOfOpenConnections(Start start) {
+        ConnectionPool pool = getInstance(start);
+        return pool == null ? 0 : pool.numberOfOpenConnections.get();
+    }
+
+    static int getNumberOfIdleConnections(Start start) {
+        ConnectionPool pool = getInstance(start);
+        if (pool == null) {
+            return 0;
+        }
+        synchronized (pool.idleConnections) {
+            return pool.idleConnections.size();
+        }
     }
 
     private static ConnectionPool getInstance(Start start) {
@@ -62,21 +166,49 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
     }
 
     static void close(Start start) {
-        if (getInstance(start) == null) {
+        ConnectionPool pool = getInstance(start);
+        if (pool == null) {
             return;
         }
+        synchronized (pool.idleConnections) {
+            pool.closed = true;
+            for (PooledConnection pooledConnection : pool.idleConnections) {
+                pooledConnection.close();
+            }
+            pool.idleConnections.clear();
+        }
         try {
-            getInstance(start).alwaysAlive.close();
+            pool.alwaysAlive.close();
+            pool.recordConnectionClosed();
         } catch (Exception ignored) {
         }
     }
 
-    public void lock(String key) {
-        this.lock.lock(key);
+    public void lock(String key) throws SQLTransactionRollbackException {
+        this.lock.lock(key, this.lockWaitTimeoutMillis);
+    }
+
+    public void lock(String key, long timeoutMillis) throws SQLTransactionRollbackException {
+        this.lock.lock(key, timeoutMillis);
     }
 
     public void unlock(String key) {
         this.lock.unlock(key);
     }
 
+    @TestOnly
+    public static long getNumberOfLockWakeUps(Start start) {
+        return getInstance(start).lock.getNumberOfWakeUps();
+    }
+
+    @TestOnly
+    public static long getNumberOfStatementCacheHits(Start start) {
+        return getInstance(start).statementCacheHits.get();
+    }
+
+    @TestOnly
+    public static long getNumberOfStatementCacheMisses(Start start) {
+        return getInstance(start).statementCacheMisses.get();
+    }
+
 }
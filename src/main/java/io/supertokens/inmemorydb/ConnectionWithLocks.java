@@ -26,13 +26,23 @@ import java.util.concurrent.Executor;
 public class ConnectionWithLocks implements Connection {
 
     private Connection con;
+    private PooledConnection pooledConnection;
     private ConnectionPool connectionPool;
     private Set<String> lockedKeys = new HashSet<String>();
+    private boolean closed = false;
 
-    public synchronized void lock(String key) {
+    public synchronized void lock(String key) throws SQLTransactionRollbackException {
         if (!this.lockedKeys.contains(key)) {
-            this.lockedKeys.add(key);
+            // we add the key only after it is acquired so that a timed out wait does not release someone else's lock
             connectionPool.lock(key);
+            this.lockedKeys.add(key);
+        }
+    }
+
+    public synchronized void lock(String key, long timeoutMillis) throws SQLTransactionRollbackException {
+        if (!this.lockedKeys.contains(key)) {
+            connectionPool.lock(key, timeoutMillis);
+            this.lockedKeys.add(key);
         }
     }
 
@@ -43,11 +53,21 @@ public class ConnectionWithLocks implements Connection {
         this.lockedKeys.clear();
     }
 
-    public ConnectionWithLocks(Connection con, ConnectionPool connectionPool) {
-        this.con = con;
+    ConnectionWithLocks(PooledConnection pooledConnection, ConnectionPool connectionPool) {
+        this.con = pooledConnection.getConnection();
+        this.pooledConnection = pooledConnection;
         this.connectionPool = connectionPool;
     }
 
+    // The returned statement must be given back via returnCachedPreparedStatement and must not be closed.
+    PreparedStatement takeCachedPreparedStatement(String sql) throws SQLException {
+        return this.pooledConnection.takePreparedStatement(sql);
+    }
+
+    void returnCachedPreparedStatement(String sql, PreparedStatement pst) {
+        this.pooledConnection.returnPreparedStatement(sql, pst);
+    }
+
     @Override
     public Statement createStatement() throws SQLException {
         return con.createStatement();
@@ -98,16 +118,29 @@ public class ConnectionWithLocks implements Connection {
 
     @Override
     public void close() throws SQLException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // instead of closing the physical connection, we give it back to the pool. Any open transaction is rolled
+        // back first so that the next user of the connection starts from a clean state.
+        boolean isReusable = true;
         try {
-            con.close();
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            isReusable = false;
         } finally {
             this.unlockAllLocks();
+            connectionPool.releaseConnection(this.pooledConnection, isReusable);
         }
     }
 
     @Override
     public boolean isClosed() throws SQLException {
-        return con.isClosed();
+        return this.closed || con.isClosed();
     }
 
     @Override
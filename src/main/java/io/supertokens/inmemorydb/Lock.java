@@ -16,34 +16,125 @@
 
 package io.supertokens.inmemorydb;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.sql.SQLTransactionRollbackException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Keys are spread across a fixed number of stripes, and every locked key has its own wait queue (a Condition on the
+// stripe's mutex). Releasing a key only wakes up one thread waiting for that same key, instead of every waiting
+// thread in the process.
 class Lock {
 
-    private Set<String> lockedKeys = new HashSet<>();
-    private final Object waitMutex = new Object();
+    private static final int NUMBER_OF_STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[NUMBER_OF_STRIPES];
+
+    // number of times a waiting thread was woken up. This is only used to check for contention in tests.
+    private final AtomicLong numberOfWakeUps = new AtomicLong(0);
+
+    Lock() {
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
 
     void lock(String name) {
-        synchronized (this.waitMutex) {
-            while (true) {
-                if (!this.lockedKeys.contains(name)) {
-                    this.lockedKeys.add(name);
-                    return;
-                }
+        try {
+            lock(name, 0);
+        } catch (SQLTransactionRollbackException ignored) {
+            // cannot happen since we wait forever
+        }
+    }
+
+    /**
+     * @param timeoutMillis - if this is <= 0, we wait until the lock is acquired
+     * @throws SQLTransactionRollbackException if the lock could not be acquired within timeoutMillis. Since
+     *                                         this exception is retryable, the transaction that was trying to take
+     *                                         the lock will be retried by Start.startTransaction
+     */
+    void lock(String name, long timeoutMillis) throws SQLTransactionRollbackException {
+        Stripe stripe = getStripe(name);
+        stripe.mutex.lock();
+        try {
+            KeyQueue queue = stripe.queues.get(name);
+            if (queue == null) {
+                stripe.queues.put(name, new KeyQueue(stripe.mutex.newCondition()));
+                return;
+            }
 
-                try {
-                    this.waitMutex.wait();
-                } catch (InterruptedException ignored) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            queue.numberOfWaiters++;
+            try {
+                while (queue.isHeld) {
+                    try {
+                        if (timeoutMillis <= 0) {
+                            queue.condition.await();
+                        } else {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                throw new SQLTransactionRollbackException(
+                                        "Timed out after " + timeoutMillis + " ms waiting for lock on key: " + name);
+                            }
+                            queue.condition.awaitNanos(remaining);
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                    this.numberOfWakeUps.incrementAndGet();
                 }
+                queue.isHeld = true;
+            } finally {
+                queue.numberOfWaiters--;
             }
+        } finally {
+            stripe.mutex.unlock();
         }
     }
 
     void unlock(String name) {
-        synchronized (this.waitMutex) {
-            this.lockedKeys.remove(name);
-            this.waitMutex.notifyAll();
+        Stripe stripe = getStripe(name);
+        stripe.mutex.lock();
+        try {
+            KeyQueue queue = stripe.queues.get(name);
+            if (queue == null) {
+                return;
+            }
+            if (queue.numberOfWaiters == 0) {
+                stripe.queues.remove(name);
+            } else {
+                queue.isHeld = false;
+                queue.condition.signal();
+            }
+        } finally {
+            stripe.mutex.unlock();
+        }
+    }
+
+    long getNumberOfWakeUps() {
+        return this.numberOfWakeUps.get();
+    }
+
+    private Stripe getStripe(String name) {
+        return this.stripes[Math.floorMod(name.hashCode(), NUMBER_OF_STRIPES)];
+    }
+
+    private static class Stripe {
+        private final ReentrantLock mutex = new ReentrantLock();
+
+        // a key is present in this map only while it is locked
+        private final Map<String, KeyQueue> queues = new HashMap<>();
+    }
+
+    private static class KeyQueue {
+        private final Condition condition;
+        private boolean isHeld = true;
+        private int numberOfWaiters = 0;
+
+        KeyQueue(Condition condition) {
+            this.condition = condition;
         }
     }
 
@@ -0,0 +1,94 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A physical SQLite connection that is reused across ConnectionWithLocks instances, along with an LRU cache of
+// prepared statements keyed by their SQL text. A statement is removed from the cache while it is in use, so that
+// the same query can be run in a nested way on one connection without the two executions sharing a statement.
+class PooledConnection {
+
+    private final Connection connection;
+    private final ConnectionPool connectionPool;
+    private final Map<String, PreparedStatement> statementCache;
+
+    PooledConnection(Connection connection, ConnectionPool connectionPool, int statementCacheSize) {
+        this.connection = connection;
+        this.connectionPool = connectionPool;
+        this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return this.connection;
+    }
+
+    synchronized PreparedStatement takePreparedStatement(String sql) throws SQLException {
+        PreparedStatement pst = this.statementCache.remove(sql);
+        if (pst != null) {
+            this.connectionPool.recordStatementCacheLookup(true);
+            return pst;
+        }
+        this.connectionPool.recordStatementCacheLookup(false);
+        return this.connection.prepareStatement(sql);
+    }
+
+    synchronized void returnPreparedStatement(String sql, PreparedStatement pst) {
+        try {
+            pst.clearParameters();
+        } catch (SQLException e) {
+            closeQuietly(pst);
+            return;
+        }
+        PreparedStatement existing = this.statementCache.put(sql, pst);
+        if (existing != null && existing != pst) {
+            closeQuietly(existing);
+        }
+    }
+
+    synchronized void close() {
+        for (PreparedStatement pst : this.statementCache.values()) {
+            closeQuietly(pst);
+        }
+        this.statementCache.clear();
+        try {
+            this.connection.close();
+            this.connectionPool.recordConnectionClosed();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement pst) {
+        try {
+            pst.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
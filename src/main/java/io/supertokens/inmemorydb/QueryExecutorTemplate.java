@@ -36,6 +36,18 @@ public interface QueryExecutorTemplate {
             ResultSetValueExtractor<T> mapper) throws SQLException, StorageQueryException {
         if (setter == null)
             setter = PreparedStatementValueSetter.NO_OP_SETTER;
+        if (con instanceof ConnectionWithLocks) {
+            ConnectionWithLocks cachingCon = (ConnectionWithLocks) con;
+            PreparedStatement pst = cachingCon.takeCachedPreparedStatement(QUERY);
+            try {
+                setter.setValues(pst);
+                try (ResultSet result = pst.executeQuery()) {
+                    return mapper.extract(result);
+                }
+            } finally {
+                cachingCon.returnCachedPreparedStatement(QUERY, pst);
+            }
+        }
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
             try (ResultSet result = pst.executeQuery()) {
@@ -53,6 +65,16 @@ public interface QueryExecutorTemplate {
 
     public static int update(Connection con, String QUERY, PreparedStatementValueSetter setter)
             throws SQLException, StorageQueryException {
+        if (con instanceof ConnectionWithLocks) {
+            ConnectionWithLocks cachingCon = (ConnectionWithLocks) con;
+            PreparedStatement pst = cachingCon.takeCachedPreparedStatement(QUERY);
+            try {
+                setter.setValues(pst);
+                return pst.executeUpdate();
+            } finally {
+                cachingCon.returnCachedPreparedStatement(QUERY, pst);
+            }
+        }
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
             return pst.executeUpdate();
@@ -19,9 +19,11 @@ package io.supertokens.inmemorydb;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
+import io.supertokens.bulkimport.BulkImportUser;
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.inmemorydb.config.SQLiteConfig;
 import io.supertokens.inmemorydb.queries.*;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.*;
 import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.authRecipe.LoginMethod;
@@ -84,8 +86,19 @@ import io.supertokens.pluginInterface.userroles.UserRolesStorage;
 import io.supertokens.pluginInterface.userroles.exception.DuplicateUserRoleMappingException;
 import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
 import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
+import io.supertokens.storageLayer.ActiveUsersBatchUpdateStorage;
+import io.supertokens.storageLayer.ActiveUsersStatsStorage;
+import io.supertokens.storageLayer.ConnectionPoolStatsStorage;
+import io.supertokens.storageLayer.BatchUserDataStorage;
+import io.supertokens.storageLayer.BulkImportStorage;
+import io.supertokens.storageLayer.ExpiredDataBatchDeletionStorage;
+import io.supertokens.storageLayer.UserRolesAndPermissionsStorage;
+import io.supertokens.storageLayer.TenantConfigsVersionStorage;
+import io.supertokens.storageLayer.UserMetadataMergeStorage;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.TestOnly;
+import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
 
 import javax.annotation.Nonnull;
@@ -96,18 +109,25 @@ import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Start
         implements SessionSQLStorage, EmailPasswordSQLStorage, EmailVerificationSQLStorage, ThirdPartySQLStorage,
         JWTRecipeSQLStorage, PasswordlessSQLStorage, UserMetadataSQLStorage, UserRolesSQLStorage, UserIdMappingStorage,
         UserIdMappingSQLStorage, MultitenancyStorage, MultitenancySQLStorage, TOTPSQLStorage, ActiveUsersStorage,
-        ActiveUsersSQLStorage, DashboardSQLStorage, AuthRecipeSQLStorage {
+        ActiveUsersSQLStorage, DashboardSQLStorage, AuthRecipeSQLStorage, ExpiredDataBatchDeletionStorage,
+        TenantConfigsVersionStorage, ConnectionPoolStatsStorage, UserRolesAndPermissionsStorage,
+        BatchUserDataStorage, BulkImportStorage,
+        UserMetadataMergeStorage, ActiveUsersStatsStorage, ActiveUsersBatchUpdateStorage {
 
     private static final Object appenderLock = new Object();
     private static final String APP_ID_KEY_NAME = "app_id";
     private static final String ACCESS_TOKEN_SIGNING_KEY_NAME = "access_token_signing_key";
     private static final String REFRESH_TOKEN_KEY_NAME = "refresh_token_key";
+    public static final String TRANSACTION_RETRIES_METRIC = "inmemorydb.transaction.retries";
+    public static final String TRANSACTION_ABORTS_METRIC = "inmemorydb.transaction.aborts";
     public static boolean isTesting = false;
     private static boolean silent = false;
     boolean enabled = true;
@@ -141,9 +161,9 @@ public class Start
     }
 
     @Override
-    public void loadConfig(JsonObject ignored, Set<LOG_LEVEL> logLevel, TenantIdentifier tenantIdentifier)
+    public void loadConfig(JsonObject configJson, Set<LOG_LEVEL> logLevel, TenantIdentifier tenantIdentifier)
             throws InvalidConfigException {
-        Config.loadConfig(this);
+        Config.loadConfig(this, configJson);
     }
 
     @Override
@@ -196,18 +216,32 @@ public class Start
     @Override
     public <T> T startTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
             throws StorageTransactionLogicException, StorageQueryException {
+        SQLiteConfig config = Config.getConfig(this);
+        long deadline = System.currentTimeMillis() + config.getTransactionTimeBudgetMillis();
         int tries = 0;
         while (true) {
             tries++;
             try {
                 return startTransactionHelper(logic);
             } catch (SQLException | StorageQueryException | StorageTransactionLogicException e) {
-                if ((e instanceof SQLTransactionRollbackException
-                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock")))
-                        && tries < 3) {
-                    ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
-                    continue; // this because deadlocks are not necessarily a result of faulty logic. They can
-                    // happen
+                if (isRetryableTransactionException(e)) {
+                    long backoff = getTransactionRetryBackoffMillis(config, tries);
+                    if (tries < config.getMaxTransactionAttempts()
+                            && System.currentTimeMillis() + backoff < deadline) {
+                        // deadlocks, lock wait timeouts and busy / locked errors are not necessarily a result of
+                        // faulty logic, so we retry the whole transaction after a randomised backoff so that the
+                        // competing transactions do not collide again.
+                        ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
+                        Metrics.getInstance(this.main).incrementCounter(TRANSACTION_RETRIES_METRIC);
+                        try {
+                            Thread.sleep(backoff);
+                        } catch (InterruptedException ignored) {
+                        }
+                        continue;
+                    }
+                    ProcessState.getInstance(this.main)
+                            .addState(ProcessState.PROCESS_STATE.TRANSACTION_ABORTED_AFTER_RETRIES, e);
+                    Metrics.getInstance(this.main).incrementCounter(TRANSACTION_ABORTS_METRIC);
                 }
                 if (e instanceof StorageQueryException) {
                     throw (StorageQueryException) e;
@@ -219,6 +253,36 @@ public class Start
         }
     }
 
+    // exponential backoff with full jitter
+    private static long getTransactionRetryBackoffMillis(SQLiteConfig config, int tries) {
+        long maxBackoff = config.getTransactionRetryBaseBackoffMillis() << Math.min(tries - 1, 20);
+        maxBackoff = Math.min(maxBackoff, config.getTransactionRetryMaxBackoffMillis());
+        return ThreadLocalRandom.current().nextLong(maxBackoff + 1);
+    }
+
+    private static boolean isRetryableTransactionException(Exception e) {
+        // a lock wait timeout from ConnectionWithLocks, or a busy error from SQLite may reach here wrapped inside a StorageQueryException or a
+        // StorageTransactionLogicException, so we check the whole cause chain.
+        Throwable curr = e;
+        while (curr != null) {
+            if (curr instanceof SQLTransactionRollbackException
+                    || (curr.getMessage() != null && curr.getMessage().toLowerCase().contains("deadlock"))) {
+                return true;
+            }
+            if (curr instanceof SQLiteException) {
+                // we compare the primary result code so that extended codes like SQLITE_BUSY_SNAPSHOT or
+                // SQLITE_LOCKED_SHAREDCACHE are also retried.
+                int primaryResultCode = ((SQLiteException) curr).getResultCode().code & 0xff;
+                if (primaryResultCode == SQLiteErrorCode.SQLITE_BUSY.code
+                        || primaryResultCode == SQLiteErrorCode.SQLITE_LOCKED.code) {
+                    return true;
+                }
+            }
+            curr = curr.getCause();
+        }
+        return false;
+    }
+
     private <T> T startTransactionHelper(TransactionLogic<T> logic)
             throws StorageQueryException, StorageTransactionLogicException, SQLException {
         Connection con = null;
@@ -448,6 +512,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredSessions(int batchSize) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteExpiredSessions(this, batchSize);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public KeyValueInfo getKeyValue(TenantIdentifier tenantIdentifier, String key) throws StorageQueryException {
         try {
@@ -893,6 +966,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredEmailVerificationTokens(int batchSize) throws StorageQueryException {
+        try {
+            return EmailVerificationQueries.deleteExpiredEmailVerificationTokens(this, batchSize);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser_Transaction(
             TenantIdentifier tenantIdentifier,
@@ -1073,6 +1155,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredPasswordResetTokens(int batchSize) throws StorageQueryException {
+        try {
+            return EmailPasswordQueries.deleteExpiredPasswordResetTokens(this, batchSize);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public void updateUserEmail_Transaction(AppIdentifier appIdentifier, TransactionConnection con,
                                             String thirdPartyId, String thirdPartyUserId,
@@ -1207,6 +1298,28 @@ public class Start
         }
     }
 
+    @Override
+    public void updateLastActiveForUsers(AppIdentifier appIdentifier, Map<String, Long> lastActiveTimes)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        try {
+            ActiveUsersQueries.updateLastActiveForUsers(this, appIdentifier, lastActiveTimes);
+        } catch (SQLException e) {
+            if (e instanceof SQLiteException) {
+                String errorMessage = e.getMessage();
+                SQLiteConfig config = Config.getConfig(this);
+
+                if (isForeignKeyConstraintError(
+                        errorMessage,
+                        config.getAppsTable(),
+                        new String[]{"app_id"},
+                        new Object[]{appIdentifier.getAppId()})) {
+                    throw new TenantOrAppNotFoundException(appIdentifier);
+                }
+            }
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public int countUsersActiveSince(AppIdentifier appIdentifier, long time) throws StorageQueryException {
         try {
@@ -1216,6 +1329,39 @@ public class Start
         }
     }
 
+    @Override
+    public int[] countUsersActiveSinceForEachDay(AppIdentifier appIdentifier, long now, int numberOfDays)
+            throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersActiveSinceForEachDay(this, appIdentifier, now, numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int[] countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceForEachDay(AppIdentifier appIdentifier,
+                                                                                  long now, int numberOfDays)
+            throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersActiveSinceAndHasMoreThanOneLoginMethodForEachDay(this,
+                    appIdentifier, now, numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int[] countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+            AppIdentifier appIdentifier, long now, int numberOfDays) throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+                    this, appIdentifier, now, numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public void deleteUserActive_Transaction(TransactionConnection con, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
@@ -1784,6 +1930,40 @@ public class Start
         }
     }
 
+    @Override
+    public Map<String, JsonObject> getUserMetadataForUsers(AppIdentifier appIdentifier, List<String> userIds)
+            throws StorageQueryException {
+        try {
+            return UserMetadataQueries.getUserMetadataForUsers(this, appIdentifier, userIds);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public JsonObject mergeUserMetadata(AppIdentifier appIdentifier, String userId, JsonObject metadataUpdate,
+                                        int maxSizeInBytes)
+            throws StorageQueryException, TenantOrAppNotFoundException, UserMetadataTooLargeException {
+        try {
+            return UserMetadataQueries.mergeUserMetadata(this, appIdentifier, userId, metadataUpdate,
+                    maxSizeInBytes);
+        } catch (StorageTransactionLogicException e) {
+            if (e.actualException instanceof UserMetadataTooLargeException) {
+                throw (UserMetadataTooLargeException) e.actualException;
+            }
+            if (e.actualException instanceof SQLiteException) {
+                if (isForeignKeyConstraintError(
+                        e.actualException.getMessage(),
+                        Config.getConfig(this).getAppsTable(),
+                        new String[]{"app_id"},
+                        new Object[]{appIdentifier.getAppId()})) {
+                    throw new TenantOrAppNotFoundException(appIdentifier);
+                }
+            }
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
     @Override
     public JsonObject getUserMetadata_Transaction(AppIdentifier appIdentifier, TransactionConnection
             con, String userId)
@@ -1879,6 +2059,47 @@ public class Start
         }
     }
 
+    @Override
+    public Map<String, List<String>> getRolesAndPermissionsForUser(TenantIdentifier tenantIdentifier, String userId)
+            throws StorageQueryException {
+        try {
+            return UserRolesQueries.getRolesAndPermissionsForUser(this, tenantIdentifier, userId);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public List<AuthRecipeUserInfo> getPrimaryUsersByIds(AppIdentifier appIdentifier, List<String> userIds)
+            throws StorageQueryException {
+        try {
+            return GeneralQueries.getPrimaryUserInfoForUserIds(this, appIdentifier, userIds);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getUserIdMappingForExternalUserIds(AppIdentifier appIdentifier,
+                                                                  List<String> externalUserIds)
+            throws StorageQueryException {
+        try {
+            return UserIdMappingQueries.getUserIdMappingForExternalUserIds(this, appIdentifier, externalUserIds);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getRolesForUsers(TenantIdentifier tenantIdentifier, List<String> userIds)
+            throws StorageQueryException {
+        try {
+            return UserRolesQueries.getRolesForUsers(this, tenantIdentifier, userIds);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     private String[] getRolesForUser(AppIdentifier appIdentifier, String userId) throws
             StorageQueryException {
         try {
@@ -2287,6 +2508,25 @@ public class Start
         return MultitenancyQueries.getAllTenants(this);
     }
 
+    @Override
+    public long getTenantConfigsVersion() throws StorageQueryException {
+        try {
+            return MultitenancyQueries.getTenantConfigsVersion(this);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int getNumberOfOpenConnections() {
+        return ConnectionPool.getNumberOfOpenConnections(this);
+    }
+
+    @Override
+    public int getNumberOfIdleConnections() {
+        return ConnectionPool.getNumberOfIdleConnections(this);
+    }
+
     @Override
     public boolean addUserIdToTenant_Transaction(TenantIdentifier tenantIdentifier, TransactionConnection con, String userId)
             throws StorageQueryException, TenantOrAppNotFoundException, DuplicateEmailException,
@@ -2569,6 +2809,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredDashboardSessions(int batchSize) throws StorageQueryException {
+        try {
+            return DashboardQueries.deleteExpiredSessions(this, batchSize);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     // TOTP recipe:
     @Override
     public void createDevice(AppIdentifier appIdentifier, TOTPDevice device)
@@ -2769,6 +3018,16 @@ public class Start
         }
     }
 
+    @Override
+    public int removeExpiredTotpCodes(TenantIdentifier tenantIdentifier, long expiredBefore, int batchSize)
+            throws StorageQueryException {
+        try {
+            return TOTPQueries.removeExpiredCodes(this, tenantIdentifier, expiredBefore, batchSize);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public Set<String> getValidFieldsInConfig() {
         return SQLiteConfig.getValidFields();
@@ -2985,4 +3244,76 @@ public class Start
             throw new StorageQueryException(e);
         }
     }
+
+    @Override
+    public void addBulkImportUsers(AppIdentifier appIdentifier, List<BulkImportUser> users)
+            throws StorageQueryException {
+        try {
+            BulkImportQueries.addBulkImportUsers(this, appIdentifier, users);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
+    @Override
+    public List<BulkImportUser> getBulkImportUsersForProcessing(AppIdentifier appIdentifier, int limit,
+                                                                long processingStartedBefore)
+            throws StorageQueryException {
+        try {
+            return BulkImportQueries.getBulkImportUsersForProcessing(this, appIdentifier, limit,
+                    processingStartedBefore);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
+    @Override
+    public List<BulkImportUser> getBulkImportUsers(AppIdentifier appIdentifier,
+                                                   @Nullable BulkImportUser.Status status, int limit,
+                                                   @Nullable String afterId) throws StorageQueryException {
+        try {
+            return BulkImportQueries.getBulkImportUsers(this, appIdentifier, status, limit, afterId);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public Map<BulkImportUser.Status, Long> getBulkImportUserCountsByStatus(AppIdentifier appIdentifier)
+            throws StorageQueryException {
+        try {
+            return BulkImportQueries.getBulkImportUserCountsByStatus(this, appIdentifier);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public void markBulkImportUsersAsFailed(AppIdentifier appIdentifier, Map<String, String> idToErrorMessage)
+            throws StorageQueryException {
+        try {
+            BulkImportQueries.markBulkImportUsersAsFailed(this, appIdentifier, idToErrorMessage);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
+    @Override
+    public int deleteBulkImportUsers(AppIdentifier appIdentifier, List<String> ids) throws StorageQueryException {
+        try {
+            return BulkImportQueries.deleteBulkImportUsers(this, appIdentifier, ids);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public void importEmailPasswordUsers(TenantIdentifier tenantIdentifier, List<EmailPasswordUser> users)
+            throws StorageQueryException {
+        try {
+            BulkImportQueries.importEmailPasswordUsers(this, tenantIdentifier, users);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
 }
@@ -16,9 +16,12 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.google.gson.JsonObject;
 import io.supertokens.inmemorydb.ResourceDistributor;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.pluginInterface.LOG_LEVEL;
+import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
+import io.supertokens.utils.ConfigMapper;
 
 import java.util.Set;
 
@@ -27,8 +30,9 @@ public class Config extends ResourceDistributor.SingletonResource {
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.config.Config";
     private final SQLiteConfig config;
 
-    private Config() {
-        this.config = new SQLiteConfig();
+    private Config(JsonObject configJson) throws InvalidConfigException {
+        this.config = ConfigMapper.mapConfig(configJson == null ? new JsonObject() : configJson, SQLiteConfig.class);
+        this.config.validate();
     }
 
     private static Config getInstance(Start start) {
@@ -36,8 +40,11 @@ public class Config extends ResourceDistributor.SingletonResource {
                 .getResource(RESOURCE_KEY);
     }
 
-    public static void loadConfig(Start start) {
-        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config());
+    public static void loadConfig(Start start, JsonObject configJson) throws InvalidConfigException {
+        if (getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config(configJson));
     }
 
     public static SQLiteConfig getConfig(Start start) {
@@ -16,15 +16,101 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
+
 import java.util.HashSet;
 import java.util.Set;
 
 public class SQLiteConfig {
 
+    // if this is set, the data is stored in this file (in WAL mode) instead of in memory, and is kept across
+    // restarts of the core.
+    @JsonProperty
+    private String sqlite_file_path = null;
+
+    @JsonProperty
+    private long sqlite_mmap_size = 268435456; // 256 MB
+
+    @JsonProperty
+    private int sqlite_cache_size_kb = 65536; // 64 MB
+
+    @JsonProperty
+    private int sqlite_busy_timeout = 5000; // in MS
+
     public static Set<String> getValidFields() {
+        // the sqlite_* configs can only be set in the config.yaml file since there is just one SQLite db per core.
         return new HashSet<>();
     }
 
+    public void validate() throws InvalidConfigException {
+        if (sqlite_file_path != null && sqlite_file_path.trim().isEmpty()) {
+            throw new InvalidConfigException("'sqlite_file_path' cannot be an empty string");
+        }
+        if (sqlite_mmap_size < 0) {
+            throw new InvalidConfigException("'sqlite_mmap_size' must be >= 0");
+        }
+        if (sqlite_cache_size_kb <= 0) {
+            throw new InvalidConfigException("'sqlite_cache_size_kb' must be > 0");
+        }
+        if (sqlite_busy_timeout < 0) {
+            throw new InvalidConfigException("'sqlite_busy_timeout' must be >= 0");
+        }
+    }
+
+    public boolean isFileBacked() {
+        return sqlite_file_path != null;
+    }
+
+    public String getFilePath() {
+        return sqlite_file_path;
+    }
+
+    public long getMmapSize() {
+        return sqlite_mmap_size;
+    }
+
+    public int getCacheSizeKb() {
+        return sqlite_cache_size_kb;
+    }
+
+    public int getBusyTimeout() {
+        return sqlite_busy_timeout;
+    }
+
+    // 0 means that a transaction waits until it gets the lock. Otherwise, the transaction fails with a
+    // SQLTransactionRollbackException (and is retried) if it could not get the lock in this much time.
+    public long getLockWaitTimeoutMillis() {
+        return 0;
+    }
+
+    // a transaction that fails due to a deadlock, a lock wait timeout or a busy database is retried with
+    // exponential backoff and jitter, as long as it has attempts and time budget left.
+    public int getMaxTransactionAttempts() {
+        return 5;
+    }
+
+    public long getTransactionRetryBaseBackoffMillis() {
+        return 5;
+    }
+
+    public long getTransactionRetryMaxBackoffMillis() {
+        return 200;
+    }
+
+    public long getTransactionTimeBudgetMillis() {
+        return 10000;
+    }
+
+    public int getMaxIdleConnections() {
+        return 10;
+    }
+
+    // number of prepared statements cached per connection
+    public int getStatementCacheSize() {
+        return 100;
+    }
+
     public String getKeyValueTable() {
         return "key_value";
     }
@@ -45,6 +131,10 @@ public class SQLiteConfig {
         return "tenant_configs";
     }
 
+    public String getTenantConfigsVersionTable() {
+        return "tenant_configs_version";
+    }
+
     public String getTenantFirstFactorsTable() {
         return "tenant_first_factors";
     }
@@ -164,4 +254,12 @@ public class SQLiteConfig {
     public String getDashboardSessionsTable() {
         return "dashboard_user_sessions";
     }
+
+    public String getBulkImportUsersTable() {
+        return "bulk_import_users";
+    }
+
+    public String getUserSearchTagsTable() {
+        return "user_search_tags";
+    }
 }
@@ -2,6 +2,9 @@ package io.supertokens.inmemorydb.queries;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -23,10 +26,19 @@ public class ActiveUsersQueries {
                 + " );";
     }
 
+    static String getQueryToCreateLastActiveTimeIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS user_last_active_last_active_time_index ON "
+                + Config.getConfig(start).getUserLastActiveTable() + "(app_id, last_active_time);";
+    }
+
+    public static String getQueryToCountUsersActiveSince(Start start) {
+        return "SELECT COUNT(*) as total FROM " + Config.getConfig(start).getUserLastActiveTable()
+                + " WHERE app_id = ? AND last_active_time >= ?";
+    }
+
     public static int countUsersActiveSince(Start start, AppIdentifier appIdentifier, long sinceTime)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT COUNT(*) as total FROM " + Config.getConfig(start).getUserLastActiveTable()
-                + " WHERE app_id = ? AND last_active_time >= ?";
+        String QUERY = getQueryToCountUsersActiveSince(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -39,6 +51,84 @@ public class ActiveUsersQueries {
         });
     }
 
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // The users (that match the condition, if any) are grouped by the number of days, rounded up, since they were last
+    // active, so that the counts of all the days are found with one query.
+    private static String getQueryToCountUsersActiveSinceForEachDay(Start start, String condition) {
+        return "SELECT (? - last_active_time + " + (DAY_IN_MILLIS - 1) + ") / " + DAY_IN_MILLIS
+                + " AS days_ago, COUNT(*) AS c FROM " + Config.getConfig(start).getUserLastActiveTable() + " la"
+                + " WHERE app_id = ? AND last_active_time >= ?"
+                + (condition == null ? "" : " AND " + condition)
+                + " GROUP BY days_ago";
+    }
+
+    public static String getQueryToCountUsersActiveSinceForEachDay(Start start) {
+        return getQueryToCountUsersActiveSinceForEachDay(start, null);
+    }
+
+    public static int[] countUsersActiveSinceForEachDay(Start start, AppIdentifier appIdentifier, long now,
+                                                        int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = getQueryToCountUsersActiveSinceForEachDay(start);
+        return countUsersActiveSinceForEachDay(start, QUERY, appIdentifier, now, numberOfDays);
+    }
+
+    public static String getQueryToCountUsersActiveSinceAndHasMoreThanOneLoginMethodForEachDay(Start start) {
+        // like countUsersActiveSinceAndHasMoreThanOneLoginMethod, this counts the rows of the user in all tenants
+        return getQueryToCountUsersActiveSinceForEachDay(start, "(SELECT COUNT(user_id) FROM "
+                + Config.getConfig(start).getUsersTable()
+                + " WHERE app_id = la.app_id AND primary_or_recipe_user_id = la.user_id) > 1");
+    }
+
+    public static int[] countUsersActiveSinceAndHasMoreThanOneLoginMethodForEachDay(Start start,
+                                                                                   AppIdentifier appIdentifier,
+                                                                                   long now, int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = getQueryToCountUsersActiveSinceAndHasMoreThanOneLoginMethodForEachDay(start);
+        return countUsersActiveSinceForEachDay(start, QUERY, appIdentifier, now, numberOfDays);
+    }
+
+    public static String getQueryToCountUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+            Start start) {
+        return getQueryToCountUsersActiveSinceForEachDay(start, "((SELECT COUNT(user_id) FROM "
+                + Config.getConfig(start).getAppIdToUserIdTable()
+                + " WHERE app_id = la.app_id AND primary_or_recipe_user_id = la.user_id) > 1"
+                + " OR EXISTS (SELECT user_id FROM " + Config.getConfig(start).getTotpUsersTable()
+                + " WHERE app_id = la.app_id AND user_id = la.user_id))");
+    }
+
+    public static int[] countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(
+            Start start, AppIdentifier appIdentifier, long now, int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = getQueryToCountUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(start);
+        return countUsersActiveSinceForEachDay(start, QUERY, appIdentifier, now, numberOfDays);
+    }
+
+    // Returns the number of users that were active since now - (i + 1) days at index i, from the result of one of the
+    // queries above. Each group of users is counted in the result of its day and all the days after it.
+    private static int[] countUsersActiveSinceForEachDay(Start start, String QUERY, AppIdentifier appIdentifier,
+                                                         long now, int numberOfDays)
+            throws SQLException, StorageQueryException {
+        int[] counts = new int[numberOfDays];
+        execute(start, QUERY, pst -> {
+            pst.setLong(1, now);
+            pst.setString(2, appIdentifier.getAppId());
+            pst.setLong(3, now - numberOfDays * DAY_IN_MILLIS);
+        }, result -> {
+            while (result.next()) {
+                // users that were active after now are counted in every day
+                long daysAgo = Math.max(1, result.getLong("days_ago"));
+                int count = result.getInt("c");
+                for (long day = daysAgo; day <= numberOfDays; day++) {
+                    counts[(int) day - 1] += count;
+                }
+            }
+            return null;
+        });
+        return counts;
+    }
+
     public static int countUsersActiveSinceAndHasMoreThanOneLoginMethod(Start start, AppIdentifier appIdentifier, long sinceTime)
             throws SQLException, StorageQueryException {
         // TODO: Active users are present only on public tenant and MFA users may be present on different storages
@@ -78,6 +168,39 @@ public class ActiveUsersQueries {
         });
     }
 
+    // keeps the number of parameters of each insert well under the limit of SQLite
+    private static final int MAX_USERS_PER_LAST_ACTIVE_UPDATE = 300;
+
+    public static void updateLastActiveForUsers(Start start, AppIdentifier appIdentifier,
+                                                Map<String, Long> lastActiveTimes)
+            throws SQLException, StorageQueryException {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(lastActiveTimes.entrySet());
+        for (int i = 0; i < entries.size(); i += MAX_USERS_PER_LAST_ACTIVE_UPDATE) {
+            List<Map.Entry<String, Long>> chunk = entries.subList(i,
+                    Math.min(entries.size(), i + MAX_USERS_PER_LAST_ACTIVE_UPDATE));
+
+            StringBuilder QUERY = new StringBuilder("INSERT INTO " + Config.getConfig(start).getUserLastActiveTable()
+                    + "(app_id, user_id, last_active_time) VALUES");
+            for (int j = 0; j < chunk.size(); j++) {
+                QUERY.append("(?, ?, ?)");
+                if (j != chunk.size() - 1) {
+                    QUERY.append(",");
+                }
+            }
+            QUERY.append(" ON CONFLICT(app_id, user_id) DO UPDATE SET last_active_time = "
+                    + "MAX(last_active_time, excluded.last_active_time)");
+
+            update(start, QUERY.toString(), pst -> {
+                int index = 1;
+                for (Map.Entry<String, Long> entry : chunk) {
+                    pst.setString(index++, appIdentifier.getAppId());
+                    pst.setString(index++, entry.getKey());
+                    pst.setLong(index++, entry.getValue());
+                }
+            });
+        }
+    }
+
     public static void deleteUserActive_Transaction(Connection con, Start start, AppIdentifier appIdentifier,
                                                     String userId)
             throws StorageQueryException, SQLException {
@@ -0,0 +1,386 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb.queries;
+
+import io.supertokens.bulkimport.BulkImportUser;
+import io.supertokens.inmemorydb.ConnectionWithLocks;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.config.Config;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.BulkImportStorage;
+
+import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
+import static io.supertokens.inmemorydb.config.Config.getConfig;
+import static io.supertokens.pluginInterface.RECIPE_ID.EMAIL_PASSWORD;
+
+public class BulkImportQueries {
+
+    // sqlite allows at most 999 parameters in a query (in older versions), and the widest insert below has 7
+    // parameters per row
+    private static final int MAX_ROWS_PER_INSERT = 100;
+
+    public static String getQueryToCreateBulkImportUsersTable(Start start) {
+        String tableName = Config.getConfig(start).getBulkImportUsersTable();
+        // @formatter:off
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                + "id CHAR(36),"
+                + "app_id VARCHAR(64) NOT NULL DEFAULT 'public',"
+                + "raw_data TEXT NOT NULL,"
+                + "status VARCHAR(128) DEFAULT 'NEW',"
+                + "error_msg TEXT,"
+                + "created_at BIGINT UNSIGNED NOT NULL,"
+                + "updated_at BIGINT UNSIGNED NOT NULL,"
+                + "PRIMARY KEY(app_id, id),"
+                + "FOREIGN KEY(app_id) REFERENCES " + Config.getConfig(start).getAppsTable()
+                + " (app_id) ON DELETE CASCADE"
+                + ");";
+        // @formatter:on
+    }
+
+    public static String getQueryToCreateStatusIdIndex(Start start) {
+        return "CREATE INDEX bulk_import_users_status_id_index ON "
+                + Config.getConfig(start).getBulkImportUsersTable() + "(app_id, status, id);";
+    }
+
+    public static String getQueryToCreateStatusUpdatedAtIndex(Start start) {
+        return "CREATE INDEX bulk_import_users_status_updated_at_index ON "
+                + Config.getConfig(start).getBulkImportUsersTable() + "(app_id, status, updated_at);";
+    }
+
+    public static void addBulkImportUsers(Start start, AppIdentifier appIdentifier, List<BulkImportUser> users)
+            throws StorageQueryException, StorageTransactionLogicException {
+        start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                long now = System.currentTimeMillis();
+                for (List<BulkImportUser> chunk : getChunks(users)) {
+                    String QUERY = "INSERT INTO " + getConfig(start).getBulkImportUsersTable()
+                            + "(id, app_id, raw_data, status, created_at, updated_at) VALUES "
+                            + getValuesPlaceholders(chunk.size(), 6);
+                    update(sqlCon, QUERY, pst -> {
+                        int index = 1;
+                        for (BulkImportUser user : chunk) {
+                            pst.setString(index++, user.id);
+                            pst.setString(index++, appIdentifier.getAppId());
+                            pst.setString(index++, user.rawData);
+                            pst.setString(index++, BulkImportUser.Status.NEW.toString());
+                            pst.setLong(index++, user.createdAt);
+                            pst.setLong(index++, now);
+                        }
+                    });
+                }
+                sqlCon.commit();
+            } catch (SQLException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            return null;
+        });
+    }
+
+    public static String getQueryToGetStaleBulkImportUsers(Start start) {
+        return "SELECT * FROM " + getConfig(start).getBulkImportUsersTable()
+                + " WHERE app_id = ? AND status = ? AND updated_at < ? ORDER BY updated_at LIMIT ?";
+    }
+
+    public static String getQueryToGetNewBulkImportUsers(Start start) {
+        return "SELECT * FROM " + getConfig(start).getBulkImportUsersTable()
+                + " WHERE app_id = ? AND status = ? ORDER BY id LIMIT ?";
+    }
+
+    public static List<BulkImportUser> getBulkImportUsersForProcessing(Start start, AppIdentifier appIdentifier,
+                                                                       int limit, long processingStartedBefore)
+            throws StorageQueryException, StorageTransactionLogicException {
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                ((ConnectionWithLocks) sqlCon).lock(
+                        appIdentifier.getAppId() + Config.getConfig(start).getBulkImportUsersTable());
+
+                // users left behind by a core that stopped are picked first. Each of the two queries is answered
+                // from an index, which one query with an OR would not be
+                String STALE_QUERY = getQueryToGetStaleBulkImportUsers(start);
+                List<BulkImportUser> users = execute(sqlCon, STALE_QUERY, pst -> {
+                    pst.setString(1, appIdentifier.getAppId());
+                    pst.setString(2, BulkImportUser.Status.PROCESSING.toString());
+                    pst.setLong(3, processingStartedBefore);
+                    pst.setInt(4, limit);
+                }, BulkImportQueries::getBulkImportUsersFromResult);
+
+                if (users.size() < limit) {
+                    int remaining = limit - users.size();
+                    String NEW_QUERY = getQueryToGetNewBulkImportUsers(start);
+                    users.addAll(execute(sqlCon, NEW_QUERY, pst -> {
+                        pst.setString(1, appIdentifier.getAppId());
+                        pst.setString(2, BulkImportUser.Status.NEW.toString());
+                        pst.setInt(3, remaining);
+                    }, BulkImportQueries::getBulkImportUsersFromResult));
+                }
+
+                if (!users.isEmpty()) {
+                    List<String> ids = new ArrayList<>();
+                    for (BulkImportUser user : users) {
+                        ids.add(user.id);
+                    }
+                    for (List<String> chunk : getChunks(ids)) {
+                        String UPDATE_QUERY = "UPDATE " + getConfig(start).getBulkImportUsersTable()
+                                + " SET status = ?, updated_at = ? WHERE app_id = ? AND id IN ("
+                                + getPlaceholders(chunk.size()) + ")";
+                        update(sqlCon, UPDATE_QUERY, pst -> {
+                            pst.setString(1, BulkImportUser.Status.PROCESSING.toString());
+                            pst.setLong(2, System.currentTimeMillis());
+                            pst.setString(3, appIdentifier.getAppId());
+                            for (int i = 0; i < chunk.size(); i++) {
+                                // i+4 cause this starts with 1 and not 0, and 1 to 3 are set above
+                                pst.setString(i + 4, chunk.get(i));
+                            }
+                        });
+                    }
+                }
+                sqlCon.commit();
+                return users;
+            } catch (SQLException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+        });
+    }
+
+    public static List<BulkImportUser> getBulkImportUsers(Start start, AppIdentifier appIdentifier,
+                                                          @Nullable BulkImportUser.Status status, int limit,
+                                                          @Nullable String afterId)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT * FROM " + getConfig(start).getBulkImportUsersTable() + " WHERE app_id = ?"
+                + (status != null ? " AND status = ?" : "")
+                + (afterId != null ? " AND id > ?" : "")
+                + " ORDER BY id LIMIT ?";
+        return execute(start, QUERY, pst -> {
+            int index = 1;
+            pst.setString(index++, appIdentifier.getAppId());
+            if (status != null) {
+                pst.setString(index++, status.toString());
+            }
+            if (afterId != null) {
+                pst.setString(index++, afterId);
+            }
+            pst.setInt(index, limit);
+        }, BulkImportQueries::getBulkImportUsersFromResult);
+    }
+
+    public static Map<BulkImportUser.Status, Long> getBulkImportUserCountsByStatus(Start start,
+                                                                                  AppIdentifier appIdentifier)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT status, COUNT(*) AS count FROM " + getConfig(start).getBulkImportUsersTable()
+                + " WHERE app_id = ? GROUP BY status";
+        return execute(start, QUERY, pst -> pst.setString(1, appIdentifier.getAppId()), result -> {
+            Map<BulkImportUser.Status, Long> counts = new HashMap<>();
+            for (BulkImportUser.Status status : BulkImportUser.Status.values()) {
+                counts.put(status, 0L);
+            }
+            while (result.next()) {
+                counts.put(BulkImportUser.Status.valueOf(result.getString("status")), result.getLong("count"));
+            }
+            return counts;
+        });
+    }
+
+    public static void markBulkImportUsersAsFailed(Start start, AppIdentifier appIdentifier,
+                                                   Map<String, String> idToErrorMessage)
+            throws StorageQueryException, StorageTransactionLogicException {
+        start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                String QUERY = "UPDATE " + getConfig(start).getBulkImportUsersTable()
+                        + " SET status = ?, error_msg = ?, updated_at = ? WHERE app_id = ? AND id = ?";
+                long now = System.currentTimeMillis();
+                for (Map.Entry<String, String> entry : idToErrorMessage.entrySet()) {
+                    update(sqlCon, QUERY, pst -> {
+                        pst.setString(1, BulkImportUser.Status.FAILED.toString());
+                        pst.setString(2, entry.getValue());
+                        pst.setLong(3, now);
+                        pst.setString(4, appIdentifier.getAppId());
+                        pst.setString(5, entry.getKey());
+                    });
+                }
+                sqlCon.commit();
+            } catch (SQLException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            return null;
+        });
+    }
+
+    public static int deleteBulkImportUsers(Start start, AppIdentifier appIdentifier, List<String> ids)
+            throws SQLException, StorageQueryException {
+        int deletedCount = 0;
+        for (List<String> chunk : getChunks(ids)) {
+            String QUERY = "DELETE FROM " + getConfig(start).getBulkImportUsersTable() + " WHERE app_id = ? AND id IN ("
+                    + getPlaceholders(chunk.size()) + ")";
+            deletedCount += update(start, QUERY, pst -> {
+                pst.setString(1, appIdentifier.getAppId());
+                for (int i = 0; i < chunk.size(); i++) {
+                    // i+2 cause this starts with 1 and not 0, and 1 is appId
+                    pst.setString(i + 2, chunk.get(i));
+                }
+            });
+        }
+        return deletedCount;
+    }
+
+    // the same inserts as EmailPasswordQueries.signUp, with one statement per table for many users
+    public static void importEmailPasswordUsers(Start start, TenantIdentifier tenantIdentifier,
+                                                List<BulkImportStorage.EmailPasswordUser> users)
+            throws StorageQueryException, StorageTransactionLogicException {
+        start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                for (List<BulkImportStorage.EmailPasswordUser> chunk : getChunks(users)) {
+                    { // app_id_to_user_id
+                        String QUERY = "INSERT INTO " + getConfig(start).getAppIdToUserIdTable()
+                                + "(app_id, user_id, primary_or_recipe_user_id, recipe_id) VALUES "
+                                + getValuesPlaceholders(chunk.size(), 4);
+                        update(sqlCon, QUERY, pst -> {
+                            int index = 1;
+                            for (BulkImportStorage.EmailPasswordUser user : chunk) {
+                                pst.setString(index++, tenantIdentifier.getAppId());
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, EMAIL_PASSWORD.toString());
+                            }
+                        });
+                    }
+
+                    { // all_auth_recipe_users
+                        String QUERY = "INSERT INTO " + getConfig(start).getUsersTable()
+                                + "(app_id, tenant_id, user_id, primary_or_recipe_user_id, recipe_id, time_joined, "
+                                + "primary_or_recipe_user_time_joined) VALUES "
+                                + getValuesPlaceholders(chunk.size(), 7);
+                        update(sqlCon, QUERY, pst -> {
+                            int index = 1;
+                            for (BulkImportStorage.EmailPasswordUser user : chunk) {
+                                pst.setString(index++, tenantIdentifier.getAppId());
+                                pst.setString(index++, tenantIdentifier.getTenantId());
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, EMAIL_PASSWORD.toString());
+                                pst.setLong(index++, user.timeJoined);
+                                pst.setLong(index++, user.timeJoined);
+                            }
+                        });
+                    }
+
+                    { // emailpassword_users
+                        String QUERY = "INSERT INTO " + getConfig(start).getEmailPasswordUsersTable()
+                                + "(app_id, user_id, email, password_hash, time_joined) VALUES "
+                                + getValuesPlaceholders(chunk.size(), 5);
+                        update(sqlCon, QUERY, pst -> {
+                            int index = 1;
+                            for (BulkImportStorage.EmailPasswordUser user : chunk) {
+                                pst.setString(index++, tenantIdentifier.getAppId());
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, user.email);
+                                pst.setString(index++, user.passwordHash);
+                                pst.setLong(index++, user.timeJoined);
+                            }
+                        });
+                    }
+
+                    { // emailpassword_user_to_tenant
+                        String QUERY = "INSERT INTO " + getConfig(start).getEmailPasswordUserToTenantTable()
+                                + "(app_id, tenant_id, user_id, email) VALUES "
+                                + getValuesPlaceholders(chunk.size(), 4);
+                        update(sqlCon, QUERY, pst -> {
+                            int index = 1;
+                            for (BulkImportStorage.EmailPasswordUser user : chunk) {
+                                pst.setString(index++, tenantIdentifier.getAppId());
+                                pst.setString(index++, tenantIdentifier.getTenantId());
+                                pst.setString(index++, user.userId);
+                                pst.setString(index++, user.email);
+                            }
+                        });
+                    }
+
+                    List<String> userIds = new ArrayList<>();
+                    for (BulkImportStorage.EmailPasswordUser user : chunk) {
+                        userIds.add(user.userId);
+                    }
+                    UserSearchQueries.updateSearchTags_Transaction(start, sqlCon,
+                            tenantIdentifier.toAppIdentifier(), userIds);
+                }
+                sqlCon.commit();
+            } catch (SQLException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            return null;
+        });
+    }
+
+    private static List<BulkImportUser> getBulkImportUsersFromResult(ResultSet result) throws SQLException {
+        List<BulkImportUser> users = new ArrayList<>();
+        while (result.next()) {
+            users.add(new BulkImportUser(result.getString("id"), result.getString("raw_data"),
+                    BulkImportUser.Status.valueOf(result.getString("status")), result.getString("error_msg"),
+                    result.getLong("created_at")));
+        }
+        return users;
+    }
+
+    private static <T> List<List<T>> getChunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += MAX_ROWS_PER_INSERT) {
+            chunks.add(list.subList(i, Math.min(i + MAX_ROWS_PER_INSERT, list.size())));
+        }
+        return chunks;
+    }
+
+    private static String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append("?");
+            if (i != count - 1) {
+                // not the last element
+                placeholders.append(",");
+            }
+        }
+        return placeholders.toString();
+    }
+
+    // returns "(?, ?), (?, ?)" for 2 rows of 2 columns
+    private static String getValuesPlaceholders(int rowCount, int columnCount) {
+        String row = "(" + getPlaceholders(columnCount).replace(",", ", ") + ")";
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            placeholders.append(row);
+            if (i != rowCount - 1) {
+                // not the last element
+                placeholders.append(", ");
+            }
+        }
+        return placeholders.toString();
+    }
+}
@@ -73,6 +73,11 @@ public class DashboardQueries {
                 + Config.getConfig(start).getDashboardSessionsTable() + "(expiry);";
     }
 
+    static String getQueryToCreateDashboardUserSessionsUserIdIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS dashboard_user_sessions_user_id_index ON "
+                + Config.getConfig(start).getDashboardSessionsTable() + "(app_id, user_id);";
+    }
+
     public static void createDashboardUser(Start start, AppIdentifier appIdentifier, String userId, String email,
                                            String passwordHash, long timeJoined)
             throws SQLException, StorageQueryException {
@@ -183,10 +188,14 @@ public class DashboardQueries {
         });
     }
 
+    public static String getQueryToGetAllSessionsForUserId(Start start) {
+        return "SELECT * FROM "
+                + Config.getConfig(start).getDashboardSessionsTable() + " WHERE app_id = ? AND user_id = ?";
+    }
+
     public static DashboardSessionInfo[] getAllSessionsForUserId(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM "
-                + Config.getConfig(start).getDashboardSessionsTable() + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueryToGetAllSessionsForUserId(start);
         return execute(start, QUERY, pst -> {
                     pst.setString(1, appIdentifier.getAppId());
                     pst.setString(2, userId);
@@ -194,14 +203,30 @@ public class DashboardQueries {
                 new DashboardSessionInfoResultExtractor());
     }
 
+    public static String getQueryToDeleteExpiredSessions(Start start) {
+        return "DELETE FROM " + Config.getConfig(start).getDashboardSessionsTable()
+                + " WHERE expiry < ?";
+    }
+
     public static void deleteExpiredSessions(Start start) throws SQLException, StorageQueryException {
         long currentTimeMillis = System.currentTimeMillis();
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getDashboardSessionsTable()
-                + " WHERE expiry < ?";
+        String QUERY = getQueryToDeleteExpiredSessions(start);
         // store the number of rows updated
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis));
     }
 
+    public static int deleteExpiredSessions(Start start, int batchSize) throws SQLException, StorageQueryException {
+        long currentTimeMillis = System.currentTimeMillis();
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getDashboardSessionsTable() + " WHERE rowid IN ("
+                + "SELECT rowid FROM " + Config.getConfig(start).getDashboardSessionsTable()
+                + " WHERE expiry < ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis);
+            pst.setInt(2, batchSize);
+        });
+    }
+
     public static DashboardUser getDashboardUserByEmail(Start start, AppIdentifier appIdentifier, String email)
             throws SQLException, StorageQueryException {
         String QUERY = "SELECT * FROM "
@@ -58,6 +58,11 @@ public class EmailPasswordQueries {
                 + ");";
     }
 
+    static String getQueryToCreateEmailPasswordUsersEmailIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS emailpassword_users_email_index ON "
+                + Config.getConfig(start).getEmailPasswordUsersTable() + "(app_id, email);";
+    }
+
     static String getQueryToCreateEmailPasswordUserToTenantTable(Start start) {
         String emailPasswordUserToTenantTable = Config.getConfig(start).getEmailPasswordUserToTenantTable();
         // @formatter:off
@@ -93,12 +98,28 @@ public class EmailPasswordQueries {
                 + Config.getConfig(start).getPasswordResetTokensTable() + "(token_expiry);";
     }
 
+    public static String getQueryToDeleteExpiredPasswordResetTokens(Start start) {
+        return "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE token_expiry < ?";
+    }
+
     public static void deleteExpiredPasswordResetTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE token_expiry < ?";
+        String QUERY = getQueryToDeleteExpiredPasswordResetTokens(start);
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
+    public static int deleteExpiredPasswordResetTokens(Start start, int batchSize)
+            throws SQLException, StorageQueryException {
+        String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE rowid IN ("
+                + "SELECT rowid FROM " + getConfig(start).getPasswordResetTokensTable()
+                + " WHERE token_expiry < ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis());
+            pst.setInt(2, batchSize);
+        });
+    }
+
     public static void updateUsersPassword_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                        String userId, String newPassword)
             throws SQLException, StorageQueryException {
@@ -135,6 +156,8 @@ public class EmailPasswordQueries {
                 pst.setString(3, userId);
             });
         }
+
+        UserSearchQueries.updateSearchTags_Transaction(start, con, appIdentifier, userId);
     }
 
     public static void deleteAllPasswordResetTokensForUser_Transaction(Start start, Connection con,
@@ -202,12 +225,15 @@ public class EmailPasswordQueries {
         });
     }
 
+    public static String getQueryToGetPasswordResetTokenInfo(Start start) {
+        return "SELECT user_id, token, token_expiry, email FROM " + getConfig(start).getPasswordResetTokensTable()
+                + " WHERE app_id = ? AND token = ?";
+    }
+
     public static PasswordResetTokenInfo getPasswordResetTokenInfo(Start start, AppIdentifier appIdentifier,
                                                                    String token)
             throws SQLException, StorageQueryException {
-        String QUERY =
-                 "SELECT user_id, token, token_expiry, email FROM " + getConfig(start).getPasswordResetTokensTable()
-                + " WHERE app_id = ? AND token = ?";
+        String QUERY = getQueryToGetPasswordResetTokenInfo(start);
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, token);
@@ -303,6 +329,9 @@ public class EmailPasswordQueries {
                     });
                 }
 
+                UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(),
+                        userId);
+
                 UserInfoPartial userInfo = new UserInfoPartial(userId, email, passwordHash, timeJoined);
                 fillUserInfoWithTenantIds_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
                 fillUserInfoWithVerified_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
@@ -436,12 +465,16 @@ public class EmailPasswordQueries {
         }
         return Collections.emptyList();
     }
+    public static String getQueryToLockEmail(Start start) {
+        return "SELECT user_id FROM " + getConfig(start).getEmailPasswordUsersTable() +
+                " WHERE app_id = ? AND email = ?";
+    }
+
     public static String lockEmail_Transaction(Start start, Connection con,
                                                 AppIdentifier appIdentifier,
                                                String email)
              throws StorageQueryException, SQLException {
-        String QUERY = "SELECT user_id FROM " + getConfig(start).getEmailPasswordUsersTable() +
-                " WHERE app_id = ? AND email = ?";
+        String QUERY = getQueryToLockEmail(start);
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, email);
@@ -453,14 +486,18 @@ public class EmailPasswordQueries {
         });
     }
 
-    public static String getPrimaryUserIdUsingEmail(Start start, TenantIdentifier tenantIdentifier,
-                                                    String email)
-            throws StorageQueryException, SQLException {
-        String QUERY = "SELECT DISTINCT all_users.primary_or_recipe_user_id AS user_id "
+    public static String getQueryToGetPrimaryUserIdUsingEmail(Start start) {
+        return "SELECT DISTINCT all_users.primary_or_recipe_user_id AS user_id "
                 + "FROM " + getConfig(start).getEmailPasswordUserToTenantTable() + " AS ep" +
                 " JOIN " + getConfig(start).getUsersTable() + " AS all_users" +
                 " ON ep.app_id = all_users.app_id AND ep.user_id = all_users.user_id" +
                 " WHERE ep.app_id = ? AND ep.tenant_id = ? AND ep.email = ?";
+    }
+
+    public static String getPrimaryUserIdUsingEmail(Start start, TenantIdentifier tenantIdentifier,
+                                                    String email)
+            throws StorageQueryException, SQLException {
+        String QUERY = getQueryToGetPrimaryUserIdUsingEmail(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -539,6 +576,8 @@ public class EmailPasswordQueries {
                 pst.setString(4, userInfo.email);
             });
 
+            UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(),
+                    userId);
             return numRows > 0;
         }
     }
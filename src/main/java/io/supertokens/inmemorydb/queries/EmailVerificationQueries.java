@@ -70,13 +70,34 @@ public class EmailVerificationQueries {
                 + Config.getConfig(start).getEmailVerificationTokensTable() + "(token_expiry);";
     }
 
+    static String getQueryToCreateEmailVerificationTokenUserIdIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS emailverification_tokens_user_id_index ON "
+                + Config.getConfig(start).getEmailVerificationTokensTable() + "(app_id, user_id);";
+    }
+
+
+    public static String getQueryToDeleteExpiredEmailVerificationTokens(Start start) {
+        return "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE token_expiry < ?";
+    }
 
     public static void deleteExpiredEmailVerificationTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE token_expiry < ?";
+        String QUERY = getQueryToDeleteExpiredEmailVerificationTokens(start);
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
+    public static int deleteExpiredEmailVerificationTokens(Start start, int batchSize)
+            throws SQLException, StorageQueryException {
+        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE rowid IN ("
+                + "SELECT rowid FROM " + getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE token_expiry < ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis());
+            pst.setInt(2, batchSize);
+        });
+    }
+
     public static void updateUsersIsEmailVerified_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                               String userId, String email,
                                                               boolean isEmailVerified)
@@ -154,6 +175,12 @@ public class EmailVerificationQueries {
         });
     }
 
+    public static String getQueryToGetAllEmailVerificationTokenInfoForUser(Start start) {
+        return "SELECT user_id, token, token_expiry, email FROM "
+                + getConfig(start).getEmailVerificationTokensTable() +
+                " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND email = ?";
+    }
+
     public static EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser_Transaction(Start start,
                                                                                                    Connection con,
                                                                                                    TenantIdentifier tenantIdentifier,
@@ -165,9 +192,7 @@ public class EmailVerificationQueries {
                 tenantIdentifier.getAppId() + "~" + tenantIdentifier.getTenantId() + "~" + userId + "~" + email +
                         Config.getConfig(start).getEmailVerificationTokensTable());
 
-        String QUERY = "SELECT user_id, token, token_expiry, email FROM "
-                + getConfig(start).getEmailVerificationTokensTable() +
-                " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND email = ?";
+        String QUERY = getQueryToGetAllEmailVerificationTokenInfoForUser(start);
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -192,9 +217,7 @@ public class EmailVerificationQueries {
                                                                                        String userId,
                                                                                        String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, token, token_expiry, email FROM "
-                + getConfig(start).getEmailVerificationTokensTable() +
-                " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND email = ?";
+        String QUERY = getQueryToGetAllEmailVerificationTokenInfoForUser(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -214,10 +237,14 @@ public class EmailVerificationQueries {
         });
     }
 
+    public static String getQueryToCheckIfEmailIsVerified(Start start) {
+        return "SELECT * FROM " + getConfig(start).getEmailVerificationTable()
+                + " WHERE app_id = ? AND user_id = ? AND email = ?";
+    }
+
     public static boolean isEmailVerified(Start start, AppIdentifier appIdentifier, String userId, String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + getConfig(start).getEmailVerificationTable()
-                + " WHERE app_id = ? AND user_id = ? AND email = ?";
+        String QUERY = getQueryToCheckIfEmailIsVerified(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
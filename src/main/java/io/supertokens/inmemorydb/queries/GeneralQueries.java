@@ -40,6 +40,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static io.supertokens.ProcessState.PROCESS_STATE.CREATING_NEW_TABLE;
@@ -58,6 +59,11 @@ import static io.supertokens.inmemorydb.queries.UserMetadataQueries.getQueryToCr
 
 public class GeneralQueries {
 
+    // The non search getUsers queries only differ by the number of recipe ids, whether we are paginating and the
+    // sort order, so each of these shapes is built once and then reused (which also lets the prepared statement
+    // cache find it).
+    private static final Map<String, String> GET_USERS_QUERY_TEMPLATES = new ConcurrentHashMap<>();
+
     private static boolean doesTableExists(Start start, String tableName) {
         try {
             String QUERY = "SELECT 1 FROM " + tableName + " LIMIT 1";
@@ -89,8 +95,11 @@ public class GeneralQueries {
     }
 
     public static String getQueryToCreateUserIdIndexForUsersTable(Start start) {
+        // primary_or_recipe_user_id is included so that this index covers the joins from the recipe tables, which
+        // select the primary user id with DISTINCT. Else sqlite joins using the primary user id index on just the
+        // app_id, which reads every user of the app.
         return "CREATE INDEX IF NOT EXISTS all_auth_recipe_user_id_index ON "
-                + Config.getConfig(start).getUsersTable() + "(app_id, user_id);";
+                + Config.getConfig(start).getUsersTable() + "(app_id, user_id, primary_or_recipe_user_id);";
     }
 
     public static String getQueryToCreateTenantIdIndexForUsersTable(Start start) {
@@ -123,9 +132,13 @@ public class GeneralQueries {
          * Used in:
          * - does user exist
          *
+         * - counting the recipe users of a primary user
+         *
+         * tenant_id and user_id are included so that this index covers these queries. Else sqlite prefers the user id
+         * index, which also covers them, but only on the app_id.
          * */
         return "CREATE INDEX all_auth_recipe_users_primary_user_id_index ON " + Config.getConfig(start).getUsersTable()
-                + "(app_id, primary_or_recipe_user_id);";
+                + "(app_id, primary_or_recipe_user_id, tenant_id, user_id);";
     }
 
     static String getQueryToCreateRecipeIdIndex(Start start) {
@@ -200,6 +213,11 @@ public class GeneralQueries {
         // @formatter:on
     }
 
+    static String getQueryToCreatePrimaryUserIdIndexForAppIdToUserIdTable(Start start) {
+        return "CREATE INDEX IF NOT EXISTS app_id_to_user_id_primary_user_id_index ON "
+                + Config.getConfig(start).getAppIdToUserIdTable() + "(app_id, primary_or_recipe_user_id);";
+    }
+
     public static void createTablesIfNotExists(Start start, Main main) throws SQLException, StorageQueryException {
         if (!doesTableExists(start, Config.getConfig(start).getAppsTable())) {
             getInstance(main).addState(CREATING_NEW_TABLE, null);
@@ -259,6 +277,11 @@ public class GeneralQueries {
             update(start, MultitenancyQueries.getQueryToCreateTenantConfigsTable(start), NO_OP_SETTER);
         }
 
+        if (!doesTableExists(start, Config.getConfig(start).getTenantConfigsVersionTable())) {
+            getInstance(main).addState(CREATING_NEW_TABLE, null);
+            update(start, MultitenancyQueries.getQueryToCreateTenantConfigsVersionTable(start), NO_OP_SETTER);
+        }
+
         if (!doesTableExists(start, Config.getConfig(start).getTenantFirstFactorsTable())) {
             getInstance(main).addState(CREATING_NEW_TABLE, null);
             update(start, MultitenancyQueries.getQueryToCreateFirstFactorsTable(start), NO_OP_SETTER);
@@ -417,6 +440,44 @@ public class GeneralQueries {
             update(start, TOTPQueries.getQueryToCreateUsedCodesExpiryTimeIndex(start), NO_OP_SETTER);
         }
 
+        if (!doesTableExists(start, Config.getConfig(start).getBulkImportUsersTable())) {
+            getInstance(main).addState(CREATING_NEW_TABLE, null);
+            update(start, BulkImportQueries.getQueryToCreateBulkImportUsersTable(start), NO_OP_SETTER);
+            // index
+            update(start, BulkImportQueries.getQueryToCreateStatusIdIndex(start), NO_OP_SETTER);
+            update(start, BulkImportQueries.getQueryToCreateStatusUpdatedAtIndex(start), NO_OP_SETTER);
+        }
+
+        // this is created after the recipe tables, since it is filled from them
+        if (!doesTableExists(start, Config.getConfig(start).getUserSearchTagsTable())) {
+            getInstance(main).addState(CREATING_NEW_TABLE, null);
+            update(start, UserSearchQueries.getQueryToCreateUserSearchTagsTable(start), NO_OP_SETTER);
+            // index
+            update(start, UserSearchQueries.getQueryToCreateValueIndex(start), NO_OP_SETTER);
+            update(start, UserSearchQueries.getQueryToCreateUserIdIndex(start), NO_OP_SETTER);
+            UserSearchQueries.addSearchTagsForAllUsers(start);
+        }
+
+        createIndexesIfNotExists(start);
+    }
+
+    /**
+     * Creates the indexes that were added after their tables. Unlike the ones above, these are run on every start,
+     * so that a file backed db that was created by an older version gets them too.
+     */
+    private static void createIndexesIfNotExists(Start start) throws SQLException, StorageQueryException {
+        update(start, getQueryToCreatePrimaryUserIdIndexForAppIdToUserIdTable(start), NO_OP_SETTER);
+        update(start, getQueryToCreateUserIdIndexForUsersTable(start), NO_OP_SETTER);
+        update(start, getQueryToCreateTenantIdIndexForUsersTable(start), NO_OP_SETTER);
+        update(start, ActiveUsersQueries.getQueryToCreateLastActiveTimeIndex(start), NO_OP_SETTER);
+        update(start, SessionQueries.getQueryToCreateSessionUserIdIndex(start), NO_OP_SETTER);
+        update(start, EmailPasswordQueries.getQueryToCreateEmailPasswordUsersEmailIndex(start), NO_OP_SETTER);
+        update(start, EmailVerificationQueries.getQueryToCreateEmailVerificationTokenUserIdIndex(start),
+                NO_OP_SETTER);
+        update(start, PasswordlessQueries.getQueryToCreatePasswordlessUsersEmailIndex(start), NO_OP_SETTER);
+        update(start, PasswordlessQueries.getQueryToCreatePasswordlessUsersPhoneNumberIndex(start), NO_OP_SETTER);
+        update(start, UserRolesQueries.getQueryToCreateUserRolesUserIdIndex(start), NO_OP_SETTER);
+        update(start, DashboardQueries.getQueryToCreateDashboardUserSessionsUserIdIndex(start), NO_OP_SETTER);
     }
 
 
@@ -578,14 +639,18 @@ public class GeneralQueries {
         }, ResultSet::next);
     }
 
+    public static String getQueryToCheckIfUserIdExistsInTenant(Start start) {
+        return "SELECT 1 FROM " + getConfig(start).getUsersTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? UNION SELECT 1 FROM " +
+                getConfig(start).getUsersTable() +
+                " WHERE app_id = ? AND tenant_id = ? AND primary_or_recipe_user_id = ?";
+    }
+
     public static boolean doesUserIdExist(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
         // We query both tables cause there is a case where a primary user ID exists, but its associated
         // recipe user ID has been deleted AND there are other recipe user IDs linked to this primary user ID already.
-        String QUERY = "SELECT 1 FROM " + getConfig(start).getUsersTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? UNION SELECT 1 FROM " +
-                getConfig(start).getUsersTable() +
-                " WHERE app_id = ? AND tenant_id = ? AND primary_or_recipe_user_id = ?";
+        String QUERY = getQueryToCheckIfUserIdExistsInTenant(start);
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
@@ -596,6 +661,29 @@ public class GeneralQueries {
         }, ResultSet::next);
     }
 
+    private static String getUsersQueryTemplate(Start start, int numberOfRecipeIds, boolean isPaginated,
+                                                String timeJoinedOrder) {
+        String key = getConfig(start).getUsersTable() + "|" + numberOfRecipeIds + "|" + isPaginated + "|"
+                + timeJoinedOrder;
+        return GET_USERS_QUERY_TEMPLATES.computeIfAbsent(key, k -> {
+            StringBuilder QUERY = new StringBuilder(
+                    "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM ")
+                    .append(getConfig(start).getUsersTable()).append(" WHERE ");
+            if (numberOfRecipeIds > 0) {
+                QUERY.append("recipe_id IN (").append(Utils.generateCommaSeperatedQuestionMarks(numberOfRecipeIds))
+                        .append(") AND");
+            }
+            if (isPaginated) {
+                String timeJoinedOrderSymbol = timeJoinedOrder.equals("ASC") ? ">" : "<";
+                QUERY.append(" (primary_or_recipe_user_time_joined ").append(timeJoinedOrderSymbol)
+                        .append(" ? OR (primary_or_recipe_user_time_joined = ? AND primary_or_recipe_user_id <= ?)) AND");
+            }
+            QUERY.append(" app_id = ? AND tenant_id = ? ORDER BY primary_or_recipe_user_time_joined ")
+                    .append(timeJoinedOrder).append(", primary_or_recipe_user_id DESC LIMIT ?");
+            return QUERY.toString();
+        });
+    }
+
      public static AuthRecipeUserInfo[] getUsers(Start start, TenantIdentifier tenantIdentifier, @NotNull Integer limit,
                                                  @NotNull String timeJoinedOrder,
                                                  @Nullable RECIPE_ID[] includeRecipeIds, @Nullable String userId,
@@ -607,219 +695,12 @@ public class GeneralQueries {
         List<String> usersFromQuery;
 
         if (dashboardSearchTags != null) {
-            ArrayList<String> queryList = new ArrayList<>();
-            {
-                StringBuilder USER_SEARCH_TAG_CONDITION = new StringBuilder();
-
-                {
-                    // check if we should search through the emailpassword table
-                    if (dashboardSearchTags.shouldEmailPasswordTableBeSearched()) {
-                        String QUERY = "SELECT  allAuthUsersTable.*" + " FROM " + getConfig(start).getUsersTable()
-                                + " AS allAuthUsersTable" +
-                                " JOIN " + getConfig(start).getEmailPasswordUserToTenantTable()
-                                + " AS emailpasswordTable ON allAuthUsersTable.app_id = emailpasswordTable.app_id AND "
-                                + "allAuthUsersTable.tenant_id = emailpasswordTable.tenant_id AND "
-                                + "allAuthUsersTable.user_id = emailpasswordTable.user_id";
-
-                        // attach email tags to queries
-                        QUERY = QUERY +
-                                " WHERE (emailpasswordTable.app_id = ? AND emailpasswordTable.tenant_id = ?) AND"
-                                + " (emailpasswordTable.email LIKE ? OR emailpasswordTable.email LIKE ?)";
-                        queryList.add(tenantIdentifier.getAppId());
-                        queryList.add(tenantIdentifier.getTenantId());
-                        queryList.add(dashboardSearchTags.emails.get(0) + "%");
-                        queryList.add("%@" + dashboardSearchTags.emails.get(0) + "%");
-                        for (int i = 1; i < dashboardSearchTags.emails.size(); i++) {
-                            QUERY += " OR emailpasswordTable.email LIKE ? OR emailpasswordTable.email LIKE ?";
-                            queryList.add(dashboardSearchTags.emails.get(i) + "%");
-                            queryList.add("%@" + dashboardSearchTags.emails.get(i) + "%");
-                        }
-
-                        USER_SEARCH_TAG_CONDITION.append("SELECT * FROM ( ").append(QUERY)
-                                .append(" LIMIT 1000) AS emailpasswordResultTable");
-                    }
-                }
-
-                {
-                    // check if we should search through the thirdparty table
-                    if (dashboardSearchTags.shouldThirdPartyTableBeSearched()) {
-                        String QUERY = "SELECT  allAuthUsersTable.*" + " FROM " + getConfig(start).getUsersTable()
-                                + " AS allAuthUsersTable"
-                                + " JOIN " + getConfig(start).getThirdPartyUserToTenantTable()
-                                +
-                                " AS thirdPartyToTenantTable ON allAuthUsersTable.app_id = thirdPartyToTenantTable" +
-                                ".app_id AND"
-                                + " allAuthUsersTable.tenant_id = thirdPartyToTenantTable.tenant_id AND"
-                                + " allAuthUsersTable.user_id = thirdPartyToTenantTable.user_id"
-                                + " JOIN " + getConfig(start).getThirdPartyUsersTable()
-                                + " AS thirdPartyTable ON thirdPartyToTenantTable.app_id = thirdPartyTable.app_id AND"
-                                + " thirdPartyToTenantTable.user_id = thirdPartyTable.user_id";
-
-                        // check if email tag is present
-                        if (dashboardSearchTags.emails != null) {
-
-                            QUERY +=
-                                    " WHERE (thirdPartyToTenantTable.app_id = ? AND thirdPartyToTenantTable.tenant_id" +
-                                            " = ?)"
-                                            + " AND ( thirdPartyTable.email LIKE ? OR thirdPartyTable.email LIKE ?";
-                            queryList.add(tenantIdentifier.getAppId());
-                            queryList.add(tenantIdentifier.getTenantId());
-                            queryList.add(dashboardSearchTags.emails.get(0) + "%");
-                            queryList.add("%@" + dashboardSearchTags.emails.get(0) + "%");
-
-                            for (int i = 1; i < dashboardSearchTags.emails.size(); i++) {
-                                QUERY += " OR thirdPartyTable.email LIKE ? OR thirdPartyTable.email LIKE ?";
-                                queryList.add(dashboardSearchTags.emails.get(i) + "%");
-                                queryList.add("%@" + dashboardSearchTags.emails.get(i) + "%");
-                            }
-
-                            QUERY += " )";
-
-                        }
-
-                        // check if providers tag is present
-                        if (dashboardSearchTags.providers != null) {
-                            if (dashboardSearchTags.emails != null) {
-                                QUERY += " AND ";
-                            } else {
-                                QUERY += " WHERE (thirdPartyToTenantTable.app_id = ? AND thirdPartyToTenantTable" +
-                                        ".tenant_id = ?) AND ";
-                                queryList.add(tenantIdentifier.getAppId());
-                                queryList.add(tenantIdentifier.getTenantId());
-                            }
-
-                            QUERY += " ( thirdPartyTable.third_party_id LIKE ?";
-                            queryList.add(dashboardSearchTags.providers.get(0) + "%");
-                            for (int i = 1; i < dashboardSearchTags.providers.size(); i++) {
-                                QUERY += " OR thirdPartyTable.third_party_id LIKE ?";
-                                queryList.add(dashboardSearchTags.providers.get(i) + "%");
-                            }
-
-                            QUERY += " )";
-                        }
-
-                        // check if we need to append this to an existing search query
-                        if (USER_SEARCH_TAG_CONDITION.length() != 0) {
-                            USER_SEARCH_TAG_CONDITION.append(" UNION ").append("SELECT * FROM ( ").append(QUERY)
-                                    .append(" LIMIT 1000) AS thirdPartyResultTable");
-
-                        } else {
-                            USER_SEARCH_TAG_CONDITION.append("SELECT * FROM ( ").append(QUERY)
-                                    .append(" LIMIT 1000) AS thirdPartyResultTable");
-
-                        }
-                    }
-                }
-
-                {
-                    // check if we should search through the passwordless table
-                    if (dashboardSearchTags.shouldPasswordlessTableBeSearched()) {
-                        String QUERY = "SELECT  allAuthUsersTable.*" + " FROM " + getConfig(start).getUsersTable()
-                                + " AS allAuthUsersTable" +
-                                " JOIN " + getConfig(start).getPasswordlessUserToTenantTable()
-                                + " AS passwordlessTable ON allAuthUsersTable.app_id = passwordlessTable.app_id AND"
-                                + " allAuthUsersTable.tenant_id = passwordlessTable.tenant_id AND"
-                                + " allAuthUsersTable.user_id = passwordlessTable.user_id";
-
-                        // check if email tag is present
-                        if (dashboardSearchTags.emails != null) {
-
-                            QUERY = QUERY + " WHERE (passwordlessTable.app_id = ? AND passwordlessTable.tenant_id = ?)"
-                                    + " AND ( passwordlessTable.email LIKE ? OR passwordlessTable.email LIKE ?";
-                            queryList.add(tenantIdentifier.getAppId());
-                            queryList.add(tenantIdentifier.getTenantId());
-                            queryList.add(dashboardSearchTags.emails.get(0) + "%");
-                            queryList.add("%@" + dashboardSearchTags.emails.get(0) + "%");
-                            for (int i = 1; i < dashboardSearchTags.emails.size(); i++) {
-                                QUERY += " OR passwordlessTable.email LIKE ? OR passwordlessTable.email LIKE ?";
-                                queryList.add(dashboardSearchTags.emails.get(i) + "%");
-                                queryList.add("%@" + dashboardSearchTags.emails.get(i) + "%");
-                            }
-
-                            QUERY += " )";
-                        }
-
-                        // check if phone tag is present
-                        if (dashboardSearchTags.phoneNumbers != null) {
-
-                            if (dashboardSearchTags.emails != null) {
-                                QUERY += " AND ";
-                            } else {
-                                QUERY += " WHERE (passwordlessTable.app_id = ? AND passwordlessTable.tenant_id = ?) " +
-                                        "AND ";
-                                queryList.add(tenantIdentifier.getAppId());
-                                queryList.add(tenantIdentifier.getTenantId());
-                            }
-
-                            QUERY += " ( passwordlessTable.phone_number LIKE ?";
-                            queryList.add(dashboardSearchTags.phoneNumbers.get(0) + "%");
-                            for (int i = 1; i < dashboardSearchTags.phoneNumbers.size(); i++) {
-                                QUERY += " OR passwordlessTable.phone_number LIKE ?";
-                                queryList.add(dashboardSearchTags.phoneNumbers.get(i) + "%");
-                            }
-
-                            QUERY += " )";
-                        }
-
-                        // check if we need to append this to an existing search query
-                        if (USER_SEARCH_TAG_CONDITION.length() != 0) {
-                            USER_SEARCH_TAG_CONDITION.append(" UNION ").append("SELECT * FROM ( ").append(QUERY)
-                                    .append(" LIMIT 1000) AS passwordlessResultTable");
-
-                        } else {
-                            USER_SEARCH_TAG_CONDITION.append("SELECT * FROM ( ").append(QUERY)
-                                    .append(" LIMIT 1000) AS passwordlessResultTable");
-
-                        }
-                    }
-                }
-
-                if (USER_SEARCH_TAG_CONDITION.toString().length() == 0) {
-                    usersFromQuery = new ArrayList<>();
-                } else {
-
-                    String finalQuery = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined  FROM ( " + USER_SEARCH_TAG_CONDITION.toString() + " )"
-                            + " AS finalResultTable ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder + ", primary_or_recipe_user_id DESC ";
-                    usersFromQuery = execute(start, finalQuery, pst -> {
-                        for (int i = 1; i <= queryList.size(); i++) {
-                            pst.setString(i, queryList.get(i - 1));
-                        }
-                    }, result -> {
-                        List<String> temp = new ArrayList<>();
-                        while (result.next()) {
-                            temp.add(result.getString("primary_or_recipe_user_id"));
-                        }
-                        return temp;
-                    });
-                }
-            }
-
+            usersFromQuery = UserSearchQueries.searchUsers(start, tenantIdentifier, timeJoinedOrder,
+                    dashboardSearchTags);
         } else {
-            StringBuilder RECIPE_ID_CONDITION = new StringBuilder();
-            if (includeRecipeIds != null && includeRecipeIds.length > 0) {
-                RECIPE_ID_CONDITION.append("recipe_id IN (");
-                for (int i = 0; i < includeRecipeIds.length; i++) {
-
-                    RECIPE_ID_CONDITION.append("?");
-                    if (i != includeRecipeIds.length - 1) {
-                        // not the last element
-                        RECIPE_ID_CONDITION.append(",");
-                    }
-                }
-                RECIPE_ID_CONDITION.append(")");
-            }
-
+            int numberOfRecipeIds = includeRecipeIds == null ? 0 : includeRecipeIds.length;
             if (timeJoined != null && userId != null) {
-                String recipeIdCondition = RECIPE_ID_CONDITION.toString();
-                if (!recipeIdCondition.equals("")) {
-                    recipeIdCondition = recipeIdCondition + " AND";
-                }
-                String timeJoinedOrderSymbol = timeJoinedOrder.equals("ASC") ? ">" : "<";
-                String QUERY = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM " + getConfig(start).getUsersTable() + " WHERE "
-                        + recipeIdCondition + " (primary_or_recipe_user_time_joined " + timeJoinedOrderSymbol
-                        + " ? OR (primary_or_recipe_user_time_joined = ? AND primary_or_recipe_user_id <= ?)) AND app_id = ? AND tenant_id = ?"
-                        + " ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder
-                        + ", primary_or_recipe_user_id DESC LIMIT ?";
+                String QUERY = getUsersQueryTemplate(start, numberOfRecipeIds, true, timeJoinedOrder);
                 usersFromQuery = execute(start, QUERY, pst -> {
                     if (includeRecipeIds != null) {
                         for (int i = 0; i < includeRecipeIds.length; i++) {
@@ -842,13 +723,7 @@ public class GeneralQueries {
                     return temp;
                 });
             } else {
-                String recipeIdCondition = RECIPE_ID_CONDITION.toString();
-                String QUERY = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM " + getConfig(start).getUsersTable() + " WHERE ";
-                if (!recipeIdCondition.equals("")) {
-                    QUERY += recipeIdCondition + " AND";
-                }
-                QUERY += " app_id = ? AND tenant_id = ? ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder
-                        + ", primary_or_recipe_user_id DESC LIMIT ?";
+                String QUERY = getUsersQueryTemplate(start, numberOfRecipeIds, false, timeJoinedOrder);
                 usersFromQuery = execute(start, QUERY, pst -> {
                     if (includeRecipeIds != null) {
                         for (int i = 0; i < includeRecipeIds.length; i++) {
@@ -1174,7 +1049,20 @@ public class GeneralQueries {
          return result.get(0);
      }
 
-    private static List<AuthRecipeUserInfo> getPrimaryUserInfoForUserIds(Start start,
+    public static String getQueryToGetPrimaryUserInfoForUserIds(Start start, int numberOfUserIds) {
+        // app_id is repeated in both sides of the OR so that sqlite can search an index for each of them, instead of
+        // reading every row of the app
+        return "SELECT au.user_id, au.primary_or_recipe_user_id, au.is_linked_or_is_a_primary_user, au.recipe_id, aaru.tenant_id, aaru.time_joined FROM " + getConfig(start).getAppIdToUserIdTable() + " as au" +
+                " LEFT JOIN " + getConfig(start).getUsersTable() + " as aaru ON au.app_id = aaru.app_id AND au.user_id = aaru.user_id" +
+                " WHERE au.primary_or_recipe_user_id IN (SELECT primary_or_recipe_user_id FROM " +
+                getConfig(start).getAppIdToUserIdTable() + " WHERE (app_id = ? AND user_id IN ("
+                + Utils.generateCommaSeperatedQuestionMarks(numberOfUserIds) +
+                ")) OR (app_id = ? AND primary_or_recipe_user_id IN (" +
+                Utils.generateCommaSeperatedQuestionMarks(numberOfUserIds) +
+                "))) AND au.app_id = ?";
+    }
+
+    public static List<AuthRecipeUserInfo> getPrimaryUserInfoForUserIds(Start start,
                                                                           AppIdentifier appIdentifier,
                                                                            List<String> userIds)
             throws StorageQueryException, SQLException {
@@ -1186,28 +1074,22 @@ public class GeneralQueries {
          // which is linked to a primary user ID in which case it won't be in the primary_or_recipe_user_id column,
          // or the input may have a primary user ID whose recipe user ID was removed, so it won't be in the user_id
          // column
-        String QUERY = "SELECT au.user_id, au.primary_or_recipe_user_id, au.is_linked_or_is_a_primary_user, au.recipe_id, aaru.tenant_id, aaru.time_joined FROM " + getConfig(start).getAppIdToUserIdTable() + " as au " +
-                "LEFT JOIN " + getConfig(start).getUsersTable() + " as aaru ON au.app_id = aaru.app_id AND au.user_id = aaru.user_id" +
-                " WHERE au.primary_or_recipe_user_id IN (SELECT primary_or_recipe_user_id FROM " +
-                getConfig(start).getAppIdToUserIdTable() + " WHERE (user_id IN ("
-                + Utils.generateCommaSeperatedQuestionMarks(userIds.size()) +
-                ") OR primary_or_recipe_user_id IN (" +
-                Utils.generateCommaSeperatedQuestionMarks(userIds.size()) +
-                ")) AND app_id = ?) AND au.app_id = ?";
+        String QUERY = getQueryToGetPrimaryUserInfoForUserIds(start, userIds.size());
 
         List<AllAuthRecipeUsersResultHolder> allAuthUsersResult = execute(start, QUERY, pst -> {
              // IN user_id
-             int index = 1;
+             pst.setString(1, appIdentifier.getAppId());
+             int index = 2;
              for (int i = 0; i < userIds.size(); i++, index++) {
                  pst.setString(index, userIds.get(i));
              }
              // IN primary_or_recipe_user_id
+             pst.setString(index++, appIdentifier.getAppId());
              for (int i = 0; i < userIds.size(); i++, index++) {
                  pst.setString(index, userIds.get(i));
              }
              // for app_id
              pst.setString(index, appIdentifier.getAppId());
-             pst.setString(index + 1, appIdentifier.getAppId());
         }, result -> {
             List<AllAuthRecipeUsersResultHolder> parsedResult = new ArrayList<>();
             while (result.next()) {
@@ -1278,28 +1160,22 @@ public class GeneralQueries {
         // which is linked to a primary user ID in which case it won't be in the primary_or_recipe_user_id column,
         // or the input may have a primary user ID whose recipe user ID was removed, so it won't be in the user_id
         // column
-        String QUERY = "SELECT au.user_id, au.primary_or_recipe_user_id, au.is_linked_or_is_a_primary_user, au.recipe_id, aaru.tenant_id, aaru.time_joined FROM " + getConfig(start).getAppIdToUserIdTable() + " as au" +
-                " LEFT JOIN " + getConfig(start).getUsersTable() + " as aaru ON au.app_id = aaru.app_id AND au.user_id = aaru.user_id" +
-                " WHERE au.primary_or_recipe_user_id IN (SELECT primary_or_recipe_user_id FROM " +
-                getConfig(start).getAppIdToUserIdTable() + " WHERE (user_id IN ("
-                + Utils.generateCommaSeperatedQuestionMarks(userIds.size()) +
-                ") OR primary_or_recipe_user_id IN (" +
-                Utils.generateCommaSeperatedQuestionMarks(userIds.size()) +
-                ")) AND app_id = ?) AND au.app_id = ?";
+        String QUERY = getQueryToGetPrimaryUserInfoForUserIds(start, userIds.size());
 
         List<AllAuthRecipeUsersResultHolder> allAuthUsersResult = execute(sqlCon, QUERY, pst -> {
             // IN user_id
-            int index = 1;
+            pst.setString(1, appIdentifier.getAppId());
+            int index = 2;
             for (int i = 0; i < userIds.size(); i++, index++) {
                 pst.setString(index, userIds.get(i));
             }
             // IN primary_or_recipe_user_id
+            pst.setString(index++, appIdentifier.getAppId());
             for (int i = 0; i < userIds.size(); i++, index++) {
                 pst.setString(index, userIds.get(i));
             }
             // for app_id
             pst.setString(index, appIdentifier.getAppId());
-            pst.setString(index + 1, appIdentifier.getAppId());
         }, result -> {
             List<AllAuthRecipeUsersResultHolder> parsedResult = new ArrayList<>();
             while (result.next()) {
@@ -1480,6 +1356,15 @@ public class GeneralQueries {
         return tableNames.toArray(new String[0]);
     }
 
+    private static boolean doesTableHaveColumn(Start start, String tableName, String columnName)
+            throws SQLException, StorageQueryException {
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            try (ResultSet resultSet = con.getMetaData().getColumns(null, null, tableName, columnName)) {
+                return resultSet.next();
+            }
+        }
+    }
+
     @TestOnly
     public static String[] getAllTablesInTheDatabaseThatHasDataForAppId(Start start, String appId)
             throws SQLException, StorageQueryException {
@@ -1490,6 +1375,10 @@ public class GeneralQueries {
 
         List<String> result = new ArrayList<>();
         for (String tableName : tableNames) {
+            if (!doesTableHaveColumn(start, tableName, "app_id")) {
+                // such as tenant_configs_version, which is not per app
+                continue;
+            }
             String QUERY = "SELECT 1 FROM " + tableName + " WHERE app_id = ?";
 
             boolean hasRows = execute(start, QUERY, pst -> {
@@ -33,6 +33,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
 
+import static io.supertokens.inmemorydb.PreparedStatementValueSetter.NO_OP_SETTER;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
 
 public class MultitenancyQueries {
@@ -52,6 +54,19 @@ public class MultitenancyQueries {
         // @formatter:on
     }
 
+    // a single row table with a counter that is increased on every change to the tenant configs. See
+    // TenantConfigsVersionStorage
+    static String getQueryToCreateTenantConfigsVersionTable(Start start) {
+        String tableName = Config.getConfig(start).getTenantConfigsVersionTable();
+        // @formatter:off
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                + "id INTEGER CHECK (id = 0),"
+                + "version BIGINT NOT NULL,"
+                + "PRIMARY KEY (id)"
+                + ");";
+        // @formatter:on
+    }
+
     public static String getQueryToCreateFirstFactorsTable(Start start) {
         String tableName = Config.getConfig(start).getTenantFirstFactorsTable();
         // @formatter:off
@@ -150,6 +165,25 @@ public class MultitenancyQueries {
 
         MfaSqlHelper.createFirstFactors(start, sqlCon, tenantConfig.tenantIdentifier, tenantConfig.firstFactors);
         MfaSqlHelper.createRequiredSecondaryFactors(start, sqlCon, tenantConfig.tenantIdentifier, tenantConfig.requiredSecondaryFactors);
+
+        incrementTenantConfigsVersion(start, sqlCon);
+    }
+
+    private static void incrementTenantConfigsVersion(Start start, Connection sqlCon) throws SQLException {
+        String QUERY = "INSERT INTO " + Config.getConfig(start).getTenantConfigsVersionTable()
+                + " (id, version) VALUES (0, 1) ON CONFLICT (id) DO UPDATE SET version = version + 1";
+        update(sqlCon, QUERY, NO_OP_SETTER);
+    }
+
+    public static long getTenantConfigsVersion(Start start) throws SQLException, StorageQueryException {
+        String QUERY = "SELECT version FROM " + Config.getConfig(start).getTenantConfigsVersionTable()
+                + " WHERE id = 0";
+        return execute(start, QUERY, NO_OP_SETTER, result -> {
+            if (result.next()) {
+                return result.getLong("version");
+            }
+            return 0L;
+        });
     }
 
     public static void createTenantConfig(Start start, TenantConfig tenantConfig) throws StorageQueryException, StorageTransactionLogicException {
@@ -170,19 +204,30 @@ public class MultitenancyQueries {
 
     public static boolean deleteTenantConfig(Start start, TenantIdentifier tenantIdentifier) throws StorageQueryException {
         try {
-            String QUERY = "DELETE FROM " + Config.getConfig(start).getTenantConfigsTable()
-                    + " WHERE connection_uri_domain = ? AND app_id = ? AND tenant_id = ?";
+            return start.startTransaction(con -> {
+                Connection sqlCon = (Connection) con.getConnection();
+                try {
+                    String QUERY = "DELETE FROM " + Config.getConfig(start).getTenantConfigsTable()
+                            + " WHERE connection_uri_domain = ? AND app_id = ? AND tenant_id = ?";
 
-            int numRows = update(start, QUERY, pst -> {
-                pst.setString(1, tenantIdentifier.getConnectionUriDomain());
-                pst.setString(2, tenantIdentifier.getAppId());
-                pst.setString(3, tenantIdentifier.getTenantId());
-            });
+                    int numRows = update(sqlCon, QUERY, pst -> {
+                        pst.setString(1, tenantIdentifier.getConnectionUriDomain());
+                        pst.setString(2, tenantIdentifier.getAppId());
+                        pst.setString(3, tenantIdentifier.getTenantId());
+                    });
 
-            return numRows > 0;
+                    if (numRows > 0) {
+                        incrementTenantConfigsVersion(start, sqlCon);
+                    }
+                    sqlCon.commit();
 
-        } catch (SQLException throwables) {
-            throw new StorageQueryException(throwables);
+                    return numRows > 0;
+                } catch (SQLException throwables) {
+                    throw new StorageTransactionLogicException(throwables);
+                }
+            });
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
         }
     }
 
@@ -60,6 +60,16 @@ public class PasswordlessQueries {
                 + ");";
     }
 
+    static String getQueryToCreatePasswordlessUsersEmailIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS passwordless_users_email_index ON "
+                + Config.getConfig(start).getPasswordlessUsersTable() + "(app_id, email);";
+    }
+
+    static String getQueryToCreatePasswordlessUsersPhoneNumberIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS passwordless_users_phone_number_index ON "
+                + Config.getConfig(start).getPasswordlessUsersTable() + "(app_id, phone_number);";
+    }
+
     static String getQueryToCreatePasswordlessUserToTenantTable(Start start) {
         String passwordlessUserToTenantTable = Config.getConfig(start).getPasswordlessUserToTenantTable();
         // @formatter:off
@@ -422,6 +432,7 @@ public class PasswordlessQueries {
                         pst.setString(5, phoneNumber);
                     });
                 }
+                UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), id);
                 UserInfoPartial userInfo = new UserInfoPartial(id, email, phoneNumber, timeJoined);
                 fillUserInfoWithTenantIds_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
                 fillUserInfoWithVerified_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
@@ -530,11 +541,13 @@ public class PasswordlessQueries {
             String QUERY = "UPDATE " + Config.getConfig(start).getPasswordlessUsersTable()
                     + " SET email = ? WHERE app_id = ? AND user_id = ?";
 
-            return update(con, QUERY, pst -> {
+            int numRows = update(con, QUERY, pst -> {
                 pst.setString(1, email);
                 pst.setString(2, appIdentifier.getAppId());
                 pst.setString(3, userId);
             });
+            UserSearchQueries.updateSearchTags_Transaction(start, con, appIdentifier, userId);
+            return numRows;
         }
     }
 
@@ -555,11 +568,13 @@ public class PasswordlessQueries {
             String QUERY = "UPDATE " + Config.getConfig(start).getPasswordlessUsersTable()
                     + " SET phone_number = ? WHERE app_id = ? AND user_id = ?";
 
-            return update(con, QUERY, pst -> {
+            int numRows = update(con, QUERY, pst -> {
                 pst.setString(1, phoneNumber);
                 pst.setString(2, appIdentifier.getAppId());
                 pst.setString(3, userId);
             });
+            UserSearchQueries.updateSearchTags_Transaction(start, con, appIdentifier, userId);
+            return numRows;
         }
     }
 
@@ -582,12 +597,16 @@ public class PasswordlessQueries {
         }
     }
 
+    public static String getQueryToGetDevicesByEmail(Start start) {
+        return "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
+                + getConfig(start).getPasswordlessDevicesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND email = ?";
+    }
+
     public static PasswordlessDevice[] getDevicesByEmail(Start start, TenantIdentifier tenantIdentifier,
                                                          @Nonnull String email)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
-                + getConfig(start).getPasswordlessDevicesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND email = ?";
+        String QUERY = getQueryToGetDevicesByEmail(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -639,11 +658,15 @@ public class PasswordlessQueries {
         }
     }
 
-    public static PasswordlessCode[] getCodesBefore(Start start, TenantIdentifier tenantIdentifier, long time)
-            throws StorageQueryException, SQLException {
-        String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
+    public static String getQueryToGetCodesBefore(Start start) {
+        return "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
                 + getConfig(start).getPasswordlessCodesTable()
                 + " WHERE app_id = ? AND tenant_id = ? AND created_at < ?";
+    }
+
+    public static PasswordlessCode[] getCodesBefore(Start start, TenantIdentifier tenantIdentifier, long time)
+            throws StorageQueryException, SQLException {
+        String QUERY = getQueryToGetCodesBefore(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -768,14 +791,18 @@ public class PasswordlessQueries {
         });
     }
 
+    public static String getQueryToLockEmail(Start start) {
+        return "SELECT user_id FROM " + getConfig(start).getPasswordlessUsersTable() +
+                " WHERE app_id = ? AND email = ?";
+    }
+
     public static List<String> lockEmail_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                      String email) throws StorageQueryException, SQLException {
         // normally the query below will use a for update, but sqlite doesn't support it.
         ((ConnectionWithLocks) con).lock(
                 appIdentifier.getAppId() + "~" + email +
                         Config.getConfig(start).getPasswordlessUsersTable());
-        String QUERY = "SELECT user_id FROM " + getConfig(start).getPasswordlessUsersTable() +
-                " WHERE app_id = ? AND email = ?";
+        String QUERY = getQueryToLockEmail(start);
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, email);
@@ -788,6 +815,11 @@ public class PasswordlessQueries {
         });
     }
 
+    public static String getQueryToLockPhone(Start start) {
+        return "SELECT user_id FROM " + getConfig(start).getPasswordlessUsersTable() +
+                " WHERE app_id = ? AND phone_number = ?";
+    }
+
     public static List<String> lockPhone_Transaction(Start start, Connection con,
                                                AppIdentifier appIdentifier,
                                                String phoneNumber)
@@ -797,8 +829,7 @@ public class PasswordlessQueries {
                 appIdentifier.getAppId() + "~" + phoneNumber +
                         Config.getConfig(start).getPasswordlessUsersTable());
 
-        String QUERY = "SELECT user_id FROM " + getConfig(start).getPasswordlessUsersTable() +
-                " WHERE app_id = ? AND phone_number = ?";
+        String QUERY = getQueryToLockPhone(start);
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, phoneNumber);
@@ -938,6 +969,8 @@ public class PasswordlessQueries {
                 pst.setString(5, userInfo.phoneNumber);
             });
 
+            UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(),
+                    userInfo.id);
             return numRows > 0;
         }
     }
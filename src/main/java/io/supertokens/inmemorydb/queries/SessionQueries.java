@@ -76,6 +76,11 @@ public class SessionQueries {
                 + Config.getConfig(start).getSessionInfoTable() + "(expires_at);";
     }
 
+    static String getQueryToCreateSessionUserIdIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_info_user_id_index ON "
+                + Config.getConfig(start).getSessionInfoTable() + "(app_id, user_id);";
+    }
+
     public static void createNewSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle,
                                         String userId, String refreshTokenHash2,
                                         JsonObject userDataInDatabase, long expiry, JsonObject userDataInJWT,
@@ -240,11 +245,15 @@ public class SessionQueries {
         return numRows > 0;
     }
 
+    public static String getQueryToGetAllNonExpiredSessionHandlesForUserInTenant(Start start) {
+        return "SELECT session_handle FROM " + getConfig(start).getSessionInfoTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND expires_at >= ?";
+    }
+
     public static String[] getAllNonExpiredSessionHandlesForUser(Start start, TenantIdentifier tenantIdentifier,
                                                                  String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle FROM " + getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND expires_at >= ?";
+        String QUERY = getQueryToGetAllNonExpiredSessionHandlesForUserInTenant(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -264,11 +273,15 @@ public class SessionQueries {
         });
     }
 
+    public static String getQueryToGetAllNonExpiredSessionHandlesForUser(Start start) {
+        return "SELECT session_handle FROM " + getConfig(start).getSessionInfoTable()
+                + " WHERE app_id = ? AND user_id = ? AND expires_at >= ?";
+    }
+
     public static String[] getAllNonExpiredSessionHandlesForUser(Start start, AppIdentifier appIdentifier,
                                                                  String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle FROM " + getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND user_id = ? AND expires_at >= ?";
+        String QUERY = getQueryToGetAllNonExpiredSessionHandlesForUser(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -287,12 +300,26 @@ public class SessionQueries {
         });
     }
 
+    public static String getQueryToDeleteAllExpiredSessions(Start start) {
+        return "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE expires_at <= ?";
+    }
+
     public static void deleteAllExpiredSessions(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE expires_at <= ?";
+        String QUERY = getQueryToDeleteAllExpiredSessions(start);
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
+    public static int deleteExpiredSessions(Start start, int batchSize) throws SQLException, StorageQueryException {
+        String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE rowid IN ("
+                + "SELECT rowid FROM " + getConfig(start).getSessionInfoTable() + " WHERE expires_at <= ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis());
+            pst.setInt(2, batchSize);
+        });
+    }
+
     public static int updateSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle,
                                     @Nullable JsonObject sessionData,
                                     @Nullable JsonObject jwtPayload) throws SQLException, StorageQueryException {
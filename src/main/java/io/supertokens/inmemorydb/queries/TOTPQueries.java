@@ -188,10 +188,14 @@ public class TOTPQueries {
         });
     }
 
+    public static String getQueryToGetDevices(Start start) {
+        return "SELECT * FROM " + Config.getConfig(start).getTotpUserDevicesTable()
+                + " WHERE app_id = ? AND user_id = ?;";
+    }
+
     public static TOTPDevice[] getDevices(Start start, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getTotpUserDevicesTable()
-                + " WHERE app_id = ? AND user_id = ?;";
+        String QUERY = getQueryToGetDevices(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -211,8 +215,7 @@ public class TOTPQueries {
 
         ((ConnectionWithLocks) con).lock(appIdentifier.getAppId() + "~" + userId + Config.getConfig(start).getTotpUserDevicesTable());
 
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getTotpUserDevicesTable()
-                + " WHERE app_id = ? AND user_id = ?;";
+        String QUERY = getQueryToGetDevices(start);
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -271,15 +274,34 @@ public class TOTPQueries {
         });
     }
 
+    public static String getQueryToRemoveExpiredCodes(Start start) {
+        return "DELETE FROM " + Config.getConfig(start).getTotpUsedCodesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND expiry_time_ms < ?;";
+    }
+
     public static int removeExpiredCodes(Start start, TenantIdentifier tenantIdentifier, long expiredBefore)
             throws StorageQueryException, SQLException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getTotpUsedCodesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND expiry_time_ms < ?;";
+        String QUERY = getQueryToRemoveExpiredCodes(start);
+
+        return update(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setLong(3, expiredBefore);
+        });
+    }
+
+    public static int removeExpiredCodes(Start start, TenantIdentifier tenantIdentifier, long expiredBefore,
+                                         int batchSize)
+            throws StorageQueryException, SQLException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getTotpUsedCodesTable() + " WHERE rowid IN ("
+                + "SELECT rowid FROM " + Config.getConfig(start).getTotpUsedCodesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND expiry_time_ms < ? LIMIT ?);";
 
         return update(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             pst.setLong(3, expiredBefore);
+            pst.setInt(4, batchSize);
         });
     }
 
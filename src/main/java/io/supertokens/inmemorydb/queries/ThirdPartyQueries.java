@@ -144,6 +144,8 @@ public class ThirdPartyQueries {
                     });
                 }
 
+                UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), id);
+
                 UserInfoPartial userInfo = new UserInfoPartial(id, email, thirdParty, timeJoined);
                 fillUserInfoWithTenantIds_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
                 fillUserInfoWithVerified_transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(), userInfo);
@@ -188,6 +190,12 @@ public class ThirdPartyQueries {
         }
     }
 
+    public static String getQueryToLockEmail(Start start) {
+        return "SELECT tp.user_id as user_id "
+                + "FROM " + getConfig(start).getThirdPartyUsersTable() + " AS tp" +
+                " WHERE tp.app_id = ? AND tp.email = ?";
+    }
+
     public static List<String> lockEmail_Transaction(Start start, Connection con,
                                                               AppIdentifier appIdentifier,
                                                               String email) throws SQLException, StorageQueryException {
@@ -196,9 +204,7 @@ public class ThirdPartyQueries {
                 appIdentifier.getAppId() + "~" + email +
                         Config.getConfig(start).getThirdPartyUsersTable());
 
-        String QUERY = "SELECT tp.user_id as user_id "
-                + "FROM " + getConfig(start).getThirdPartyUsersTable() + " AS tp" +
-                " WHERE tp.app_id = ? AND tp.email = ?";
+        String QUERY = getQueryToLockEmail(start);
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -212,6 +218,12 @@ public class ThirdPartyQueries {
         });
     }
 
+    public static String getQueryToLockThirdPartyInfo(Start start) {
+        return "SELECT user_id " +
+                " FROM " + getConfig(start).getThirdPartyUsersTable() +
+                " WHERE app_id = ? AND third_party_id = ? AND third_party_user_id = ?";
+    }
+
     public static List<String> lockThirdPartyInfo_Transaction(Start start, Connection con,
                                                               AppIdentifier appIdentifier,
                                                               String thirdPartyId, String thirdPartyUserId)
@@ -222,9 +234,7 @@ public class ThirdPartyQueries {
                         Config.getConfig(start).getThirdPartyUsersTable());
 
         // in psql / mysql dbs, this will lock the rows that are in both the tables that meet the ON criteria only.
-        String QUERY = "SELECT user_id " +
-                " FROM " + getConfig(start).getThirdPartyUsersTable() +
-                " WHERE app_id = ? AND third_party_id = ? AND third_party_user_id = ?";
+        String QUERY = getQueryToLockThirdPartyInfo(start);
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -383,6 +393,22 @@ public class ThirdPartyQueries {
             pst.setString(3, thirdPartyId);
             pst.setString(4, thirdPartyUserId);
         });
+
+        String USER_ID_QUERY = "SELECT user_id FROM " + getConfig(start).getThirdPartyUsersTable()
+                + " WHERE app_id = ? AND third_party_id = ? AND third_party_user_id = ?";
+        String userId = execute(con, USER_ID_QUERY, pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            pst.setString(2, thirdPartyId);
+            pst.setString(3, thirdPartyUserId);
+        }, result -> {
+            if (result.next()) {
+                return result.getString("user_id");
+            }
+            return null;
+        });
+        if (userId != null) {
+            UserSearchQueries.updateSearchTags_Transaction(start, con, appIdentifier, userId);
+        }
     }
 
     private static UserInfoPartial getUserInfoUsingUserId_Transaction(Start start, Connection con,
@@ -492,6 +518,8 @@ public class ThirdPartyQueries {
                 pst.setString(5, userInfo.thirdParty.userId);
             });
 
+            UserSearchQueries.updateSearchTags_Transaction(start, sqlCon, tenantIdentifier.toAppIdentifier(),
+                    userInfo.id);
             return numRows > 0;
         }
     }
@@ -30,6 +30,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
@@ -82,10 +83,14 @@ public class UserIdMappingQueries {
         });
     }
 
+    public static String getQueryToGetUserIdMappingWithExternalUserId(Start start) {
+        return "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
+                + " WHERE app_id = ? AND external_user_id = ?";
+    }
+
     public static UserIdMapping getUserIdMappingWithExternalUserId(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE app_id = ? AND external_user_id = ?";
+        String QUERY = getQueryToGetUserIdMappingWithExternalUserId(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -98,10 +103,14 @@ public class UserIdMappingQueries {
         });
     }
 
+    public static String getQueryToGetUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(Start start) {
+        return "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
+                + " WHERE app_id = ? AND (supertokens_user_id = ? OR external_user_id = ?)";
+    }
+
     public static UserIdMapping[] getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(Start start,
                                                                                               AppIdentifier appIdentifier, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE app_id = ? AND (supertokens_user_id = ? OR external_user_id = ?)";
+        String QUERY = getQueryToGetUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -119,8 +128,7 @@ public class UserIdMappingQueries {
 
     public static UserIdMapping[] getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId_Transaction(Start start, Connection sqlCon,
                                                                                               AppIdentifier appIdentifier, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE app_id = ? AND (supertokens_user_id = ? OR external_user_id = ?)";
+        String QUERY = getQueryToGetUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(start);
 
         return execute(sqlCon, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -172,6 +180,38 @@ public class UserIdMappingQueries {
         });
     }
 
+    public static Map<String, String> getUserIdMappingForExternalUserIds(Start start, AppIdentifier appIdentifier,
+                                                                         List<String> externalUserIds)
+            throws SQLException, StorageQueryException {
+        if (externalUserIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        StringBuilder QUERY = new StringBuilder(
+                "SELECT supertokens_user_id, external_user_id FROM " + Config.getConfig(start).getUserIdMappingTable()
+                        + " WHERE app_id = ? AND external_user_id IN (");
+        for (int i = 0; i < externalUserIds.size(); i++) {
+            QUERY.append("?");
+            if (i != externalUserIds.size() - 1) {
+                // not the last element
+                QUERY.append(",");
+            }
+        }
+        QUERY.append(")");
+        return execute(start, QUERY.toString(), pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            for (int i = 0; i < externalUserIds.size(); i++) {
+                // i+2 cause this starts with 1 and not 0, and 1 is appId
+                pst.setString(i + 2, externalUserIds.get(i));
+            }
+        }, result -> {
+            Map<String, String> superTokensUserIds = new HashMap<>();
+            while (result.next()) {
+                superTokensUserIds.put(result.getString("external_user_id"), result.getString("supertokens_user_id"));
+            }
+            return superTokensUserIds;
+        });
+    }
+
     public static HashMap<String, String> getUserIdMappingWithUserIds_Transaction(Start start, Connection sqlCon,
                                                                                   AppIdentifier appIdentifier,
                                                                                   List<String> userIds)
@@ -283,8 +323,7 @@ public class UserIdMappingQueries {
 
     public static UserIdMapping getUserIdMappingWithExternalUserId_Transaction(Start start, Connection sqlCon, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE app_id = ? AND external_user_id = ?";
+        String QUERY = getQueryToGetUserIdMappingWithExternalUserId(start);
 
         return execute(sqlCon, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -16,17 +16,24 @@
 
 package io.supertokens.inmemorydb.queries;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.inmemorydb.ConnectionWithLocks;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
@@ -34,6 +41,10 @@ import static io.supertokens.inmemorydb.config.Config.getConfig;
 
 public class UserMetadataQueries {
 
+    // each key of an update takes up to 3 parameters, twice, so larger updates are merged by the core instead, to stay
+    // below the limit of 999 parameters per query
+    private static final int MAX_KEYS_TO_MERGE = 150;
+
     public static String getQueryToCreateUserMetadataTable(Start start) {
         String tableName = Config.getConfig(start).getUserMetadataTable();
         // @formatter:off
@@ -86,13 +97,17 @@ public class UserMetadataQueries {
         });
     }
 
+    public static String getQueryToGetUserMetadata(Start start) {
+        return "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable()
+                + " WHERE app_id = ? AND user_id = ?";
+    }
+
     public static JsonObject getUserMetadata_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                          String userId)
             throws SQLException, StorageQueryException {
         ((ConnectionWithLocks) con).lock(appIdentifier.getAppId() + "~" + userId + Config.getConfig(start).getUserMetadataTable());
 
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueryToGetUserMetadata(start);
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
@@ -105,10 +120,43 @@ public class UserMetadataQueries {
         });
     }
 
+    public static Map<String, JsonObject> getUserMetadataForUsers(Start start, AppIdentifier appIdentifier,
+                                                                  List<String> userIds)
+            throws SQLException, StorageQueryException {
+        if (userIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        StringBuilder QUERY = new StringBuilder("SELECT user_id, user_metadata FROM "
+                + getConfig(start).getUserMetadataTable() + " WHERE app_id = ? AND user_id IN (");
+        for (int i = 0; i < userIds.size(); i++) {
+            QUERY.append("?");
+            if (i != userIds.size() - 1) {
+                // not the last element
+                QUERY.append(",");
+            }
+        }
+        QUERY.append(")");
+
+        return execute(start, QUERY.toString(), pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            for (int i = 0; i < userIds.size(); i++) {
+                // i+2 cause this starts with 1 and not 0, and 1 is appId
+                pst.setString(i + 2, userIds.get(i));
+            }
+        }, result -> {
+            Map<String, JsonObject> metadata = new HashMap<>();
+            JsonParser jp = new JsonParser();
+            while (result.next()) {
+                metadata.put(result.getString("user_id"),
+                        jp.parse(result.getString("user_metadata")).getAsJsonObject());
+            }
+            return metadata;
+        });
+    }
+
     public static JsonObject getUserMetadata(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueryToGetUserMetadata(start);
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
@@ -120,4 +168,96 @@ public class UserMetadataQueries {
             return null;
         });
     }
+
+    /**
+     * Shallow merges the update into the metadata of the user with one upsert, using the json functions of SQLite,
+     * so that the metadata is not read and written back by the core. Returns null, without changing anything, if the
+     * update has more keys than fit in one query, or a key that cannot be used in a json path (one with a double
+     * quote).
+     */
+    public static JsonObject mergeUserMetadata(Start start, AppIdentifier appIdentifier, String userId,
+                                               JsonObject metadataUpdate, int maxSizeInBytes)
+            throws StorageQueryException, StorageTransactionLogicException {
+        if (metadataUpdate.size() > MAX_KEYS_TO_MERGE) {
+            return null;
+        }
+        for (String key : metadataUpdate.keySet()) {
+            if (key.contains("\"")) {
+                return null;
+            }
+        }
+
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                // the same lock as getUserMetadata_Transaction, so that an update that is merged by the core at the
+                // same time is not lost
+                ((ConnectionWithLocks) sqlCon).lock(
+                        appIdentifier.getAppId() + "~" + userId + Config.getConfig(start).getUserMetadataTable());
+
+                List<String> params = new ArrayList<>();
+                params.add(appIdentifier.getAppId());
+                params.add(userId);
+                String insertExpression = getMergeExpression("'{}'", metadataUpdate, params);
+                String updateExpression = getMergeExpression("user_metadata", metadataUpdate, params);
+                String QUERY = "INSERT INTO " + getConfig(start).getUserMetadataTable()
+                        + "(app_id, user_id, user_metadata) VALUES(?, ?, " + insertExpression + ") "
+                        + "ON CONFLICT(app_id, user_id) DO UPDATE SET user_metadata = " + updateExpression;
+                update(sqlCon, QUERY, pst -> {
+                    for (int i = 0; i < params.size(); i++) {
+                        pst.setString(i + 1, params.get(i));
+                    }
+                });
+
+                String SELECT_QUERY = "SELECT user_metadata, length(CAST(user_metadata AS BLOB)) AS size FROM "
+                        + getConfig(start).getUserMetadataTable() + " WHERE app_id = ? AND user_id = ?";
+                String metadata = execute(sqlCon, SELECT_QUERY, pst -> {
+                    pst.setString(1, appIdentifier.getAppId());
+                    pst.setString(2, userId);
+                }, result -> {
+                    result.next();
+                    if (maxSizeInBytes > 0 && result.getLong("size") > maxSizeInBytes) {
+                        return null;
+                    }
+                    return result.getString("user_metadata");
+                });
+                if (metadata == null) {
+                    // rolls back the update
+                    throw new StorageTransactionLogicException(new UserMetadataTooLargeException(maxSizeInBytes));
+                }
+
+                sqlCon.commit();
+                return new JsonParser().parse(metadata).getAsJsonObject();
+            } catch (SQLException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+        });
+    }
+
+    // removes all the keys of the update from the metadata, and then sets the ones whose value is not null
+    private static String getMergeExpression(String metadata, JsonObject metadataUpdate, List<String> params) {
+        if (metadataUpdate.size() == 0) {
+            return metadata;
+        }
+        StringBuilder removeExpression = new StringBuilder("json_remove(" + metadata);
+        for (String key : metadataUpdate.keySet()) {
+            removeExpression.append(", ?");
+            params.add("$.\"" + key + "\"");
+        }
+        removeExpression.append(")");
+
+        StringBuilder setExpression = new StringBuilder("json_set(" + removeExpression);
+        boolean hasValuesToSet = false;
+        for (Map.Entry<String, JsonElement> entry : metadataUpdate.entrySet()) {
+            if (!entry.getValue().isJsonNull()) {
+                setExpression.append(", ?, json(?)");
+                params.add("$.\"" + entry.getKey() + "\"");
+                params.add(entry.getValue().toString());
+                hasValuesToSet = true;
+            }
+        }
+        setExpression.append(")");
+
+        return hasValuesToSet ? setExpression.toString() : removeExpression.toString();
+    }
 }
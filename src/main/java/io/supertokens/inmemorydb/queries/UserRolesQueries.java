@@ -28,6 +28,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
@@ -81,8 +84,17 @@ public class UserRolesQueries {
     }
 
     static String getQueryToCreateUserRolesRoleIndex(Start start) {
+        // user_id is included so that this index covers the users for role query. Else sqlite prefers to search the
+        // (covering) primary key index using just the app_id and tenant_id.
         return "CREATE INDEX user_roles_role_index ON " + Config.getConfig(start).getUserRolesTable()
-                + "(app_id, tenant_id, role);";
+                + "(app_id, tenant_id, role, user_id);";
+    }
+
+    static String getQueryToCreateUserRolesUserIdIndex(Start start) {
+        // role is included so that this index covers the roles for user query. Else sqlite prefers to search the
+        // (covering) primary key index using just the app_id, which reads every row of the app.
+        return "CREATE INDEX IF NOT EXISTS user_roles_user_id_index ON " + Config.getConfig(start).getUserRolesTable()
+                + "(app_id, user_id, tenant_id, role);";
     }
 
     public static boolean createNewRoleOrDoNothingIfExists_Transaction(Start start, Connection con,
@@ -118,12 +130,13 @@ public class UserRolesQueries {
             return start.startTransaction(con -> {
                 // Row lock must be taken to delete the role, otherwise the table may be locked for delete
                 Connection sqlCon = (Connection) con.getConnection();
-                ((ConnectionWithLocks) sqlCon).lock(appIdentifier.getAppId() + "~" + role + Config.getConfig(start).getRolesTable());
 
                 String QUERY = "DELETE FROM " + getConfig(start).getRolesTable()
                         + " WHERE app_id = ? AND role = ? ;";
 
                 try {
+                    ((ConnectionWithLocks) sqlCon).lock(
+                            appIdentifier.getAppId() + "~" + role + Config.getConfig(start).getRolesTable());
                     return update(sqlCon, QUERY, pst -> {
                         pst.setString(1, appIdentifier.getAppId());
                         pst.setString(2, role);
@@ -187,10 +200,14 @@ public class UserRolesQueries {
         });
     }
 
+    public static String getQueryToGetRolesForUser(Start start) {
+        return "SELECT role FROM " + getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? ;";
+    }
+
     public static String[] getRolesForUser(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? ;";
+        String QUERY = getQueryToGetRolesForUser(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -205,10 +222,14 @@ public class UserRolesQueries {
         });
     }
 
+    public static String getQueryToGetRolesForUserInApp(Start start) {
+        return "SELECT role FROM " + getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND user_id = ? ;";
+    }
+
     public static String[] getRolesForUser(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND user_id = ? ;";
+        String QUERY = getQueryToGetRolesForUserInApp(start);
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -222,6 +243,68 @@ public class UserRolesQueries {
         });
     }
 
+    public static Map<String, List<String>> getRolesAndPermissionsForUser(Start start,
+                                                                          TenantIdentifier tenantIdentifier,
+                                                                          String userId)
+            throws SQLException, StorageQueryException {
+        // a role without permissions is returned as one row with a null permission
+        String QUERY = "SELECT ur.role, rp.permission FROM " + getConfig(start).getUserRolesTable() + " AS ur"
+                + " LEFT JOIN " + getConfig(start).getUserRolesPermissionsTable() + " AS rp"
+                + " ON ur.app_id = rp.app_id AND ur.role = rp.role"
+                + " WHERE ur.app_id = ? AND ur.tenant_id = ? AND ur.user_id = ? ;";
+
+        return execute(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setString(3, userId);
+        }, result -> {
+            Map<String, List<String>> rolesAndPermissions = new LinkedHashMap<>();
+            while (result.next()) {
+                List<String> permissions = rolesAndPermissions.computeIfAbsent(result.getString("role"),
+                        k -> new ArrayList<>());
+                String permission = result.getString("permission");
+                if (permission != null) {
+                    permissions.add(permission);
+                }
+            }
+            return rolesAndPermissions;
+        });
+    }
+
+    public static Map<String, List<String>> getRolesForUsers(Start start, TenantIdentifier tenantIdentifier,
+                                                             List<String> userIds)
+            throws SQLException, StorageQueryException {
+        if (userIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        StringBuilder QUERY = new StringBuilder("SELECT user_id, role FROM " + getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND user_id IN (");
+        for (int i = 0; i < userIds.size(); i++) {
+            QUERY.append("?");
+            if (i != userIds.size() - 1) {
+                // not the last element
+                QUERY.append(",");
+            }
+        }
+        QUERY.append(");");
+
+        return execute(start, QUERY.toString(), pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            for (int i = 0; i < userIds.size(); i++) {
+                // i+3 cause this starts with 1 and not 0, and 1 and 2 are the appId and tenantId
+                pst.setString(i + 3, userIds.get(i));
+            }
+        }, result -> {
+            Map<String, List<String>> roles = new LinkedHashMap<>();
+            while (result.next()) {
+                roles.computeIfAbsent(result.getString("user_id"), k -> new ArrayList<>())
+                        .add(result.getString("role"));
+            }
+            return roles;
+        });
+    }
+
     public static boolean deleteRoleForUser_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
                                                         String userId, String role)
             throws SQLException, StorageQueryException {
@@ -251,10 +334,14 @@ public class UserRolesQueries {
         }, ResultSet::next);
     }
 
+    public static String getQueryToGetUsersForRole(Start start) {
+        return "SELECT user_id FROM " + getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND role = ? ";
+    }
+
     public static String[] getUsersForRole(Start start, TenantIdentifier tenantIdentifier, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id FROM " + getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND role = ? ";
+        String QUERY = getQueryToGetUsersForRole(start);
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
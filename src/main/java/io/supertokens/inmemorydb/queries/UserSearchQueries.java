@@ -0,0 +1,283 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb.queries;
+
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.config.Config;
+import io.supertokens.pluginInterface.dashboard.DashboardSearchTags;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.supertokens.inmemorydb.PreparedStatementValueSetter.NO_OP_SETTER;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
+import static io.supertokens.inmemorydb.config.Config.getConfig;
+import static io.supertokens.pluginInterface.RECIPE_ID.*;
+
+/*
+ * The dashboard searches users by the prefix of their email, of the domain of their email, of their phone number and
+ * of their third party provider id. Matching those with LIKE '%@...' on the recipe tables cannot use an index, so
+ * each of these values is also kept in user_search_tags (lower cased, with both the email and its domain stored as
+ * email tags), where a prefix is found with a range scan of an index.
+ *
+ * The tags of a user are rebuilt from the recipe tables by the queries that change them (sign up, adding a user to
+ * a tenant, and updating an email or phone number), and are deleted with the user (or when it is removed from a
+ * tenant) by the foreign key to all_auth_recipe_users.
+ */
+public class UserSearchQueries {
+
+    private static final String EMAIL_TAG = "email";
+    private static final String PHONE_NUMBER_TAG = "phone_number";
+    private static final String PROVIDER_TAG = "provider";
+
+    // the users are searched with the tags of up to this many of them per recipe, same as with the LIKE queries
+    private static final int MAX_USERS_PER_RECIPE = 1000;
+
+    static String getQueryToCreateUserSearchTagsTable(Start start) {
+        String tableName = Config.getConfig(start).getUserSearchTagsTable();
+        // @formatter:off
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                + "app_id VARCHAR(64) DEFAULT 'public',"
+                + "tenant_id VARCHAR(64) DEFAULT 'public',"
+                + "user_id CHAR(36) NOT NULL,"
+                + "recipe_id VARCHAR(128) NOT NULL,"
+                + "tag_type VARCHAR(32) NOT NULL,"
+                + "value VARCHAR(256) NOT NULL,"
+                + "PRIMARY KEY (app_id, tenant_id, user_id, tag_type, value),"
+                + "FOREIGN KEY (app_id, tenant_id, user_id) REFERENCES " + Config.getConfig(start).getUsersTable()
+                + " (app_id, tenant_id, user_id) ON DELETE CASCADE"
+                + ");";
+        // @formatter:on
+    }
+
+    static String getQueryToCreateValueIndex(Start start) {
+        return "CREATE INDEX user_search_tags_value_index ON " + Config.getConfig(start).getUserSearchTagsTable()
+                + "(app_id, tenant_id, recipe_id, tag_type, value);";
+    }
+
+    static String getQueryToCreateUserIdIndex(Start start) {
+        return "CREATE INDEX user_search_tags_user_id_index ON " + Config.getConfig(start).getUserSearchTagsTable()
+                + "(app_id, user_id);";
+    }
+
+    // adds the tags of the users that existed before the table was created, if the db is kept in a file
+    static void addSearchTagsForAllUsers(Start start) throws SQLException, StorageQueryException {
+        update(start, getQueryToInsertSearchTags(start, 0), NO_OP_SETTER);
+    }
+
+    public static String getQueryToDeleteSearchTags(Start start, int numberOfUsers) {
+        return "DELETE FROM " + getConfig(start).getUserSearchTagsTable()
+                + " WHERE app_id = ? AND user_id IN (" + getPlaceholders(numberOfUsers) + ")";
+    }
+
+    /**
+     * Replaces the tags of the given users (in all tenants) with the ones from the recipe tables. Called in the
+     * transactions that change the emails, phone numbers or tenants of users, after the change.
+     */
+    public static void updateSearchTags_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
+                                                    List<String> userIds) throws SQLException, StorageQueryException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String DELETE_QUERY = getQueryToDeleteSearchTags(start, userIds.size());
+        update(con, DELETE_QUERY, pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            for (int i = 0; i < userIds.size(); i++) {
+                // i+2 cause this starts with 1 and not 0, and 1 is appId
+                pst.setString(i + 2, userIds.get(i));
+            }
+        });
+
+        String INSERT_QUERY = getQueryToInsertSearchTags(start, userIds.size());
+        update(con, INSERT_QUERY, pst -> {
+            int index = 1;
+            for (int i = 0; i < NUMBER_OF_TAG_SOURCES; i++) {
+                pst.setString(index++, appIdentifier.getAppId());
+                for (String userId : userIds) {
+                    pst.setString(index++, userId);
+                }
+            }
+        });
+    }
+
+    public static void updateSearchTags_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
+                                                    String userId) throws SQLException, StorageQueryException {
+        updateSearchTags_Transaction(start, con, appIdentifier, List.of(userId));
+    }
+
+    private static final int NUMBER_OF_TAG_SOURCES = 8;
+
+    /*
+     * Selects every tag from the recipe tables, as (app_id, tenant_id, user_id, recipe_id, tag_type, value). If
+     * numberOfUsers is not 0, each of the NUMBER_OF_TAG_SOURCES selects is limited to the app in its first parameter
+     * and to the users in the next numberOfUsers parameters.
+     */
+    private static String getQueryToInsertSearchTags(Start start, int numberOfUsers) {
+        String emailPasswordUserToTenant = getConfig(start).getEmailPasswordUserToTenantTable();
+        String thirdPartyUserToTenant = getConfig(start).getThirdPartyUserToTenantTable();
+        String thirdPartyUsers = getConfig(start).getThirdPartyUsersTable();
+        String passwordlessUserToTenant = getConfig(start).getPasswordlessUserToTenantTable();
+        String ep = "'" + EMAIL_PASSWORD.toString() + "'";
+        String tp = "'" + THIRD_PARTY.toString() + "'";
+        String pl = "'" + PASSWORDLESS.toString() + "'";
+        String domain = "substr(email, instr(email, '@') + 1)";
+
+        List<String> selects = new ArrayList<>();
+        selects.add("SELECT app_id, tenant_id, user_id, " + ep + ", '" + EMAIL_TAG + "', lower(email) FROM "
+                + emailPasswordUserToTenant + getUsersCondition("", numberOfUsers));
+        selects.add("SELECT app_id, tenant_id, user_id, " + ep + ", '" + EMAIL_TAG + "', lower(" + domain + ") FROM "
+                + emailPasswordUserToTenant + getUsersCondition("", numberOfUsers) + " AND instr(email, '@') > 0");
+        selects.add("SELECT tt.app_id, tt.tenant_id, tt.user_id, " + tp + ", '" + EMAIL_TAG + "', lower(tp.email) FROM "
+                + thirdPartyUserToTenant + " AS tt JOIN " + thirdPartyUsers + " AS tp"
+                + " ON tt.app_id = tp.app_id AND tt.user_id = tp.user_id" + getUsersCondition("tt.", numberOfUsers));
+        selects.add("SELECT tt.app_id, tt.tenant_id, tt.user_id, " + tp + ", '" + EMAIL_TAG + "', lower(substr("
+                + "tp.email, instr(tp.email, '@') + 1)) FROM " + thirdPartyUserToTenant + " AS tt JOIN "
+                + thirdPartyUsers + " AS tp ON tt.app_id = tp.app_id AND tt.user_id = tp.user_id"
+                + getUsersCondition("tt.", numberOfUsers) + " AND instr(tp.email, '@') > 0");
+        selects.add("SELECT app_id, tenant_id, user_id, " + tp + ", '" + PROVIDER_TAG + "', lower(third_party_id) FROM "
+                + thirdPartyUserToTenant + getUsersCondition("", numberOfUsers));
+        selects.add("SELECT app_id, tenant_id, user_id, " + pl + ", '" + EMAIL_TAG + "', lower(email) FROM "
+                + passwordlessUserToTenant + getUsersCondition("", numberOfUsers) + " AND email IS NOT NULL");
+        selects.add("SELECT app_id, tenant_id, user_id, " + pl + ", '" + EMAIL_TAG + "', lower(" + domain + ") FROM "
+                + passwordlessUserToTenant + getUsersCondition("", numberOfUsers)
+                + " AND email IS NOT NULL AND instr(email, '@') > 0");
+        selects.add("SELECT app_id, tenant_id, user_id, " + pl + ", '" + PHONE_NUMBER_TAG + "', lower(phone_number) "
+                + "FROM " + passwordlessUserToTenant + getUsersCondition("", numberOfUsers)
+                + " AND phone_number IS NOT NULL");
+
+        return "INSERT INTO " + getConfig(start).getUserSearchTagsTable()
+                + "(app_id, tenant_id, user_id, recipe_id, tag_type, value) " + String.join(" UNION ", selects);
+    }
+
+    private static String getUsersCondition(String tableAlias, int numberOfUsers) {
+        if (numberOfUsers == 0) {
+            return " WHERE 1 = 1";
+        }
+        return " WHERE " + tableAlias + "app_id = ? AND " + tableAlias + "user_id IN ("
+                + getPlaceholders(numberOfUsers) + ")";
+    }
+
+    /**
+     * Returns the primary (or recipe) user ids of the users of the tenant that match the tags, ordered by the time
+     * they joined. A user matches if, for one of the recipes that should be searched, it has a tag that starts with
+     * one of the searched values of each tag type that is searched for that recipe.
+     */
+    public static List<String> searchUsers(Start start, TenantIdentifier tenantIdentifier, String timeJoinedOrder,
+                                           DashboardSearchTags dashboardSearchTags)
+            throws SQLException, StorageQueryException {
+        List<String> params = new ArrayList<>();
+        List<String> recipeQueries = new ArrayList<>();
+
+        if (dashboardSearchTags.shouldEmailPasswordTableBeSearched()) {
+            addRecipeQuery(tenantIdentifier, EMAIL_PASSWORD.toString(), dashboardSearchTags.emails, null, null,
+                    recipeQueries, params, start);
+        }
+        if (dashboardSearchTags.shouldThirdPartyTableBeSearched()) {
+            addRecipeQuery(tenantIdentifier, THIRD_PARTY.toString(), dashboardSearchTags.emails, PROVIDER_TAG,
+                    dashboardSearchTags.providers, recipeQueries, params, start);
+        }
+        if (dashboardSearchTags.shouldPasswordlessTableBeSearched()) {
+            addRecipeQuery(tenantIdentifier, PASSWORDLESS.toString(), dashboardSearchTags.emails, PHONE_NUMBER_TAG,
+                    dashboardSearchTags.phoneNumbers, recipeQueries, params, start);
+        }
+
+        if (recipeQueries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String QUERY = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM "
+                + getConfig(start).getUsersTable() + " WHERE app_id = ? AND tenant_id = ? AND user_id IN ("
+                + String.join(" UNION ", recipeQueries) + ") ORDER BY primary_or_recipe_user_time_joined "
+                + timeJoinedOrder + ", primary_or_recipe_user_id DESC";
+        return execute(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            for (int i = 0; i < params.size(); i++) {
+                // i+3 cause this starts with 1 and not 0, and 1 and 2 are the appId and tenantId
+                pst.setString(i + 3, params.get(i));
+            }
+        }, result -> {
+            List<String> userIds = new ArrayList<>();
+            while (result.next()) {
+                userIds.add(result.getString("primary_or_recipe_user_id"));
+            }
+            return userIds;
+        });
+    }
+
+    // the users of a recipe must match the emails (if given) and the other tag (if given)
+    private static void addRecipeQuery(TenantIdentifier tenantIdentifier, String recipeId,
+                                       @Nullable List<String> emails, @Nullable String otherTagType,
+                                       @Nullable List<String> otherTagValues, List<String> recipeQueries,
+                                       List<String> params, Start start) {
+        List<String> tagQueries = new ArrayList<>();
+        if (emails != null) {
+            tagQueries.add(getTagQuery(tenantIdentifier, recipeId, EMAIL_TAG, emails, params, start));
+        }
+        if (otherTagValues != null) {
+            tagQueries.add(getTagQuery(tenantIdentifier, recipeId, otherTagType, otherTagValues, params, start));
+        }
+        if (tagQueries.isEmpty()) {
+            return;
+        }
+        // compound selects in sqlite cannot have their own LIMIT, so it is applied in a sub query
+        recipeQueries.add("SELECT user_id FROM (SELECT user_id FROM (" + String.join(" INTERSECT ", tagQueries)
+                + ") LIMIT " + MAX_USERS_PER_RECIPE + ")");
+    }
+
+    // a prefix search as a range, so that it uses the index. char(1114111) is the largest code point, so every value
+    // that starts with the prefix is less than the prefix followed by it
+    public static String getQueryToGetUsersWithTagPrefix(Start start) {
+        return "SELECT user_id FROM " + getConfig(start).getUserSearchTagsTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND recipe_id = ? AND tag_type = ?"
+                + " AND value >= lower(?) AND value < lower(?) || char(1114111)";
+    }
+
+    private static String getTagQuery(TenantIdentifier tenantIdentifier, String recipeId, String tagType,
+                                      List<String> values, List<String> params, Start start) {
+        List<String> valueQueries = new ArrayList<>();
+        for (String value : values) {
+            valueQueries.add(getQueryToGetUsersWithTagPrefix(start));
+            params.add(tenantIdentifier.getAppId());
+            params.add(tenantIdentifier.getTenantId());
+            params.add(recipeId);
+            params.add(tagType);
+            params.add(value);
+            params.add(value);
+        }
+        return "SELECT user_id FROM (" + String.join(" UNION ", valueQueries) + ")";
+    }
+
+    private static String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append("?");
+            if (i != count - 1) {
+                // not the last element
+                placeholders.append(",");
+            }
+        }
+        return placeholders.toString();
+    }
+}
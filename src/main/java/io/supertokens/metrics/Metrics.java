@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.metrics;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Core wide counters and timings, that are exposed via the /metrics API. Unlike ProcessState, these are collected
+// outside of testing as well, so updating them must be cheap.
+public class Metrics extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.metrics.Metrics";
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    private Metrics() {
+
+    }
+
+    public static Metrics getInstance(Main main) {
+        try {
+            return (Metrics) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            return (Metrics) main.getResourceDistributor()
+                    .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Metrics());
+        }
+    }
+
+    public void incrementCounter(String name) {
+        addToCounter(name, 1);
+    }
+
+    public void addToCounter(String name, long delta) {
+        this.counters.computeIfAbsent(name, k -> new AtomicLong(0)).addAndGet(delta);
+    }
+
+    public long getCounter(String name) {
+        AtomicLong counter = this.counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public void setGauge(String name, long value) {
+        this.gauges.computeIfAbsent(name, k -> new AtomicLong(0)).set(value);
+    }
+
+    public long getGauge(String name) {
+        AtomicLong gauge = this.gauges.get(name);
+        return gauge == null ? 0 : gauge.get();
+    }
+
+    public void recordTiming(String name, long durationMillis) {
+        this.timings.computeIfAbsent(name, k -> new Timing()).record(durationMillis);
+    }
+
+    public JsonObject getTiming(String name) {
+        Timing timing = this.timings.get(name);
+        return timing == null ? null : timing.toJson();
+    }
+
+    public JsonObject toJson() {
+        JsonObject countersJson = new JsonObject();
+        new TreeMap<>(this.counters).forEach((name, value) -> countersJson.addProperty(name, value.get()));
+
+        JsonObject gaugesJson = new JsonObject();
+        new TreeMap<>(this.gauges).forEach((name, value) -> gaugesJson.addProperty(name, value.get()));
+
+        JsonObject timingsJson = new JsonObject();
+        new TreeMap<>(this.timings).forEach((name, value) -> timingsJson.add(name, value.toJson()));
+
+        JsonObject result = new JsonObject();
+        result.add("counters", countersJson);
+        result.add("gauges", gaugesJson);
+        result.add("timings", timingsJson);
+        return result;
+    }
+
+    private static class Timing {
+        private long count = 0;
+        private long totalMillis = 0;
+        private long maxMillis = 0;
+        private long lastMillis = 0;
+
+        synchronized void record(long durationMillis) {
+            this.count++;
+            this.totalMillis += durationMillis;
+            this.maxMillis = Math.max(this.maxMillis, durationMillis);
+            this.lastMillis = durationMillis;
+        }
+
+        synchronized JsonObject toJson() {
+            JsonObject result = new JsonObject();
+            result.addProperty("count", this.count);
+            result.addProperty("totalMillis", this.totalMillis);
+            result.addProperty("maxMillis", this.maxMillis);
+            result.addProperty("lastMillis", this.lastMillis);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.multitenancy;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * When lazy_app_resource_loading is enabled, the per app resources (signing keys and feature flags) of apps other
+ * than the base one are not loaded when the tenants are loaded, but the first time that they are asked for. They are
+ * unloaded again when the app has not been used for lazy_app_resource_idle_ttl_sec, or when more than
+ * lazy_app_resource_max_apps apps have their resources loaded, starting with the least recently used app.
+ * <p>
+ * The configs and storages of all apps are still loaded eagerly, since they are needed to know which apps exist.
+ */
+public class LazyAppResources extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.multitenancy.LazyAppResources";
+
+    public static final String LOADED_METRIC = "multitenancy.lazy_app_resources.loaded";
+    public static final String EVICTED_METRIC = "multitenancy.lazy_app_resources.evicted";
+
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 60000;
+
+    private final Main main;
+
+    // app -> time at which one of its lazily loaded resources was last asked for
+    private final Map<AppIdentifier, Long> lastUsedTime = new ConcurrentHashMap<>();
+
+    // keys of the resources that have been loaded lazily, so that all of them are removed when an app is evicted
+    private final Set<String> lazyResourceKeys = ConcurrentHashMap.newKeySet();
+
+    // so that only one thread creates a given resource, while other apps' resources can be created at the same time
+    private final Map<ResourceDistributor.KeyClass, Object> creationLocks = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastSweepTime = new AtomicLong(System.currentTimeMillis());
+
+    private LazyAppResources(Main main) {
+        this.main = main;
+    }
+
+    private static LazyAppResources getInstance(Main main) {
+        TenantIdentifier baseTenant = new TenantIdentifier(null, null, null);
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor()
+                .getResourceIfPresent(baseTenant, RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(baseTenant, RESOURCE_KEY, new LazyAppResources(main));
+        }
+        return (LazyAppResources) instance;
+    }
+
+    public static boolean isEnabled(Main main) {
+        return Config.getBaseConfig(main).getLazyAppResourceLoading();
+    }
+
+    /**
+     * Used by the loadForAllTenants functions of the lazily loaded resources to decide if the resource of an app
+     * that is not loaded yet, or that has to be reloaded, should be created right away.
+     */
+    public static boolean shouldLoadEagerly(Main main, AppIdentifier appIdentifier) {
+        return !isEnabled(main) || appIdentifier.equals(new AppIdentifier(null, null));
+    }
+
+    public interface AppResourceFactory<T extends ResourceDistributor.SingletonResource> {
+        T create(AppIdentifier appIdentifier) throws TenantOrAppNotFoundException;
+    }
+
+    /**
+     * Returns the resource with the given key for the app, creating it with factory if lazy loading is enabled and it
+     * is not loaded. If lazy loading is disabled, this is the same as ResourceDistributor.getResource.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ResourceDistributor.SingletonResource> T getOrCreate(Main main,
+                                                                                 AppIdentifier appIdentifier,
+                                                                                 String resourceKey,
+                                                                                 AppResourceFactory<T> factory)
+            throws TenantOrAppNotFoundException {
+        ResourceDistributor resourceDistributor = main.getResourceDistributor();
+        if (!isEnabled(main)) {
+            return (T) resourceDistributor.getResource(appIdentifier, resourceKey);
+        }
+
+        // the configs of all apps are always loaded, so they are used to find out if the app exists, and which app
+        // the resource belongs to if the connection uri domain is not configured (see ResourceDistributor.getResource)
+        TenantIdentifier publicTenant = appIdentifier.getAsPublicTenantIdentifier();
+        TenantIdentifier resolved = resourceDistributor.getTenantIdentifierOfResource(publicTenant,
+                Config.RESOURCE_KEY);
+        if (resolved == null) {
+            // this refreshes the tenants from the db, and throws if the app still does not exist
+            Config.getConfig(publicTenant, main);
+            resolved = resourceDistributor.getTenantIdentifierOfResource(publicTenant, Config.RESOURCE_KEY);
+            if (resolved == null) {
+                throw new TenantOrAppNotFoundException(publicTenant);
+            }
+        }
+        AppIdentifier resolvedApp = resolved.toAppIdentifier();
+
+        if (shouldLoadEagerly(main, resolvedApp)) {
+            return (T) resourceDistributor.getResource(resolvedApp, resourceKey);
+        }
+
+        LazyAppResources instance = getInstance(main);
+        instance.evictIdleAppsIfDue();
+        instance.lastUsedTime.put(resolvedApp, System.currentTimeMillis());
+
+        ResourceDistributor.SingletonResource resource = resourceDistributor.getResourceIfPresent(resolved,
+                resourceKey);
+        if (resource == null) {
+            resource = instance.create(resolvedApp, resourceKey, factory);
+        }
+        return (T) resource;
+    }
+
+    private <T extends ResourceDistributor.SingletonResource> ResourceDistributor.SingletonResource create(
+            AppIdentifier appIdentifier, String resourceKey, AppResourceFactory<T> factory)
+            throws TenantOrAppNotFoundException {
+        ResourceDistributor.SingletonResource resource;
+        ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(appIdentifier, resourceKey);
+        synchronized (this.creationLocks.computeIfAbsent(key, k -> new Object())) {
+            resource = main.getResourceDistributor()
+                    .getResourceIfPresent(appIdentifier.getAsPublicTenantIdentifier(), resourceKey);
+            if (resource != null) {
+                return resource;
+            }
+            this.lazyResourceKeys.add(resourceKey);
+            // setResource returns the existing resource if the tenants were reloaded while this was being created
+            resource = main.getResourceDistributor()
+                    .setResource(appIdentifier, resourceKey, factory.create(appIdentifier));
+        }
+        Metrics.getInstance(main).incrementCounter(LOADED_METRIC);
+        // an app whose resources were evicted while this was being created is tracked again here
+        this.lastUsedTime.put(appIdentifier, System.currentTimeMillis());
+        evictLeastRecentlyUsedAppsIfOverLimit();
+        return resource;
+    }
+
+    private void evictIdleAppsIfDue() {
+        long now = System.currentTimeMillis();
+        long idleTtlMillis = Config.getBaseConfig(main).getLazyAppResourceIdleTtlSec() * 1000L;
+        long lastSweep = this.lastSweepTime.get();
+        if (now - lastSweep < Math.min(idleTtlMillis, MAX_SWEEP_INTERVAL_MILLIS)
+                || !this.lastSweepTime.compareAndSet(lastSweep, now)) {
+            return;
+        }
+        for (Map.Entry<AppIdentifier, Long> entry : this.lastUsedTime.entrySet()) {
+            if (now - entry.getValue() >= idleTtlMillis) {
+                evict(entry.getKey());
+            }
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsedAppsIfOverLimit() {
+        int maxApps = Config.getBaseConfig(main).getLazyAppResourceMaxApps();
+        while (this.lastUsedTime.size() > maxApps) {
+            AppIdentifier leastRecentlyUsed = null;
+            long leastRecentlyUsedTime = Long.MAX_VALUE;
+            for (Map.Entry<AppIdentifier, Long> entry : this.lastUsedTime.entrySet()) {
+                if (entry.getValue() < leastRecentlyUsedTime) {
+                    leastRecentlyUsed = entry.getKey();
+                    leastRecentlyUsedTime = entry.getValue();
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+            evict(leastRecentlyUsed);
+        }
+    }
+
+    private void evict(AppIdentifier appIdentifier) {
+        this.lastUsedTime.remove(appIdentifier);
+        boolean evicted = false;
+        for (String resourceKey : this.lazyResourceKeys) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(appIdentifier, resourceKey);
+            synchronized (this.creationLocks.computeIfAbsent(key, k -> new Object())) {
+                evicted = main.getResourceDistributor().removeResource(appIdentifier, resourceKey) != null || evicted;
+                this.creationLocks.remove(key);
+            }
+        }
+        if (evicted) {
+            Metrics.getInstance(main).incrementCounter(EVICTED_METRIC);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import io.supertokens.pluginInterface.multitenancy.sqlStorage.MultitenancySQLSto
 import io.supertokens.pluginInterface.passwordless.exception.DuplicatePhoneNumberException;
 import io.supertokens.pluginInterface.thirdparty.exception.DuplicateThirdPartyUserException;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.userroles.UserRoles;
 import io.supertokens.thirdparty.InvalidProviderConfigException;
 import io.supertokens.thirdparty.ThirdParty;
 import org.jetbrains.annotations.TestOnly;
@@ -370,6 +371,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // we ignore this since it may have been that past deletion attempt deleted this successfully,
             // but not from the main table.
         }
+        UserRoles.invalidateCachedRolesOfTenant(main, tenantIdentifier);
         boolean didExist = StorageLayer.getMultitenancyStorage(main).deleteTenantInfoInBaseStorage(tenantIdentifier);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
@@ -392,6 +394,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // we ignore this since it may have been that past deletion attempt deleted this successfully,
             // but not from the main table.
         }
+        UserRoles.invalidateCachedRolesOfApp(main, appIdentifier);
         boolean didExist = StorageLayer.getMultitenancyStorage(main).deleteAppInfoInBaseStorage(appIdentifier);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
@@ -428,6 +431,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // we ignore this since it may have been that past deletion attempt deleted this successfully,
             // but not from the main table.
         }
+        UserRoles.invalidateCachedRolesOfApp(main, new AppIdentifier(connectionUriDomain, null));
         boolean didExist = StorageLayer.getMultitenancyStorage(main)
                 .deleteConnectionUriDomainInfoInBaseStorage(connectionUriDomain);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
@@ -587,6 +591,8 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
                 .removeUserIdFromTenant(tenantIdentifier, userId);
         finalDidExist = finalDidExist || didExist;
 
+        UserRoles.invalidateCachedRolesOfUser(main, tenantIdentifier, externalUserId == null ? userId : externalUserId);
+
         return finalDidExist;
     }
 
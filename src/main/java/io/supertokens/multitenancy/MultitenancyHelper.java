@@ -25,10 +25,12 @@ import io.supertokens.cronjobs.Cronjobs;
 import io.supertokens.featureflag.FeatureFlag;
 import io.supertokens.featureflag.exceptions.FeatureNotEnabledException;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.multitenancy.exception.CannotModifyBaseConfigException;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.*;
@@ -38,18 +40,40 @@ import io.supertokens.signingkeys.AccessTokenSigningKey;
 import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.TenantConfigsVersionStorage;
 import io.supertokens.thirdparty.InvalidProviderConfigException;
+import io.supertokens.utils.ParallelTasks;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static io.supertokens.multitenancy.Multitenancy.getTenantInfo;
 
 public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
 
     public static final String RESOURCE_KEY = "io.supertokens.multitenancy.Multitenancy";
+
+    public static final String TENANT_CONFIG_REFRESH_TIME_METRIC = "multitenancy.tenant_config_refresh.time";
+    public static final String TENANT_CONFIG_REFRESH_SKIPPED_METRIC = "multitenancy.tenant_config_refresh.skipped";
+
     private Main main;
-    private TenantConfig[] tenantConfigs;
+    private volatile TenantConfig[] tenantConfigs;
+
+    // version of the tenant configs in the db that tenantConfigs was read at, or null if the base storage does not
+    // keep a version. See TenantConfigsVersionStorage
+    private volatile Long tenantConfigsVersion;
+
+    // held while the tenants are refreshed from the db and their resources are reloaded, so that only one thread
+    // does this at a time
+    private final ReloadLock reloadLock = new ReloadLock();
+
+    // tenants whose resources forceReloadAllResources could not reload, because another thread held the reload lock.
+    // That thread reloads them before it releases the lock. Both are guarded by pendingReloadMonitor, which is only
+    // held for checks that do not block.
+    private final Object pendingReloadMonitor = new Object();
+    private final Set<TenantIdentifier> tenantsPendingReload = new LinkedHashSet<>();
+    private boolean reloadPending = false;
 
     // when the core has `supertokens_saas_load_only_cud` set, the tenantConfigs array will be filtered
     // based on the config value. However, we need to keep all the list of CUDs from the db to be able
@@ -58,6 +82,7 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
 
     private MultitenancyHelper(Main main) throws StorageQueryException {
         this.main = main;
+        this.tenantConfigsVersion = getTenantConfigsVersionFromDb();
         TenantConfig[] allTenantsFromDb = getAllTenantsFromDb();
         this.tenantConfigs = this.getFilteredTenantConfigs(allTenantsFromDb);
         this.dangerous_allCUDsFromDb.clear();
@@ -114,86 +139,232 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
         return StorageLayer.getMultitenancyStorage(main).getAllTenants();
     }
 
+    private Long getTenantConfigsVersionFromDb() throws StorageQueryException {
+        Storage baseStorage = StorageLayer.getBaseStorage(main);
+        if (baseStorage instanceof TenantConfigsVersionStorage) {
+            return ((TenantConfigsVersionStorage) baseStorage).getTenantConfigsVersion();
+        }
+        return null;
+    }
+
     public List<TenantIdentifier> refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(
             boolean reloadAllResources) {
+        long startTime = System.currentTimeMillis();
         try {
-            return main.getResourceDistributor().withResourceDistributorLock(() -> {
-                try {
-                    TenantConfig[] tenantsFromDb = getAllTenantsFromDb();
-                    TenantConfig[] filteredTenantsFromDb = this.getFilteredTenantConfigs(tenantsFromDb);
-
-                    Map<ResourceDistributor.KeyClass, JsonObject> normalizedTenantsFromDb =
-                            Config.getNormalisedConfigsForAllTenants(
-                            filteredTenantsFromDb, Config.getBaseConfigAsJsonObject(main));
-
-                    Map<ResourceDistributor.KeyClass, JsonObject> normalizedTenantsFromMemory =
-                            Config.getNormalisedConfigsForAllTenants(
-                            this.tenantConfigs, Config.getBaseConfigAsJsonObject(main));
-
-                    List<TenantIdentifier> tenantsThatChanged = new ArrayList<>();
-
-                    for (Map.Entry<ResourceDistributor.KeyClass, JsonObject> entry :
-                            normalizedTenantsFromMemory.entrySet()) {
-                        JsonObject tenantConfigFromMemory = entry.getValue();
-                        JsonObject tenantConfigFromDb = normalizedTenantsFromDb.get(entry.getKey());
+            if (isTenantConfigsVersionUnchanged()) {
+                return new ArrayList<>();
+            }
+            if (!tryAcquireReloadLock()) {
+                return new ArrayList<>();
+            }
+            try {
+                // another thread could have loaded the changes while we were waiting for the lock
+                if (isTenantConfigsVersionUnchanged()) {
+                    return new ArrayList<>();
+                }
 
-                        if (!tenantConfigFromMemory.equals(tenantConfigFromDb)) {
-                            tenantsThatChanged.add(entry.getKey().getTenantIdentifier());
-                        }
-                    }
+                // we read and compare the tenants from the db without holding the resource distributor lock, so
+                // that requests are not blocked while this is happening. The tenants in memory are only changed by
+                // the thread holding the reload lock.
+                Long versionInDb = getTenantConfigsVersionFromDb();
+                TenantConfig[] tenantsFromDb = getAllTenantsFromDb();
+                TenantConfig[] filteredTenantsFromDb = this.getFilteredTenantConfigs(tenantsFromDb);
+                List<TenantIdentifier> tenantsThatChanged = getTenantsWithChangedCoreConfig(this.tenantConfigs,
+                        filteredTenantsFromDb);
 
-                    boolean sameNumberOfTenants =
-                            filteredTenantsFromDb.length == this.tenantConfigs.length;
+                boolean sameNumberOfTenants =
+                        filteredTenantsFromDb.length == this.tenantConfigs.length;
 
+                main.getResourceDistributor().withResourceDistributorLock(() -> {
                     this.dangerous_allCUDsFromDb.clear();
                     for (TenantConfig tenant : tenantsFromDb) {
                         this.dangerous_allCUDsFromDb.add(tenant.tenantIdentifier.getConnectionUriDomain());
                     }
                     this.tenantConfigs = filteredTenantsFromDb;
-                    if (tenantsThatChanged.size() == 0 && sameNumberOfTenants) {
-                        return tenantsThatChanged;
-                    }
-
-                    ProcessState.getInstance(main)
-                            .addState(ProcessState.PROCESS_STATE.TENANTS_CHANGED_DURING_REFRESH_FROM_DB, null);
-
-                    // this order is important. For example, storageLayer depends on config, and cronjobs depends on
-                    // storageLayer
-                    if (reloadAllResources) {
-                        forceReloadAllResources(tenantsThatChanged);
-                    } else {
-                        // we do these two here cause they don't really depend on any table in the db, and these
-                        // two are required for allocating any further resource for this tenant
-                        loadConfig(tenantsThatChanged);
-                        loadStorageLayer();
-                    }
+                    return null;
+                });
+                if (tenantsThatChanged.size() == 0 && sameNumberOfTenants) {
+                    this.tenantConfigsVersion = versionInDb;
                     return tenantsThatChanged;
-                } catch (Exception e) {
-                    Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
-                    return new ArrayList<>();
                 }
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new IllegalStateException(e);
+
+                ProcessState.getInstance(main)
+                        .addState(ProcessState.PROCESS_STATE.TENANTS_CHANGED_DURING_REFRESH_FROM_DB, null);
+
+                // this order is important. For example, storageLayer depends on config, and cronjobs depends on
+                // storageLayer
+                if (reloadAllResources) {
+                    forceReloadAllResources(tenantsThatChanged);
+                } else {
+                    // we do these two here cause they don't really depend on any table in the db, and these
+                    // two are required for allocating any further resource for this tenant
+                    loadConfig(tenantsThatChanged);
+                    loadStorageLayer();
+                }
+                // this is set only after the resources are reloaded, so that a refresh in another thread that
+                // needs a resource of a new tenant waits for the reload to finish, instead of skipping it.
+                this.tenantConfigsVersion = versionInDb;
+                return tenantsThatChanged;
+            } finally {
+                releaseReloadLock();
+            }
+        } catch (Exception e) {
+            Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
+            return new ArrayList<>();
+        } finally {
+            Metrics.getInstance(main).recordTiming(TENANT_CONFIG_REFRESH_TIME_METRIC,
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private boolean isTenantConfigsVersionUnchanged() throws StorageQueryException {
+        Long versionInDb = getTenantConfigsVersionFromDb();
+        if (versionInDb != null && versionInDb.equals(this.tenantConfigsVersion)) {
+            // nothing has changed since the tenants in memory were loaded
+            Metrics.getInstance(main).incrementCounter(TENANT_CONFIG_REFRESH_SKIPPED_METRIC);
+            return true;
+        }
+        return false;
+    }
+
+    // A reload builds the new resources without holding the resource distributor lock, and takes that lock to swap
+    // them in. So a thread that already holds the resource distributor lock must not wait for a reload running in
+    // another thread. In that case it does not reload, and the changes are picked up by the reload that is running,
+    // or by the next refresh.
+    //
+    // The same goes for the threads that a reload uses to load resources in parallel (see ParallelTasks), which can
+    // come here when they look up a resource that is not loaded. They must not wait for the reload lock, since the
+    // thread holding it waits for them to finish.
+    private boolean tryAcquireReloadLock() {
+        if (Thread.holdsLock(main.getResourceDistributor())
+                || ParallelTasks.getCallingThread() == this.reloadLock.getOwnerThread()) {
+            return this.reloadLock.tryLock();
         }
+        this.reloadLock.lock();
+        return true;
     }
 
+    private static class ReloadLock extends ReentrantLock {
+        // accurate when the owner is the calling thread, or a thread that does not release the lock until the calling
+        // thread is done, which is the case that this is used for
+        Thread getOwnerThread() {
+            return getOwner();
+        }
+    }
+
+    // Returns the tenants in memory whose normalised core config is different in the db, or who are not in the db
+    // anymore. Only the tenants whose own core config, or the core config of their app or connection uri domain, is
+    // different are normalised and compared, since the normalised config of the other tenants cannot have changed.
+    private List<TenantIdentifier> getTenantsWithChangedCoreConfig(TenantConfig[] tenantsInMemory,
+                                                                   TenantConfig[] tenantsFromDb) {
+        Map<TenantIdentifier, JsonObject> coreConfigsInMemory = new HashMap<>();
+        for (TenantConfig tenant : tenantsInMemory) {
+            coreConfigsInMemory.put(tenant.tenantIdentifier, tenant.coreConfig);
+        }
+        Map<TenantIdentifier, JsonObject> coreConfigsFromDb = new HashMap<>();
+        for (TenantConfig tenant : tenantsFromDb) {
+            coreConfigsFromDb.put(tenant.tenantIdentifier, tenant.coreConfig);
+        }
+
+        Set<TenantIdentifier> tenantsWithDifferentCoreConfig = new HashSet<>();
+        Set<TenantIdentifier> allTenants = new HashSet<>(coreConfigsInMemory.keySet());
+        allTenants.addAll(coreConfigsFromDb.keySet());
+        for (TenantIdentifier tenant : allTenants) {
+            if (coreConfigsInMemory.containsKey(tenant) != coreConfigsFromDb.containsKey(tenant)
+                    || !Objects.equals(coreConfigsInMemory.get(tenant), coreConfigsFromDb.get(tenant))) {
+                tenantsWithDifferentCoreConfig.add(tenant);
+            }
+        }
+        if (tenantsWithDifferentCoreConfig.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<TenantIdentifier> tenantsToCompare = new ArrayList<>();
+        for (TenantConfig tenant : tenantsInMemory) {
+            TenantIdentifier tenantIdentifier = tenant.tenantIdentifier;
+            if (tenantsWithDifferentCoreConfig.contains(tenantIdentifier)
+                    || tenantsWithDifferentCoreConfig.contains(new TenantIdentifier(
+                    tenantIdentifier.getConnectionUriDomain(), tenantIdentifier.getAppId(), null))
+                    || tenantsWithDifferentCoreConfig.contains(new TenantIdentifier(
+                    tenantIdentifier.getConnectionUriDomain(), null, null))) {
+                tenantsToCompare.add(tenantIdentifier);
+            }
+        }
+
+        Map<ResourceDistributor.KeyClass, JsonObject> normalizedTenantsFromDb =
+                Config.getNormalisedConfigsForTenants(
+                        tenantsFromDb, tenantsToCompare, Config.getBaseConfigAsJsonObject(main));
+
+        Map<ResourceDistributor.KeyClass, JsonObject> normalizedTenantsFromMemory =
+                Config.getNormalisedConfigsForTenants(
+                        tenantsInMemory, tenantsToCompare, Config.getBaseConfigAsJsonObject(main));
+
+        List<TenantIdentifier> tenantsThatChanged = new ArrayList<>();
+
+        for (Map.Entry<ResourceDistributor.KeyClass, JsonObject> entry :
+                normalizedTenantsFromMemory.entrySet()) {
+            JsonObject tenantConfigFromMemory = entry.getValue();
+            JsonObject tenantConfigFromDb = normalizedTenantsFromDb.get(entry.getKey());
+
+            if (!tenantConfigFromMemory.equals(tenantConfigFromDb)) {
+                tenantsThatChanged.add(entry.getKey().getTenantIdentifier());
+            }
+        }
+        return tenantsThatChanged;
+    }
+
+    // The new resources are created without holding the resource distributor lock, so that requests are not
+    // blocked while storages are initialised and keys are read from the db. Each type of resource is swapped in at
+    // once when it is ready, in the order of their dependencies, and storages that are not used anymore are closed
+    // in the background.
     public void forceReloadAllResources(List<TenantIdentifier> tenantsThatChanged) {
+        if (!tryAcquireReloadLock()) {
+            synchronized (pendingReloadMonitor) {
+                // the thread holding the lock could have released it since, without seeing these tenants
+                if (!this.reloadLock.tryLock()) {
+                    Logging.info(main, TenantIdentifier.BASE_TENANT, "Resources are being reloaded by another "
+                            + "thread, which will reload them again for " + tenantsThatChanged.size()
+                            + " changed tenant(s) once it is done", false);
+                    this.tenantsPendingReload.addAll(tenantsThatChanged);
+                    this.reloadPending = true;
+                    return;
+                }
+            }
+        }
         try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                try {
-                    loadConfig(tenantsThatChanged);
-                    loadStorageLayer();
-                    loadFeatureFlag(tenantsThatChanged);
-                    loadSigningKeys(tenantsThatChanged);
-                    refreshCronjobs();
-                } catch (Exception e) {
-                    Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
+            reloadAllResources(tenantsThatChanged);
+        } finally {
+            releaseReloadLock();
+        }
+    }
+
+    private void reloadAllResources(List<TenantIdentifier> tenantsThatChanged) {
+        try {
+            loadConfig(tenantsThatChanged);
+            loadStorageLayer();
+            loadFeatureFlag(tenantsThatChanged);
+            loadSigningKeys(tenantsThatChanged);
+            refreshCronjobs();
+        } catch (Exception e) {
+            Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
+        }
+    }
+
+    // Releases the reload lock. If this is the last hold of this thread, the reloads that other threads could not do
+    // while this thread held the lock are done first.
+    private void releaseReloadLock() {
+        while (true) {
+            List<TenantIdentifier> tenantsToReload;
+            synchronized (pendingReloadMonitor) {
+                if (this.reloadLock.getHoldCount() > 1 || !this.reloadPending) {
+                    this.reloadLock.unlock();
+                    return;
                 }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new IllegalStateException(e);
+                tenantsToReload = new ArrayList<>(this.tenantsPendingReload);
+                this.tenantsPendingReload.clear();
+                this.reloadPending = false;
+            }
+            reloadAllResources(tenantsToReload);
         }
     }
 
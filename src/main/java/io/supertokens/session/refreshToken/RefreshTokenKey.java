@@ -18,7 +18,9 @@ package io.supertokens.session.refreshToken;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.multitenancy.LazyAppResources;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.KeyValueInfoWithLastUpdated;
@@ -32,11 +34,14 @@ import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.pluginInterface.session.noSqlStorage.SessionNoSQLStorage_1;
 import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -60,8 +65,7 @@ public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
 
     public static RefreshTokenKey getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
-        return (RefreshTokenKey) main.getResourceDistributor()
-                .getResource(appIdentifier, RESOURCE_KEY);
+        return LazyAppResources.getOrCreate(main, appIdentifier, RESOURCE_KEY, app -> new RefreshTokenKey(app, main));
     }
 
     @TestOnly
@@ -74,33 +78,30 @@ public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
     }
 
     public static void loadForAllTenants(Main main, List<AppIdentifier> apps, List<TenantIdentifier> tenantsThatChanged) {
+        // the new resources are created without holding the resource distributor lock, since creating them reads
+        // the keys from the db, and are then swapped in at once.
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        Map<ResourceDistributor.KeyClass, ParallelTasks.Task<ResourceDistributor.SingletonResource,
+                TenantOrAppNotFoundException>> resourcesToCreate = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(app, RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(key);
+            if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
+                newResources.put(key, resource);
+            } else if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                resourcesToCreate.put(key, () -> new RefreshTokenKey(app, main));
+            }
+        }
         try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                        main.getResourceDistributor()
-                                .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                for (AppIdentifier app : apps) {
-                    ResourceDistributor.SingletonResource resource = existingResources.get(
-                            new ResourceDistributor.KeyClass(app, RESOURCE_KEY));
-                    if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
-                        main.getResourceDistributor().setResource(app, RESOURCE_KEY,
-                                resource);
-                    } else {
-                        try {
-                            main.getResourceDistributor()
-                                    .setResource(app, RESOURCE_KEY,
-                                            new RefreshTokenKey(app, main));
-                        } catch (TenantOrAppNotFoundException e) {
-                            throw new IllegalStateException(e);
-                        }
-                    }
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new RuntimeException(e);
+            newResources.putAll(ParallelTasks.run(resourcesToCreate,
+                    Config.getBaseConfig(main).getResourceLoadingParallelism(), "RefreshTokenKey-load"));
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
         }
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
     public String getKey() throws StorageQueryException, StorageTransactionLogicException,
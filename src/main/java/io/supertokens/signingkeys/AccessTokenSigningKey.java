@@ -21,6 +21,7 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.multitenancy.LazyAppResources;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.KeyValueInfoWithLastUpdated;
@@ -40,6 +41,7 @@ import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.pluginInterface.session.noSqlStorage.SessionNoSQLStorage_1;
 import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
@@ -77,8 +79,7 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
 
     public static AccessTokenSigningKey getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
-        return (AccessTokenSigningKey) main.getResourceDistributor()
-                .getResource(appIdentifier, RESOURCE_KEY);
+        return LazyAppResources.getOrCreate(main, appIdentifier, RESOURCE_KEY, app -> new AccessTokenSigningKey(app, main));
     }
 
     @TestOnly
@@ -91,39 +92,30 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
     }
 
     public static void loadForAllTenants(Main main, List<AppIdentifier> apps, List<TenantIdentifier> tenantsThatChanged) {
+        // the new resources are created without holding the resource distributor lock, since creating them reads
+        // the keys from the db, and are then swapped in at once.
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        Map<ResourceDistributor.KeyClass, ParallelTasks.Task<ResourceDistributor.SingletonResource,
+                TenantOrAppNotFoundException>> resourcesToCreate = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(app, RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(key);
+            if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
+                newResources.put(key, resource);
+            } else if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                resourcesToCreate.put(key, () -> new AccessTokenSigningKey(app, main));
+            }
+        }
         try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                        main.getResourceDistributor()
-                                .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                for (AppIdentifier app : apps) {
-                    ResourceDistributor.SingletonResource resource = existingResources.get(
-                            new ResourceDistributor.KeyClass(
-                                    app,
-                                    RESOURCE_KEY));
-                    if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
-                        main.getResourceDistributor()
-                                .setResource(app,
-                                        RESOURCE_KEY,
-                                        resource);
-                    } else {
-                        try {
-                            main.getResourceDistributor()
-                                    .setResource(
-                                            app,
-                                            RESOURCE_KEY,
-                                            new AccessTokenSigningKey(app, main));
-                        } catch (TenantOrAppNotFoundException e) {
-                            throw new IllegalStateException(e);
-                        }
-                    }
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new RuntimeException(e);
+            newResources.putAll(ParallelTasks.run(resourcesToCreate,
+                    Config.getBaseConfig(main).getResourceLoadingParallelism(), "AccessTokenSigningKey-load"));
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
         }
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
     public synchronized void transferLegacyKeyToNewTable()
@@ -18,8 +18,10 @@ package io.supertokens.signingkeys;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.multitenancy.LazyAppResources;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
@@ -34,10 +36,13 @@ import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,8 +53,15 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
 
     public static JWTSigningKey getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
-        return (JWTSigningKey) main.getResourceDistributor()
-                .getResource(appIdentifier, RESOURCE_KEY);
+        return LazyAppResources.getOrCreate(main, appIdentifier, RESOURCE_KEY, app -> {
+            JWTSigningKey jwtSigningKey = new JWTSigningKey(app, main);
+            try {
+                jwtSigningKey.generateKeysForSupportedAlgos();
+            } catch (UnsupportedJWTSigningAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            return jwtSigningKey;
+        });
     }
 
     @TestOnly
@@ -63,43 +75,34 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
 
     public static void loadForAllTenants(Main main, List<AppIdentifier> apps, List<TenantIdentifier> tenantsThatChanged)
             throws UnsupportedJWTSigningAlgorithmException {
-        try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                try {
-                    Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                            main.getResourceDistributor()
-                                    .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                    main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                    for (AppIdentifier app : apps) {
-                        ResourceDistributor.SingletonResource resource = existingResources.get(
-                                new ResourceDistributor.KeyClass(app, RESOURCE_KEY));
-                        if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
-                            main.getResourceDistributor().setResource(app, RESOURCE_KEY,
-                                    resource);
-                        } else {
-                            try {
-                                JWTSigningKey jwtSigningKey = new JWTSigningKey(app, main);
-                                main.getResourceDistributor()
-                                        .setResource(app, RESOURCE_KEY, jwtSigningKey);
-
-                                jwtSigningKey.generateKeysForSupportedAlgos(main);
-
-                            } catch (TenantOrAppNotFoundException e) {
-                                throw new IllegalStateException(e);
-                            }
-                        }
+        // the new resources are created, and their keys generated, without holding the resource distributor lock,
+        // and are then swapped in at once.
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        Map<ResourceDistributor.KeyClass, ParallelTasks.Task<ResourceDistributor.SingletonResource,
+                UnsupportedJWTSigningAlgorithmException>> resourcesToCreate = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(app, RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(key);
+            if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
+                newResources.put(key, resource);
+            } else if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                resourcesToCreate.put(key, () -> {
+                    try {
+                        JWTSigningKey jwtSigningKey = new JWTSigningKey(app, main);
+                        jwtSigningKey.generateKeysForSupportedAlgos();
+                        return jwtSigningKey;
+                    } catch (TenantOrAppNotFoundException e) {
+                        throw new IllegalStateException(e);
                     }
-                } catch (UnsupportedJWTSigningAlgorithmException e) {
-                    throw new ResourceDistributor.FuncException(e);
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            if (e.getCause() instanceof UnsupportedJWTSigningAlgorithmException) {
-                throw (UnsupportedJWTSigningAlgorithmException) e.getCause();
+                });
             }
-            throw new RuntimeException(e);
         }
+        newResources.putAll(ParallelTasks.run(resourcesToCreate,
+                Config.getBaseConfig(main).getResourceLoadingParallelism(), "JWTSigningKey-load"));
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
     public enum SupportedAlgorithms {
@@ -125,12 +128,12 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         this.main = main;
     }
 
-    private void generateKeysForSupportedAlgos(Main main)
+    private void generateKeysForSupportedAlgos()
             throws TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
         for (int i = 0; i < SupportedAlgorithms.values().length; i++) {
             SupportedAlgorithms currentAlgorithm = SupportedAlgorithms.values()[i];
             try {
-                JWTSigningKey.getInstance(appIdentifier, main).getOrCreateAndGetKeyForAlgorithm(currentAlgorithm);
+                this.getOrCreateAndGetKeyForAlgorithm(currentAlgorithm);
             } catch (StorageQueryException | StorageTransactionLogicException e) {
                 // Do nothing, when a call to /recipe/jwt POST is made the core will attempt to create a new key
             }
@@ -170,7 +173,7 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         }
 
         if (res.size() == 0) {
-            generateKeysForSupportedAlgos(main);
+            generateKeysForSupportedAlgos();
             return getAllSigningKeys();
         }
 
@@ -23,6 +23,7 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.multitenancy.LazyAppResources;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
@@ -30,6 +31,7 @@ import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.utils.ParallelTasks;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
@@ -55,8 +57,7 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
 
     public static SigningKeys getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
-        return (SigningKeys) main.getResourceDistributor()
-                .getResource(appIdentifier, RESOURCE_KEY);
+        return LazyAppResources.getOrCreate(main, appIdentifier, RESOURCE_KEY, app -> new SigningKeys(app, main));
     }
 
     @TestOnly
@@ -69,29 +70,24 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     }
 
     public static void loadForAllTenants(Main main, List<AppIdentifier> apps, List<TenantIdentifier> tenantsThatChanged) {
-        try {
-            main.getResourceDistributor().withResourceDistributorLock(() -> {
-                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
-                        main.getResourceDistributor()
-                                .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
-                for (AppIdentifier app : apps) {
-                    ResourceDistributor.SingletonResource resource = existingResources.get(
-                            new ResourceDistributor.KeyClass(app, RESOURCE_KEY));
-                    if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
-                        main.getResourceDistributor().setResource(app, RESOURCE_KEY,
-                                resource);
-                    } else {
-                        main.getResourceDistributor()
-                                .setResource(app, RESOURCE_KEY,
-                                        new SigningKeys(app, main));
-                    }
-                }
-                return null;
-            });
-        } catch (ResourceDistributor.FuncException e) {
-            throw new RuntimeException(e);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingResources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        Map<ResourceDistributor.KeyClass, ParallelTasks.Task<ResourceDistributor.SingletonResource,
+                RuntimeException>> resourcesToCreate = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            ResourceDistributor.KeyClass key = new ResourceDistributor.KeyClass(app, RESOURCE_KEY);
+            ResourceDistributor.SingletonResource resource = existingResources.get(key);
+            if (resource != null && !tenantsThatChanged.contains(app.getAsPublicTenantIdentifier())) {
+                newResources.put(key, resource);
+            } else if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                resourcesToCreate.put(key, () -> new SigningKeys(app, main));
+            }
         }
+        newResources.putAll(ParallelTasks.run(resourcesToCreate,
+                Config.getBaseConfig(main).getResourceLoadingParallelism(), "SigningKeys-load"));
+        main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
 
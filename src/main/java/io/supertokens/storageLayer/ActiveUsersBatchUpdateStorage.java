@@ -0,0 +1,37 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+
+import java.util.Map;
+
+/**
+ * Optionally implemented by storages that can update the last active time of many users with one query. This is used
+ * to write the last active times that are buffered in memory. Storages that do not implement it are updated once per
+ * user.
+ */
+public interface ActiveUsersBatchUpdateStorage {
+
+    /**
+     * Sets the last active time of each of the given users, unless the stored time is later.
+     */
+    void updateLastActiveForUsers(AppIdentifier appIdentifier, Map<String, Long> lastActiveTimes)
+            throws StorageQueryException, TenantOrAppNotFoundException;
+}
@@ -0,0 +1,41 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+
+/**
+ * Optionally implemented by storages that can count the users that were active in each of the last few days with one
+ * query. This is used for the monthly active user stats. Storages that do not implement it are queried once per day.
+ * <p>
+ * Each method returns an array of numberOfDays counts, where the count at index i is of the users that were active
+ * since now - (i + 1) days.
+ */
+public interface ActiveUsersStatsStorage {
+
+    int[] countUsersActiveSinceForEachDay(AppIdentifier appIdentifier, long now, int numberOfDays)
+            throws StorageQueryException;
+
+    int[] countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceForEachDay(AppIdentifier appIdentifier, long now,
+                                                                           int numberOfDays)
+            throws StorageQueryException;
+
+    int[] countUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(AppIdentifier appIdentifier,
+                                                                                        long now, int numberOfDays)
+            throws StorageQueryException;
+}
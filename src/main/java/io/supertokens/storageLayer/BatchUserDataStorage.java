@@ -0,0 +1,60 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optionally implemented by storages that can read the data of many users with one query, instead of one query per
+ * user. This is used when reading the data of a whole page of users, such as when exporting users. Storages that do
+ * not implement it are queried once per user.
+ */
+public interface BatchUserDataStorage {
+
+    /**
+     * Returns the roles of each of the given users in the tenant. Users without roles are not in the returned map.
+     */
+    Map<String, List<String>> getRolesForUsers(TenantIdentifier tenantIdentifier, List<String> userIds)
+            throws StorageQueryException;
+
+    /**
+     * Returns the metadata of each of the given users. Users without metadata are not in the returned map.
+     */
+    Map<String, JsonObject> getUserMetadataForUsers(AppIdentifier appIdentifier, List<String> userIds)
+            throws StorageQueryException;
+
+    /**
+     * Returns the primary users (with all their login methods) that the given user ids belong to. Each id can be a
+     * primary or a recipe user id. Ids that are not of any user are ignored.
+     */
+    List<AuthRecipeUserInfo> getPrimaryUsersByIds(AppIdentifier appIdentifier, List<String> userIds)
+            throws StorageQueryException;
+
+    /**
+     * Returns the SuperTokens user id of each of the given external user ids. External user ids without a mapping are
+     * not in the returned map.
+     */
+    Map<String, String> getUserIdMappingForExternalUserIds(AppIdentifier appIdentifier, List<String> externalUserIds)
+            throws StorageQueryException;
+}
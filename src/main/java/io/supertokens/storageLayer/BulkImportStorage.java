@@ -0,0 +1,83 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.bulkimport.BulkImportUser;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optionally implemented by storages that support bulk importing users. The users to import are added to a staging
+ * table in the storage of the public tenant of their app, and imported from there by the ProcessBulkImportUsers
+ * cronjob. Bulk import is not available for apps whose storage does not implement this.
+ */
+public interface BulkImportStorage {
+
+    void addBulkImportUsers(AppIdentifier appIdentifier, List<BulkImportUser> users) throws StorageQueryException;
+
+    /**
+     * Returns up to limit users that are waiting to be imported, and marks them as being processed.
+     * Users that were marked as being processed before processingStartedBefore are returned again, since the core
+     * that was processing them must have stopped before it was done.
+     */
+    List<BulkImportUser> getBulkImportUsersForProcessing(AppIdentifier appIdentifier, int limit,
+                                                         long processingStartedBefore)
+            throws StorageQueryException;
+
+    /**
+     * Returns up to limit users with the given status (or with any status if it is null), ordered by id, starting
+     * after the user with the id afterId (or from the first one if it is null).
+     */
+    List<BulkImportUser> getBulkImportUsers(AppIdentifier appIdentifier, @Nullable BulkImportUser.Status status,
+                                            int limit, @Nullable String afterId) throws StorageQueryException;
+
+    Map<BulkImportUser.Status, Long> getBulkImportUserCountsByStatus(AppIdentifier appIdentifier)
+            throws StorageQueryException;
+
+    void markBulkImportUsersAsFailed(AppIdentifier appIdentifier, Map<String, String> idToErrorMessage)
+            throws StorageQueryException;
+
+    // returns the number of users that were deleted
+    int deleteBulkImportUsers(AppIdentifier appIdentifier, List<String> ids) throws StorageQueryException;
+
+    /**
+     * Signs up all the given email password users in the tenant in one transaction, with multi row inserts. If any of
+     * them cannot be inserted (for example, because a user with the same email already exists), none of them are,
+     * and a StorageQueryException is thrown.
+     */
+    void importEmailPasswordUsers(TenantIdentifier tenantIdentifier, List<EmailPasswordUser> users)
+            throws StorageQueryException;
+
+    class EmailPasswordUser {
+        public final String userId;
+        public final String email;
+        public final String passwordHash;
+        public final long timeJoined;
+
+        public EmailPasswordUser(String userId, String email, String passwordHash, long timeJoined) {
+            this.userId = userId;
+            this.email = email;
+            this.passwordHash = passwordHash;
+            this.timeJoined = timeJoined;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+/**
+ * Optionally implemented by storages that can delete expired rows in bounded batches. The DeleteExpired* cronjobs
+ * use this when the core is configured with expired_data_deletion_batch_size > 0, and fall back to the single delete
+ * query of the recipe storage interfaces for storages that do not implement it.
+ * <p>
+ * Each method deletes at most batchSize rows and returns the number of rows it deleted, so a return value smaller
+ * than batchSize means that there is nothing left to delete.
+ */
+public interface ExpiredDataBatchDeletionStorage {
+
+    int deleteExpiredSessions(int batchSize) throws StorageQueryException;
+
+    int deleteExpiredPasswordResetTokens(int batchSize) throws StorageQueryException;
+
+    int deleteExpiredEmailVerificationTokens(int batchSize) throws StorageQueryException;
+
+    int deleteExpiredDashboardSessions(int batchSize) throws StorageQueryException;
+
+    int removeExpiredTotpCodes(TenantIdentifier tenantIdentifier, long expiredBefore, int batchSize)
+            throws StorageQueryException;
+}
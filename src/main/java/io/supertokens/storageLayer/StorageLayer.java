@@ -16,12 +16,14 @@
 
 package io.supertokens.storageLayer;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.supertokens.*;
 import io.supertokens.cliOptions.CLIOptions;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.LOG_LEVEL;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
@@ -35,6 +37,7 @@ import io.supertokens.pluginInterface.multitenancy.*;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.useridmapping.UserIdType;
+import io.supertokens.utils.ParallelTasks;
 import jakarta.servlet.ServletException;
 import org.jetbrains.annotations.TestOnly;
 
@@ -44,13 +47,22 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class StorageLayer extends ResourceDistributor.SingletonResource {
 
     public static final String RESOURCE_KEY = "io.supertokens.storageLayer.StorageLayer";
+    private static final long STORAGE_CLOSE_DELAY_MS = 5000;
     private final Storage storage;
     private static URLClassLoader ucl = null;
 
+    // number of tenants that use this storage. Tenants whose configs map to the same connection fingerprint (see
+    // getUniqueId) share one StorageLayer object, and its storage is closed once no tenant uses it anymore. This is
+    // only changed while holding the resource distributor lock.
+    private int referenceCount = 0;
+
     public Storage getUnderlyingStorage() {
         return storage;
     }
@@ -77,6 +89,9 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
                     && (storageLayer.canBeUsed(config) || CLIOptions.get(main).isForceNoInMemoryDB())) {
                 result = storageLayer;
             } else {
+                if (storageLayer != null && CLIOptions.get(main).isCDSTrainingRun()) {
+                    loadPluginForCDSTrainingRun(main, storageLayer, config, tenantIdentifier);
+                }
                 result = new Start(main);
             }
         }
@@ -93,6 +108,20 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         return result;
     }
 
+    // The training run for the class data sharing archive uses the in memory db, so that it does not touch the db of
+    // the installation. The plugin still loads the config of the training run, which has no db settings, so that the
+    // classes it needs for that are in the archive as well. It is not initialised, since that connects to the db, so
+    // the classes that the plugin only loads once it is connected are not in the archive.
+    private static void loadPluginForCDSTrainingRun(Main main, Storage plugin, JsonObject config,
+                                                    TenantIdentifier tenantIdentifier) {
+        try {
+            plugin.constructor(main.getProcessId(), Main.makeConsolePrintSilent, Main.isTesting);
+            plugin.loadConfig(config, new HashSet<>(), tenantIdentifier);
+        } catch (Exception ignored) {
+            // the archive is only an optimisation, so the training run goes on without these classes
+        }
+    }
+
     private StorageLayer(Storage storage) {
         this.storage = storage;
     }
@@ -187,8 +216,18 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
 
     public static void initPrimary(Main main, String pluginFolderPath, JsonObject configJson)
             throws MalformedURLException, InvalidConfigException {
-        main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
-                new StorageLayer(main, pluginFolderPath, configJson, TenantIdentifier.BASE_TENANT));
+        StorageLayer storageLayer = new StorageLayer(main, pluginFolderPath, configJson, TenantIdentifier.BASE_TENANT);
+        try {
+            main.getResourceDistributor().withResourceDistributorLock(() -> {
+                main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
+                        storageLayer);
+                StorageLookupCache.getInstance(main).rebuildIndex(
+                        main.getResourceDistributor().getAllResourcesWithResourceKey(RESOURCE_KEY));
+                return null;
+            });
+        } catch (ResourceDistributor.FuncException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public static void loadAllTenantStorage(Main main, TenantConfig[] tenants)
@@ -206,12 +245,19 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         Map<ResourceDistributor.KeyClass, Storage> resourceKeyToStorageMap = new HashMap<>();
         {
             Map<String, Storage> idToStorageMap = new HashMap<>();
+            // tenants usually have the same normalised config, so a storage object is only created once per distinct
+            // config to find its unique ID
+            Map<String, Storage> configToStorageMap = new HashMap<>();
             for (ResourceDistributor.KeyClass key : normalisedConfigs.keySet()) {
-                // setting doNotLog to true so that plugin loading is not logged here
-                Storage storage = StorageLayer.getNewStorageInstance(main, normalisedConfigs.get(key), key.getTenantIdentifier(), true);
-                String userPoolId = storage.getUserPoolId();
-                String connectionPoolId = storage.getConnectionPoolId();
-                String uniqueId = userPoolId + "~" + connectionPoolId;
+                String normalisedConfig = normalisedConfigs.get(key).toString();
+                Storage storage = configToStorageMap.get(normalisedConfig);
+                if (storage == null) {
+                    // setting doNotLog to true so that plugin loading is not logged here
+                    storage = StorageLayer.getNewStorageInstance(main, normalisedConfigs.get(key),
+                            key.getTenantIdentifier(), true);
+                    configToStorageMap.put(normalisedConfig, storage);
+                }
+                String uniqueId = getUniqueId(storage);
                 if (idToStorageMap.get(uniqueId) != null) {
                     // this means there already exists a storage object that can be reused
                     // for this tenant
@@ -226,81 +272,156 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         // at this point, we have made sure that all the configs are fine and that the storage
         // objects are shared across tenants based on the config of each tenant.
 
-        // now we loop through existing storage objects in the main resource distributor and reuse them
-        // if the unique ID is the same as the storage objects created above.
+        // now we reuse the existing storage objects if their unique ID is the same as the storage objects created
+        // above, and initialise the ones that will be used. This is done without holding the resource distributor
+        // lock, since initialising a storage can create a connection pool and tables in the db.
+        Set<Storage> newStoragesToInit = new HashSet<>();
+        {
+            Map<String, StorageLayer> idToExistingStorageMap = getUniqueIdToStorageLayerMap(
+                    main.getResourceDistributor().getAllResourcesWithResourceKey(RESOURCE_KEY));
+            Map<String, Storage> storagesToInit = new HashMap<>();
+            for (Storage storage : resourceKeyToStorageMap.values()) {
+                String uniqueId = getUniqueId(storage);
+                if (idToExistingStorageMap.containsKey(uniqueId)) {
+                    storagesToInit.put(uniqueId, idToExistingStorageMap.get(uniqueId).storage);
+                } else {
+                    storagesToInit.put(uniqueId, storage);
+                    newStoragesToInit.add(storage);
+                }
+            }
+            // each storage is initialised in its own thread, since this mostly waits on its db
+            Map<String, ParallelTasks.Task<Void, RuntimeException>> initTasks = new LinkedHashMap<>();
+            for (Map.Entry<String, Storage> entry : storagesToInit.entrySet()) {
+                Storage storage = entry.getValue();
+                initTasks.put(entry.getKey(), () -> {
+                    storage.setLogLevels(Config.getBaseConfig(main).getLogLevels(main));
+                    try {
+                        storage.initStorage(false);
+                        storage.initFileLogging(
+                                Config.getBaseConfig(main).getInfoLogPath(main),
+                                Config.getBaseConfig(main).getErrorLogPath(main));
+                    } catch (DbInitException e) {
+
+                        Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
+                        // we ignore any exceptions from db here cause it's not the base tenant's db that
+                        // would throw and only tenants belonging to a specific tenant / app. In this case,
+                        // we still want other tenants to continue to work
+                    }
+                    return null;
+                });
+            }
+            ParallelTasks.run(initTasks, Config.getBaseConfig(main).getResourceLoadingParallelism(),
+                    "StorageLayer-init");
+        }
+
+        // then we swap in the storage objects at once. The existing storage objects are checked again here, since
+        // another reload could have swapped in a storage object with the same unique ID in the meantime.
+        List<Storage> storagesToClose = new ArrayList<>();
         try {
             main.getResourceDistributor().withResourceDistributorLock(() -> {
                 Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> existingStorageMap =
                         main.getResourceDistributor()
                                 .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                Map<String, StorageLayer> idToExistingStorageLayerMap = new HashMap<>();
-                for (ResourceDistributor.SingletonResource resource : existingStorageMap.values()) {
-                    StorageLayer currStorageLayer = (StorageLayer) resource;
-                    String userPoolId = currStorageLayer.storage.getUserPoolId();
-                    String connectionPoolId = currStorageLayer.storage.getConnectionPoolId();
-                    String uniqueId = userPoolId + "~" + connectionPoolId;
-                    idToExistingStorageLayerMap.put(uniqueId, currStorageLayer);
-                }
-                main.getResourceDistributor().clearAllResourcesWithResourceKey(RESOURCE_KEY);
+                Map<String, StorageLayer> idToExistingStorageMap = getUniqueIdToStorageLayerMap(existingStorageMap);
 
-                Set<String> uniquePoolsInUse = new HashSet<>();
+                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources =
+                        new HashMap<>();
+                Map<String, StorageLayer> storageLayersInUse = new HashMap<>();
 
                 for (ResourceDistributor.KeyClass key : resourceKeyToStorageMap.keySet()) {
                     Storage currStorage = resourceKeyToStorageMap.get(key);
-                    String userPoolId = currStorage.getUserPoolId();
-                    String connectionPoolId = currStorage.getConnectionPoolId();
-                    String uniqueId = userPoolId + "~" + connectionPoolId;
-                    if (idToExistingStorageLayerMap.containsKey(uniqueId)) {
-                        // we reuse the existing storage layer
-                        resourceKeyToStorageMap.put(key, idToExistingStorageLayerMap.get(uniqueId).storage);
+                    String uniqueId = getUniqueId(currStorage);
+                    StorageLayer storageLayer = storageLayersInUse.get(uniqueId);
+                    if (storageLayer == null) {
+                        if (idToExistingStorageMap.containsKey(uniqueId)) {
+                            // we reuse the existing storage layer
+                            storageLayer = idToExistingStorageMap.get(uniqueId);
+                            if (newStoragesToInit.remove(currStorage)) {
+                                // the new storage object was initialised above, but is not used since another
+                                // reload swapped in one with the same unique ID
+                                storagesToClose.add(currStorage);
+                            }
+                        } else {
+                            storageLayer = new StorageLayer(currStorage);
+                        }
+                        storageLayer.referenceCount = 0;
+                        storageLayersInUse.put(uniqueId, storageLayer);
                     }
 
-                    resourceKeyToStorageMap.get(key).setLogLevels(Config.getBaseConfig(main).getLogLevels(main));
-
-                    main.getResourceDistributor().setResource(key.getTenantIdentifier(), RESOURCE_KEY,
-                            new StorageLayer(resourceKeyToStorageMap.get(key)));
-
-                    uniquePoolsInUse.add(uniqueId);
+                    newResources.put(new ResourceDistributor.KeyClass(key.getTenantIdentifier(), RESOURCE_KEY),
+                            storageLayer);
+                    storageLayer.referenceCount++;
                 }
 
-                for (ResourceDistributor.KeyClass key : existingStorageMap.keySet()) {
-                    Storage existingStorage = ((StorageLayer) existingStorageMap.get(key)).storage;
-                    String userPoolId = existingStorage.getUserPoolId();
-                    String connectionPoolId = existingStorage.getConnectionPoolId();
-                    String uniqueId = userPoolId + "~" + connectionPoolId;
+                main.getResourceDistributor().replaceAllResourcesWithResourceKey(RESOURCE_KEY, newResources);
+                StorageLookupCache.getInstance(main).rebuildIndex(newResources);
 
-                    if (!uniquePoolsInUse.contains(uniqueId)) {
-                        ((StorageLayer) existingStorageMap.get(key)).storage.close();
-                        ((StorageLayer) existingStorageMap.get(key)).storage.stopLogging();
-                    }
-                }
-
-                // we call init on all the newly saved storage objects.
-                Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
-                        main.getResourceDistributor()
-                                .getAllResourcesWithResourceKey(RESOURCE_KEY);
-                for (ResourceDistributor.SingletonResource resource : resources.values()) {
-                    try {
-                        ((StorageLayer) resource).storage.initStorage(false);
-                        ((StorageLayer) resource).storage.initFileLogging(
-                                Config.getBaseConfig(main).getInfoLogPath(main),
-                                Config.getBaseConfig(main).getErrorLogPath(main));
-                    } catch (DbInitException e) {
-
-                        Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
-                        // we ignore any exceptions from db here cause it's not the base tenant's db that
-                        // would throw and only tenants belonging to a specific tenant / app. In this case,
-                        // we still want other tenants to continue to work
+                for (StorageLayer existingStorageLayer : getUniqueStorageLayers(existingStorageMap)) {
+                    if (!storageLayersInUse.containsValue(existingStorageLayer)) {
+                        existingStorageLayer.referenceCount = 0;
+                        if (!storageLayersInUse.containsKey(getUniqueId(existingStorageLayer.storage))) {
+                            // no tenant uses this storage anymore
+                            storagesToClose.add(existingStorageLayer.storage);
+                        }
                     }
                 }
 
                 return null;
             });
-
-
         } catch (ResourceDistributor.FuncException e) {
             throw new RuntimeException(e);
         }
+
+        closeStoragesLater(main, storagesToClose);
+    }
+
+    // the connection fingerprint of a storage. Storages with the same fingerprint connect to the same db with the same
+    // connection pool settings, so only one of them is used for all the tenants that map to it.
+    private static String getUniqueId(Storage storage) {
+        return storage.getUserPoolId() + "~" + storage.getConnectionPoolId();
+    }
+
+    private static Map<String, StorageLayer> getUniqueIdToStorageLayerMap(
+            Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> storageLayers) {
+        Map<String, StorageLayer> result = new HashMap<>();
+        for (StorageLayer storageLayer : getUniqueStorageLayers(storageLayers)) {
+            result.put(getUniqueId(storageLayer.storage), storageLayer);
+        }
+        return result;
+    }
+
+    private static Set<StorageLayer> getUniqueStorageLayers(
+            Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> storageLayers) {
+        Set<StorageLayer> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ResourceDistributor.SingletonResource resource : storageLayers.values()) {
+            result.add((StorageLayer) resource);
+        }
+        return result;
+    }
+
+    // Storage objects that are not used anymore are closed after a delay, in a separate thread, so that the reload
+    // does not wait for their connection pools to shut down, and queries that were started with them before they
+    // were swapped out can finish.
+    private static void closeStoragesLater(Main main, List<Storage> storages) {
+        if (storages.isEmpty()) {
+            return;
+        }
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(STORAGE_CLOSE_DELAY_MS);
+            } catch (InterruptedException ignored) {
+            }
+            for (Storage storage : storages) {
+                try {
+                    storage.close();
+                    storage.stopLogging();
+                } catch (Exception e) {
+                    Logging.error(main, TenantIdentifier.BASE_TENANT, "Error while closing storage", false, e);
+                }
+            }
+        }, "StorageLayer-close");
+        closer.setDaemon(true);
+        closer.start();
     }
 
     public static Storage getBaseStorage(Main main) {
@@ -365,45 +486,132 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
     }
 
     public static List<List<TenantIdentifier>> getTenantsWithUniqueUserPoolId(Main main) {
-        List<List<TenantIdentifier>> result = new ArrayList<>();
-        Map<String, List<TenantIdentifier>> uniquePoolList = new HashMap<>();
+        return StorageLookupCache.getInstance(main).getTenantsWithUniqueUserPoolId();
+    }
 
-        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
-                main.getResourceDistributor()
-                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
-        for (ResourceDistributor.KeyClass key : resources.keySet()) {
-            Storage storage = ((StorageLayer) resources.get(key)).storage;
-            if (uniquePoolList.get(storage.getUserPoolId()) != null) {
-                uniquePoolList.get(storage.getUserPoolId()).add(key.getTenantIdentifier());
-            } else {
-                uniquePoolList.put(storage.getUserPoolId(), new ArrayList<>());
-                uniquePoolList.get(storage.getUserPoolId()).add(key.getTenantIdentifier());
-            }
+    /**
+     * Lists the connection pools that the core holds, grouped by database (user pool ID), along with the number of
+     * tenants that use each pool and, for storages that implement ConnectionPoolStatsStorage, the number of open and
+     * idle connections.
+     */
+    public static JsonObject getStoragePoolsReport(Main main) {
+        Map<String, List<StorageLayer>> userPoolIdToStorageLayers = new TreeMap<>();
+        Map<StorageLayer, Integer> referenceCounts = new IdentityHashMap<>();
+        try {
+            main.getResourceDistributor().withResourceDistributorLock(() -> {
+                for (StorageLayer storageLayer : getUniqueStorageLayers(
+                        main.getResourceDistributor().getAllResourcesWithResourceKey(RESOURCE_KEY))) {
+                    userPoolIdToStorageLayers.computeIfAbsent(storageLayer.storage.getUserPoolId(),
+                            k -> new ArrayList<>()).add(storageLayer);
+                    referenceCounts.put(storageLayer, storageLayer.referenceCount);
+                }
+                return null;
+            });
+        } catch (ResourceDistributor.FuncException e) {
+            throw new IllegalStateException(e);
         }
-        for (String s : uniquePoolList.keySet()) {
-            result.add(uniquePoolList.get(s));
+
+        JsonArray databases = new JsonArray();
+        int totalPools = 0;
+        for (Map.Entry<String, List<StorageLayer>> entry : userPoolIdToStorageLayers.entrySet()) {
+            JsonObject database = new JsonObject();
+            database.addProperty("userPoolId", entry.getKey());
+            JsonArray pools = new JsonArray();
+            int numberOfTenants = 0;
+            Integer numberOfOpenConnections = 0;
+            for (StorageLayer storageLayer : entry.getValue()) {
+                JsonObject pool = new JsonObject();
+                pool.addProperty("numberOfTenants", referenceCounts.get(storageLayer));
+                numberOfTenants += referenceCounts.get(storageLayer);
+                if (storageLayer.storage instanceof ConnectionPoolStatsStorage) {
+                    ConnectionPoolStatsStorage stats = (ConnectionPoolStatsStorage) storageLayer.storage;
+                    int open = stats.getNumberOfOpenConnections();
+                    pool.addProperty("numberOfOpenConnections", open);
+                    pool.addProperty("numberOfIdleConnections", stats.getNumberOfIdleConnections());
+                    if (numberOfOpenConnections != null) {
+                        numberOfOpenConnections += open;
+                    }
+                } else {
+                    // the total is not known if any pool does not report it
+                    numberOfOpenConnections = null;
+                }
+                pools.add(pool);
+            }
+            database.addProperty("numberOfConnectionPools", pools.size());
+            database.addProperty("numberOfTenants", numberOfTenants);
+            if (numberOfOpenConnections != null) {
+                database.addProperty("numberOfOpenConnections", numberOfOpenConnections);
+            }
+            database.add("connectionPools", pools);
+            databases.add(database);
+            totalPools += pools.size();
         }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("numberOfConnectionPools", totalPools);
+        result.add("databases", databases);
         return result;
     }
 
     public static Storage[] getStoragesForApp(Main main, AppIdentifier appIdentifier)
             throws TenantOrAppNotFoundException {
-        Map<String, Storage> userPoolToStorage = new HashMap<>();
+        Storage[] storages = StorageLookupCache.getInstance(main).getStoragesForApp(appIdentifier);
+        if (storages == null) {
+            throw new TenantOrAppNotFoundException(appIdentifier);
+        }
+        return storages;
+    }
 
-        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
-                main.getResourceDistributor()
-                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
-        for (ResourceDistributor.KeyClass key : resources.keySet()) {
-            Storage storage = ((StorageLayer) resources.get(key)).storage;
-            if (key.getTenantIdentifier().toAppIdentifier().equals(appIdentifier)) {
-                userPoolToStorage.put(storage.getUserPoolId(), storage);
+    public interface StorageQuery<T> {
+        T run(Storage storage) throws StorageQueryException, TenantOrAppNotFoundException;
+    }
+
+    // Runs the query on each of the storages and returns the results in the order of the storages. The first storage
+    // is queried in this thread while the others are queried in parallel, on the same bounded executor that is used to
+    // find users in the storages of an app. This is meant for app wide aggregations, such as counting users.
+    public static <T> List<T> queryEachStorage(Main main, Storage[] storages, StorageQuery<T> query)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        List<T> results = new ArrayList<>();
+        if (storages.length <= 1) {
+            for (Storage storage : storages) {
+                results.add(query.run(storage));
             }
+            return results;
         }
-        Storage[] storages = userPoolToStorage.values().toArray(new Storage[0]);
-        if (storages.length == 0) {
-            throw new TenantOrAppNotFoundException(appIdentifier);
+
+        ExecutorService executor = StorageLookupCache.getInstance(main).getProbeExecutor();
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 1; i < storages.length; i++) {
+            Storage storage = storages[i];
+            futures.add(executor.submit(() -> query.run(storage)));
+        }
+        try {
+            results.add(query.run(storages[0]));
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof StorageQueryException) {
+                        throw (StorageQueryException) e.getCause();
+                    }
+                    if (e.getCause() instanceof TenantOrAppNotFoundException) {
+                        throw (TenantOrAppNotFoundException) e.getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return results;
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(false);
+            }
         }
-        return storages;
     }
 
     public static StorageAndUserIdMapping findStorageAndUserIdMappingForUser(
@@ -458,6 +666,52 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         throw new UnknownUserIdException();
     }
 
+    /**
+     * Same as findStorageAndUserIdMappingForUser(AppIdentifier, Storage[], String, UserIdType), but if the app has
+     * more than one storage, this first looks for the user in the storage that it was last found in, and otherwise
+     * queries all the storages in parallel.
+     */
+    public static StorageAndUserIdMapping findStorageAndUserIdMappingForUser(
+            Main main, AppIdentifier appIdentifier, Storage[] storages, String userId,
+            UserIdType userIdType) throws StorageQueryException, UnknownUserIdException {
+        if (storages.length <= 1 || storages[0].getType() != STORAGE_TYPE.SQL) {
+            return findStorageAndUserIdMappingForUser(appIdentifier, storages, userId, userIdType);
+        }
+
+        StorageLookupCache cache = StorageLookupCache.getInstance(main);
+        if (cache.isUserLocationCacheEnabled()) {
+            Storage cachedStorage = cache.getUserLocation(appIdentifier, userId, userIdType);
+            if (cachedStorage != null) {
+                StorageAndUserIdMapping result = findUserInStorages(appIdentifier, new Storage[]{cachedStorage},
+                        userId, userIdType, null);
+                if (result != null) {
+                    Metrics.getInstance(main).incrementCounter(StorageLookupCache.USER_LOCATION_CACHE_HIT_METRIC);
+                    return result;
+                }
+                cache.removeUserLocation(appIdentifier, userId, userIdType);
+            }
+            Metrics.getInstance(main).incrementCounter(StorageLookupCache.USER_LOCATION_CACHE_MISS_METRIC);
+        }
+
+        StorageAndUserIdMapping result = findUserInStorages(appIdentifier, storages, userId, userIdType,
+                cache.getProbeExecutor());
+        if (result == null) {
+            throw new UnknownUserIdException();
+        }
+        if (cache.isUserLocationCacheEnabled()) {
+            cache.putUserLocation(appIdentifier, userId, userIdType, result.storage);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the cached storage location of the user, for example after it is deleted. This is not needed for
+     * correctness, since a cached location is always checked before it is used, but saves a query on the next lookup.
+     */
+    public static void invalidateUserLocation(Main main, AppIdentifier appIdentifier, String userId) {
+        StorageLookupCache.getInstance(main).removeUserLocation(appIdentifier, userId);
+    }
+
     public static StorageAndUserIdMapping findStorageAndUserIdMappingForUser(
             AppIdentifier appIdentifier, Storage[] storages, String userId,
             UserIdType userIdType) throws StorageQueryException, UnknownUserIdException {
@@ -472,70 +726,125 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
             return new StorageAndUserIdMapping(storages[0], null);
         }
 
-        if (userIdType == UserIdType.SUPERTOKENS) {
-            for (Storage storage : storages) {
-                if (((AuthRecipeStorage) storage).doesUserIdExist(appIdentifier, userId)) {
-                    UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
-                            appIdentifier, storage,
-                            userId, userIdType);
-
-                    return new StorageAndUserIdMapping(storage, mapping);
-                }
-            }
-
+        StorageAndUserIdMapping result = findUserInStorages(appIdentifier, storages, userId, userIdType, null);
+        if (result == null) {
             // Not found in any of the storages
             throw new UnknownUserIdException();
+        }
+        return result;
+    }
+
+    // the ways in which a user can be found in a storage, in the order in which they are checked for UserIdType.ANY
+    private enum UserLookup {
+        // the user ID is a supertokens user ID of an auth recipe user
+        SUPERTOKENS_USER_ID,
+        // the user ID is in a user ID mapping of an auth recipe user
+        USER_ID_MAPPING,
+        // the user ID is only used by non auth recipes
+        NON_AUTH_RECIPE
+    }
 
+    private static List<UserLookup> getUserLookups(UserIdType userIdType) {
+        if (userIdType == UserIdType.SUPERTOKENS) {
+            return Collections.singletonList(UserLookup.SUPERTOKENS_USER_ID);
         } else if (userIdType == UserIdType.EXTERNAL) {
-            for (Storage storage : storages) {
-                UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
-                        appIdentifier, storage,
-                        userId, userIdType);
+            return Collections.singletonList(UserLookup.USER_ID_MAPPING);
+        } else if (userIdType == UserIdType.ANY) {
+            return Arrays.asList(UserLookup.SUPERTOKENS_USER_ID, UserLookup.USER_ID_MAPPING,
+                    UserLookup.NON_AUTH_RECIPE);
+        }
+        throw new IllegalStateException("should never come here");
+    }
 
-                if (mapping != null) {
-                    return new StorageAndUserIdMapping(storage, mapping);
+    // Returns the user from the first storage (in the order of storages) that it is found in, or null. Each kind of
+    // lookup is done in all storages before the next one, so that a supertokens user ID in one storage takes
+    // precedence over a user ID mapping in another. If an executor is given, the storages are queried in parallel.
+    private static StorageAndUserIdMapping findUserInStorages(AppIdentifier appIdentifier, Storage[] storages,
+                                                              String userId, UserIdType userIdType,
+                                                              ExecutorService executor)
+            throws StorageQueryException {
+        for (UserLookup lookup : getUserLookups(userIdType)) {
+            if (executor == null || storages.length == 1) {
+                for (Storage storage : storages) {
+                    StorageAndUserIdMapping result = findUserInStorage(appIdentifier, storage, userId, userIdType,
+                            lookup);
+                    if (result != null) {
+                        return result;
+                    }
                 }
+                continue;
             }
 
-            throw new UnknownUserIdException();
-        } else if (userIdType == UserIdType.ANY) {
-
-            // look for the user in auth recipes as supertokens user id
-            for (Storage storage : storages) {
-                if (((AuthRecipeStorage) storage).doesUserIdExist(appIdentifier, userId)) {
-                    UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
-                            appIdentifier, storage,
-                            userId, userIdType);
-
-                    return new StorageAndUserIdMapping(storage, mapping);
+            List<Future<StorageAndUserIdMapping>> futures = new ArrayList<>();
+            for (int i = 1; i < storages.length; i++) {
+                Storage storage = storages[i];
+                futures.add(executor.submit(
+                        () -> findUserInStorage(appIdentifier, storage, userId, userIdType, lookup)));
+            }
+            try {
+                // the first storage is queried in this thread while the others are queried in the executor
+                StorageAndUserIdMapping result = findUserInStorage(appIdentifier, storages[0], userId, userIdType,
+                        lookup);
+                if (result != null) {
+                    return result;
+                }
+                for (Future<StorageAndUserIdMapping> future : futures) {
+                    try {
+                        result = future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof StorageQueryException) {
+                            throw (StorageQueryException) e.getCause();
+                        }
+                        if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) e.getCause();
+                        }
+                        throw new IllegalStateException(e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            } finally {
+                for (Future<StorageAndUserIdMapping> future : futures) {
+                    future.cancel(false);
                 }
             }
+        }
+        return null;
+    }
 
-            // Look for user in auth recipes using user id mapping
-            for (Storage storage : storages) {
+    private static StorageAndUserIdMapping findUserInStorage(AppIdentifier appIdentifier, Storage storage,
+                                                             String userId, UserIdType userIdType,
+                                                             UserLookup lookup)
+            throws StorageQueryException {
+        if (lookup == UserLookup.SUPERTOKENS_USER_ID) {
+            if (((AuthRecipeStorage) storage).doesUserIdExist(appIdentifier, userId)) {
                 UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
                         appIdentifier, storage,
                         userId, userIdType);
 
-                if (mapping != null) {
-                    return new StorageAndUserIdMapping(storage, mapping);
-                }
+                return new StorageAndUserIdMapping(storage, mapping);
             }
+        } else if (lookup == UserLookup.USER_ID_MAPPING) {
+            UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
+                    appIdentifier, storage,
+                    userId, userIdType);
 
-            // Look for non auth recipes
-            for (Storage storage : storages) {
-                try {
-                    io.supertokens.useridmapping.UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
-                            appIdentifier, storage, userId, true);
-                } catch (ServletException e) {
-                    // this means that the userId is being used for a non auth recipe.
-                    return new StorageAndUserIdMapping(storage, null);
-                }
+            if (mapping != null) {
+                return new StorageAndUserIdMapping(storage, mapping);
             }
-
-            throw new UnknownUserIdException();
         } else {
-            throw new IllegalStateException("should never come here");
+            try {
+                io.supertokens.useridmapping.UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
+                        appIdentifier, storage, userId, true);
+            } catch (ServletException e) {
+                // this means that the userId is being used for a non auth recipe.
+                return new StorageAndUserIdMapping(storage, null);
+            }
         }
+        return null;
     }
 }
@@ -0,0 +1,231 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.useridmapping.UserIdType;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookups that StorageLayer does on every user scoped API call, so that they do not have to go over all the storage
+ * resources, or query every storage of the app:
+ * <ul>
+ *     <li>an index of the storages of each app, and of the tenants of each user pool, which is rebuilt whenever the
+ *     storages are (re)loaded.</li>
+ *     <li>a bounded cache of the storage that a user was last found in, for apps whose tenants are spread across
+ *     more than one user pool. It is split into shards with their own lock, so that lookups of different users do not
+ *     wait for each other. An entry is only a hint: the user is always looked up in the cached storage, and if it is
+ *     not found there anymore, the entry is removed and all storages are queried again.</li>
+ * </ul>
+ */
+public class StorageLookupCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storageLayer.StorageLookupCache";
+
+    public static final String USER_LOCATION_CACHE_HIT_METRIC = "storage_layer.user_location_cache.hit";
+    public static final String USER_LOCATION_CACHE_MISS_METRIC = "storage_layer.user_location_cache.miss";
+
+    private static final int NUMBER_OF_SHARDS = 16;
+
+    private static final long PROBE_THREAD_KEEP_ALIVE_SEC = 60;
+
+    private final Main main;
+
+    private volatile Map<AppIdentifier, Storage[]> appToStorages = new HashMap<>();
+
+    private volatile Map<String, List<TenantIdentifier>> userPoolIdToTenants = new HashMap<>();
+
+    private final Shard[] shards = new Shard[NUMBER_OF_SHARDS];
+
+    // used to query the storages of an app in parallel when a user is not in the cache. Its threads stop when they
+    // have been idle for a while, so this does not need to be shut down.
+    private final ExecutorService probeExecutor;
+
+    private StorageLookupCache(Main main) {
+        this.main = main;
+        int maxSizePerShard = Math.max(1,
+                Config.getBaseConfig(main).getUserStorageLocationCacheSize() / NUMBER_OF_SHARDS);
+        for (int i = 0; i < NUMBER_OF_SHARDS; i++) {
+            this.shards[i] = new Shard(maxSizePerShard);
+        }
+        int probeThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(probeThreads, probeThreads, PROBE_THREAD_KEEP_ALIVE_SEC,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "StorageLayer-probe-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.probeExecutor = executor;
+    }
+
+    static StorageLookupCache getInstance(Main main) {
+        TenantIdentifier baseTenant = new TenantIdentifier(null, null, null);
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor()
+                .getResourceIfPresent(baseTenant, RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor()
+                    .setResource(baseTenant, RESOURCE_KEY, new StorageLookupCache(main));
+        }
+        return (StorageLookupCache) instance;
+    }
+
+    /**
+     * Rebuilds the app and user pool index from the storage layer resources. This must be called while holding the
+     * resource distributor lock, right after the storage layer resources are changed.
+     */
+    void rebuildIndex(Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> storageLayers) {
+        Map<AppIdentifier, Map<String, Storage>> appToUserPoolToStorage = new HashMap<>();
+        Map<String, List<TenantIdentifier>> userPoolIdToTenants = new HashMap<>();
+        for (Map.Entry<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> entry :
+                storageLayers.entrySet()) {
+            Storage storage = ((StorageLayer) entry.getValue()).getUnderlyingStorage();
+            TenantIdentifier tenantIdentifier = entry.getKey().getTenantIdentifier();
+            appToUserPoolToStorage.computeIfAbsent(tenantIdentifier.toAppIdentifier(), k -> new HashMap<>())
+                    .put(storage.getUserPoolId(), storage);
+            userPoolIdToTenants.computeIfAbsent(storage.getUserPoolId(), k -> new ArrayList<>())
+                    .add(tenantIdentifier);
+        }
+
+        Map<AppIdentifier, Storage[]> appToStorages = new HashMap<>();
+        for (Map.Entry<AppIdentifier, Map<String, Storage>> entry : appToUserPoolToStorage.entrySet()) {
+            appToStorages.put(entry.getKey(), entry.getValue().values().toArray(new Storage[0]));
+        }
+        this.appToStorages = appToStorages;
+        this.userPoolIdToTenants = userPoolIdToTenants;
+
+        // a storage that is not used anymore must not be returned from the cache
+        for (Shard shard : this.shards) {
+            shard.clear();
+        }
+    }
+
+    Storage[] getStoragesForApp(AppIdentifier appIdentifier) {
+        Storage[] storages = this.appToStorages.get(appIdentifier);
+        return storages == null ? null : storages.clone();
+    }
+
+    List<List<TenantIdentifier>> getTenantsWithUniqueUserPoolId() {
+        List<List<TenantIdentifier>> result = new ArrayList<>();
+        for (List<TenantIdentifier> tenants : this.userPoolIdToTenants.values()) {
+            result.add(new ArrayList<>(tenants));
+        }
+        return result;
+    }
+
+    ExecutorService getProbeExecutor() {
+        return this.probeExecutor;
+    }
+
+    boolean isUserLocationCacheEnabled() {
+        return Config.getBaseConfig(main).getUserStorageLocationCacheSize() > 0;
+    }
+
+    Storage getUserLocation(AppIdentifier appIdentifier, String userId, UserIdType userIdType) {
+        UserLocationKey key = new UserLocationKey(appIdentifier, userId, userIdType);
+        return getShard(key).get(key);
+    }
+
+    void putUserLocation(AppIdentifier appIdentifier, String userId, UserIdType userIdType, Storage storage) {
+        UserLocationKey key = new UserLocationKey(appIdentifier, userId, userIdType);
+        getShard(key).put(key, storage);
+    }
+
+    void removeUserLocation(AppIdentifier appIdentifier, String userId, UserIdType userIdType) {
+        UserLocationKey key = new UserLocationKey(appIdentifier, userId, userIdType);
+        getShard(key).remove(key);
+    }
+
+    void removeUserLocation(AppIdentifier appIdentifier, String userId) {
+        for (UserIdType userIdType : UserIdType.values()) {
+            removeUserLocation(appIdentifier, userId, userIdType);
+        }
+    }
+
+    private Shard getShard(UserLocationKey key) {
+        return this.shards[Math.floorMod(key.hashCode(), NUMBER_OF_SHARDS)];
+    }
+
+    private static class Shard {
+        private final LinkedHashMap<UserLocationKey, Storage> entries;
+
+        Shard(int maxSize) {
+            // access ordered, so that the least recently used entry is removed when the shard is full
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UserLocationKey, Storage> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized Storage get(UserLocationKey key) {
+            return this.entries.get(key);
+        }
+
+        synchronized void put(UserLocationKey key, Storage storage) {
+            this.entries.put(key, storage);
+        }
+
+        synchronized void remove(UserLocationKey key) {
+            this.entries.remove(key);
+        }
+
+        synchronized void clear() {
+            this.entries.clear();
+        }
+    }
+
+    private static class UserLocationKey {
+        private final AppIdentifier appIdentifier;
+        private final String userId;
+        private final UserIdType userIdType;
+
+        UserLocationKey(AppIdentifier appIdentifier, String userId, UserIdType userIdType) {
+            this.appIdentifier = appIdentifier;
+            this.userId = userId;
+            this.userIdType = userIdType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof UserLocationKey)) {
+                return false;
+            }
+            UserLocationKey otherKey = (UserLocationKey) other;
+            return this.appIdentifier.equals(otherKey.appIdentifier) && this.userId.equals(otherKey.userId)
+                    && this.userIdType == otherKey.userIdType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.appIdentifier, this.userId, this.userIdType);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+
+/**
+ * Optionally implemented by the base storage to let the core find out if any tenant config has changed without
+ * reading all of them. MultitenancyHelper skips the periodic refresh of tenants from the db when the version has not
+ * changed since the last refresh, and reads and compares all the tenant configs for storages that do not implement
+ * this.
+ * <p>
+ * The version must be increased in the same transaction as every create, update or delete of a tenant config
+ * (including its third party providers and factors), or after it if the change is not done in a transaction.
+ */
+public interface TenantConfigsVersionStorage {
+
+    long getTenantConfigsVersion() throws StorageQueryException;
+}
@@ -0,0 +1,44 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
+
+/**
+ * Optionally implemented by storages that can merge an update into the metadata of a user in the database, instead of
+ * the core reading the whole metadata of the user in a transaction and writing it back. Storages that do not
+ * implement it are updated with that read-modify-write.
+ */
+public interface UserMetadataMergeStorage {
+
+    /**
+     * Shallow merges the update into the metadata of the user (creating it if the user has none), and returns the
+     * result. Keys whose value in the update is null are removed.
+     *
+     * @param maxSizeInBytes the maximum size of the merged metadata, as JSON, or 0 if there is no limit. If the merged
+     *                       metadata is larger than this, nothing is changed.
+     * @return the merged metadata, or null if this update cannot be merged by the storage, in which case nothing is
+     * changed and the core merges it instead.
+     */
+    JsonObject mergeUserMetadata(AppIdentifier appIdentifier, String userId, JsonObject metadataUpdate,
+                                 int maxSizeInBytes)
+            throws StorageQueryException, TenantOrAppNotFoundException, UserMetadataTooLargeException;
+}
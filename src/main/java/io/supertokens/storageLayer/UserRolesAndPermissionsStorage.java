@@ -0,0 +1,38 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optionally implemented by storages that can read the roles of a user together with the permissions of those roles
+ * in one query. UserRoles.getRolesAndPermissionsForUser uses this when the roles of the app are in the same storage
+ * as the user, and falls back to one query for the roles and one per role for its permissions otherwise.
+ */
+public interface UserRolesAndPermissionsStorage {
+
+    /**
+     * Returns each role of the user in the tenant, mapped to the permissions of that role. A role without
+     * permissions is mapped to an empty list.
+     */
+    Map<String, List<String>> getRolesAndPermissionsForUser(TenantIdentifier tenantIdentifier, String userId)
+            throws StorageQueryException;
+}
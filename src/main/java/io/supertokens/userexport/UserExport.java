@@ -0,0 +1,113 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.userexport;
+
+import com.google.gson.JsonObject;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.authRecipe.UserPaginationContainer;
+import io.supertokens.authRecipe.UserPaginationToken;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.userroles.UserRoles;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports all users of a tenant, in the order in which they joined, one chunk at a time. Each chunk is read with the
+ * same keyset query that the users API uses, and the external user IDs, roles and metadata of all the users in the
+ * chunk are then read with one query each (if the storage implements BatchUserDataStorage). Only one chunk is held in
+ * memory at a time, so the export of any number of users uses a constant amount of memory.
+ * <p>
+ * After each chunk, the consumer gets a cursor that the export can be resumed from, if it is interrupted.
+ */
+public class UserExport {
+
+    public static final int DEFAULT_CHUNK_SIZE = AuthRecipe.USER_PAGINATION_LIMIT;
+
+    public static final int MAX_CHUNK_SIZE = 1000;
+
+    public static class ExportedUser {
+        public final AuthRecipeUserInfo user;
+        public final String[] roles;
+        public final JsonObject metadata;
+
+        ExportedUser(AuthRecipeUserInfo user, String[] roles, JsonObject metadata) {
+            this.user = user;
+            this.roles = roles;
+            this.metadata = metadata;
+        }
+    }
+
+    public interface ChunkConsumer {
+        /**
+         * @param nextCursor the cursor to resume the export from after this chunk, or null if this is the last chunk
+         */
+        void accept(List<ExportedUser> users, @Nullable String nextCursor) throws IOException;
+    }
+
+    /**
+     * Validates a cursor before the export is started, so that an invalid cursor can be reported before anything is
+     * sent to the consumer.
+     */
+    public static void validateCursor(String cursor) throws UserPaginationToken.InvalidTokenException {
+        UserPaginationToken.extractTokenInfo(cursor);
+    }
+
+    public static void exportUsers(TenantIdentifier tenantIdentifier, Storage storage, @Nullable String cursor,
+                                   int chunkSize, @Nullable RECIPE_ID[] includeRecipeIds, ChunkConsumer consumer)
+            throws StorageQueryException, TenantOrAppNotFoundException, UserPaginationToken.InvalidTokenException,
+            IOException {
+        do {
+            UserPaginationContainer page = AuthRecipe.getUsers(tenantIdentifier, storage, chunkSize, "ASC", cursor,
+                    includeRecipeIds, null);
+            consumer.accept(getExportedUsers(tenantIdentifier, storage, page.users), page.nextPaginationToken);
+            cursor = page.nextPaginationToken;
+        } while (cursor != null);
+    }
+
+    private static List<ExportedUser> getExportedUsers(TenantIdentifier tenantIdentifier, Storage storage,
+                                                       AuthRecipeUserInfo[] users)
+            throws StorageQueryException {
+        UserIdMapping.populateExternalUserIdForUsers(tenantIdentifier.toAppIdentifier(), storage, users);
+
+        // roles and metadata are stored against the external user ID of a user, if it has one
+        List<String> userIds = new ArrayList<>();
+        for (AuthRecipeUserInfo user : users) {
+            userIds.add(user.getSupertokensOrExternalUserId());
+        }
+        Map<String, String[]> roles = UserRoles.getRolesForUsers(tenantIdentifier, storage, userIds);
+        Map<String, JsonObject> metadata = UserMetadata.getUserMetadataForUsers(tenantIdentifier.toAppIdentifier(),
+                storage, userIds);
+
+        List<ExportedUser> exportedUsers = new ArrayList<>();
+        for (AuthRecipeUserInfo user : users) {
+            String userId = user.getSupertokensOrExternalUserId();
+            exportedUsers.add(new ExportedUser(user, roles.get(userId), metadata.get(userId)));
+        }
+        return exportedUsers;
+    }
+}
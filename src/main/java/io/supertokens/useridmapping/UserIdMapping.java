@@ -48,6 +48,10 @@ import java.util.*;
 
 public class UserIdMapping {
 
+    // the user ids are looked up in chunks of at most this many, so that the IN list of a query stays well below the
+    // limit on the number of parameters of a query in SQLite (999) and other databases
+    public static final int MAX_USER_IDS_PER_QUERY = 500;
+
     @TestOnly
     public static void createUserIdMapping(AppIdentifier appIdentifier, Storage[] storages,
                                            String superTokensUserId, String externalUserId,
@@ -340,10 +344,23 @@ public class UserIdMapping {
     public static HashMap<String, String> getUserIdMappingForSuperTokensUserIds(
             AppIdentifier appIdentifier,
             Storage storage,
-            ArrayList<String> userIds)
+            List<String> userIds)
             throws StorageQueryException {
-        // userIds are already filtered for a tenant
-        return StorageUtils.getUserIdMappingStorage(storage).getUserIdMappingForSuperTokensIds(appIdentifier, userIds);
+        // userIds are already filtered for a tenant. Duplicates are removed, since callers often pass the same user id
+        // more than once (for example the primary and recipe user id of a user that is not linked)
+        ArrayList<String> uniqueUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        UserIdMappingStorage userIdMappingStorage = StorageUtils.getUserIdMappingStorage(storage);
+        if (uniqueUserIds.size() <= MAX_USER_IDS_PER_QUERY) {
+            return userIdMappingStorage.getUserIdMappingForSuperTokensIds(appIdentifier, uniqueUserIds);
+        }
+
+        HashMap<String, String> userIdMappings = new HashMap<>();
+        for (int i = 0; i < uniqueUserIds.size(); i += MAX_USER_IDS_PER_QUERY) {
+            ArrayList<String> chunk = new ArrayList<>(
+                    uniqueUserIds.subList(i, Math.min(i + MAX_USER_IDS_PER_QUERY, uniqueUserIds.size())));
+            userIdMappings.putAll(userIdMappingStorage.getUserIdMappingForSuperTokensIds(appIdentifier, chunk));
+        }
+        return userIdMappings;
     }
 
     @TestOnly
@@ -436,10 +453,11 @@ public class UserIdMapping {
                 userIds.add(lm.getSupertokensUserId());
             }
         }
-        ArrayList<String> userIdsList = new ArrayList<>(userIds);
-        userIdsList.addAll(userIds);
+        if (userIds.isEmpty()) {
+            return;
+        }
         HashMap<String, String> userIdMappings = getUserIdMappingForSuperTokensUserIds(appIdentifier, storage,
-                userIdsList);
+                new ArrayList<>(userIds));
 
         for (AuthRecipeUserInfo user : users) {
             user.setExternalUserId(userIdMappings.get(user.getSupertokensUserId()));
@@ -18,6 +18,7 @@ package io.supertokens.usermetadata;
 
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
+import io.supertokens.config.Config;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.StorageUtils;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -25,14 +26,23 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.usermetadata.sqlStorage.UserMetadataSQLStorage;
+import io.supertokens.storageLayer.BatchUserDataStorage;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.UserMetadataMergeStorage;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
 import io.supertokens.utils.MetadataUtils;
 import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class UserMetadata {
 
+    public static final int MAX_USERS_TO_GET_METADATA_FOR = 500;
+
     @TestOnly
     public static JsonObject updateUserMetadata(Main main,
                                                 @Nonnull String userId, @Nonnull JsonObject metadataUpdate)
@@ -50,6 +60,36 @@ public class UserMetadata {
     public static JsonObject updateUserMetadata(AppIdentifier appIdentifier, Storage storage,
                                                 @Nonnull String userId, @Nonnull JsonObject metadataUpdate)
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
+        try {
+            return updateUserMetadata(appIdentifier, storage, userId, metadataUpdate, 0);
+        } catch (UserMetadataTooLargeException e) {
+            // there is no limit on the size
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // same as above, but rejects updates that would make the metadata larger than user_metadata_max_size_bytes
+    public static JsonObject updateUserMetadata(Main main, AppIdentifier appIdentifier, Storage storage,
+                                                @Nonnull String userId, @Nonnull JsonObject metadataUpdate)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UserMetadataTooLargeException {
+        return updateUserMetadata(appIdentifier, storage, userId, metadataUpdate,
+                Config.getBaseConfig(main).getUserMetadataMaxSizeBytes());
+    }
+
+    private static JsonObject updateUserMetadata(AppIdentifier appIdentifier, Storage storage,
+                                                 @Nonnull String userId, @Nonnull JsonObject metadataUpdate,
+                                                 int maxSizeInBytes)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UserMetadataTooLargeException {
+        if (storage instanceof UserMetadataMergeStorage) {
+            JsonObject mergedMetadata = ((UserMetadataMergeStorage) storage).mergeUserMetadata(appIdentifier,
+                    userId, metadataUpdate, maxSizeInBytes);
+            if (mergedMetadata != null) {
+                return mergedMetadata;
+            }
+        }
+
         UserMetadataSQLStorage umdStorage = StorageUtils.getUserMetadataStorage(storage);
 
         try {
@@ -60,6 +100,11 @@ public class UserMetadata {
                 JsonObject updatedMetadata = originalMetadata == null ? new JsonObject() : originalMetadata;
                 MetadataUtils.shallowMergeMetadataUpdate(updatedMetadata, metadataUpdate);
 
+                if (maxSizeInBytes > 0
+                        && updatedMetadata.toString().getBytes(StandardCharsets.UTF_8).length > maxSizeInBytes) {
+                    throw new StorageTransactionLogicException(new UserMetadataTooLargeException(maxSizeInBytes));
+                }
+
                 try {
                     umdStorage.setUserMetadata_Transaction(appIdentifier, con, userId, updatedMetadata);
                 } catch (TenantOrAppNotFoundException e) {
@@ -72,6 +117,9 @@ public class UserMetadata {
             if (e.actualException instanceof TenantOrAppNotFoundException) {
                 throw (TenantOrAppNotFoundException) e.actualException;
             }
+            if (e.actualException instanceof UserMetadataTooLargeException) {
+                throw (UserMetadataTooLargeException) e.actualException;
+            }
             throw e;
         }
     }
@@ -96,6 +144,26 @@ public class UserMetadata {
         return metadata;
     }
 
+    // returns the metadata of each of the given users, with an empty object for users without metadata
+    public static Map<String, JsonObject> getUserMetadataForUsers(AppIdentifier appIdentifier, Storage storage,
+                                                                  List<String> userIds)
+            throws StorageQueryException {
+        Map<String, JsonObject> metadataOfUsers = new HashMap<>();
+        if (storage instanceof BatchUserDataStorage) {
+            Map<String, JsonObject> metadata = ((BatchUserDataStorage) storage).getUserMetadataForUsers(appIdentifier,
+                    userIds);
+            for (String userId : userIds) {
+                JsonObject metadataOfUser = metadata.get(userId);
+                metadataOfUsers.put(userId, metadataOfUser == null ? new JsonObject() : metadataOfUser);
+            }
+        } else {
+            for (String userId : userIds) {
+                metadataOfUsers.put(userId, getUserMetadata(appIdentifier, storage, userId));
+            }
+        }
+        return metadataOfUsers;
+    }
+
     @TestOnly
     public static void deleteUserMetadata(Main main, @Nonnull String userId) throws StorageQueryException {
         Storage storage = StorageLayer.getStorage(main);
@@ -27,11 +27,18 @@ import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoun
 import io.supertokens.pluginInterface.userroles.exception.DuplicateUserRoleMappingException;
 import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
 import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
+import io.supertokens.storageLayer.BatchUserDataStorage;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.UserRolesAndPermissionsStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class UserRoles {
     // add a role to a user and return true, if the role is already mapped to the user return false, but if
@@ -50,6 +57,7 @@ public class UserRoles {
 
         try {
             StorageUtils.getUserRolesStorage(storage).addRoleToUser(tenantIdentifier, userId, role);
+            UserRolesCache.invalidateUser(main, tenantIdentifier, userId);
             return true;
         } catch (DuplicateUserRoleMappingException e) {
             // user already has role
@@ -109,13 +117,23 @@ public class UserRoles {
         }
     }
 
+    // same as above, but also removes the role from UserRolesCache. The function above does not, so changes made
+    // through it are seen by the cached reads only once the cached entry expires
+    public static boolean createNewRoleOrModifyItsPermissions(Main main, AppIdentifier appIdentifier,
+                                                              Storage storage, String role, String[] permissions)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
+        boolean createdNewRole = createNewRoleOrModifyItsPermissions(appIdentifier, storage, role, permissions);
+        UserRolesCache.invalidateRole(main, appIdentifier, role);
+        return createdNewRole;
+    }
+
     @TestOnly
     public static boolean createNewRoleOrModifyItsPermissions(Main main,
                                                               String role, String[] permissions)
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
         Storage storage = StorageLayer.getStorage(main);
         return createNewRoleOrModifyItsPermissions(
-                new AppIdentifier(null, null), storage, role,
+                main, new AppIdentifier(null, null), storage, role,
                 permissions);
     }
 
@@ -159,12 +177,21 @@ public class UserRoles {
         }
     }
 
+    // same as above, but also removes the roles of the user from UserRolesCache
+    public static boolean removeUserRole(Main main, TenantIdentifier tenantIdentifier, Storage storage,
+                                         String userId, String role)
+            throws StorageQueryException, StorageTransactionLogicException, UnknownRoleException {
+        boolean didUserHaveRole = removeUserRole(tenantIdentifier, storage, userId, role);
+        UserRolesCache.invalidateUser(main, tenantIdentifier, userId);
+        return didUserHaveRole;
+    }
+
     @TestOnly
     public static boolean removeUserRole(Main main, String userId, String role)
             throws StorageQueryException, StorageTransactionLogicException, UnknownRoleException {
         Storage storage = StorageLayer.getStorage(main);
         return removeUserRole(
-                new TenantIdentifier(null, null, null), storage,
+                main, new TenantIdentifier(null, null, null), storage,
                 userId, role);
     }
 
@@ -174,6 +201,33 @@ public class UserRoles {
         return StorageUtils.getUserRolesStorage(storage).getRolesForUser(tenantIdentifier, userId);
     }
 
+    // same as above, but the result is read through UserRolesCache
+    public static String[] getRolesForUser(Main main, TenantIdentifier tenantIdentifier, Storage storage,
+                                           String userId)
+            throws StorageQueryException {
+        return UserRolesCache.getRolesForUser(main, tenantIdentifier, userId,
+                () -> getRolesForUser(tenantIdentifier, storage, userId));
+    }
+
+    // retrieve the roles of each of the given users, with an empty array for users without roles
+    public static Map<String, String[]> getRolesForUsers(TenantIdentifier tenantIdentifier, Storage storage,
+                                                         List<String> userIds)
+            throws StorageQueryException {
+        Map<String, String[]> rolesOfUsers = new HashMap<>();
+        if (storage instanceof BatchUserDataStorage) {
+            Map<String, List<String>> roles = ((BatchUserDataStorage) storage).getRolesForUsers(tenantIdentifier,
+                    userIds);
+            for (String userId : userIds) {
+                rolesOfUsers.put(userId, roles.getOrDefault(userId, List.of()).toArray(new String[0]));
+            }
+        } else {
+            for (String userId : userIds) {
+                rolesOfUsers.put(userId, getRolesForUser(tenantIdentifier, storage, userId));
+            }
+        }
+        return rolesOfUsers;
+    }
+
     @TestOnly
     public static String[] getRolesForUser(Main main, String userId)
             throws StorageQueryException {
@@ -220,6 +274,57 @@ public class UserRoles {
         }
     }
 
+    // same as above, but the result is read through UserRolesCache
+    public static String[] getPermissionsForRole(Main main, AppIdentifier appIdentifier, Storage storage,
+                                                 String role)
+            throws StorageQueryException, UnknownRoleException {
+        return UserRolesCache.getPermissionsForRole(main, appIdentifier, role,
+                () -> getPermissionsForRole(appIdentifier, storage, role));
+    }
+
+    // retrieve all roles of the user, and the union of the permissions of those roles. If the roles of the app are in
+    // the same storage as the user, this is done with one query, instead of one for the roles and one for each role.
+    public static RolesAndPermissions getRolesAndPermissionsForUser(Main main, TenantIdentifier tenantIdentifier,
+                                                                    Storage storage, String userId)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        Storage appStorage = StorageLayer.getStorage(tenantIdentifier.toAppIdentifier().getAsPublicTenantIdentifier(),
+                main);
+        if (storage instanceof UserRolesAndPermissionsStorage
+                && storage.getUserPoolId().equals(appStorage.getUserPoolId())) {
+            Map<String, List<String>> rolesAndPermissions = ((UserRolesAndPermissionsStorage) storage)
+                    .getRolesAndPermissionsForUser(tenantIdentifier, userId);
+            Set<String> permissions = new LinkedHashSet<>();
+            for (List<String> permissionsOfRole : rolesAndPermissions.values()) {
+                permissions.addAll(permissionsOfRole);
+            }
+            return new RolesAndPermissions(rolesAndPermissions.keySet().toArray(new String[0]),
+                    permissions.toArray(new String[0]));
+        }
+
+        String[] roles = getRolesForUser(main, tenantIdentifier, storage, userId);
+        Set<String> permissions = new LinkedHashSet<>();
+        for (String role : roles) {
+            try {
+                permissions.addAll(Arrays.asList(
+                        getPermissionsForRole(main, tenantIdentifier.toAppIdentifier(), appStorage, role)));
+            } catch (UnknownRoleException e) {
+                // the role was deleted after the roles of the user were read, so it has no permissions
+            }
+        }
+        return new RolesAndPermissions(roles, permissions.toArray(new String[0]));
+    }
+
+    @TestOnly
+    public static RolesAndPermissions getRolesAndPermissionsForUser(Main main, String userId)
+            throws StorageQueryException {
+        Storage storage = StorageLayer.getStorage(main);
+        try {
+            return getRolesAndPermissionsForUser(main, new TenantIdentifier(null, null, null), storage, userId);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @TestOnly
     public static String[] getPermissionsForRole(Main main, String role)
             throws StorageQueryException, UnknownRoleException {
@@ -259,12 +364,20 @@ public class UserRoles {
         }
     }
 
+    // same as above, but also removes the role from UserRolesCache
+    public static void deletePermissionsFromRole(Main main, AppIdentifier appIdentifier, Storage storage,
+                                                 String role, @Nullable String[] permissions)
+            throws StorageQueryException, StorageTransactionLogicException, UnknownRoleException {
+        deletePermissionsFromRole(appIdentifier, storage, role, permissions);
+        UserRolesCache.invalidateRole(main, appIdentifier, role);
+    }
+
     @TestOnly
     public static void deletePermissionsFromRole(Main main, String role,
                                                  @Nullable String[] permissions)
             throws StorageQueryException, StorageTransactionLogicException, UnknownRoleException {
         Storage storage = StorageLayer.getStorage(main);
-        deletePermissionsFromRole(new AppIdentifier(null, null), storage,
+        deletePermissionsFromRole(main, new AppIdentifier(null, null), storage,
                 role, permissions);
     }
 
@@ -284,6 +397,24 @@ public class UserRoles {
                 new AppIdentifier(null, null), storage, permission);
     }
 
+    // the functions below remove cached roles and permissions, for when they are removed by something other than
+    // the functions in this class, such as deleting a user or removing it from a tenant, or deleting a tenant or app
+    public static void invalidateCachedRolesOfUser(Main main, TenantIdentifier tenantIdentifier, String userId) {
+        UserRolesCache.invalidateUser(main, tenantIdentifier, userId);
+    }
+
+    public static void invalidateCachedRolesOfUser(Main main, AppIdentifier appIdentifier, String userId) {
+        UserRolesCache.invalidateUserInAllTenants(main, appIdentifier, userId);
+    }
+
+    public static void invalidateCachedRolesOfTenant(Main main, TenantIdentifier tenantIdentifier) {
+        UserRolesCache.invalidateAllUsersOfTenant(main, tenantIdentifier);
+    }
+
+    public static void invalidateCachedRolesOfApp(Main main, AppIdentifier appIdentifier) {
+        UserRolesCache.invalidateApp(main, appIdentifier);
+    }
+
     // delete a role
     public static boolean deleteRole(Main main, AppIdentifier appIdentifier, String role)
             throws StorageQueryException, TenantOrAppNotFoundException {
@@ -301,6 +432,8 @@ public class UserRoles {
         UserRolesSQLStorage userRolesStorage = StorageUtils.getUserRolesStorage(appStorage);
         deletedRole = userRolesStorage.deleteRole(appIdentifier, role) || deletedRole;
 
+        UserRolesCache.invalidateRole(main, appIdentifier, role);
+        UserRolesCache.invalidateAllUsers(main, appIdentifier);
         return deletedRole;
     }
 
@@ -0,0 +1,287 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.userroles;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read through cache of the permissions of each role, and of the roles of each user, used by the APIs that resource
+ * servers call on most requests. Each app has its own cache, with at most user_roles_cache_size roles and users.
+ * <p>
+ * Entries are removed by the functions in UserRoles that change them, and expire after user_roles_cache_ttl_sec so
+ * that changes made through other cores, or directly in the db, are seen after that time.
+ */
+public class UserRolesCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.userroles.UserRolesCache";
+
+    public static final String ROLE_PERMISSIONS_HIT_METRIC = "user_roles.cache.role_permissions.hit";
+    public static final String ROLE_PERMISSIONS_MISS_METRIC = "user_roles.cache.role_permissions.miss";
+    public static final String USER_ROLES_HIT_METRIC = "user_roles.cache.user_roles.hit";
+    public static final String USER_ROLES_MISS_METRIC = "user_roles.cache.user_roles.miss";
+
+    private final Main main;
+
+    private final Map<AppIdentifier, AppCache> appCaches = new ConcurrentHashMap<>();
+
+    private UserRolesCache(Main main) {
+        this.main = main;
+    }
+
+    private static UserRolesCache getInstance(Main main) {
+        TenantIdentifier baseTenant = new TenantIdentifier(null, null, null);
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor()
+                .getResourceIfPresent(baseTenant, RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(baseTenant, RESOURCE_KEY, new UserRolesCache(main));
+        }
+        return (UserRolesCache) instance;
+    }
+
+    interface Loader<T, E extends Exception> {
+        T load() throws StorageQueryException, E;
+    }
+
+    static String[] getPermissionsForRole(Main main, AppIdentifier appIdentifier, String role,
+                                          Loader<String[], UnknownRoleException> loader)
+            throws StorageQueryException, UnknownRoleException {
+        if (!isEnabled(main)) {
+            return loader.load();
+        }
+        UserRolesCache instance = getInstance(main);
+        AppCache appCache = instance.getAppCache(appIdentifier);
+        Entry entry = appCache.getRolePermissions(role);
+        if (entry != null) {
+            Metrics.getInstance(main).incrementCounter(ROLE_PERMISSIONS_HIT_METRIC);
+            if (entry.value == null) {
+                throw new UnknownRoleException();
+            }
+            return entry.value.clone();
+        }
+        Metrics.getInstance(main).incrementCounter(ROLE_PERMISSIONS_MISS_METRIC);
+
+        long version = appCache.getVersion();
+        String[] permissions;
+        try {
+            permissions = loader.load();
+        } catch (UnknownRoleException e) {
+            // that the role does not exist is cached as well, since it is asked for just as often
+            appCache.putRolePermissions(role, new Entry(null, instance.getExpiryTime()), version);
+            throw e;
+        }
+        appCache.putRolePermissions(role, new Entry(permissions.clone(), instance.getExpiryTime()), version);
+        return permissions;
+    }
+
+    static String[] getRolesForUser(Main main, TenantIdentifier tenantIdentifier, String userId,
+                                    Loader<String[], RuntimeException> loader) throws StorageQueryException {
+        if (!isEnabled(main)) {
+            return loader.load();
+        }
+        UserRolesCache instance = getInstance(main);
+        AppCache appCache = instance.getAppCache(tenantIdentifier.toAppIdentifier());
+        UserKey key = new UserKey(tenantIdentifier.getTenantId(), userId);
+        Entry entry = appCache.getUserRoles(key);
+        if (entry != null) {
+            Metrics.getInstance(main).incrementCounter(USER_ROLES_HIT_METRIC);
+            return entry.value.clone();
+        }
+        Metrics.getInstance(main).incrementCounter(USER_ROLES_MISS_METRIC);
+
+        long version = appCache.getVersion();
+        String[] roles = loader.load();
+        appCache.putUserRoles(key, new Entry(roles.clone(), instance.getExpiryTime()), version);
+        return roles;
+    }
+
+    static void invalidateRole(Main main, AppIdentifier appIdentifier, String role) {
+        getInstance(main).getAppCache(appIdentifier).removeRole(role);
+    }
+
+    static void invalidateUser(Main main, TenantIdentifier tenantIdentifier, String userId) {
+        getInstance(main).getAppCache(tenantIdentifier.toAppIdentifier())
+                .removeUser(new UserKey(tenantIdentifier.getTenantId(), userId));
+    }
+
+    static void invalidateUserInAllTenants(Main main, AppIdentifier appIdentifier, String userId) {
+        getInstance(main).getAppCache(appIdentifier).removeUserInAllTenants(userId);
+    }
+
+    static void invalidateAllUsersOfTenant(Main main, TenantIdentifier tenantIdentifier) {
+        getInstance(main).getAppCache(tenantIdentifier.toAppIdentifier())
+                .removeAllUsersOfTenant(tenantIdentifier.getTenantId());
+    }
+
+    static void invalidateAllUsers(Main main, AppIdentifier appIdentifier) {
+        getInstance(main).getAppCache(appIdentifier).removeAllUsers();
+    }
+
+    static void invalidateApp(Main main, AppIdentifier appIdentifier) {
+        AppCache appCache = getInstance(main).appCaches.remove(appIdentifier);
+        if (appCache != null) {
+            // a value that is being read from the db of the deleted app is not put in the removed cache either
+            appCache.removeAll();
+        }
+    }
+
+    private static boolean isEnabled(Main main) {
+        return Config.getBaseConfig(main).getUserRolesCacheSize() > 0;
+    }
+
+    private long getExpiryTime() {
+        return System.currentTimeMillis() + Config.getBaseConfig(main).getUserRolesCacheTtlSec() * 1000L;
+    }
+
+    private AppCache getAppCache(AppIdentifier appIdentifier) {
+        return this.appCaches.computeIfAbsent(appIdentifier,
+                k -> new AppCache(Config.getBaseConfig(main).getUserRolesCacheSize()));
+    }
+
+    private static class Entry {
+        // null if the role does not exist
+        final String[] value;
+        final long expiryTime;
+
+        Entry(String[] value, long expiryTime) {
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private static class UserKey {
+        final String tenantId;
+        final String userId;
+
+        UserKey(String tenantId, String userId) {
+            this.tenantId = tenantId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof UserKey)) {
+                return false;
+            }
+            UserKey otherKey = (UserKey) other;
+            return this.tenantId.equals(otherKey.tenantId) && this.userId.equals(otherKey.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.tenantId, this.userId);
+        }
+    }
+
+    private static class AppCache {
+        private final Map<String, Entry> rolePermissions;
+        private final Map<UserKey, Entry> userRoles;
+
+        // increased on every invalidation, so that a value that was read from the db before an invalidation is not
+        // put in the cache after it
+        private long version = 0;
+
+        AppCache(int maxSize) {
+            this.rolePermissions = createLruMap(maxSize);
+            this.userRoles = createLruMap(maxSize);
+        }
+
+        private static <K> Map<K, Entry> createLruMap(int maxSize) {
+            return new LinkedHashMap<K, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized long getVersion() {
+            return this.version;
+        }
+
+        synchronized Entry getRolePermissions(String role) {
+            return getIfNotExpired(this.rolePermissions, role);
+        }
+
+        synchronized Entry getUserRoles(UserKey key) {
+            return getIfNotExpired(this.userRoles, key);
+        }
+
+        synchronized void putRolePermissions(String role, Entry entry, long versionWhenLoaded) {
+            if (this.version == versionWhenLoaded) {
+                this.rolePermissions.put(role, entry);
+            }
+        }
+
+        synchronized void putUserRoles(UserKey key, Entry entry, long versionWhenLoaded) {
+            if (this.version == versionWhenLoaded) {
+                this.userRoles.put(key, entry);
+            }
+        }
+
+        synchronized void removeRole(String role) {
+            this.version++;
+            this.rolePermissions.remove(role);
+        }
+
+        synchronized void removeUser(UserKey key) {
+            this.version++;
+            this.userRoles.remove(key);
+        }
+
+        synchronized void removeUserInAllTenants(String userId) {
+            this.version++;
+            this.userRoles.keySet().removeIf(key -> key.userId.equals(userId));
+        }
+
+        synchronized void removeAllUsersOfTenant(String tenantId) {
+            this.version++;
+            this.userRoles.keySet().removeIf(key -> key.tenantId.equals(tenantId));
+        }
+
+        synchronized void removeAllUsers() {
+            this.version++;
+            this.userRoles.clear();
+        }
+
+        synchronized void removeAll() {
+            this.version++;
+            this.rolePermissions.clear();
+            this.userRoles.clear();
+        }
+
+        private static <K> Entry getIfNotExpired(Map<K, Entry> map, K key) {
+            Entry entry = map.get(key);
+            if (entry != null && entry.expiryTime <= System.currentTimeMillis()) {
+                map.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs independent tasks, such as creating the resources of each app in the loadForAllTenants functions or
+// initialising each storage, on a short lived pool of threads. This is used when the core starts and when tenants are
+// reloaded, where each task mostly waits on the db, so running them in parallel cuts the time it takes.
+public class ParallelTasks {
+
+    public interface Task<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    // the thread that called run, set on the threads that run its tasks
+    private static final ThreadLocal<Thread> callingThread = new ThreadLocal<>();
+
+    /**
+     * Returns the thread whose call to run is running a task on the current thread, or the current thread if it is
+     * not running a task. For tasks that call run themselves, this is the thread of the outermost call. A task can use
+     * this to avoid waiting on a lock that the thread waiting for it holds.
+     */
+    public static Thread getCallingThread() {
+        Thread thread = callingThread.get();
+        return thread == null ? Thread.currentThread() : thread;
+    }
+
+    /**
+     * Runs the tasks on at most parallelism threads, and returns their results keyed the same way as the tasks. If a
+     * task throws, the tasks that have not started yet are cancelled, and the exception of the first failed task (in
+     * iteration order of tasks) is thrown once the running ones are interrupted.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, T, E extends Exception> Map<K, T> run(Map<K, ? extends Task<T, E>> tasks, int parallelism,
+                                                           String threadName) throws E {
+        Map<K, T> results = new LinkedHashMap<>();
+        if (tasks.size() <= 1 || parallelism <= 1) {
+            for (Map.Entry<K, ? extends Task<T, E>> task : tasks.entrySet()) {
+                results.put(task.getKey(), task.getValue().run());
+            }
+            return results;
+        }
+
+        Thread caller = getCallingThread();
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), r -> {
+            Thread thread = new Thread(r, threadName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<K, Future<T>> futures = new LinkedHashMap<>();
+            for (Map.Entry<K, ? extends Task<T, E>> task : tasks.entrySet()) {
+                futures.put(task.getKey(), executor.submit(() -> {
+                    callingThread.set(caller);
+                    try {
+                        return task.getValue().run();
+                    } finally {
+                        callingThread.remove();
+                    }
+                }));
+            }
+            for (Map.Entry<K, Future<T>> future : futures.entrySet()) {
+                try {
+                    results.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw (E) cause;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.warmup;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ProcessState;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.multitenancy.LazyAppResources;
+import io.supertokens.multitenancy.MultitenancyHelper;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantConfig;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.info.TokenInfo;
+import io.supertokens.signingkeys.SigningKeys;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.ParallelTasks;
+import io.supertokens.utils.Utils;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks if the core is ready to serve traffic, which is reported by the /ready API.
+ * <p>
+ * If warm_up_on_start is disabled, the core is ready as soon as it has started. Otherwise, a warm up is run in the
+ * background after the core has started, and the core is ready only once it is done. The warm up loads the signing
+ * keys of all apps, runs a query on every database so that their connection pools are open, and runs
+ * warm_up_iterations synthetic cycles of the session's sign / verify / hash path, so that the JIT has compiled it
+ * before the first real requests come in.
+ */
+public class WarmUp extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.warmup.WarmUp";
+
+    public static final String WARM_UP_TIME_METRIC = "warm_up.time";
+
+    // password hashing is slow enough that its inner loops are compiled after a couple of hashes, and more of them
+    // would only delay the warm up
+    private static final int PASSWORD_HASHING_ITERATIONS = 2;
+
+    private static final String WARM_UP_USER_ID = "warm-up";
+
+    private final Main main;
+
+    private volatile boolean ready = false;
+
+    private volatile boolean stopped = false;
+
+    private Thread thread = null;
+
+    private WarmUp(Main main) {
+        this.main = main;
+    }
+
+    public static WarmUp getInstance(Main main) {
+        try {
+            return (WarmUp) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void init(Main main) {
+        WarmUp instance = new WarmUp(main);
+        main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, instance);
+        if (!Config.getBaseConfig(main).getWarmUpOnStart()) {
+            instance.ready = true;
+            return;
+        }
+        instance.thread = new Thread(instance::run, "warmUp");
+        instance.thread.setDaemon(true);
+        instance.thread.start();
+    }
+
+    public static void stop(Main main) {
+        // this is null if the core failed to start before the warm up was initialised
+        WarmUp instance = (WarmUp) main.getResourceDistributor()
+                .getResourceIfPresent(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        if (instance == null) {
+            return;
+        }
+        instance.stopped = true;
+        if (instance.thread != null) {
+            try {
+                instance.thread.join();
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    private void run() {
+        long start = System.currentTimeMillis();
+        Logging.info(main, TenantIdentifier.BASE_TENANT, "Warming up...", false);
+        try {
+            loadSigningKeys();
+            openConnectionPools();
+            runSessionCycles();
+            runPasswordHashingCycles();
+        } catch (Exception e) {
+            // the core works without the warm up, just slower for the first requests, so it is reported as ready
+            // anyway instead of never becoming ready
+            if (!this.stopped) {
+                Logging.error(main, TenantIdentifier.BASE_TENANT, "Warm up failed: " + e.getMessage(), false, e);
+            }
+        }
+        if (this.stopped) {
+            return;
+        }
+        long timeTaken = System.currentTimeMillis() - start;
+        Metrics.getInstance(main).recordTiming(WARM_UP_TIME_METRIC, timeTaken);
+        Logging.info(main, TenantIdentifier.BASE_TENANT, "Warm up completed in " + timeTaken + " ms", false);
+        this.ready = true;
+        ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.WARM_UP_COMPLETE, null);
+    }
+
+    private void loadSigningKeys() throws Exception {
+        Set<AppIdentifier> apps = new LinkedHashSet<>();
+        for (TenantConfig tenantConfig : MultitenancyHelper.getInstance(main).getAllTenants()) {
+            AppIdentifier app = tenantConfig.tenantIdentifier.toAppIdentifier();
+            // with lazy loading, loading the keys of every app would evict most of them again, so only the apps
+            // whose keys are always loaded are warmed up
+            if (LazyAppResources.shouldLoadEagerly(main, app)) {
+                apps.add(app);
+            }
+        }
+        Map<AppIdentifier, ParallelTasks.Task<Void, Exception>> tasks = new LinkedHashMap<>();
+        for (AppIdentifier app : apps) {
+            tasks.put(app, () -> {
+                if (!this.stopped) {
+                    SigningKeys.getInstance(app, main).getAllKeys();
+                }
+                return null;
+            });
+        }
+        ParallelTasks.run(tasks, Config.getBaseConfig(main).getResourceLoadingParallelism(), "warmUp");
+    }
+
+    private void openConnectionPools() throws Exception {
+        Map<TenantIdentifier, ParallelTasks.Task<Void, Exception>> tasks = new LinkedHashMap<>();
+        for (List<TenantIdentifier> tenantsInUserPool : StorageLayer.getTenantsWithUniqueUserPoolId(main)) {
+            TenantIdentifier tenant = tenantsInUserPool.get(0);
+            tasks.put(tenant, () -> {
+                if (!this.stopped) {
+                    StorageLayer.getStorage(tenant, main).getKeyValue(tenant, "Test");
+                }
+                return null;
+            });
+        }
+        ParallelTasks.run(tasks, Config.getBaseConfig(main).getResourceLoadingParallelism(), "warmUp");
+    }
+
+    private void runSessionCycles() throws Exception {
+        TenantIdentifier baseTenant = new TenantIdentifier(null, null, null);
+        String masterKey = Utils.getUUID();
+        for (int i = 0; i < Config.getBaseConfig(main).getWarmUpIterations() && !this.stopped; i++) {
+            // the same steps as creating and verifying a session, without writing anything to the db
+            String refreshToken = Utils.encrypt(Utils.getUUID(), masterKey);
+            Utils.decrypt(refreshToken, masterKey);
+            String refreshTokenHash1 = Utils.hashSHA256(refreshToken);
+            TokenInfo accessToken = AccessToken.createNewAccessToken(baseTenant, main, Utils.getUUID(),
+                    WARM_UP_USER_ID, WARM_UP_USER_ID, refreshTokenHash1, null, new JsonObject(), Utils.getUUID(),
+                    null, AccessToken.getLatestVersion(), false);
+            AccessToken.getInfoFromAccessToken(baseTenant.toAppIdentifier(), main, accessToken.token, true);
+        }
+    }
+
+    private void runPasswordHashingCycles() throws Exception {
+        AppIdentifier baseApp = new AppIdentifier(null, null);
+        for (int i = 0; i < PASSWORD_HASHING_ITERATIONS && !this.stopped; i++) {
+            String hash = PasswordHashing.getInstance(main).createHashWithSalt(baseApp, WARM_UP_USER_ID);
+            PasswordHashing.getInstance(main).verifyPasswordWithHash(baseApp, WARM_UP_USER_ID, hash);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.webserver.api.accountlinking.*;
+import io.supertokens.webserver.api.bulkimport.*;
 import io.supertokens.webserver.api.core.*;
 import io.supertokens.webserver.api.dashboard.*;
 import io.supertokens.webserver.api.emailpassword.UserAPI;
@@ -49,6 +50,7 @@ import io.supertokens.webserver.api.useridmapping.UpdateExternalUserIdInfoAPI;
 import io.supertokens.webserver.api.useridmapping.UserIdMappingAPI;
 import io.supertokens.webserver.api.usermetadata.RemoveUserMetadataAPI;
 import io.supertokens.webserver.api.usermetadata.UserMetadataAPI;
+import io.supertokens.webserver.api.usermetadata.UserMetadataForUsersAPI;
 import io.supertokens.webserver.api.userroles.*;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
@@ -161,6 +163,7 @@ public class Webserver extends ResourceDistributor.SingletonResource {
     private void setupRoutes() {
         addAPI(new NotFoundOrHelloAPI(main));
         addAPI(new HelloAPI(main));
+        addAPI(new ReadyAPI(main));
         addAPI(new JWKSPublicAPI(main));
         addAPI(new SessionAPI(main));
         addAPI(new VerifySessionAPI(main));
@@ -193,6 +196,10 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new UsersCountAPI(main));
         addAPI(new ActiveUsersCountAPI(main));
         addAPI(new UsersAPI(main));
+        addAPI(new UserExportAPI(main));
+        addAPI(new BulkImportUsersAPI(main));
+        addAPI(new CountBulkImportUsersAPI(main));
+        addAPI(new RemoveBulkImportUsersAPI(main));
         addAPI(new DeleteUserAPI(main));
         addAPI(new RevokeAllTokensForUserAPI(main));
         addAPI(new UnverifyEmailAPI(main));
@@ -200,10 +207,12 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new JWKSAPI(main));
         addAPI(new UserMetadataAPI(main));
         addAPI(new RemoveUserMetadataAPI(main));
+        addAPI(new UserMetadataForUsersAPI(main));
         addAPI(new CreateRoleAPI(main));
         addAPI(new AddUserRoleAPI(main));
         addAPI(new RemoveUserRoleAPI(main));
         addAPI(new GetRolesForUserAPI(main));
+        addAPI(new GetRolesAndPermissionsForUserAPI(main));
         addAPI(new GetUsersForRoleAPI(main));
         addAPI(new GetPermissionsForRoleAPI(main));
         addAPI(new RemovePermissionsForRoleAPI(main));
@@ -249,6 +258,7 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new DisassociateUserFromTenant(main));
 
         addAPI(new GetUserByIdAPI(main));
+        addAPI(new GetUsersByIdsAPI(main));
         addAPI(new ListUsersByAccountInfoAPI(main));
 
         addAPI(new CanCreatePrimaryUserAPI(main));
@@ -259,6 +269,8 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new ConsumeResetPasswordAPI(main));
 
         addAPI(new RequestStatsAPI(main));
+        addAPI(new MetricsAPI(main));
+        addAPI(new StoragePoolsAPI(main));
 
         StandardContext context = tomcatReference.getContext();
         Tomcat tomcat = tomcatReference.getTomcat();
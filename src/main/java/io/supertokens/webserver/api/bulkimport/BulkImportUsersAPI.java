@@ -0,0 +1,140 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.bulkimport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.bulkimport.BulkImportUser;
+import io.supertokens.bulkimport.exceptions.InvalidBulkImportDataException;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.List;
+
+public class BulkImportUsersAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = 2862631932406187437L;
+
+    public BulkImportUsersAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/bulk-import/users";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        String statusString = InputParser.getQueryParamOrThrowError(req, "status", true);
+        String paginationToken = InputParser.getQueryParamOrThrowError(req, "paginationToken", true);
+        Integer limit = InputParser.getIntQueryParamOrThrowError(req, "limit", true);
+
+        BulkImportUser.Status status = null;
+        if (statusString != null) {
+            try {
+                status = BulkImportUser.Status.valueOf(statusString);
+            } catch (IllegalArgumentException e) {
+                throw new ServletException(
+                        new BadRequestException("status must be one of NEW, PROCESSING or FAILED"));
+            }
+        }
+
+        if (limit == null) {
+            limit = BulkImport.MAX_USERS_TO_LIST;
+        } else if (limit < 1 || limit > BulkImport.MAX_USERS_TO_LIST) {
+            throw new ServletException(
+                    new BadRequestException("limit must be between 1 and " + BulkImport.MAX_USERS_TO_LIST));
+        }
+
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+            assertBulkImportIsSupported(storage);
+
+            List<BulkImportUser> users = BulkImport.getUsers(appIdentifier, storage, status, limit, paginationToken);
+
+            JsonArray usersJson = new JsonArray();
+            for (BulkImportUser user : users) {
+                usersJson.add(user.toJson());
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "OK");
+            response.add("users", usersJson);
+            if (users.size() == limit) {
+                response.addProperty("nextPaginationToken", users.get(users.size() - 1).id);
+            }
+            super.sendJsonResponse(200, response, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        JsonArray users = InputParser.parseArrayOrThrowError(input, "users", false);
+
+        if (users.size() == 0 || users.size() > BulkImport.MAX_USERS_TO_ADD) {
+            throw new ServletException(new BadRequestException(
+                    "users must contain between 1 and " + BulkImport.MAX_USERS_TO_ADD + " users"));
+        }
+
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+            assertBulkImportIsSupported(storage);
+
+            List<String> ids = BulkImport.addUsers(main, appIdentifier, storage, users);
+
+            JsonArray idsJson = new JsonArray();
+            for (String id : ids) {
+                idsJson.add(id);
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "OK");
+            response.add("ids", idsJson);
+            super.sendJsonResponse(200, response, resp);
+        } catch (InvalidBulkImportDataException e) {
+            throw new ServletException(new BadRequestException(e.getMessage()));
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    // the staging table of an app is in the storage of its public tenant
+    static void assertBulkImportIsSupported(Storage storage) throws ServletException {
+        if (!BulkImport.isSupported(storage)) {
+            throw new ServletException(
+                    new BadRequestException("Bulk import is not supported by the storage of this app"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.bulkimport;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.bulkimport.BulkImportUser;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.Map;
+
+// reports the progress of a bulk import, as the number of users in the staging table with each status
+public class CountBulkImportUsersAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = -6361435711286498374L;
+
+    public CountBulkImportUsersAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/bulk-import/users/count";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+            BulkImportUsersAPI.assertBulkImportIsSupported(storage);
+
+            Map<BulkImportUser.Status, Long> counts = BulkImport.getUserCountsByStatus(appIdentifier, storage);
+
+            JsonObject countsJson = new JsonObject();
+            for (BulkImportUser.Status status : BulkImportUser.Status.values()) {
+                countsJson.addProperty(status.toString(), counts.getOrDefault(status, 0L));
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "OK");
+            response.add("counts", countsJson);
+            super.sendJsonResponse(200, response, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+}
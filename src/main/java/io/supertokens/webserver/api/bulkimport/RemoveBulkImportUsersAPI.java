@@ -0,0 +1,82 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.bulkimport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RemoveBulkImportUsersAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = 4915872143190583542L;
+
+    public RemoveBulkImportUsersAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/bulk-import/users/remove";
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        JsonArray idsJson = InputParser.parseArrayOrThrowError(input, "ids", false);
+
+        if (idsJson.size() == 0 || idsJson.size() > BulkImport.MAX_USERS_TO_ADD) {
+            throw new ServletException(new BadRequestException(
+                    "ids must contain between 1 and " + BulkImport.MAX_USERS_TO_ADD + " ids"));
+        }
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < idsJson.size(); i++) {
+            ids.add(InputParser.parseStringFromElementOrThrowError(idsJson.get(i), "ids", false));
+        }
+
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+            BulkImportUsersAPI.assertBulkImportIsSupported(storage);
+
+            int removedCount = BulkImport.removeUsers(appIdentifier, storage, ids);
+
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "OK");
+            response.addProperty("removedCount", removedCount);
+            super.sendJsonResponse(200, response, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import io.supertokens.Main;
 import io.supertokens.StorageAndUserIdMapping;
 import io.supertokens.authRecipe.AuthRecipe;
 import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.pluginInterface.emailpassword.exceptions.UnknownUserIdException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
@@ -63,9 +64,16 @@ public class DeleteUserAPI extends WebserverAPI {
                     this.enforcePublicTenantAndGetStorageAndUserIdMappingForAppSpecificApi(
                             req, userId, UserIdType.ANY, true);
 
-            AuthRecipe.deleteUser(getAppIdentifier(req), storageAndUserIdMapping.storage, userId,
+            AuthRecipe.deleteUser(main, getAppIdentifier(req), storageAndUserIdMapping.storage, userId,
                     removeAllLinkedAccounts,
                     storageAndUserIdMapping.userIdMapping);
+            StorageLayer.invalidateUserLocation(main, getAppIdentifier(req), userId);
+            if (storageAndUserIdMapping.userIdMapping != null) {
+                StorageLayer.invalidateUserLocation(main, getAppIdentifier(req),
+                        storageAndUserIdMapping.userIdMapping.superTokensUserId);
+                StorageLayer.invalidateUserLocation(main, getAppIdentifier(req),
+                        storageAndUserIdMapping.userIdMapping.externalUserId);
+            }
         } catch (StorageQueryException | TenantOrAppNotFoundException | StorageTransactionLogicException |
                  BadPermissionException e) {
             throw new ServletException(e);
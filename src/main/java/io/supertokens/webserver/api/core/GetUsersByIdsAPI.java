@@ -0,0 +1,96 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as GetUserByIdAPI, but for many users at once. The users are returned in the same order as the given user ids,
+ * with null for ids that are not of any user.
+ */
+public class GetUsersByIdsAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = -2357826412094731560L;
+
+    public GetUsersByIdsAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/user/id/batch";
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        JsonArray userIdsArray = InputParser.parseArrayOrThrowError(input, "userIds", false);
+
+        if (userIdsArray.size() == 0 || userIdsArray.size() > AuthRecipe.MAX_USERS_TO_GET_BY_IDS) {
+            throw new ServletException(new BadRequestException(
+                    "userIds must contain between 1 and " + AuthRecipe.MAX_USERS_TO_GET_BY_IDS + " user ids"));
+        }
+        List<String> userIds = new ArrayList<>();
+        for (JsonElement userId : userIdsArray) {
+            if (!userId.isJsonPrimitive() || !userId.getAsJsonPrimitive().isString()) {
+                throw new ServletException(new BadRequestException("userIds must be an array of strings"));
+            }
+            userIds.add(userId.getAsString());
+        }
+
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Map<String, AuthRecipeUserInfo> users = AuthRecipe.getUsersByIds(appIdentifier,
+                    enforcePublicTenantAndGetAllStoragesForApp(req), userIds);
+
+            JsonArray usersJson = new JsonArray();
+            for (String userId : userIds) {
+                AuthRecipeUserInfo user = users.get(userId);
+                usersJson.add(user == null ? JsonNull.INSTANCE : user.toJson());
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("status", "OK");
+            result.add("users", usersJson);
+            super.sendJsonResponse(200, result, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.core;
+
+import io.supertokens.Main;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.RateLimiter;
+import io.supertokens.warmup.WarmUp;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Unlike /hello, which only tells that the server is up, this returns 200 only once the core has warmed up (see
+// warm_up_on_start) and the app's databases can be queried, and 503 otherwise. This is meant to be used as a readiness
+// check by load balancers, so that traffic is only sent to the core once it can serve it at full speed.
+
+public class ReadyAPI extends WebserverAPI {
+
+    private static final long serialVersionUID = 1L;
+
+    // result of the last check of the databases of each app, which is returned while the API is rate limited
+    private final transient Map<AppIdentifier, Boolean> lastCheckResults = new ConcurrentHashMap<>();
+
+    public ReadyAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    protected boolean versionNeeded(HttpServletRequest req) {
+        return false;
+    }
+
+    @Override
+    public String getPath() {
+        return "/ready";
+    }
+
+    @Override
+    protected boolean checkAPIKey(HttpServletRequest req) {
+        return false;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+
+        if (!WarmUp.getInstance(main).isReady()) {
+            super.sendTextResponse(503, "Not ready", resp);
+            return;
+        }
+
+        AppIdentifier appIdentifier;
+        try {
+            appIdentifier = getAppIdentifier(req);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new ServletException(e);
+        }
+
+        try {
+            Storage[] storages = StorageLayer.getStoragesForApp(main, appIdentifier); // throws tenantOrAppNotFoundException
+
+            // this API does not need an API key, so it is rate limited like /hello, so that calling it does not make
+            // the core query all of its databases on every request
+            RateLimiter rateLimiter = RateLimiter.getInstance(appIdentifier, super.main, 200);
+            if (!rateLimiter.checkRequest()) {
+                if (lastCheckResults.getOrDefault(appIdentifier, true)) {
+                    super.sendTextResponse(200, Main.isTesting ? "RateLimitedReady" : "Ready", resp);
+                } else {
+                    super.sendTextResponse(503, "Not ready", resp);
+                }
+                return;
+            }
+
+            for (Storage storage : storages) {
+                storage.getKeyValue(appIdentifier.getAsPublicTenantIdentifier(), "Test");
+            }
+            lastCheckResults.put(appIdentifier, true);
+            super.sendTextResponse(200, "Ready", resp);
+        } catch (StorageQueryException e) {
+            lastCheckResults.put(appIdentifier, false);
+            super.sendTextResponse(503, "Not ready", resp);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new ServletException(e);
+        }
+    }
+}
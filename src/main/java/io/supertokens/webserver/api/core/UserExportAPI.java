@@ -0,0 +1,131 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.Main;
+import io.supertokens.authRecipe.UserPaginationToken;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.userexport.UserExport;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams all users of a tenant as newline delimited JSON. Each user is written on its own line, as
+ * {"user": ..., "roles": [...], "metadata": {...}}, and every chunk of users is followed by a
+ * {"nextCursor": "..."} line, unless it is the last one. The last line is {"status": "OK"}, so a response that does
+ * not end with it was interrupted, and the export can be resumed by calling this API again with the last cursor.
+ */
+public class UserExportAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = -4641988458637955649L;
+
+    public UserExportAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/users/export";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // this API is tenant specific
+        String cursor = InputParser.getQueryParamOrThrowError(req, "cursor", true);
+        Integer chunkSize = InputParser.getIntQueryParamOrThrowError(req, "chunkSize", true);
+        String[] recipeIds = InputParser.getCommaSeparatedStringArrayQueryParamOrThrowError(req, "includeRecipeIds",
+                true);
+
+        if (chunkSize == null) {
+            chunkSize = UserExport.DEFAULT_CHUNK_SIZE;
+        } else if (chunkSize < 1 || chunkSize > UserExport.MAX_CHUNK_SIZE) {
+            throw new ServletException(
+                    new BadRequestException("chunkSize must be between 1 and " + UserExport.MAX_CHUNK_SIZE));
+        }
+
+        List<RECIPE_ID> includeRecipeIds = new ArrayList<>();
+        if (recipeIds != null) {
+            for (String recipeId : recipeIds) {
+                RECIPE_ID recipeID = RECIPE_ID.getEnumFromString(recipeId);
+                if (recipeID == null) {
+                    throw new ServletException(new BadRequestException("Unknown recipe ID: " + recipeId));
+                }
+                includeRecipeIds.add(recipeID);
+            }
+        }
+
+        if (cursor != null) {
+            try {
+                UserExport.validateCursor(cursor);
+            } catch (UserPaginationToken.InvalidTokenException e) {
+                throw new ServletException(new BadRequestException("invalid cursor"));
+            }
+        }
+
+        try {
+            TenantIdentifier tenantIdentifier = getTenantIdentifier(req);
+            Storage storage = getTenantStorage(req);
+
+            resp.setStatus(200);
+            resp.setHeader("Content-Type", "application/x-ndjson; charset=UTF-8");
+            PrintWriter writer = resp.getWriter();
+            UserExport.exportUsers(tenantIdentifier, storage, cursor, chunkSize,
+                    includeRecipeIds.toArray(RECIPE_ID[]::new), (users, nextCursor) -> {
+                        for (UserExport.ExportedUser exportedUser : users) {
+                            JsonArray roles = new JsonArray();
+                            for (String role : exportedUser.roles) {
+                                roles.add(new JsonPrimitive(role));
+                            }
+                            JsonObject line = new JsonObject();
+                            line.add("user", exportedUser.user.toJson());
+                            line.add("roles", roles);
+                            line.add("metadata", exportedUser.metadata);
+                            writer.println(line);
+                        }
+                        if (nextCursor != null) {
+                            JsonObject line = new JsonObject();
+                            line.addProperty("nextCursor", nextCursor);
+                            writer.println(line);
+                        }
+                        // sends the chunk to the client right away, so that it does not have to be buffered
+                        writer.flush();
+                    });
+
+            JsonObject end = new JsonObject();
+            end.addProperty("status", "OK");
+            writer.println(end);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | UserPaginationToken.InvalidTokenException e) {
+            throw new ServletException(e);
+        }
+    }
+}
@@ -81,7 +81,7 @@ public class UsersCountAPI extends WebserverAPI {
                 AppIdentifier appIdentifier = getAppIdentifier(req);
                 Storage[] storages = enforcePublicTenantAndGetAllStoragesForApp(req);
 
-                count = AuthRecipe.getUsersCountAcrossAllTenants(appIdentifier, storages,
+                count = AuthRecipe.getUsersCountAcrossAllTenants(main, appIdentifier, storages,
                         recipeIdsEnumBuilder.build().toArray(RECIPE_ID[]::new));
 
             } else {
@@ -28,6 +28,7 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
 import io.supertokens.webserver.InputParser;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
@@ -87,10 +88,12 @@ public class UserMetadataAPI extends WebserverAPI {
             try {
                 StorageAndUserIdMapping storageAndUserIdMapping = this.enforcePublicTenantAndGetStorageAndUserIdMappingForAppSpecificApi(
                         req, userId, UserIdType.ANY, false);
-                metadata = UserMetadata.updateUserMetadata(appIdentifier, storageAndUserIdMapping.storage, userId,
-                        update);
+                metadata = UserMetadata.updateUserMetadata(main, appIdentifier, storageAndUserIdMapping.storage,
+                        userId, update);
             } catch (UnknownUserIdException e) {
                 throw new IllegalStateException("should never happen");
+            } catch (UserMetadataTooLargeException e) {
+                throw new ServletException(new BadRequestException(e.getMessage()));
             }
 
             JsonObject response = new JsonObject();
@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.usermetadata;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.emailpassword.exceptions.UnknownUserIdException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.useridmapping.UserIdType;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Returns the metadata of many users at once, so that a list of users can be rendered with one call instead of one
+ * call per user. The metadata of the users in each storage of the app is read with one query.
+ */
+public class UserMetadataForUsersAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = 4178245190753461921L;
+
+    public UserMetadataForUsersAPI(Main main) {
+        super(main, RECIPE_ID.USER_METADATA.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/user/metadata/batch";
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is app specific
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        JsonArray userIdsArray = InputParser.parseArrayOrThrowError(input, "userIds", false);
+
+        if (userIdsArray.size() == 0 || userIdsArray.size() > UserMetadata.MAX_USERS_TO_GET_METADATA_FOR) {
+            throw new ServletException(new BadRequestException(
+                    "userIds must contain between 1 and " + UserMetadata.MAX_USERS_TO_GET_METADATA_FOR + " user ids"));
+        }
+        Set<String> userIds = new LinkedHashSet<>();
+        for (JsonElement userId : userIdsArray) {
+            if (!userId.isJsonPrimitive() || !userId.getAsJsonPrimitive().isString()) {
+                throw new ServletException(new BadRequestException("userIds must be an array of strings"));
+            }
+            userIds.add(userId.getAsString());
+        }
+
+        try {
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage[] storages = enforcePublicTenantAndGetAllStoragesForApp(req);
+
+            Map<Storage, List<String>> userIdsByStorage = new LinkedHashMap<>();
+            if (storages.length == 1) {
+                userIdsByStorage.put(storages[0], new ArrayList<>(userIds));
+            } else {
+                for (String userId : userIds) {
+                    Storage storage;
+                    try {
+                        storage = StorageLayer.findStorageAndUserIdMappingForUser(main, appIdentifier, storages,
+                                userId, UserIdType.ANY).storage;
+                    } catch (UnknownUserIdException e) {
+                        // same as the get user metadata API, for users that are not in any storage
+                        storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+                    }
+                    userIdsByStorage.computeIfAbsent(storage, k -> new ArrayList<>()).add(userId);
+                }
+            }
+
+            Map<String, JsonObject> metadataOfUsers = new HashMap<>();
+            for (Map.Entry<Storage, List<String>> entry : userIdsByStorage.entrySet()) {
+                metadataOfUsers.putAll(
+                        UserMetadata.getUserMetadataForUsers(appIdentifier, entry.getKey(), entry.getValue()));
+            }
+
+            JsonObject metadata = new JsonObject();
+            for (String userId : userIds) {
+                metadata.add(userId, metadataOfUsers.get(userId));
+            }
+
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "OK");
+            response.add("metadata", metadata);
+            super.sendJsonResponse(200, response, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException | BadPermissionException e) {
+            throw new ServletException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.userroles;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.Main;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.userroles.RolesAndPermissions;
+import io.supertokens.userroles.UserRoles;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+
+public class GetRolesAndPermissionsForUserAPI extends WebserverAPI {
+    @Serial
+    private static final long serialVersionUID = 2826573581543453385L;
+
+    public GetRolesAndPermissionsForUserAPI(Main main) {
+        super(main, RECIPE_ID.USER_ROLES.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/user/roles/permissions";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        // API is tenant specific
+        String userId = InputParser.getQueryParamOrThrowError(req, "userId", false);
+        try {
+            TenantIdentifier tenantIdentifier = getTenantIdentifier(req);
+            Storage storage = getTenantStorage(req);
+            RolesAndPermissions rolesAndPermissions = UserRoles.getRolesAndPermissionsForUser(main,
+                    tenantIdentifier, storage, userId);
+
+            JsonArray rolesArr = new JsonArray();
+            for (String role : rolesAndPermissions.roles) {
+                rolesArr.add(new JsonPrimitive(role));
+            }
+            JsonArray permissionsArr = new JsonArray();
+            for (String permission : rolesAndPermissions.permissions) {
+                permissionsArr.add(new JsonPrimitive(permission));
+            }
+
+            JsonObject response = new JsonObject();
+            response.add("roles", rolesArr);
+            response.add("permissions", permissionsArr);
+            response.addProperty("status", "OK");
+            super.sendJsonResponse(200, response, resp);
+        } catch (StorageQueryException | TenantOrAppNotFoundException e) {
+            throw new ServletException(e);
+        }
+    }
+}
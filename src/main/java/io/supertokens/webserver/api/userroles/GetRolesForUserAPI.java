@@ -55,7 +55,7 @@ public class GetRolesForUserAPI extends WebserverAPI {
         try {
             TenantIdentifier tenantIdentifier = getTenantIdentifier(req);
             Storage storage = getTenantStorage(req);
-            String[] userRoles = UserRoles.getRolesForUser(tenantIdentifier, storage, userId);
+            String[] userRoles = UserRoles.getRolesForUser(main, tenantIdentifier, storage, userId);
             JsonArray arr = new JsonArray();
             for (String s : userRoles) {
                 arr.add(new JsonPrimitive(s));
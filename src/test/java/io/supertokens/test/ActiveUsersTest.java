@@ -4,9 +4,18 @@ import com.google.gson.JsonObject;
 import io.supertokens.ActiveUsers;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.flushLastActiveUpdates.FlushLastActiveUpdates;
+import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.StorageUtils;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
@@ -20,7 +29,9 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 
@@ -70,6 +81,190 @@ public class ActiveUsersTest {
         assert ActiveUsers.countUsersActiveSince(main, now) == 2; // user1 and user2 are counted
     }
 
+    @Test
+    public void countUsersActiveInEachDayTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        Storage storage = StorageLayer.getStorage(main);
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        long dayInMillis = 24 * 60 * 60 * 1000L;
+
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user2");
+        Thread.sleep(5);
+        ActiveUsers.updateLastActive(main, "user3");
+        long lastActiveTime = System.currentTimeMillis();
+        ActiveUsers.flushLastActiveUpdates(main, appIdentifier);
+
+        // counting as if the users were last active a few days ago gives the same counts as counting each day
+        for (int daysLater : new int[]{0, 1, 3, 31, 40}) {
+            long now = lastActiveTime + daysLater * dayInMillis;
+            int[] counts = ActiveUsers.countUsersActiveSinceForEachDay(storage, appIdentifier, now, 31);
+            assertEquals(31, counts.length);
+            for (int i = 1; i <= 31; i++) {
+                assertEquals(ActiveUsers.countUsersActiveSince(main, now - i * dayInMillis), counts[i - 1]);
+            }
+        }
+
+        int[] counts = ActiveUsers.countUsersActiveSinceForEachDay(storage, appIdentifier,
+                lastActiveTime + 3 * dayInMillis, 31);
+        assertEquals(0, counts[1]);
+        assertEquals(3, counts[3]);
+        assertEquals(3, counts[30]);
+    }
+
+    @Test
+    public void lastActiveUpdatesAreBufferedUntilUsersAreCountedTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        ActiveUsersStorage storage = StorageUtils.getActiveUsersStorage(StorageLayer.getStorage(main));
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user2");
+        ActiveUsers.updateLastActive(main, "user1");
+
+        // nothing is written to the db until the buffer is flushed
+        assertEquals(0, storage.countUsersActiveSince(appIdentifier, 0));
+
+        assertEquals(2, ActiveUsers.countUsersActiveSince(main, 0));
+        assertEquals(2, storage.countUsersActiveSince(appIdentifier, 0));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void bufferedLastActiveTimeOfADeletedUserIsNotWrittenTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        AuthRecipeUserInfo user1 = EmailPassword.signUp(main, "test@example.com", "password");
+        AuthRecipeUserInfo user2 = EmailPassword.signUp(main, "test2@example.com", "password");
+
+        ActiveUsers.updateLastActive(main, user1.getSupertokensUserId());
+        ActiveUsers.updateLastActive(main, user2.getSupertokensUserId());
+        AuthRecipe.deleteUser(main, user1.getSupertokensUserId());
+
+        // only the buffered time of the deleted user is removed
+        assertEquals(1, ActiveUsers.countUsersActiveSince(main, 0));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void lastActiveTimeOfAUserThatIsDeletedWhileFlushingIsNotWrittenBackTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        ActiveUsersStorage storage = StorageUtils.getActiveUsersStorage(StorageLayer.getStorage(main));
+
+        AtomicBoolean deleting = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (deleting.get()) {
+                ActiveUsers.flushLastActiveUpdates(main, appIdentifier);
+            }
+        });
+        flusher.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                AuthRecipeUserInfo user = EmailPassword.signUp(main, "test" + i + "@example.com", "password");
+                ActiveUsers.updateLastActive(main, user.getSupertokensUserId());
+                AuthRecipe.deleteUser(main, user.getSupertokensUserId());
+            }
+        } finally {
+            deleting.set(false);
+            flusher.join();
+        }
+
+        ActiveUsers.flushLastActiveUpdates(main, appIdentifier);
+        assertEquals(0, storage.countUsersActiveSince(appIdentifier, 0));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void lastActiveUpdatesAreFlushedByTheCronjobTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(FlushLastActiveUpdates.RESOURCE_KEY, 1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        ActiveUsersStorage storage = StorageUtils.getActiveUsersStorage(StorageLayer.getStorage(main));
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        ActiveUsers.updateLastActive(main, "user1");
+        Thread.sleep(2500);
+
+        assertEquals(1, storage.countUsersActiveSince(appIdentifier, 0));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void lastActiveUpdatesAreWrittenRightAwayIfTheFlushIntervalIsZeroTest() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("active_users_flush_interval_sec", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        ActiveUsersStorage storage = StorageUtils.getActiveUsersStorage(StorageLayer.getStorage(main));
+
+        ActiveUsers.updateLastActive(main, "user1");
+
+        assertEquals(1, storage.countUsersActiveSince(new AppIdentifier(null, null), 0));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void activeUserCountAPITest() throws Exception {
         String[] args = {"../"};
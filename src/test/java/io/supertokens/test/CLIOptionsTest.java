@@ -100,6 +100,17 @@ public class CLIOptionsTest {
 
     }
 
+    @Test
+    public void testCDSTrainingRun() throws Exception {
+        String[] args = { "../", "cdsTrainingRun=true" };
+
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        // the core shuts down by itself once it has started
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void testMultipleInstancesAtTheSameTime() throws Exception {
         String[] args = { "../" };
@@ -19,6 +19,7 @@ package io.supertokens.test;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
+import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.cronjobs.Cronjobs;
@@ -26,6 +27,7 @@ import io.supertokens.cronjobs.syncCoreConfigWithDb.SyncCoreConfigWithDb;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
@@ -33,6 +35,7 @@ import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.*;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.TenantConfigsVersionStorage;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
@@ -351,6 +354,59 @@ public class CronjobTest {
         }
     }
 
+    static class ParallelCronjob extends CronTask {
+        private static final String RESOURCE_ID = "io.supertokens.test.CronjobTest.ParallelCronjob";
+
+        private final int intervalTimeSeconds;
+        private final long taskTimeMillis;
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger maxRunning = new AtomicInteger(0);
+        private final AtomicInteger finished = new AtomicInteger(0);
+
+        private ParallelCronjob(Main main, List<List<TenantIdentifier>> storages, int intervalTimeSeconds,
+                                long taskTimeMillis) {
+            super("ParallelCronjob", main, storages, false);
+            this.intervalTimeSeconds = intervalTimeSeconds;
+            this.taskTimeMillis = taskTimeMillis;
+        }
+
+        // the same storage is listed numberOfStorages times, so that the cronjob runs numberOfStorages tasks
+        public static ParallelCronjob getInstance(Main main, int numberOfStorages, int intervalTimeSeconds,
+                                                  long taskTimeMillis) {
+            List<List<TenantIdentifier>> storages = new ArrayList<>();
+            for (int i = 0; i < numberOfStorages; i++) {
+                List<TenantIdentifier> tenants = new ArrayList<>();
+                tenants.add(new TenantIdentifier(null, null, null));
+                storages.add(tenants);
+            }
+            return (ParallelCronjob) main.getResourceDistributor()
+                    .setResource(new TenantIdentifier(null, null, null), RESOURCE_ID,
+                            new ParallelCronjob(main, storages, intervalTimeSeconds, taskTimeMillis));
+        }
+
+        @Override
+        public int getIntervalTimeSeconds() {
+            return intervalTimeSeconds;
+        }
+
+        @Override
+        public int getInitialWaitTimeSeconds() {
+            return 0;
+        }
+
+        @Override
+        protected void doTaskPerStorage(Storage storage) throws Exception {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(taskTimeMillis);
+                finished.incrementAndGet();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
     @Rule
     public TestRule watchman = Utils.getOnFailure();
 
@@ -947,7 +1003,7 @@ public class CronjobTest {
 
         {
             List<List<List<TenantIdentifier>>> tenantsInfos = Cronjobs.getInstance(process.getProcess()).getTenantInfos();
-            assertEquals(10, tenantsInfos.size());
+            assertEquals(12, tenantsInfos.size());
             int count = 0;
             for (List<List<TenantIdentifier>> tenantsInfo : tenantsInfos) {
                 if (tenantsInfo != null) {
@@ -957,7 +1013,7 @@ public class CronjobTest {
                     count++;
                 }
             }
-            assertEquals(9, count);
+            assertEquals(10, count);
         }
 
         process.kill(false);
@@ -973,7 +1029,7 @@ public class CronjobTest {
         // we expect the state of the tenantsInfo to be same after core restart
         {
             List<List<List<TenantIdentifier>>> tenantsInfos = Cronjobs.getInstance(process.getProcess()).getTenantInfos();
-            assertEquals(10, tenantsInfos.size());
+            assertEquals(12, tenantsInfos.size());
             int count = 0;
             for (List<List<TenantIdentifier>> tenantsInfo : tenantsInfos) {
                 if (tenantsInfo != null) {
@@ -983,7 +1039,7 @@ public class CronjobTest {
                     count++;
                 }
             }
-            assertEquals(9, count);
+            assertEquals(10, count);
         }
 
         process.kill();
@@ -1025,6 +1081,8 @@ public class CronjobTest {
         intervals.put("io.supertokens.cronjobs.deleteExpiredDashboardSessions.DeleteExpiredDashboardSessions", 43200);
         intervals.put("io.supertokens.cronjobs.telemetry.Telemetry", 86400);
         intervals.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys", 86400);
+        intervals.put("io.supertokens.cronjobs.processBulkImportUsers.ProcessBulkImportUsers", 60);
+        intervals.put("io.supertokens.cronjobs.flushLastActiveUpdates.FlushLastActiveUpdates", 60);
 
         Map<String, Integer> delays = new HashMap<>();
         delays.put("io.supertokens.ee.cronjobs.EELicenseCheck", 86400);
@@ -1037,9 +1095,11 @@ public class CronjobTest {
         delays.put("io.supertokens.cronjobs.deleteExpiredDashboardSessions.DeleteExpiredDashboardSessions", 0);
         delays.put("io.supertokens.cronjobs.telemetry.Telemetry", 0);
         delays.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys", 0);
+        delays.put("io.supertokens.cronjobs.processBulkImportUsers.ProcessBulkImportUsers", 0);
+        delays.put("io.supertokens.cronjobs.flushLastActiveUpdates.FlushLastActiveUpdates", 60);
 
         List<CronTask> allTasks = Cronjobs.getInstance(process.getProcess()).getTasks();
-        assertEquals(10, allTasks.size());
+        assertEquals(12, allTasks.size());
 
         for (CronTask task : allTasks) {
             assertEquals(intervals.get(task.getClass().getName()).intValue(), task.getIntervalTimeSeconds());
@@ -1049,4 +1109,125 @@ public class CronjobTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatCronjobRunsAtMostMaxParallelismStoragesAtATime() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("cron_max_parallelism_per_job", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ParallelCronjob cronjob = ParallelCronjob.getInstance(process.getProcess(), 6, 10, 300);
+        Cronjobs.addCronjob(process.getProcess(), cronjob);
+
+        Thread.sleep(2000);
+        assertEquals(6, cronjob.finished.get());
+        assertEquals(2, cronjob.maxRunning.get());
+
+        JsonObject runTime = Metrics.getInstance(process.getProcess())
+                .getTiming(cronjob.getMetricName(CronTask.RUN_TIME_METRIC));
+        assertNotNull(runTime);
+        assertEquals(1, runTime.get("count").getAsLong());
+        // 6 tasks of 300 ms each, 2 at a time
+        assertTrue(runTime.get("lastMillis").getAsLong() >= 900);
+        assertEquals(0, Metrics.getInstance(process.getProcess())
+                .getCounter(cronjob.getMetricName(CronTask.OVERRUNS_METRIC)));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatCronjobWorkIsCancelledIfItDoesNotFinishWithinTheInterval() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("cron_max_parallelism_per_job", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // 3 tasks of 800 ms each, one at a time, cannot finish within an interval of 1 second
+        ParallelCronjob cronjob = ParallelCronjob.getInstance(process.getProcess(), 3, 1, 800);
+        Cronjobs.addCronjob(process.getProcess(), cronjob);
+
+        Thread.sleep(1500);
+        assertEquals(1, cronjob.maxRunning.get());
+        assertTrue(Metrics.getInstance(process.getProcess())
+                .getCounter(cronjob.getMetricName(CronTask.OVERRUNS_METRIC)) >= 1);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testInvalidCronWorkerPoolConfig() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("cron_worker_pool_size", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("'cron_worker_pool_size' must be >= 1", e.exception.getCause().getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatSyncOnlyReloadsTenantsWhenTenantConfigsVersionChanges() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(SyncCoreConfigWithDb.RESOURCE_KEY, 1);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", null);
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                t1,
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                null, null,
+                new JsonObject()
+        ), false);
+
+        TenantConfigsVersionStorage storage = (TenantConfigsVersionStorage) StorageLayer.getBaseStorage(
+                process.getProcess());
+        long version = storage.getTenantConfigsVersion();
+        assertTrue(version > 0);
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        long skippedBefore = metrics.getCounter(MultitenancyHelper.TENANT_CONFIG_REFRESH_SKIPPED_METRIC);
+        Thread.sleep(1500);
+        // nothing changed, so the sync did not read the tenants from the db
+        assertTrue(metrics.getCounter(MultitenancyHelper.TENANT_CONFIG_REFRESH_SKIPPED_METRIC) > skippedBefore);
+        assertNotNull(metrics.getTiming(MultitenancyHelper.TENANT_CONFIG_REFRESH_TIME_METRIC));
+
+        JsonObject coreConfig = new JsonObject();
+        coreConfig.addProperty("email_verification_token_lifetime", 1000);
+        ((MultitenancyStorage) StorageLayer.getBaseStorage(process.getProcess())).overwriteTenantConfig(
+                new TenantConfig(
+                        t1,
+                        new EmailPasswordConfig(true),
+                        new ThirdPartyConfig(true, null),
+                        new PasswordlessConfig(true),
+                        null, null,
+                        coreConfig
+                ));
+        assertEquals(version + 1, storage.getTenantConfigsVersion());
+
+        Thread.sleep(1500);
+        assertEquals(1000, Config.getConfig(t1, process.getProcess()).getEmailVerificationTokenLifetime());
+
+        Multitenancy.deleteApp(t1.toAppIdentifier(), process.getProcess());
+        assertEquals(version + 2, storage.getTenantConfigsVersion());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
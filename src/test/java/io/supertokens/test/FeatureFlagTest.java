@@ -20,6 +20,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.supertokens.ActiveUsers;
 import io.supertokens.ProcessState;
 import io.supertokens.authRecipe.AuthRecipe;
 import io.supertokens.emailpassword.EmailPassword;
@@ -32,6 +33,7 @@ import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.passwordless.Passwordless;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.*;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
@@ -102,6 +104,40 @@ public class FeatureFlagTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void dailyActiveUsersAreCachedForTheirTTL() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.DAILY_ACTIVE_USERS_CACHE_TTL, 2000L);
+
+        JsonObject stats = FeatureFlag.getInstance(process.getProcess()).getPaidFeatureStats();
+        assertEquals(0, stats.get("maus").getAsJsonArray().get(0).getAsInt());
+
+        AuthRecipeUserInfo user = EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        ActiveUsers.updateLastActive(process.getProcess(), user.getSupertokensUserId());
+
+        // the cached counts are returned within the TTL
+        stats = FeatureFlag.getInstance(process.getProcess()).getPaidFeatureStats();
+        assertEquals(0, stats.get("maus").getAsJsonArray().get(0).getAsInt());
+
+        // and read from the db again after it
+        Thread.sleep(2100);
+        stats = FeatureFlag.getInstance(process.getProcess()).getPaidFeatureStats();
+        assertEquals(1, stats.get("maus").getAsJsonArray().get(0).getAsInt());
+        assertEquals(1, stats.get("maus").getAsJsonArray().get(29).getAsInt());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void missingEEFolderShouldBeSameAsNoLicenseKey()
             throws InterruptedException, StorageQueryException, TenantOrAppNotFoundException {
@@ -170,6 +206,10 @@ public class FeatureFlagTest {
             return;
         }
 
+        // the stats are checked right after users become active
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.DAILY_ACTIVE_USERS_CACHE_TTL, 0L);
+
         FeatureFlag.getInstance(process.main).setLicenseKeyAndSyncFeatures(OPAQUE_KEY_WITH_MFA_MULTITENANCY_FEATURE);
 
         // Get the stats without any users/activity
@@ -0,0 +1,168 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.queries.*;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/*
+ * Runs EXPLAIN QUERY PLAN on the queries that the in memory db uses for lookups on tables that grow with the number
+ * of users, and fails if any of them needs a full scan of a table. The queries are taken from the query classes, so
+ * that a change to one of them is checked too. If a query is added that filters on a new column, it should be added
+ * here along with the index that it needs.
+ */
+public class InMemoryDBQueryPlanTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void lookupsOnUserSizedTablesDoNotDoFullTableScans() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        List<String> queries = new ArrayList<>();
+
+        queries.add(GeneralQueries.getQueryToCheckIfUserIdExistsInTenant(start));
+        queries.add(GeneralQueries.getQueryToGetPrimaryUserInfoForUserIds(start, 2));
+        queries.add(ActiveUsersQueries.getQueryToCountUsersActiveSince(start));
+        queries.add(ActiveUsersQueries.getQueryToCountUsersActiveSinceForEachDay(start));
+        queries.add(ActiveUsersQueries.getQueryToCountUsersActiveSinceAndHasMoreThanOneLoginMethodForEachDay(start));
+        queries.add(ActiveUsersQueries
+                .getQueryToCountUsersThatHaveMoreThanOneLoginMethodOrTOTPEnabledAndActiveSinceForEachDay(start));
+
+        queries.add(SessionQueries.getQueryToGetAllNonExpiredSessionHandlesForUser(start));
+        queries.add(SessionQueries.getQueryToGetAllNonExpiredSessionHandlesForUserInTenant(start));
+        queries.add(SessionQueries.getQueryToDeleteAllExpiredSessions(start));
+
+        queries.add(EmailPasswordQueries.getQueryToLockEmail(start));
+        queries.add(EmailPasswordQueries.getQueryToGetPrimaryUserIdUsingEmail(start));
+        queries.add(EmailPasswordQueries.getQueryToDeleteExpiredPasswordResetTokens(start));
+        queries.add(EmailPasswordQueries.getQueryToGetPasswordResetTokenInfo(start));
+
+        queries.add(EmailVerificationQueries.getQueryToGetAllEmailVerificationTokenInfoForUser(start));
+        queries.add(EmailVerificationQueries.getQueryToDeleteExpiredEmailVerificationTokens(start));
+        queries.add(EmailVerificationQueries.getQueryToCheckIfEmailIsVerified(start));
+
+        queries.add(ThirdPartyQueries.getQueryToLockEmail(start));
+        queries.add(ThirdPartyQueries.getQueryToLockThirdPartyInfo(start));
+
+        queries.add(PasswordlessQueries.getQueryToLockEmail(start));
+        queries.add(PasswordlessQueries.getQueryToLockPhone(start));
+        queries.add(PasswordlessQueries.getQueryToGetDevicesByEmail(start));
+        queries.add(PasswordlessQueries.getQueryToGetCodesBefore(start));
+
+        queries.add(UserRolesQueries.getQueryToGetRolesForUserInApp(start));
+        queries.add(UserRolesQueries.getQueryToGetRolesForUser(start));
+        queries.add(UserRolesQueries.getQueryToGetUsersForRole(start));
+
+        queries.add(UserMetadataQueries.getQueryToGetUserMetadata(start));
+        queries.add(UserIdMappingQueries.getQueryToGetUserIdMappingWithExternalUserId(start));
+        queries.add(UserIdMappingQueries.getQueryToGetUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(start));
+
+        queries.add(TOTPQueries.getQueryToGetDevices(start));
+        queries.add(TOTPQueries.getQueryToRemoveExpiredCodes(start));
+
+        queries.add(DashboardQueries.getQueryToGetAllSessionsForUserId(start));
+        queries.add(DashboardQueries.getQueryToDeleteExpiredSessions(start));
+
+        queries.add(BulkImportQueries.getQueryToGetStaleBulkImportUsers(start));
+        queries.add(BulkImportQueries.getQueryToGetNewBulkImportUsers(start));
+
+        queries.add(UserSearchQueries.getQueryToGetUsersWithTagPrefix(start));
+        queries.add(UserSearchQueries.getQueryToDeleteSearchTags(start, 2));
+
+        List<String> failures = new ArrayList<>();
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            for (String query : queries) {
+                for (String step : getQueryPlan(con, query)) {
+                    if (isFullScan(step)) {
+                        failures.add(query + " -> " + step);
+                    }
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            fail("Queries doing full table scans:\n" + String.join("\n", failures));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static List<String> getQueryPlan(Connection con, String query) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (PreparedStatement pst = con.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            // the values do not matter for the plan, but the driver does not run a statement with unbound values
+            int numberOfParameters = pst.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= numberOfParameters; i++) {
+                pst.setString(i, "");
+            }
+            try (ResultSet result = pst.executeQuery()) {
+                while (result.next()) {
+                    steps.add(result.getString("detail"));
+                }
+            }
+        }
+        return steps;
+    }
+
+    private static boolean isFullScan(String step) {
+        // tables are named by their alias in the plan when the query gives them one, so every step is checked. A scan
+        // of a covering index still reads every row, and an automatic index is rebuilt for every query, so both count
+        // as full scans.
+        Pattern scan = Pattern.compile("^SCAN ");
+        // every query here filters on more than the app and tenant, so an index search on just those reads every row
+        // of the tenant, which is the same as a full scan for the in memory db.
+        Pattern searchOnTenant = Pattern.compile("^SEARCH .*\\(app_id=\\?( AND tenant_id=\\?)?\\)$");
+        return scan.matcher(step).find() || searchOnTenant.matcher(step).find() || step.contains("AUTOMATIC");
+    }
+}
@@ -23,7 +23,13 @@ import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.ConnectionWithLocks;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.passwordless.Passwordless;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.session.Session;
@@ -37,18 +43,21 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.*;
 
-/*
- * TODO: Add tests for locks
- * */
-
 public class InMemoryDBTest {
     @Rule
     public TestRule watchman = Utils.getOnFailure();
@@ -857,4 +866,265 @@ public class InMemoryDBTest {
         assertFalse(process.getProcess().isForceInMemoryDB());
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
     }
+
+    @Test
+    public void lockingDistinctKeysConcurrentlyDoesNotWakeUpOtherTransactions() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long wakeUpsBefore = ConnectionPool.getNumberOfLockWakeUps(start);
+
+        ExecutorService es = Executors.newFixedThreadPool(100);
+        AtomicInteger numberOfSuccesses = new AtomicInteger(0);
+
+        for (int i = 0; i < 1000; i++) {
+            final int ind = i;
+            es.execute(() -> {
+                try {
+                    start.startTransaction(con -> {
+                        try {
+                            ((ConnectionWithLocks) con.getConnection()).lock("key" + ind);
+                        } catch (SQLException e) {
+                            throw new StorageTransactionLogicException(e);
+                        }
+                        start.commitTransaction(con);
+                        return null;
+                    });
+                    numberOfSuccesses.incrementAndGet();
+                } catch (Exception ignored) {
+                }
+            });
+        }
+
+        es.shutdown();
+        es.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertEquals(1000, numberOfSuccesses.get());
+        // no two transactions wait for the same key, so no thread should have been woken up
+        assertEquals(wakeUpsBefore, ConnectionPool.getNumberOfLockWakeUps(start));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void unlockingAKeyWakesUpOnlyOneWaitingTransaction() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long wakeUpsBefore = ConnectionPool.getNumberOfLockWakeUps(start);
+
+        int numberOfTransactions = 200;
+        ExecutorService es = Executors.newFixedThreadPool(numberOfTransactions);
+        AtomicInteger numberOfSuccesses = new AtomicInteger(0);
+
+        for (int i = 0; i < numberOfTransactions; i++) {
+            es.execute(() -> {
+                try {
+                    start.startTransaction(con -> {
+                        try {
+                            ((ConnectionWithLocks) con.getConnection()).lock("sameKey");
+                            Thread.sleep(1);
+                        } catch (SQLException | InterruptedException e) {
+                            throw new StorageTransactionLogicException(e);
+                        }
+                        start.commitTransaction(con);
+                        return null;
+                    });
+                    numberOfSuccesses.incrementAndGet();
+                } catch (Exception ignored) {
+                }
+            });
+        }
+
+        es.shutdown();
+        es.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertEquals(numberOfTransactions, numberOfSuccesses.get());
+        // every unlock wakes up at most one waiting thread, so the number of wake ups grows linearly (and not
+        // quadratically) with the number of transactions. We allow some slack for spurious wake ups.
+        assertTrue(ConnectionPool.getNumberOfLockWakeUps(start) - wakeUpsBefore <= 2L * numberOfTransactions);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void lockWaitTimeoutThrowsRetryableException() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        try (Connection con1 = ConnectionPool.getConnection(start);
+             Connection con2 = ConnectionPool.getConnection(start)) {
+            con1.setAutoCommit(false);
+            con2.setAutoCommit(false);
+            ((ConnectionWithLocks) con1).lock("key");
+
+            long start2 = System.currentTimeMillis();
+            try {
+                ((ConnectionWithLocks) con2).lock("key", 200);
+                fail();
+            } catch (SQLTransactionRollbackException ignored) {
+            }
+            assertTrue(System.currentTimeMillis() - start2 >= 200);
+
+            // once the lock is released, it can be taken by the other connection
+            con1.rollback();
+            ((ConnectionWithLocks) con2).lock("key", 200);
+            con2.rollback();
+            con1.setAutoCommit(true);
+            con2.setAutoCommit(true);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void preparedStatementsAreReusedAcrossQueries() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+
+        start.getNumberOfSessions(tenantIdentifier);
+        long missesBefore = ConnectionPool.getNumberOfStatementCacheMisses(start);
+        long hitsBefore = ConnectionPool.getNumberOfStatementCacheHits(start);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, start.getNumberOfSessions(tenantIdentifier));
+        }
+
+        // the same query is run on reused connections, so it should almost never be prepared again. We allow some
+        // slack since cronjobs may be using the pool at the same time.
+        assertTrue(ConnectionPool.getNumberOfStatementCacheMisses(start) - missesBefore <= 10);
+        assertTrue(ConnectionPool.getNumberOfStatementCacheHits(start) - hitsBefore >= 90);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void retryableTransactionFailuresAreRetriedAndThenAborted() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        long retriesBefore = metrics.getCounter(Start.TRANSACTION_RETRIES_METRIC);
+        long abortsBefore = metrics.getCounter(Start.TRANSACTION_ABORTS_METRIC);
+        AtomicInteger numberOfAttempts = new AtomicInteger(0);
+
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            con.setAutoCommit(false);
+            ((ConnectionWithLocks) con).lock("key");
+
+            try {
+                start.startTransaction(tCon -> {
+                    numberOfAttempts.incrementAndGet();
+                    try {
+                        ((ConnectionWithLocks) tCon.getConnection()).lock("key", 10);
+                    } catch (SQLException e) {
+                        throw new StorageQueryException(e);
+                    }
+                    return null;
+                });
+                fail();
+            } catch (StorageQueryException e) {
+                assertTrue(e.getCause() instanceof SQLTransactionRollbackException);
+            }
+
+            con.rollback();
+            con.setAutoCommit(true);
+        }
+
+        assertEquals(5, numberOfAttempts.get());
+        assertEquals(retriesBefore + 4, metrics.getCounter(Start.TRANSACTION_RETRIES_METRIC));
+        assertEquals(abortsBefore + 1, metrics.getCounter(Start.TRANSACTION_ABORTS_METRIC));
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.DEADLOCK_FOUND));
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.TRANSACTION_ABORTED_AFTER_RETRIES));
+
+        // once the lock is free, the same transaction goes through
+        start.startTransaction(tCon -> {
+            try {
+                ((ConnectionWithLocks) tCon.getConnection()).lock("key", 10);
+            } catch (SQLException e) {
+                throw new StorageQueryException(e);
+            }
+            start.commitTransaction(tCon);
+            return null;
+        });
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void fileBackedModeUsesWALAndKeepsDataAcrossRestarts() throws Exception {
+        File dbFile = File.createTempFile("supertokens-inmemorydb-test", ".db");
+        assertTrue(dbFile.delete());
+        Utils.setValueInConfig("sqlite_file_path", "\"" + dbFile.getAbsolutePath() + "\"");
+
+        try {
+            {
+                String[] args = {"../"};
+                TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+                process.getProcess().setForceInMemoryDB();
+                process.startProcess();
+                assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+                Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+
+                Start start = (Start) StorageLayer.getStorage(process.getProcess());
+                try (Connection con = ConnectionPool.getConnection(start);
+                     Statement statement = con.createStatement();
+                     ResultSet result = statement.executeQuery("PRAGMA journal_mode")) {
+                    assertTrue(result.next());
+                    assertEquals("wal", result.getString(1).toLowerCase());
+                }
+                assertTrue(dbFile.isFile());
+
+                process.kill();
+                assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            }
+            {
+                String[] args = {"../"};
+                TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+                process.getProcess().setForceInMemoryDB();
+                process.startProcess();
+                assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+                // unlike the in memory mode (see createAndForgetSession), the session is still there
+                assertEquals(1, ((SessionStorage) StorageLayer.getStorage(process.getProcess()))
+                        .getNumberOfSessions(new TenantIdentifier(null, null, null)));
+
+                process.kill();
+                assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            }
+        } finally {
+            dbFile.delete();
+            new File(dbFile.getAbsolutePath() + "-wal").delete();
+            new File(dbFile.getAbsolutePath() + "-shm").delete();
+        }
+    }
 }
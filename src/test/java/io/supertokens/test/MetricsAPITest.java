@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class MetricsAPITest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testMetricsAreReturned() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        metrics.incrementCounter("test.counter");
+        metrics.addToCounter("test.counter", 2);
+        metrics.setGauge("test.gauge", 7);
+        metrics.recordTiming("test.timing", 10);
+        metrics.recordTiming("test.timing", 30);
+
+        JsonObject response = HttpRequestForTesting
+                .sendGETRequest(process.getProcess(), "", "http://localhost:3567/metrics", null, 1000,
+                        1000, null, Utils.getCdiVersionStringLatestForTests(), null);
+
+        assertEquals("OK", response.get("status").getAsString());
+        assertEquals(3, response.get("counters").getAsJsonObject().get("test.counter").getAsLong());
+        assertEquals(7, response.get("gauges").getAsJsonObject().get("test.gauge").getAsLong());
+
+        JsonObject timing = response.get("timings").getAsJsonObject().get("test.timing").getAsJsonObject();
+        assertEquals(2, timing.get("count").getAsLong());
+        assertEquals(40, timing.get("totalMillis").getAsLong());
+        assertEquals(30, timing.get("maxMillis").getAsLong());
+        assertEquals(30, timing.get("lastMillis").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testStartupPhaseTimingsAreRecorded() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        for (String phase : new String[]{"config", "base_storage", "multitenancy", "tenant_configs",
+                "tenant_storages", "app_resources", "cronjobs", "webserver"}) {
+            assertEquals(phase, 1, metrics.getTiming("startup." + phase + ".time").get("count").getAsLong());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.warmup.WarmUp;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class ReadyAPITest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testReadyAsSoonAsStartedWithoutWarmUp() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/ready", null, 1000, 1000,
+                null, null, "");
+        assertEquals("Ready", res);
+        assertNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.WARM_UP_COMPLETE, 1000));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testReadyOnlyAfterWarmUp() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("warm_up_on_start", "true");
+        Utils.setValueInConfig("warm_up_iterations", "100");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.WARM_UP_COMPLETE));
+
+        String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/ready", null, 1000, 1000,
+                null, null, "");
+        assertEquals("Ready", res);
+        assertEquals(1, Metrics.getInstance(process.getProcess()).getTiming(WarmUp.WARM_UP_TIME_METRIC)
+                .get("count").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testNotReadyWhileWarmingUp() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("warm_up_on_start", "true");
+        // enough cycles for the warm up to still be running when the API is called
+        Utils.setValueInConfig("warm_up_iterations", "1000000");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/hello", null, 1000, 1000,
+                null, null, "");
+        assertEquals("Hello", res);
+
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/ready", null, 1000, 1000,
+                    null, null, "");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.statusCode);
+            assertEquals("Http error. Status Code: 503. Message: Not ready", e.getMessage());
+        }
+
+        // stopping the core stops the warm up as well
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        assertNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.WARM_UP_COMPLETE, 1000));
+    }
+
+    @Test
+    public void testStorageChecksAreRateLimited() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 5; i++) {
+            String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/ready", null, 1000, 1000,
+                    null, null, "");
+            assertEquals("Ready", res);
+        }
+
+        // the databases are not queried again, and the result of the last check is returned
+        String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/ready", null, 1000, 1000,
+                null, null, "");
+        assertEquals("RateLimitedReady", res);
+
+        Thread.sleep(201);
+
+        res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/ready", null, 1000, 1000,
+                null, null, "");
+        assertEquals("Ready", res);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -16,12 +16,20 @@
 
 package io.supertokens.test;
 
+import io.supertokens.utils.ParallelTasks;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 
 public class UtilsTest {
@@ -104,4 +112,69 @@ public class UtilsTest {
         String inputPhoneNumber = "   ";
         assertEquals("", io.supertokens.utils.Utils.normalizeIfPhoneNumber(inputPhoneNumber));
     }
+
+    @Test
+    public void parallelTasksRunAtTheSameTimeAndReturnResultsByKey() throws Exception {
+        int numberOfTasks = 4;
+        CountDownLatch allStarted = new CountDownLatch(numberOfTasks);
+        Map<String, ParallelTasks.Task<Integer, InterruptedException>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < numberOfTasks; i++) {
+            int value = i;
+            tasks.put("t" + i, () -> {
+                allStarted.countDown();
+                // this only finishes if all the tasks are running at the same time
+                assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+                return value * 2;
+            });
+        }
+
+        Map<String, Integer> results = ParallelTasks.run(tasks, numberOfTasks, "test");
+        assertEquals(new ArrayList<>(tasks.keySet()), new ArrayList<>(results.keySet()));
+        for (int i = 0; i < numberOfTasks; i++) {
+            assertEquals(i * 2, (int) results.get("t" + i));
+        }
+    }
+
+    @Test
+    public void parallelTasksThrowTheExceptionOfAFailedTask() {
+        Map<String, ParallelTasks.Task<Void, IOException>> tasks = new LinkedHashMap<>();
+        tasks.put("ok", () -> null);
+        tasks.put("fails", () -> {
+            throw new IOException("failed");
+        });
+
+        try {
+            ParallelTasks.run(tasks, 2, "test");
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void parallelTasksKnowTheThreadThatIsWaitingForThem() throws Exception {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, ParallelTasks.getCallingThread());
+
+        Map<String, ParallelTasks.Task<Thread, Exception>> nestedTasks = new LinkedHashMap<>();
+        for (int i = 0; i < 2; i++) {
+            nestedTasks.put("n" + i, ParallelTasks::getCallingThread);
+        }
+        Map<String, ParallelTasks.Task<Thread, Exception>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < 2; i++) {
+            tasks.put("t" + i, () -> {
+                assertNotSame(caller, Thread.currentThread());
+                // tasks started from a task get the thread of the outermost call
+                for (Thread thread : ParallelTasks.run(nestedTasks, 2, "nested").values()) {
+                    assertSame(caller, thread);
+                }
+                return ParallelTasks.getCallingThread();
+            });
+        }
+
+        for (Thread thread : ParallelTasks.run(tasks, 2, "test").values()) {
+            assertSame(caller, thread);
+        }
+        assertSame(caller, ParallelTasks.getCallingThread());
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.accountlinking.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.ProcessState;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.thirdparty.ThirdParty;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.webserver.WebserverAPI;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class GetUsersByIdsTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatUsersAreReturnedInTheOrderOfTheGivenIds() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{
+                        EE_FEATURES.ACCOUNT_LINKING, EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AuthRecipeUserInfo user1 = EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        AuthRecipeUserInfo user2 = ThirdParty.signInUp(process.getProcess(), "google", "googleId",
+                "test@example.com").user;
+        AuthRecipeUserInfo user3 = EmailPassword.signUp(process.getProcess(), "test2@example.com", "password");
+        AuthRecipe.createPrimaryUser(process.getProcess(), user1.getSupertokensUserId());
+        AuthRecipe.linkAccounts(process.getProcess(), user2.getSupertokensUserId(), user1.getSupertokensUserId());
+        UserIdMapping.createUserIdMapping(process.getProcess(), user3.getSupertokensUserId(), "externalId", null,
+                false);
+
+        JsonArray userIds = new JsonArray();
+        userIds.add(new JsonPrimitive("externalId"));
+        userIds.add(new JsonPrimitive("unknownId"));
+        userIds.add(new JsonPrimitive(user2.getSupertokensUserId()));
+        userIds.add(new JsonPrimitive(user1.getSupertokensUserId()));
+        JsonObject request = new JsonObject();
+        request.add("userIds", userIds);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/user/id/batch", request, 1000, 1000, null,
+                WebserverAPI.getLatestCDIVersion().get(), "");
+
+        assertEquals("OK", response.get("status").getAsString());
+        JsonArray users = response.getAsJsonArray("users");
+        assertEquals(4, users.size());
+        assertEquals("externalId", users.get(0).getAsJsonObject().get("id").getAsString());
+        assertTrue(users.get(1).isJsonNull());
+        // a linked recipe user id gives its primary user
+        JsonObject primaryUser = users.get(2).getAsJsonObject();
+        assertEquals(user1.getSupertokensUserId(), primaryUser.get("id").getAsString());
+        assertEquals(2, primaryUser.getAsJsonArray("loginMethods").size());
+        assertEquals(primaryUser, users.get(3));
+
+        request.add("userIds", new JsonArray());
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/user/id/batch", request, 1000, 1000, null,
+                    WebserverAPI.getLatestCDIVersion().get(), "");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: userIds must contain between 1 and 250 user ids",
+                    e.getMessage());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTheSuperTokensUserIdOfAMappingIsPreferredOverTheExternalUserIdOfAnother() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AuthRecipeUserInfo user1 = EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        AuthRecipeUserInfo user2 = EmailPassword.signUp(process.getProcess(), "test2@example.com", "password");
+        UserIdMapping.createUserIdMapping(process.getProcess(), user1.getSupertokensUserId(), "externalId", null,
+                false);
+        // the external user id of user2 is the SuperTokens user id of user1
+        UserIdMapping.createUserIdMapping(process.getProcess(), user2.getSupertokensUserId(),
+                user1.getSupertokensUserId(), null, true);
+
+        JsonArray userIds = new JsonArray();
+        userIds.add(new JsonPrimitive(user1.getSupertokensUserId()));
+        JsonObject request = new JsonObject();
+        request.add("userIds", userIds);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/user/id/batch", request, 1000, 1000, null,
+                WebserverAPI.getLatestCDIVersion().get(), "");
+
+        // as with UserIdType.ANY, the id is taken to be the SuperTokens user id of user1
+        assertEquals("OK", response.get("status").getAsString());
+        assertEquals("externalId",
+                response.getAsJsonArray("users").get(0).getAsJsonObject().get("id").getAsString());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -283,4 +283,49 @@ public class GetUsersWithSearchTagsTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatSearchResultsFollowUpdatesAndDeletes() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        String userId1 = EmailPassword.signUp(process.getProcess(), "Alice@Example.com", "testPass123")
+                .getSupertokensUserId();
+        Thread.sleep(10);
+        String userId2 = EmailPassword.signUp(process.getProcess(), "bob@example.com", "testPass123")
+                .getSupertokensUserId();
+
+        // emails are matched by the prefix of the email or of its domain, ignoring case
+        assertSearchResult(process, "alice", userId1);
+        assertSearchResult(process, "EXAMPLE", userId1, userId2);
+        assertSearchResult(process, "ample");
+
+        EmailPassword.updateUsersEmailOrPassword(process.getProcess(), userId1, "carol@test.com", null);
+        assertSearchResult(process, "alice");
+        assertSearchResult(process, "carol", userId1);
+        assertSearchResult(process, "example", userId2);
+
+        AuthRecipe.deleteUser(process.getProcess(), userId2);
+        assertSearchResult(process, "bob");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    private static void assertSearchResult(TestingProcessManager.TestingProcess process, String email,
+                                           String... expectedUserIds) throws Exception {
+        ArrayList<String> emailList = new ArrayList<>();
+        emailList.add(email);
+        DashboardSearchTags tags = new DashboardSearchTags(emailList, null, null);
+        UserPaginationContainer info = AuthRecipe.getUsers(process.getProcess(), 10, "ASC", null, null, tags);
+        assertEquals(expectedUserIds.length, info.users.length);
+        for (int i = 0; i < expectedUserIds.length; i++) {
+            assertEquals(expectedUserIds[i], info.users[i].getSupertokensUserId());
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.authRecipe;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.ProcessState;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.userroles.UserRoles;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserExportAPITest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testExportingUsersInChunksAndResumingFromACursor() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        List<AuthRecipeUserInfo> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(EmailPassword.signUp(process.getProcess(), "test" + i + "@example.com", "password"));
+            Thread.sleep(5);
+        }
+        UserIdMapping.createUserIdMapping(process.getProcess(), users.get(1).getSupertokensUserId(), "e1", null,
+                false);
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", null);
+        UserRoles.addRoleToUser(process.getProcess(), "e1", "role");
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("key", "value");
+        UserMetadata.updateUserMetadata(process.getProcess(), users.get(2).getSupertokensUserId(), metadata);
+
+        List<JsonObject> lines = export("chunkSize=2");
+        // 5 users, a cursor after each of the first two chunks, and the status
+        assertEquals(8, lines.size());
+        assertEquals(users.get(0).getSupertokensUserId(), lines.get(0).getAsJsonObject("user").get("id").getAsString());
+        assertEquals("e1", lines.get(1).getAsJsonObject("user").get("id").getAsString());
+        assertEquals(1, lines.get(1).getAsJsonArray("roles").size());
+        assertEquals("role", lines.get(1).getAsJsonArray("roles").get(0).getAsString());
+        assertTrue(lines.get(2).has("nextCursor"));
+        assertEquals(users.get(2).getSupertokensUserId(), lines.get(3).getAsJsonObject("user").get("id").getAsString());
+        assertEquals(metadata, lines.get(3).getAsJsonObject("metadata"));
+        assertEquals(0, lines.get(3).getAsJsonArray("roles").size());
+        assertTrue(lines.get(5).has("nextCursor"));
+        assertEquals(users.get(4).getSupertokensUserId(), lines.get(6).getAsJsonObject("user").get("id").getAsString());
+        assertEquals(new JsonObject(), lines.get(6).getAsJsonObject("metadata"));
+        assertEquals("OK", lines.get(7).get("status").getAsString());
+
+        // resuming from the first cursor exports the users after the first chunk
+        List<JsonObject> resumedLines = export("chunkSize=2&cursor=" + lines.get(2).get("nextCursor").getAsString());
+        assertEquals(lines.subList(3, 8), resumedLines);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testBadInput() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        HashMap<String, String> QUERY_PARAMS = new HashMap<>();
+        QUERY_PARAMS.put("chunkSize", "1001");
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "", "http://localhost:3567/users/export",
+                    QUERY_PARAMS, 1000, 1000, null, SemVer.v5_0.get(), null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: chunkSize must be between 1 and 1000",
+                    e.getMessage());
+        }
+
+        QUERY_PARAMS = new HashMap<>();
+        QUERY_PARAMS.put("cursor", "invalid");
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "", "http://localhost:3567/users/export",
+                    QUERY_PARAMS, 1000, 1000, null, SemVer.v5_0.get(), null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: invalid cursor", e.getMessage());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static List<JsonObject> export(String query) throws Exception {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:3567/users/export?" + query)
+                .openConnection();
+        try {
+            assertEquals(200, con.getResponseCode());
+            assertEquals("application/x-ndjson; charset=UTF-8", con.getHeaderField("Content-Type"));
+            List<JsonObject> lines = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(new JsonParser().parse(line).getAsJsonObject());
+                }
+            }
+            return lines;
+        } finally {
+            con.disconnect();
+        }
+    }
+}
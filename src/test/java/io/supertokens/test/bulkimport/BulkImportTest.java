@@ -0,0 +1,264 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.bulkimport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ProcessState;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.processBulkImportUsers.ProcessBulkImportUsers;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.emailpassword.exceptions.WrongCredentialsException;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.useridmapping.UserIdType;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.userroles.UserRoles;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.HashMap;
+
+import static io.supertokens.test.Utils.checkThatArraysAreEqual;
+import static org.junit.Assert.*;
+
+public class BulkImportTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    // the hash of "testPass123"
+    private static final String PASSWORD_HASH = "$2a$10$GzEm3vKoAqnJCTWesRARCe/ovjt/07qjvcH9jbLUg44Fn77gMZkmm";
+
+    @Test
+    public void testImportingUsersAndReportingTheUsersThatFailed() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "admin", null);
+        EmailPassword.signUp(process.getProcess(), "existing@example.com", "password");
+
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("key", "value");
+        JsonObject user0 = createUser("test0@example.com", PASSWORD_HASH);
+        user0.addProperty("externalUserId", "e0");
+        user0.add("userMetadata", metadata);
+        user0.add("userRoles", toJsonArray("admin"));
+        JsonObject user4 = createUser("test4@example.com", PASSWORD_HASH);
+        user4.add("userRoles", toJsonArray("unknown"));
+
+        JsonArray users = new JsonArray();
+        users.add(user0);
+        users.add(createUser("test1@example.com", PASSWORD_HASH));
+        users.add(createUser("test2@example.com", "invalid"));
+        users.add(createUser("existing@example.com", PASSWORD_HASH));
+        users.add(user4);
+        JsonObject addResponse = addUsers(process.getProcess(), users);
+        assertEquals("OK", addResponse.get("status").getAsString());
+        assertEquals(5, addResponse.getAsJsonArray("ids").size());
+        assertEquals(5, getCounts(process.getProcess()).get("NEW").getAsLong());
+
+        assertEquals(5, BulkImport.processUsers(process.getProcess(), new AppIdentifier(null, null),
+                StorageLayer.getStorage(process.getProcess()), 1000));
+
+        AuthRecipeUserInfo importedUser = EmailPassword.signIn(process.getProcess(), "test0@example.com",
+                "testPass123");
+        assertEquals("e0", UserIdMapping.getUserIdMapping(process.getProcess(), importedUser.getSupertokensUserId(),
+                UserIdType.SUPERTOKENS).externalUserId);
+        checkThatArraysAreEqual(new String[]{"admin"}, UserRoles.getRolesForUser(process.getProcess(), "e0"));
+        assertEquals(metadata, UserMetadata.getUserMetadata(process.getProcess(), "e0"));
+        EmailPassword.signIn(process.getProcess(), "test1@example.com", "testPass123");
+
+        JsonObject counts = getCounts(process.getProcess());
+        assertEquals(0, counts.get("NEW").getAsLong());
+        assertEquals(0, counts.get("PROCESSING").getAsLong());
+        assertEquals(3, counts.get("FAILED").getAsLong());
+        assertEquals(2, Metrics.getInstance(process.getProcess()).getCounter(BulkImport.USERS_IMPORTED_METRIC));
+        assertEquals(3, Metrics.getInstance(process.getProcess()).getCounter(BulkImport.USERS_FAILED_METRIC));
+
+        HashMap<String, String> QUERY_PARAMS = new HashMap<>();
+        QUERY_PARAMS.put("status", "FAILED");
+        JsonObject listResponse = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/bulk-import/users", QUERY_PARAMS, 1000, 1000, null, SemVer.v5_0.get(), null);
+        JsonArray failedUsers = listResponse.getAsJsonArray("users");
+        assertEquals(3, failedUsers.size());
+        JsonArray ids = new JsonArray();
+        for (int i = 0; i < failedUsers.size(); i++) {
+            JsonObject failedUser = failedUsers.get(i).getAsJsonObject();
+            assertEquals("FAILED", failedUser.get("status").getAsString());
+            assertTrue(failedUser.has("errorMessage"));
+            ids.add(failedUser.get("id").getAsString());
+        }
+
+        // the user with the unknown role was created, but is deleted again since its role could not be added
+        String errorMessages = failedUsers.toString();
+        assertTrue(errorMessages.contains(
+                "The user was not imported, since the role unknown could not be added to it"));
+        try {
+            EmailPassword.signIn(process.getProcess(), "test4@example.com", "testPass123");
+            fail();
+        } catch (WrongCredentialsException ignored) {
+        }
+        assertTrue(errorMessages.contains("A user with the email existing@example.com already exists"));
+
+        JsonObject request = new JsonObject();
+        request.add("ids", ids);
+        JsonObject removeResponse = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/bulk-import/users/remove", request, 1000, 1000, null, SemVer.v5_0.get(), null);
+        assertEquals(3, removeResponse.get("removedCount").getAsInt());
+        assertEquals(0, getCounts(process.getProcess()).get("FAILED").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTheCronjobImportsTheUsers() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(ProcessBulkImportUsers.RESOURCE_KEY, 1);
+        Utils.setValueInConfig("bulk_import_batch_size", "2");
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        JsonArray users = new JsonArray();
+        for (int i = 0; i < 5; i++) {
+            users.add(createUser("test" + i + "@example.com", PASSWORD_HASH));
+        }
+        addUsers(process.getProcess(), users);
+
+        Thread.sleep(3000);
+
+        assertEquals(0, getCounts(process.getProcess()).get("NEW").getAsLong());
+        for (int i = 0; i < 5; i++) {
+            EmailPassword.signIn(process.getProcess(), "test" + i + "@example.com", "testPass123");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testBadInput() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        JsonObject user = createUser("test@example.com", PASSWORD_HASH);
+        user.getAsJsonArray("loginMethods").get(0).getAsJsonObject().add("tenantIds", toJsonArray("t1"));
+        JsonArray users = new JsonArray();
+        users.add(createUser("test@example.com", PASSWORD_HASH));
+        users.add(user);
+        try {
+            addUsers(process.getProcess(), users);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: users[1]: Tenant with the id t1 does not exist",
+                    e.getMessage());
+        }
+        // none of the users are added if any of them is invalid
+        assertEquals(0, getCounts(process.getProcess()).get("NEW").getAsLong());
+
+        HashMap<String, String> QUERY_PARAMS = new HashMap<>();
+        QUERY_PARAMS.put("status", "DONE");
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "", "http://localhost:3567/bulk-import/users",
+                    QUERY_PARAMS, 1000, 1000, null, SemVer.v5_0.get(), null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: status must be one of NEW, PROCESSING or FAILED",
+                    e.getMessage());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static JsonObject createUser(String email, String passwordHash) {
+        JsonObject loginMethod = new JsonObject();
+        loginMethod.addProperty("recipeId", "emailpassword");
+        loginMethod.addProperty("email", email);
+        loginMethod.addProperty("passwordHash", passwordHash);
+        loginMethod.addProperty("hashingAlgorithm", "bcrypt");
+        JsonArray loginMethods = new JsonArray();
+        loginMethods.add(loginMethod);
+        JsonObject user = new JsonObject();
+        user.add("loginMethods", loginMethods);
+        return user;
+    }
+
+    private static JsonArray toJsonArray(String value) {
+        JsonArray array = new JsonArray();
+        array.add(value);
+        return array;
+    }
+
+    private static JsonObject addUsers(Main main, JsonArray users) throws Exception {
+        JsonObject request = new JsonObject();
+        request.add("users", users);
+        return HttpRequestForTesting.sendJsonPOSTRequest(main, "", "http://localhost:3567/bulk-import/users",
+                request, 1000, 1000, null, SemVer.v5_0.get(), null);
+    }
+
+    private static JsonObject getCounts(Main main) throws Exception {
+        JsonObject response = HttpRequestForTesting.sendGETRequest(main, "",
+                "http://localhost:3567/bulk-import/users/count", new HashMap<>(), 1000, 1000, null,
+                SemVer.v5_0.get(), null);
+        return response.getAsJsonObject("counts");
+    }
+}
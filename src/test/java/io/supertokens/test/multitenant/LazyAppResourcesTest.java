@@ -0,0 +1,170 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.multitenant;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.multitenancy.LazyAppResources;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.*;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class LazyAppResourcesTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatAppResourcesAreOnlyLoadedOnFirstUseAndLeastRecentlyUsedAppsAreEvicted() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("lazy_app_resource_loading", "true");
+        Utils.setValueInConfig("lazy_app_resource_max_apps", "2");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 3; i++) {
+            createApp(process, "a" + i);
+        }
+
+        // only the base app has its signing keys loaded after the apps are created
+        assertEquals(1, getNumberOfLoadedJWTSigningKeys(process));
+
+        JWTSigningKey a0 = JWTSigningKey.getInstance(new AppIdentifier(null, "a0"), process.getProcess());
+        assertNotNull(a0);
+        assertSame(a0, JWTSigningKey.getInstance(new AppIdentifier(null, "a0"), process.getProcess()));
+        assertEquals(2, getNumberOfLoadedJWTSigningKeys(process));
+
+        Thread.sleep(10);
+        JWTSigningKey.getInstance(new AppIdentifier(null, "a1"), process.getProcess());
+        Thread.sleep(10);
+        JWTSigningKey.getInstance(new AppIdentifier(null, "a2"), process.getProcess());
+
+        // a0 was used the least recently, so it is evicted to keep at most 2 apps loaded
+        assertEquals(3, getNumberOfLoadedJWTSigningKeys(process));
+        assertNull(process.getProcess().getResourceDistributor()
+                .getResourceIfPresent(new TenantIdentifier(null, "a0", null), JWTSigningKey.RESOURCE_KEY));
+        assertEquals(3, Metrics.getInstance(process.getProcess()).getCounter(LazyAppResources.LOADED_METRIC));
+        assertEquals(1, Metrics.getInstance(process.getProcess()).getCounter(LazyAppResources.EVICTED_METRIC));
+
+        // it is loaded again on its next use
+        assertNotSame(a0, JWTSigningKey.getInstance(new AppIdentifier(null, "a0"), process.getProcess()));
+
+        try {
+            JWTSigningKey.getInstance(new AppIdentifier(null, "doesnotexist"), process.getProcess());
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // expected
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatIdleAppResourcesAreEvicted() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("lazy_app_resource_loading", "true");
+        Utils.setValueInConfig("lazy_app_resource_idle_ttl_sec", "1");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        createApp(process, "a0");
+        createApp(process, "a1");
+
+        JWTSigningKey.getInstance(new AppIdentifier(null, "a0"), process.getProcess());
+        assertEquals(2, getNumberOfLoadedJWTSigningKeys(process));
+
+        Thread.sleep(1500);
+
+        // idle apps are evicted when any lazily loaded resource is next asked for
+        JWTSigningKey.getInstance(new AppIdentifier(null, "a1"), process.getProcess());
+        assertNull(process.getProcess().getResourceDistributor()
+                .getResourceIfPresent(new TenantIdentifier(null, "a0", null), JWTSigningKey.RESOURCE_KEY));
+        assertNotNull(process.getProcess().getResourceDistributor()
+                .getResourceIfPresent(new TenantIdentifier(null, "a1", null), JWTSigningKey.RESOURCE_KEY));
+
+        // the base app is never evicted
+        assertNotNull(process.getProcess().getResourceDistributor()
+                .getResourceIfPresent(new TenantIdentifier(null, null, null), JWTSigningKey.RESOURCE_KEY));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testInvalidLazyAppResourceConfig() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("lazy_app_resource_max_apps", "0");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("'lazy_app_resource_max_apps' must be >= 1", e.exception.getCause().getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void createApp(TestingProcessManager.TestingProcess process, String appId) throws Exception {
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                new TenantIdentifier(null, appId, null),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                null, null,
+                new JsonObject()
+        ), false);
+    }
+
+    private static int getNumberOfLoadedJWTSigningKeys(TestingProcessManager.TestingProcess process) {
+        ResourceDistributor resourceDistributor = process.getProcess().getResourceDistributor();
+        return resourceDistributor.getAllResourcesWithResourceKey(JWTSigningKey.RESOURCE_KEY).size();
+    }
+}
@@ -18,14 +18,21 @@ package io.supertokens.test.multitenant;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.StorageAndUserIdMapping;
+import io.supertokens.config.Config;
+import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeStorage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.*;
@@ -34,14 +41,21 @@ import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateTenantExc
 import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateThirdPartyIdException;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.StorageLookupCache;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.useridmapping.UserIdMapping;
+import io.supertokens.useridmapping.UserIdType;
 import org.junit.*;
 import org.junit.rules.TestRule;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -2060,4 +2074,243 @@ public class StorageLayerTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatRefreshingWhileHoldingTheResourceDistributorLockDoesNotDeadlockWithAReload()
+            throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        int numberOfApps = 20;
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        es.execute(() -> {
+            try {
+                for (int i = 0; i < numberOfApps; i++) {
+                    Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                            new TenantIdentifier(null, "a" + i, null),
+                            new EmailPasswordConfig(true),
+                            new ThirdPartyConfig(true, null),
+                            new PasswordlessConfig(true),
+                            null, null,
+                            new JsonObject()
+                    ), false);
+                }
+            } catch (Exception e) {
+                failed.set(true);
+            }
+        });
+        es.execute(() -> {
+            try {
+                for (int i = 0; i < numberOfApps; i++) {
+                    process.getProcess().getResourceDistributor().withResourceDistributorLock(() -> {
+                        MultitenancyHelper.getInstance(process.getProcess())
+                                .refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+                        return null;
+                    });
+                }
+            } catch (Exception e) {
+                failed.set(true);
+            }
+        });
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+        assertFalse(failed.get());
+
+        // all the apps have their resources loaded once the reloads are done
+        for (int i = 0; i < numberOfApps; i++) {
+            TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a" + i, null);
+            assertNotNull(Config.getConfig(tenantIdentifier, process.getProcess()));
+            assertNotNull(StorageLayer.getStorage(tenantIdentifier, process.getProcess()));
+        }
+        assertEquals(numberOfApps + 1, process.getProcess().getResourceDistributor()
+                .getAllResourcesWithResourceKey(StorageLayer.RESOURCE_KEY).size());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTenantsWithTheSameDbConfigShareOneStorageAndAreCountedInThePoolsReport()
+            throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 3; i++) {
+            // the configs differ only in a non db field
+            JsonObject config = new JsonObject();
+            config.addProperty("access_token_validity", 3600 + i);
+            Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                    new TenantIdentifier(null, "a" + i, null),
+                    new EmailPasswordConfig(true),
+                    new ThirdPartyConfig(true, null),
+                    new PasswordlessConfig(true),
+                    null, null,
+                    config
+            ), false);
+        }
+
+        Storage baseStorage = StorageLayer.getBaseStorage(process.getProcess());
+        for (int i = 0; i < 3; i++) {
+            assertSame(baseStorage,
+                    StorageLayer.getStorage(new TenantIdentifier(null, "a" + i, null), process.getProcess()));
+        }
+
+        JsonObject report = StorageLayer.getStoragePoolsReport(process.getProcess());
+        assertEquals(1, report.get("numberOfConnectionPools").getAsInt());
+        JsonObject database = report.get("databases").getAsJsonArray().get(0).getAsJsonObject();
+        assertEquals(baseStorage.getUserPoolId(), database.get("userPoolId").getAsString());
+        assertEquals(4, database.get("numberOfTenants").getAsInt());
+        assertTrue(database.get("numberOfOpenConnections").getAsInt() >= 1);
+
+        Multitenancy.deleteApp(new AppIdentifier(null, "a0"), process.getProcess());
+
+        JsonObject response = HttpRequestForTesting
+                .sendGETRequest(process.getProcess(), "", "http://localhost:3567/storage/pools", null, 1000,
+                        1000, null, Utils.getCdiVersionStringLatestForTests(), null);
+        assertEquals("OK", response.get("status").getAsString());
+        assertEquals(1, response.get("numberOfConnectionPools").getAsInt());
+        database = response.get("databases").getAsJsonArray().get(0).getAsJsonObject();
+        assertEquals(3, database.get("numberOfTenants").getAsInt());
+        JsonObject pool = database.get("connectionPools").getAsJsonArray().get(0).getAsJsonObject();
+        assertEquals(3, pool.get("numberOfTenants").getAsInt());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testStoragesIndex() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AppIdentifier app = new AppIdentifier(null, "a1");
+        for (int i = 1; i <= 2; i++) {
+            JsonObject config = new JsonObject();
+            StorageLayer.getBaseStorage(process.getProcess()).modifyConfigToAddANewUserPoolForTesting(config, i);
+            Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                    new TenantIdentifier(null, "a1", i == 1 ? null : "t1"),
+                    new EmailPasswordConfig(true),
+                    new ThirdPartyConfig(true, null),
+                    new PasswordlessConfig(true),
+                    null, null,
+                    config
+            ), false);
+        }
+
+        // the index is updated when the tenants are loaded
+        Storage[] storages = StorageLayer.getStoragesForApp(process.getProcess(), app);
+        Set<String> userPoolIds = new HashSet<>();
+        for (Storage storage : storages) {
+            userPoolIds.add(storage.getUserPoolId());
+        }
+        assertEquals(storages.length, userPoolIds.size());
+        boolean found = false;
+        for (List<TenantIdentifier> tenants : StorageLayer.getTenantsWithUniqueUserPoolId(process.getProcess())) {
+            found = found || tenants.contains(new TenantIdentifier(null, "a1", "t1"));
+        }
+        assertTrue(found);
+
+        Multitenancy.deleteApp(app, process.getProcess());
+        try {
+            StorageLayer.getStoragesForApp(process.getProcess(), app);
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // expected
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testUserLocationCacheWithMoreThanOneStorage() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        AppIdentifier app = new AppIdentifier(null, null);
+
+        // two distinct storages on top of the same database. Supertokens user IDs are not found in the first one, so
+        // that a user ID can be the external ID of a user ID mapping in the first storage and a supertokens user ID in
+        // the second one.
+        Storage first = Mockito.spy(StorageLayer.getBaseStorage(main));
+        Mockito.doReturn(false).when((AuthRecipeStorage) first)
+                .doesUserIdExist(ArgumentMatchers.any(AppIdentifier.class), ArgumentMatchers.anyString());
+        Storage second = Mockito.spy(StorageLayer.getBaseStorage(main));
+        Storage[] storages = new Storage[]{first, second};
+        Metrics metrics = Metrics.getInstance(main);
+
+        AuthRecipeUserInfo user1 = EmailPassword.signUp(main, "user1@example.com", "password");
+        AuthRecipeUserInfo user2 = EmailPassword.signUp(main, "user2@example.com", "password");
+        UserIdMapping.createUserIdMapping(main, user1.getSupertokensUserId(), user2.getSupertokensUserId(), null,
+                true);
+
+        // the supertokens user ID in the second storage takes precedence over the user ID mapping in the first one,
+        // and the second lookup only queries the storage that the user was found in
+        for (int i = 0; i < 2; i++) {
+            StorageAndUserIdMapping result = StorageLayer.findStorageAndUserIdMappingForUser(main, app, storages,
+                    user2.getSupertokensUserId(), UserIdType.ANY);
+            assertSame(second, result.storage);
+        }
+        assertEquals(1, metrics.getCounter(StorageLookupCache.USER_LOCATION_CACHE_MISS_METRIC));
+        assertEquals(1, metrics.getCounter(StorageLookupCache.USER_LOCATION_CACHE_HIT_METRIC));
+
+        // a user ID that is only in a user ID mapping is found in the first storage
+        AuthRecipeUserInfo user3 = EmailPassword.signUp(main, "user3@example.com", "password");
+        UserIdMapping.createUserIdMapping(main, user3.getSupertokensUserId(), "externalId", null, false);
+        StorageAndUserIdMapping result = StorageLayer.findStorageAndUserIdMappingForUser(main, app, storages,
+                "externalId", UserIdType.ANY);
+        assertSame(first, result.storage);
+        assertEquals(user3.getSupertokensUserId(), result.userIdMapping.superTokensUserId);
+        assertEquals(2, metrics.getCounter(StorageLookupCache.USER_LOCATION_CACHE_MISS_METRIC));
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("userId", "externalId");
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(main, "",
+                "http://localhost:3567/user/remove", requestBody, 1000, 1000, null,
+                Utils.getCdiVersionStringLatestForTests(), "");
+        assertEquals("OK", response.get("status").getAsString());
+
+        // the location of the deleted user is not cached anymore, so looking up the same external ID, now mapped to
+        // another user, is a miss instead of a hit on the cached storage
+        AuthRecipeUserInfo user4 = EmailPassword.signUp(main, "user4@example.com", "password");
+        UserIdMapping.createUserIdMapping(main, user4.getSupertokensUserId(), "externalId", null, false);
+        result = StorageLayer.findStorageAndUserIdMappingForUser(main, app, storages, "externalId",
+                UserIdType.ANY);
+        assertSame(first, result.storage);
+        assertEquals(user4.getSupertokensUserId(), result.userIdMapping.superTokensUserId);
+        assertEquals(3, metrics.getCounter(StorageLookupCache.USER_LOCATION_CACHE_MISS_METRIC));
+        assertEquals(1, metrics.getCounter(StorageLookupCache.USER_LOCATION_CACHE_HIT_METRIC));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
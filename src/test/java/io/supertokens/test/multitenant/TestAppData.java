@@ -17,10 +17,12 @@
 package io.supertokens.test.multitenant;
 
 import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.supertokens.ActiveUsers;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
+import io.supertokens.bulkimport.BulkImport;
 import io.supertokens.dashboard.Dashboard;
 import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.emailverification.EmailVerification;
@@ -104,7 +106,8 @@ public class TestAppData {
             return;
         }
 
-        String[] tablesToIgnore = new String[]{"tenant_thirdparty_provider_clients", "tenant_thirdparty_providers", "tenant_first_factors", "tenant_required_secondary_factors"};
+        String[] tablesToIgnore = new String[]{"tenant_thirdparty_provider_clients", "tenant_thirdparty_providers", "tenant_first_factors", "tenant_required_secondary_factors",
+                "tenant_configs_version"};
 
         TenantIdentifier app = new TenantIdentifier(null, "a1", null);
 
@@ -166,6 +169,8 @@ public class TestAppData {
 
         ActiveUsers.updateLastActive(app.toAppIdentifier(), process.getProcess(),
                 epUser.getSupertokensUserId());
+        // the last active time is buffered in memory until it is flushed
+        ActiveUsers.flushLastActiveUpdates(process.getProcess(), app.toAppIdentifier());
 
         UserMetadata.updateUserMetadata(app.toAppIdentifier(), appStorage,
                 epUser.getSupertokensUserId(), new JsonObject());
@@ -173,6 +178,20 @@ public class TestAppData {
         UserIdMapping.createUserIdMapping(process.getProcess(), app.toAppIdentifier(), appStorage,
                 plUser.user.getSupertokensUserId(), "externalid", null, false);
 
+        JsonObject bulkImportLoginMethod = new JsonObject();
+        bulkImportLoginMethod.addProperty("recipeId", "emailpassword");
+        bulkImportLoginMethod.addProperty("email", "bulk@example.com");
+        bulkImportLoginMethod.addProperty("passwordHash",
+                "$2a$10$GzEm3vKoAqnJCTWesRARCe/ovjt/07qjvcH9jbLUg44Fn77gMZkmm");
+        bulkImportLoginMethod.addProperty("hashingAlgorithm", "bcrypt");
+        JsonArray bulkImportLoginMethods = new JsonArray();
+        bulkImportLoginMethods.add(bulkImportLoginMethod);
+        JsonObject bulkImportUser = new JsonObject();
+        bulkImportUser.add("loginMethods", bulkImportLoginMethods);
+        JsonArray bulkImportUsers = new JsonArray();
+        bulkImportUsers.add(bulkImportUser);
+        BulkImport.addUsers(process.getProcess(), app.toAppIdentifier(), appStorage, bulkImportUsers);
+
         String[] tablesThatHaveData = appStorage
                 .getAllTablesInTheDatabaseThatHasDataForAppId(app.getAppId());
         tablesThatHaveData = removeStrings(tablesThatHaveData, tablesToIgnore);
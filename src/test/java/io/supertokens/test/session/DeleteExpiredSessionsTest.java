@@ -16,8 +16,15 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
@@ -26,8 +33,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class DeleteExpiredSessionsTest {
     @Rule
@@ -55,4 +61,119 @@ public class DeleteExpiredSessionsTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void intervalTimeSecondsWithBatchDeletionTest() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("expired_data_deletion_batch_size", "100");
+        Utils.setValueInConfig("expired_data_deletion_interval_sec", "120");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        assertEquals(120, DeleteExpiredSessions.getInstance(process.getProcess()).getIntervalTimeSeconds());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void expiredSessionsAreDeletedInBatches() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("expired_data_deletion_batch_size", "10");
+        Utils.setValueInConfig("expired_data_deletion_rows_per_second", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(DeleteExpiredSessions.RESOURCE_KEY, 1000);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        DeleteExpiredSessions cronjob = DeleteExpiredSessions.getInstance(process.getProcess());
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        waitForFirstRunOfCronjob(cronjob, metrics);
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        createExpiredSessions(start, tenantIdentifier, 35);
+        start.createNewSession(tenantIdentifier, "notExpired", "user", "hash", new JsonObject(),
+                System.currentTimeMillis() + 100000, new JsonObject(), System.currentTimeMillis(), false);
+
+        long deletedBefore = metrics.getCounter(cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETED_METRIC));
+        long batchesBefore = metrics.getCounter(cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETION_BATCHES_METRIC));
+
+        cronjob.run();
+
+        assertEquals(1, start.getNumberOfSessions(tenantIdentifier));
+        assertEquals(35,
+                metrics.getCounter(cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETED_METRIC)) - deletedBefore);
+        // 10 + 10 + 10 + 5
+        assertEquals(4, metrics.getCounter(cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETION_BATCHES_METRIC))
+                - batchesBefore);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void batchDeletionIsRateLimitedAndStopsAfterMaxRunTime() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("expired_data_deletion_batch_size", "10");
+        Utils.setValueInConfig("expired_data_deletion_rows_per_second", "10");
+        Utils.setValueInConfig("expired_data_deletion_max_run_time_sec", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(DeleteExpiredSessions.RESOURCE_KEY, 1000);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        DeleteExpiredSessions cronjob = DeleteExpiredSessions.getInstance(process.getProcess());
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        waitForFirstRunOfCronjob(cronjob, metrics);
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        createExpiredSessions(start, tenantIdentifier, 50);
+
+        long capReachedBefore = metrics.getCounter(
+                cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETION_TIME_CAP_REACHED_METRIC));
+
+        long startTime = System.currentTimeMillis();
+        cronjob.run();
+        long timeTaken = System.currentTimeMillis() - startTime;
+
+        // the first batch of 10 rows uses up one second of budget, so we sleep for a second before the second batch,
+        // after which the max run time is over.
+        assertEquals(30, start.getNumberOfSessions(tenantIdentifier));
+        assertTrue(timeTaken >= 1000);
+        assertEquals(1, metrics.getCounter(
+                cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETION_TIME_CAP_REACHED_METRIC)) - capReachedBefore);
+
+        // the rest are deleted in the next runs
+        cronjob.run();
+        cronjob.run();
+        assertEquals(0, start.getNumberOfSessions(tenantIdentifier));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void createExpiredSessions(Start start, TenantIdentifier tenantIdentifier, int numberOfSessions)
+            throws Exception {
+        for (int i = 0; i < numberOfSessions; i++) {
+            start.createNewSession(tenantIdentifier, "handle" + i, "user", "hash", new JsonObject(),
+                    System.currentTimeMillis() - 1000, new JsonObject(), System.currentTimeMillis(), false);
+        }
+    }
+
+    // the cronjob runs once as soon as the core starts, and we do not want that run to delete the sessions that
+    // the test creates.
+    private static void waitForFirstRunOfCronjob(CronTask cronjob, Metrics metrics) throws InterruptedException {
+        String metricName = cronjob.getMetricName(CronTask.EXPIRED_ROWS_DELETION_BATCHES_METRIC);
+        for (int i = 0; i < 50 && metrics.getCounter(metricName) == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(metrics.getCounter(metricName) > 0);
+    }
 }
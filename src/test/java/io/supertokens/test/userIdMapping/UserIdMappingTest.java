@@ -46,6 +46,7 @@ import org.junit.rules.TestRule;
 import org.reflections.Reflections;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -1075,4 +1076,37 @@ public class UserIdMappingTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testGettingMappingsForMoreUserIdsThanFitInOneQuery() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AuthRecipeUserInfo user_1 = EmailPassword.signUp(process.main, "test@example.com", "testPass123");
+        AuthRecipeUserInfo user_2 = EmailPassword.signUp(process.main, "test2@example.com", "testPass123");
+        UserIdMapping.createUserIdMapping(process.main, user_1.getSupertokensUserId(), "externalId1", null, false);
+        UserIdMapping.createUserIdMapping(process.main, user_2.getSupertokensUserId(), "externalId2", null, false);
+
+        // the users are at the start and the end of the list, so that they are looked up in different chunks, and
+        // each user id is in the list twice
+        ArrayList<String> userIds = new ArrayList<>();
+        userIds.add(user_1.getSupertokensUserId());
+        for (int i = 0; i < UserIdMapping.MAX_USER_IDS_PER_QUERY * 2; i++) {
+            userIds.add("unknown" + (i % (UserIdMapping.MAX_USER_IDS_PER_QUERY + 1)));
+        }
+        userIds.add(user_2.getSupertokensUserId());
+        userIds.add(user_1.getSupertokensUserId());
+
+        HashMap<String, String> mappings = UserIdMapping.getUserIdMappingForSuperTokensUserIds(process.main, userIds);
+        assertEquals(2, mappings.size());
+        assertEquals("externalId1", mappings.get(user_1.getSupertokensUserId()));
+        assertEquals("externalId2", mappings.get(user_2.getSupertokensUserId()));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
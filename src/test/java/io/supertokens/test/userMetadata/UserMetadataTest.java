@@ -29,6 +29,7 @@ import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.usermetadata.exceptions.UserMetadataTooLargeException;
 import io.supertokens.utils.MetadataUtils;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -36,6 +37,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -322,4 +325,87 @@ public class UserMetadataTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testConcurrentUpdatesToDifferentKeysAreAllKept() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        String userId = "userId";
+        JsonObject expected = new JsonObject();
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger(0);
+        for (int i = 0; i < 20; i++) {
+            JsonObject update = new JsonObject();
+            update.addProperty("key" + i, i);
+            expected.addProperty("key" + i, i);
+            threads.add(new Thread(() -> {
+                try {
+                    UserMetadata.updateUserMetadata(process.getProcess(), userId, update);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(0, failures.get());
+        assertEquals(expected, UserMetadata.getUserMetadata(process.getProcess(), userId));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatUpdatesOverTheMaxSizeAreRejected() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("user_metadata_max_size_bytes", "30");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        String userId = "userId";
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        JsonObject update = new JsonObject();
+        update.addProperty("a", "1234567890");
+        JsonObject expected = UserMetadata.updateUserMetadata(process.getProcess(), appIdentifier,
+                StorageLayer.getStorage(process.getProcess()), userId, update);
+
+        JsonObject largeUpdate = new JsonObject();
+        largeUpdate.addProperty("b", "1234567890");
+        try {
+            UserMetadata.updateUserMetadata(process.getProcess(), appIdentifier,
+                    StorageLayer.getStorage(process.getProcess()), userId, largeUpdate);
+            fail();
+        } catch (UserMetadataTooLargeException ignored) {
+        }
+        assertEquals(expected, UserMetadata.getUserMetadata(process.getProcess(), userId));
+
+        // the size is checked after the merge, so an update that removes a key is allowed
+        JsonObject replacingUpdate = new JsonObject();
+        replacingUpdate.add("a", JsonNull.INSTANCE);
+        replacingUpdate.addProperty("b", "1234567890");
+        UserMetadata.updateUserMetadata(process.getProcess(), appIdentifier,
+                StorageLayer.getStorage(process.getProcess()), userId, replacingUpdate);
+        assertEquals("1234567890", UserMetadata.getUserMetadata(process.getProcess(), userId).get("b").getAsString());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.userMetadata.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.usermetadata.UserMetadata;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class UserMetadataForUsersAPITest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testGettingTheMetadataOfManyUsers() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        JsonObject metadata1 = new JsonObject();
+        metadata1.addProperty("key", "value1");
+        UserMetadata.updateUserMetadata(process.getProcess(), "userId1", metadata1);
+        JsonObject metadata2 = new JsonObject();
+        metadata2.addProperty("key", "value2");
+        UserMetadata.updateUserMetadata(process.getProcess(), "userId2", metadata2);
+
+        JsonArray userIds = new JsonArray();
+        userIds.add(new JsonPrimitive("userId2"));
+        userIds.add(new JsonPrimitive("userId3"));
+        userIds.add(new JsonPrimitive("userId1"));
+        JsonObject request = new JsonObject();
+        request.add("userIds", userIds);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/user/metadata/batch", request, 1000, 1000, null,
+                SemVer.v5_0.get(), "usermetadata");
+
+        assertEquals("OK", response.get("status").getAsString());
+        JsonObject metadata = response.getAsJsonObject("metadata");
+        assertEquals(3, metadata.size());
+        assertEquals(metadata1, metadata.get("userId1"));
+        assertEquals(metadata2, metadata.get("userId2"));
+        assertEquals(new JsonObject(), metadata.get("userId3"));
+
+        request.add("userIds", new JsonArray());
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/user/metadata/batch", request, 1000, 1000, null,
+                    SemVer.v5_0.get(), "usermetadata");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: userIds must contain between 1 and 500 user ids",
+                    e.getMessage());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.userRoles;
+
+import io.supertokens.ProcessState;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
+import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.userroles.UserRoles;
+import io.supertokens.userroles.UserRolesCache;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static io.supertokens.test.Utils.checkThatArraysAreEqual;
+import static org.junit.Assert.*;
+
+public class UserRolesCacheTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatRolesAndPermissionsAreCachedAndInvalidatedOnChange() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Storage storage = StorageLayer.getStorage(process.getProcess());
+        AppIdentifier app = new AppIdentifier(null, null);
+        TenantIdentifier tenant = new TenantIdentifier(null, null, null);
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", new String[]{"p1"});
+        UserRoles.addRoleToUser(process.getProcess(), "userId", "role");
+
+        checkThatArraysAreEqual(new String[]{"p1"},
+                UserRoles.getPermissionsForRole(process.getProcess(), app, storage, "role"));
+        checkThatArraysAreEqual(new String[]{"p1"},
+                UserRoles.getPermissionsForRole(process.getProcess(), app, storage, "role"));
+        assertEquals(1, metrics.getCounter(UserRolesCache.ROLE_PERMISSIONS_MISS_METRIC));
+        assertEquals(1, metrics.getCounter(UserRolesCache.ROLE_PERMISSIONS_HIT_METRIC));
+
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+        assertEquals(1, metrics.getCounter(UserRolesCache.USER_ROLES_MISS_METRIC));
+        assertEquals(1, metrics.getCounter(UserRolesCache.USER_ROLES_HIT_METRIC));
+
+        // changes through UserRoles are seen right away
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", new String[]{"p2"});
+        checkThatArraysAreEqual(new String[]{"p1", "p2"},
+                UserRoles.getPermissionsForRole(process.getProcess(), app, storage, "role"));
+
+        UserRoles.deletePermissionsFromRole(process.getProcess(), "role", new String[]{"p1"});
+        checkThatArraysAreEqual(new String[]{"p2"},
+                UserRoles.getPermissionsForRole(process.getProcess(), app, storage, "role"));
+
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role2", null);
+        UserRoles.addRoleToUser(process.getProcess(), "userId", "role2");
+        checkThatArraysAreEqual(new String[]{"role", "role2"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+
+        UserRoles.removeUserRole(process.getProcess(), "userId", "role2");
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+
+        UserRoles.deleteRole(process.getProcess(), "role");
+        assertEquals(0, UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId").length);
+        try {
+            UserRoles.getPermissionsForRole(process.getProcess(), app, storage, "role");
+            fail();
+        } catch (UnknownRoleException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTheRolesOfADeletedUserAreNotCached() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Storage storage = StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenant = new TenantIdentifier(null, null, null);
+
+        AuthRecipeUserInfo user = EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", null);
+        UserRoles.addRoleToUser(process.getProcess(), user.getSupertokensUserId(), "role");
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, user.getSupertokensUserId()));
+
+        AuthRecipe.deleteUser(process.getProcess(), user.getSupertokensUserId());
+        assertEquals(0,
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, user.getSupertokensUserId()).length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatChangesMadeDirectlyInTheDbAreSeenAfterTheTtl() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("user_roles_cache_ttl_sec", "1");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Storage storage = StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenant = new TenantIdentifier(null, null, null);
+
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", null);
+        assertEquals(0, UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId").length);
+
+        // as if the role was added through another core that uses the same db
+        ((UserRolesSQLStorage) storage).addRoleToUser(tenant, "userId", "role");
+        assertEquals(0, UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId").length);
+
+        Thread.sleep(1100);
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatNothingIsCachedIfTheCacheIsDisabled() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("user_roles_cache_size", "0");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Storage storage = StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenant = new TenantIdentifier(null, null, null);
+
+        UserRoles.createNewRoleOrModifyItsPermissions(process.getProcess(), "role", null);
+        assertEquals(0, UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId").length);
+        ((UserRolesSQLStorage) storage).addRoleToUser(tenant, "userId", "role");
+        checkThatArraysAreEqual(new String[]{"role"},
+                UserRoles.getRolesForUser(process.getProcess(), tenant, storage, "userId"));
+        assertEquals(0, Metrics.getInstance(process.getProcess()).getCounter(UserRolesCache.USER_ROLES_HIT_METRIC));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}